@@ -23,8 +23,11 @@ import com.bumptech.glide.load.data.InputStreamRewinder;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemoryController;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.prefill.BitmapPreFiller;
+import com.bumptech.glide.load.engine.prefill.DecodeSizeHistogram;
 import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.load.model.AssetUriLoader;
 import com.bumptech.glide.load.model.ByteArrayLoader;
@@ -71,6 +74,7 @@ import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.ImageViewTargetFactory;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import java.io.File;
 import java.io.InputStream;
@@ -105,6 +109,9 @@ public class Glide implements ComponentCallbacks2 {
   private final ConnectivityMonitorFactory connectivityMonitorFactory;
   private final List<RequestManager> managers = new ArrayList<>();
   private MemoryCategory memoryCategory = MemoryCategory.NORMAL;
+  @Nullable private final AdaptiveMemoryController adaptiveMemoryController;
+  @Nullable private final DecodeSizeHistogram decodeSizeHistogram;
+  @Synthetic float adaptiveSizeMultiplier = 1f;
 
   /**
    * Returns a directory with a default name in the private cache directory of the application to
@@ -179,6 +186,9 @@ public class Glide implements ComponentCallbacks2 {
 
   @VisibleForTesting
   public static synchronized void tearDown() {
+    if (glide != null && glide.adaptiveMemoryController != null) {
+      glide.adaptiveMemoryController.stop();
+    }
     glide = null;
   }
 
@@ -274,13 +284,30 @@ public class Glide implements ComponentCallbacks2 {
       RequestManagerRetriever requestManagerRetriever,
       ConnectivityMonitorFactory connectivityMonitorFactory,
       int logLevel,
-      RequestOptions defaultRequestOptions) {
+      RequestOptions defaultRequestOptions,
+      float adaptiveMemoryTargetHeadroom,
+      @Nullable DecodeSizeHistogram decodeSizeHistogram) {
     this.engine = engine;
     this.bitmapPool = bitmapPool;
     this.arrayPool = arrayPool;
     this.memoryCache = memoryCache;
     this.requestManagerRetriever = requestManagerRetriever;
     this.connectivityMonitorFactory = connectivityMonitorFactory;
+    this.decodeSizeHistogram = decodeSizeHistogram;
+
+    if (adaptiveMemoryTargetHeadroom > 0) {
+      adaptiveMemoryController = new AdaptiveMemoryController(adaptiveMemoryTargetHeadroom,
+          new AdaptiveMemoryController.Callback() {
+            @Override
+            public void onSizeMultiplierChanged(float sizeMultiplier) {
+              adaptiveSizeMultiplier = sizeMultiplier;
+              applySizeMultipliers();
+            }
+          });
+      adaptiveMemoryController.start();
+    } else {
+      adaptiveMemoryController = null;
+    }
 
     DecodeFormat decodeFormat = defaultRequestOptions.getOptions().get(Downsampler.DECODE_FORMAT);
     bitmapPreFiller = new BitmapPreFiller(memoryCache, bitmapPool, decodeFormat);
@@ -291,7 +318,10 @@ public class Glide implements ComponentCallbacks2 {
     registry.register(new DefaultImageHeaderParser());
 
     Downsampler downsampler = new Downsampler(registry.getImageHeaderParsers(),
-        resources.getDisplayMetrics(), bitmapPool, arrayPool);
+        resources.getDisplayMetrics(), bitmapPool, arrayPool, decodeSizeHistogram);
+    if (decodeSizeHistogram != null) {
+      bitmapPreFiller.preFill(decodeSizeHistogram);
+    }
     ByteBufferGifDecoder byteBufferGifDecoder =
         new ByteBufferGifDecoder(context, registry.getImageHeaderParsers(), bitmapPool, arrayPool);
 
@@ -329,6 +359,8 @@ public class Glide implements ComponentCallbacks2 {
         .append(File.class, File.class, new FileDecoder())
         .append(File.class, ParcelFileDescriptor.class, new FileLoader.FileDescriptorFactory())
         .append(File.class, File.class, new UnitModelLoader.Factory<File>())
+        // Disk caches may return ByteBuffers, see DiskCache.BufferReader.
+        .append(ByteBuffer.class, ByteBuffer.class, new UnitModelLoader.Factory<ByteBuffer>())
         /* Models */
         .register(new InputStreamRewinder.Factory(arrayPool))
         .append(int.class, InputStream.class, new ResourceLoader.StreamFactory(resources))
@@ -456,6 +488,7 @@ public class Glide implements ComponentCallbacks2 {
   public void clearMemory() {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
+    bitmapPreFiller.cancel();
     // memory cache needs to be cleared before bitmap pool to clear re-pooled Bitmaps too. See #687.
     memoryCache.clearMemory();
     bitmapPool.clearMemory();
@@ -475,6 +508,9 @@ public class Glide implements ComponentCallbacks2 {
     memoryCache.trimMemory(level);
     bitmapPool.trimMemory(level);
     arrayPool.trimMemory(level);
+    if (decodeSizeHistogram != null) {
+      decodeSizeHistogram.trimMemory(level);
+    }
   }
 
   /**
@@ -512,14 +548,24 @@ public class Glide implements ComponentCallbacks2 {
   public MemoryCategory setMemoryCategory(MemoryCategory memoryCategory) {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
-    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
-    memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
-    bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
     MemoryCategory oldCategory = this.memoryCategory;
     this.memoryCategory = memoryCategory;
+    applySizeMultipliers();
     return oldCategory;
   }
 
+  @Synthetic
+  void applySizeMultipliers() {
+    float multiplier = AdaptiveMemoryController.combineSizeMultipliers(
+        memoryCategory.getMultiplier(), adaptiveSizeMultiplier);
+    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
+    memoryCache.setSizeMultiplier(multiplier);
+    bitmapPool.setSizeMultiplier(multiplier);
+    if (arrayPool instanceof LruArrayPool) {
+      ((LruArrayPool) arrayPool).setSizeMultiplier(adaptiveSizeMultiplier);
+    }
+  }
+
   private static RequestManagerRetriever getRetriever(@Nullable Context context) {
     // Context could be null for other reasons (ie the user passes in null), but in practice it will
     // only occur due to errors with the Fragment lifecycle.
@@ -4,37 +4,62 @@ import android.content.Context;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.ActiveResourceDrainStrategy;
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.EngineEventListener;
+import com.bumptech.glide.load.engine.JobShedPolicy;
+import com.bumptech.glide.load.engine.SizeBucketStrategy;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemoryController;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.engine.cache.PartitionedResourceCache;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.prefill.DecodeSizeHistogram;
 import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.DefaultConnectivityMonitorFactory;
 import com.bumptech.glide.manager.RequestManagerRetriever;
 import com.bumptech.glide.manager.RequestManagerRetriever.RequestManagerFactory;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.Preconditions;
+import java.util.Map;
 
 /**
  * A builder class for setting default structural classes for Glide to use.
  */
 public final class GlideBuilder {
+  private static final String DECODE_SIZE_HISTOGRAM_EXECUTOR_NAME = "decode-size-histogram";
   private Engine engine;
   private BitmapPool bitmapPool;
   private ArrayPool arrayPool;
   private MemoryCache memoryCache;
   private GlideExecutor sourceExecutor;
   private GlideExecutor diskCacheExecutor;
+  @Nullable
+  private GlideExecutor sourceDecodeExecutor;
+  @Nullable
+  private GlideExecutor diskCacheEncodeExecutor;
   private DiskCache.Factory diskCacheFactory;
   private MemorySizeCalculator memorySizeCalculator;
   private ConnectivityMonitorFactory connectivityMonitorFactory;
   private int logLevel = Log.INFO;
+  private float adaptiveMemoryTargetHeadroom;
+  private boolean isConcurrentLoadAllowed;
+  private boolean isPredictivePreFillEnabled;
+  private ActiveResourceDrainStrategy activeResourceDrainStrategy =
+      ActiveResourceDrainStrategy.DEFAULT;
+  private boolean isActiveResourceRetentionAllowed;
+  private SizeBucketStrategy sizeBucketStrategy = SizeBucketStrategy.NONE;
+  @Nullable
+  private EngineEventListener engineEventListener;
+  private int maxPendingJobsPerExecutor = Engine.UNLIMITED_PENDING_JOBS;
+  private JobShedPolicy jobShedPolicy = JobShedPolicy.DEFAULT;
   private RequestOptions defaultRequestOptions = new RequestOptions();
   @Nullable
   private RequestManagerFactory requestManagerFactory;
@@ -142,6 +167,48 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets the {@link GlideExecutor} to use to decode and transform data obtained by the source
+   * executor, so that the source executor can be sized for network concurrency and this executor
+   * for the number of cores.
+   *
+   * <p>Only data that's available locally, for example because it has been written to the disk
+   * cache, is handed off. Data that's still streaming from the network is decoded on the source
+   * executor.
+   *
+   * <p>Defaults to {@code null}, in which case data is decoded on the source executor. If set and
+   * no executor is set with {@link #setResizeExecutor(GlideExecutor)}, the source executor uses
+   * {@link GlideExecutor#DEFAULT_SOURCE_IO_EXECUTOR_THREADS} threads. Has no effect if a custom
+   * {@link Engine} is provided.
+   *
+   * @param service The executor to use, typically one from
+   *                {@link GlideExecutor#newSourceDecodeExecutor()}, or {@code null}.
+   * @return This builder.
+   */
+  public GlideBuilder setSourceDecodeExecutor(@Nullable GlideExecutor service) {
+    this.sourceDecodeExecutor = service;
+    return this;
+  }
+
+  /**
+   * Sets the {@link GlideExecutor} to use to write resources to the disk cache after they've been
+   * delivered, so that encodes don't occupy the threads used to load new resources.
+   *
+   * <p>Encodes are best effort. Encodes for a disk cache key that is already being written, or
+   * that are rejected by the executor, for example because its queue is full, are dropped.
+   *
+   * <p>Defaults to {@code null}, in which case resources are written on the thread that decoded
+   * them. Has no effect if a custom {@link Engine} is provided.
+   *
+   * @param service The executor to use, typically one from
+   *                {@link GlideExecutor#newDiskCacheEncodeExecutor()}, or {@code null}.
+   * @return This builder.
+   */
+  public GlideBuilder setDiskCacheEncodeExecutor(@Nullable GlideExecutor service) {
+    this.diskCacheEncodeExecutor = service;
+    return this;
+  }
+
   /**
    * Sets the default {@link RequestOptions} to use for all loads across the app.
    *
@@ -204,6 +271,28 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Enables adjusting the sizes of Glide's memory cache, bitmap pool and array pool at runtime so
+   * that the given fraction of the maximum heap size stays free.
+   *
+   * <p>The adjustment is combined with the {@link MemoryCategory} set in
+   * {@link Glide#setMemoryCategory(MemoryCategory)}. Disabled by default.
+   *
+   * @see AdaptiveMemoryController
+   *
+   * @param targetHeadroom The fraction of the maximum heap size to keep free, between 0 and 1, for
+   *                       example {@link AdaptiveMemoryController#DEFAULT_TARGET_HEADROOM}, or 0 to
+   *                       disable adjustments.
+   * @return This builder.
+   */
+  public GlideBuilder setAdaptiveMemoryBudget(float targetHeadroom) {
+    if (targetHeadroom < 0 || targetHeadroom >= 1) {
+      throw new IllegalArgumentException("Target headroom must be >= 0 and < 1");
+    }
+    this.adaptiveMemoryTargetHeadroom = targetHeadroom;
+    return this;
+  }
+
   /**
    * Sets the {@link com.bumptech.glide.manager.ConnectivityMonitorFactory}
    * to use to notify {@link com.bumptech.glide.RequestManager} of connectivity events.
@@ -251,6 +340,152 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets whether or not Glide records the sizes of the first {@link android.graphics.Bitmap}s it
+   * decodes after the application starts and pre-fills the {@link BitmapPool} with
+   * {@link android.graphics.Bitmap}s of those sizes on a background thread the next time the same
+   * version of the application starts.
+   *
+   * <p>Pre-filling lets the decodes for an application's first screens re-use
+   * {@link android.graphics.Bitmap}s instead of allocating them, at the cost of allocating memory
+   * early. Pre-filling stops if {@link Glide#clearMemory()} is called. Disabled by default.
+   *
+   * @see DecodeSizeHistogram
+   *
+   * @param isEnabled {@code true} to record decode sizes and pre-fill the pool.
+   * @return This builder.
+   */
+  public GlideBuilder setIsPredictivePreFillEnabled(boolean isEnabled) {
+    this.isPredictivePreFillEnabled = isEnabled;
+    return this;
+  }
+
+  /**
+   * Sets whether or not the {@link Engine} may start loads on threads other than the main thread.
+   *
+   * <p>When enabled, the {@link Engine} uses concurrent tables for in progress loads and active
+   * resources, and {@link RequestBuilder#submit(int, int)} called on a background thread begins
+   * its request on that thread instead of posting it to the main thread. Memory cache hits are
+   * delivered to the returned {@link com.bumptech.glide.request.FutureTarget} immediately, and
+   * other loads are delivered on the thread that finishes them, so
+   * {@link com.bumptech.glide.request.FutureTarget#get()} doesn't wait on the main thread.
+   * Resources must still be released, and futures are still cleared, on the main thread.
+   *
+   * <p>Defaults to {@code false}. Has no effect if a custom {@link Engine} is provided.
+   *
+   * @param isConcurrentLoadAllowed {@code true} to allow loads on any thread.
+   * @return This builder.
+   */
+  public GlideBuilder setIsConcurrentLoadAllowed(boolean isConcurrentLoadAllowed) {
+    this.isConcurrentLoadAllowed = isConcurrentLoadAllowed;
+    return this;
+  }
+
+  /**
+   * Sets the {@link ActiveResourceDrainStrategy} used to remove entries for resources that were
+   * provided to requests but that became unreachable without being released.
+   *
+   * <p>Defaults to {@link ActiveResourceDrainStrategy#DEFAULT}. Has no effect if a custom
+   * {@link Engine} is provided.
+   *
+   * @param strategy The strategy to use.
+   * @return This builder.
+   */
+  public GlideBuilder setActiveResourceDrainStrategy(ActiveResourceDrainStrategy strategy) {
+    this.activeResourceDrainStrategy = Preconditions.checkNotNull(strategy);
+    return this;
+  }
+
+  /**
+   * Sets whether or not resources that were provided to requests but that became unreachable
+   * without being released may be returned to the memory cache.
+   *
+   * <p>Retaining these resources keeps memory cache hit rates high when requests are not cleared
+   * correctly, but can cause resources that are still in use to be re-used if the underlying
+   * objects (for example {@link android.graphics.Bitmap}s) are still referenced elsewhere. Only
+   * enable retention if the app never holds on to loaded resources after their requests are
+   * garbage collected.
+   *
+   * <p>Defaults to {@code false}. Has no effect if a custom {@link Engine} is provided.
+   *
+   * @param isActiveResourceRetentionAllowed {@code true} to allow retention.
+   * @return This builder.
+   */
+  public GlideBuilder setIsActiveResourceRetentionAllowed(
+      boolean isActiveResourceRetentionAllowed) {
+    this.isActiveResourceRetentionAllowed = isActiveResourceRetentionAllowed;
+    return this;
+  }
+
+  /**
+   * Sets the {@link SizeBucketStrategy} used to round the requested dimensions of loads so that
+   * loads for the same model with similar dimensions, for example in a staggered grid, share a
+   * single decode and a single memory and disk cache entry.
+   *
+   * <p>Resources loaded with a strategy other than {@link SizeBucketStrategy#NONE} may be slightly
+   * larger than the requested size and are expected to be scaled by their targets.
+   *
+   * <p>Transformations are applied at the bucketed size, not at the size of the target. Only the
+   * larger dimension is rounded and the other is scaled to match, so the bucketed size keeps the
+   * target's aspect ratio and transformations that crop, like
+   * {@link com.bumptech.glide.load.resource.bitmap.CenterCrop}, crop to the same region they would
+   * have without bucketing.
+   *
+   * <p>Defaults to {@link SizeBucketStrategy#NONE}. Has no effect if a custom {@link Engine} is
+   * provided.
+   *
+   * @param strategy The strategy to use.
+   * @return This builder.
+   */
+  public GlideBuilder setSizeBucketStrategy(SizeBucketStrategy strategy) {
+    this.sizeBucketStrategy = Preconditions.checkNotNull(strategy);
+    return this;
+  }
+
+  /**
+   * Sets an {@link EngineEventListener} that will be notified with timestamps as each load moves
+   * through queueing, fetching, decoding, transforming, transcoding and encoding.
+   *
+   * <p>Events are delivered synchronously on Glide's executor threads, so the listener should be
+   * cheap. No events are recorded if no listener is set.
+   *
+   * <p>Defaults to {@code null}. Has no effect if a custom {@link Engine} is provided.
+   *
+   * @param listener The listener to notify, or {@code null} to disable per stage events.
+   * @return This builder.
+   */
+  public GlideBuilder setEngineEventListener(@Nullable EngineEventListener listener) {
+    this.engineEventListener = listener;
+    return this;
+  }
+
+  /**
+   * Bounds the number of loads that can wait to run on each of Glide's executors.
+   *
+   * <p>When a load is submitted to an executor that already has the maximum number of pending
+   * loads, either the submitted load or one of the pending loads, chosen by the given
+   * {@link JobShedPolicy}, fails immediately with a
+   * {@link com.bumptech.glide.load.engine.GlideException} caused by a
+   * {@link com.bumptech.glide.load.engine.JobShedException}. The number of loads shed is available
+   * from {@link Engine#getShedJobCount()}.
+   *
+   * <p>Defaults to {@link Engine#UNLIMITED_PENDING_JOBS}. Has no effect if a custom
+   * {@link Engine} is provided.
+   *
+   * @param maxPendingJobsPerExecutor The approximate maximum number of loads that can wait in each
+   *                                  executor's queue, or {@link Engine#UNLIMITED_PENDING_JOBS}.
+   * @param policy The policy used to choose which load to shed.
+   * @return This builder.
+   */
+  public GlideBuilder setMaxPendingJobsPerExecutor(int maxPendingJobsPerExecutor,
+      JobShedPolicy policy) {
+    Preconditions.checkArgument(maxPendingJobsPerExecutor > 0,
+        "Max pending jobs per executor must be > 0");
+    this.maxPendingJobsPerExecutor = maxPendingJobsPerExecutor;
+    this.jobShedPolicy = Preconditions.checkNotNull(policy);
+    return this;
+  }
+
   GlideBuilder setRequestManagerFactory(
       @Nullable RequestManagerRetriever.RequestManagerFactory factory) {
     this.requestManagerFactory = factory;
@@ -265,7 +500,11 @@ public final class GlideBuilder {
 
   public Glide build(Context context) {
     if (sourceExecutor == null) {
-      sourceExecutor = GlideExecutor.newSourceExecutor();
+      sourceExecutor = sourceDecodeExecutor != null
+          ? GlideExecutor.newSourceExecutor(GlideExecutor.DEFAULT_SOURCE_IO_EXECUTOR_THREADS,
+              GlideExecutor.DEFAULT_SOURCE_EXECUTOR_NAME,
+              GlideExecutor.UncaughtThrowableStrategy.DEFAULT)
+          : GlideExecutor.newSourceExecutor();
     }
 
     if (diskCacheExecutor == null) {
@@ -286,11 +525,18 @@ public final class GlideBuilder {
     }
 
     if (arrayPool == null) {
-      arrayPool = new LruArrayPool(memorySizeCalculator.getArrayPoolSizeInBytes());
+      // Enough for the buffers a single decode uses at once, see Downsampler and StreamEncoder.
+      arrayPool = new LruArrayPool(memorySizeCalculator.getArrayPoolSizeInBytes(),
+          2 * ArrayPool.STANDARD_BUFFER_SIZE_BYTES);
     }
 
     if (memoryCache == null) {
-      memoryCache = new LruResourceCache(memorySizeCalculator.getMemoryCacheSize());
+      Map<Class<?>, Integer> partitionSizes =
+          memorySizeCalculator.getMemoryCachePartitionSizes();
+      memoryCache = partitionSizes.isEmpty()
+          ? new LruResourceCache(memorySizeCalculator.getMemoryCacheSize())
+          : new PartitionedResourceCache(memorySizeCalculator.getMemoryCacheSize(),
+              partitionSizes);
     }
 
     if (diskCacheFactory == null) {
@@ -299,12 +545,23 @@ public final class GlideBuilder {
 
     if (engine == null) {
       engine = new Engine(memoryCache, diskCacheFactory, diskCacheExecutor, sourceExecutor,
-          GlideExecutor.newUnlimitedSourceExecutor());
+          GlideExecutor.newUnlimitedSourceExecutor(), sourceDecodeExecutor, diskCacheEncodeExecutor,
+          isConcurrentLoadAllowed,
+          activeResourceDrainStrategy, isActiveResourceRetentionAllowed, sizeBucketStrategy,
+          engineEventListener, maxPendingJobsPerExecutor, jobShedPolicy);
     }
 
     RequestManagerRetriever requestManagerRetriever = new RequestManagerRetriever(
         requestManagerFactory);
 
+    DecodeSizeHistogram decodeSizeHistogram = null;
+    if (isPredictivePreFillEnabled) {
+      // The disk cache executor only accepts prioritized loads, so saves get a thread of their own.
+      decodeSizeHistogram = new DecodeSizeHistogram(context,
+          GlideExecutor.newDiskBackgroundExecutor(DECODE_SIZE_HISTOGRAM_EXECUTOR_NAME,
+              GlideExecutor.UncaughtThrowableStrategy.DEFAULT));
+    }
+
     return new Glide(
         context,
         engine,
@@ -314,6 +571,8 @@ public final class GlideBuilder {
         requestManagerRetriever,
         connectivityMonitorFactory,
         logLevel,
-        defaultRequestOptions.lock());
+        defaultRequestOptions.lock(),
+        adaptiveMemoryTargetHeadroom,
+        decodeSizeHistogram);
   }
 }
@@ -469,7 +469,9 @@ public class RequestBuilder<TranscodeType> implements Cloneable {
     final RequestFutureTarget<TranscodeType> target =
         new RequestFutureTarget<>(context.getMainHandler(), width, height);
 
-    if (Util.isOnBackgroundThread()) {
+    if (Util.isOnBackgroundThread() && context.getEngine().isConcurrentLoadAllowed()) {
+      beginOnCurrentThread(target);
+    } else if (Util.isOnBackgroundThread()) {
       context.getMainHandler().post(new Runnable() {
         @Override
         public void run() {
@@ -485,6 +487,30 @@ public class RequestBuilder<TranscodeType> implements Cloneable {
     return target;
   }
 
+  /**
+   * Begins a request for the given future on the current background thread, so that loads that
+   * hit the memory cache complete immediately and other loads are delivered on the thread that
+   * finishes them, without waiting on the main thread. The request is tracked by the
+   * {@link RequestManager} once the main thread is available, so it isn't paused along with the
+   * manager's other requests until then.
+   */
+  private void beginOnCurrentThread(final RequestFutureTarget<TranscodeType> target) {
+    if (!isModelSet) {
+      throw new IllegalArgumentException("You must call #load() before calling #submit()");
+    }
+    requestOptions.lock();
+    final Request request = buildRequest(target);
+    final RequestManager manager = requestManager;
+    target.setRequest(request);
+    request.begin();
+    context.getMainHandler().post(new Runnable() {
+      @Override
+      public void run() {
+        manager.trackStarted(target, request);
+      }
+    });
+  }
+
   /**
    * Preloads the resource into the cache using the given width and height.
    *
@@ -456,6 +456,15 @@ public class RequestManager implements LifecycleListener {
     requestTracker.runRequest(request);
   }
 
+  /**
+   * Tracks a request that was already begun off of the main thread, so that it's cleared with the
+   * rest of this manager's requests.
+   */
+  void trackStarted(Target<?> target, Request request) {
+    targetTracker.track(target);
+    requestTracker.addRequest(request);
+  }
+
   RequestOptions getDefaultRequestOptions() {
     return requestOptions;
   }
@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.data;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 import com.bumptech.glide.Priority;
@@ -23,6 +24,10 @@ import java.util.Map;
 public class HttpUrlFetcher implements DataFetcher<InputStream> {
   private static final String TAG = "HttpUrlFetcher";
   private static final int MAXIMUM_REDIRECTS = 5;
+  private static final String CONTENT_RANGE_PREFIX = "bytes ";
+  // Smaller responses are cheap to download again, so they're only kept when interrupted if the
+  // server says it supports range requests. Visible for testing.
+  static final int MIN_RECORDED_CONTENT_LENGTH = 128 * 1024;
   // Visible for testing.
   static final HttpUrlConnectionFactory DEFAULT_CONNECTION_FACTORY =
       new DefaultHttpUrlConnectionFactory();
@@ -30,26 +35,47 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
   private final GlideUrl glideUrl;
   private final int timeout;
   private final HttpUrlConnectionFactory connectionFactory;
+  @Nullable private final PartialDownloadStore partialDownloadStore;
 
   private HttpURLConnection urlConnection;
   private InputStream stream;
+  private PartialDownloadStore.Partial partial;
   private volatile boolean isCancelled;
 
   public HttpUrlFetcher(GlideUrl glideUrl, int timeout) {
     this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY);
   }
 
+  /**
+   * @param partialDownloadStore An optional store used to keep the data of interrupted downloads
+   *                             and to resume them.
+   */
+  public HttpUrlFetcher(GlideUrl glideUrl, int timeout,
+      @Nullable PartialDownloadStore partialDownloadStore) {
+    this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY, partialDownloadStore);
+  }
+
   // Visible for testing.
   HttpUrlFetcher(GlideUrl glideUrl, int timeout, HttpUrlConnectionFactory connectionFactory) {
+    this(glideUrl, timeout, connectionFactory, null /*partialDownloadStore*/);
+  }
+
+  // Visible for testing.
+  HttpUrlFetcher(GlideUrl glideUrl, int timeout, HttpUrlConnectionFactory connectionFactory,
+      @Nullable PartialDownloadStore partialDownloadStore) {
     this.glideUrl = glideUrl;
     this.timeout = timeout;
     this.connectionFactory = connectionFactory;
+    this.partialDownloadStore = partialDownloadStore;
   }
 
   @Override
   public void loadData(Priority priority, DataCallback<? super InputStream> callback) {
     long startTime = LogTime.getLogTime();
     final InputStream result;
+    if (partialDownloadStore != null && partial == null) {
+      partial = partialDownloadStore.acquire(glideUrl);
+    }
     try {
       result = loadDataWithRedirects(glideUrl.toURL(), 0 /*redirects*/, null /*lastUrl*/,
           glideUrl.getHeaders());
@@ -89,6 +115,13 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     for (Map.Entry<String, String> headerEntry : headers.entrySet()) {
       urlConnection.addRequestProperty(headerEntry.getKey(), headerEntry.getValue());
     }
+    boolean isResuming = partial != null && partial.hasData();
+    if (isResuming) {
+      urlConnection.setRequestProperty("Range", "bytes=" + partial.getLength() + "-");
+      urlConnection.setRequestProperty("If-Range", partial.getValidator());
+      // Byte ranges of compressed responses don't match the bytes we kept.
+      urlConnection.setRequestProperty("Accept-Encoding", "identity");
+    }
     urlConnection.setConnectTimeout(timeout);
     urlConnection.setReadTimeout(timeout);
     urlConnection.setUseCaches(false);
@@ -104,7 +137,18 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
       return null;
     }
     final int statusCode = urlConnection.getResponseCode();
-    if (statusCode / 100 == 2) {
+    if (statusCode == HttpURLConnection.HTTP_PARTIAL && isResuming) {
+      if (isExpectedContentRange(urlConnection.getHeaderField("Content-Range"))) {
+        stream = ContentLengthInputStream.obtain(partial.resume(urlConnection.getInputStream()),
+            partial.getTotalLength());
+        return stream;
+      }
+      // The server returned a range other than the one we asked for, start over without the
+      // partial data.
+      partial.discard();
+      urlConnection.disconnect();
+      return loadDataWithRedirects(url, redirects + 1, null /*lastUrl*/, headers);
+    } else if (statusCode / 100 == 2) {
       return getStreamForSuccessfulRequest(urlConnection);
     } else if (statusCode / 100 == 3) {
       String redirectUrlString = urlConnection.getHeaderField("Location");
@@ -120,11 +164,40 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     }
   }
 
+  private boolean isExpectedContentRange(String contentRange) {
+    // Content-Range: bytes <start>-<end>/<total>
+    if (contentRange == null || !contentRange.startsWith(CONTENT_RANGE_PREFIX)) {
+      return false;
+    }
+    int dash = contentRange.indexOf('-');
+    int slash = contentRange.indexOf('/');
+    if (dash == -1 || slash < dash) {
+      return false;
+    }
+    try {
+      long start = Long.parseLong(contentRange.substring(CONTENT_RANGE_PREFIX.length(), dash));
+      long total = Long.parseLong(contentRange.substring(slash + 1));
+      return start == partial.getLength() && total == partial.getTotalLength();
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
   private InputStream getStreamForSuccessfulRequest(HttpURLConnection urlConnection)
       throws IOException {
+    if (partial != null) {
+      // Any partial data is stale if the server sent the whole resource.
+      partial.discard();
+    }
     if (TextUtils.isEmpty(urlConnection.getContentEncoding())) {
       int contentLength = urlConnection.getContentLength();
-      stream = ContentLengthInputStream.obtain(urlConnection.getInputStream(), contentLength);
+      InputStream is = urlConnection.getInputStream();
+      String validator = getValidator(urlConnection);
+      if (partial != null && contentLength > 0 && validator != null
+          && (contentLength >= MIN_RECORDED_CONTENT_LENGTH || isRangeSupported(urlConnection))) {
+        is = partial.startRecording(is, validator, contentLength);
+      }
+      stream = ContentLengthInputStream.obtain(is, contentLength);
     } else {
       if (Log.isLoggable(TAG, Log.DEBUG)) {
         Log.d(TAG, "Got non empty content encoding: " + urlConnection.getContentEncoding());
@@ -134,6 +207,24 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     return stream;
   }
 
+  private static boolean isRangeSupported(HttpURLConnection urlConnection) {
+    return "bytes".equalsIgnoreCase(urlConnection.getHeaderField("Accept-Ranges"));
+  }
+
+  /**
+   * Returns the strong ETag or the Last-Modified date of the response, or {@code null} if the
+   * response has neither and so can't be resumed safely.
+   */
+  @Nullable
+  private static String getValidator(HttpURLConnection urlConnection) {
+    String eTag = urlConnection.getHeaderField("ETag");
+    if (!TextUtils.isEmpty(eTag) && !eTag.startsWith("W/")) {
+      return eTag;
+    }
+    String lastModified = urlConnection.getHeaderField("Last-Modified");
+    return TextUtils.isEmpty(lastModified) ? null : lastModified;
+  }
+
   @Override
   public void cleanup() {
     if (stream != null) {
@@ -146,6 +237,10 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     if (urlConnection != null) {
       urlConnection.disconnect();
     }
+    if (partial != null) {
+      partial.release();
+      partial = null;
+    }
   }
 
   @Override
@@ -0,0 +1,577 @@
+package com.bumptech.glide.load.data;
+
+import android.util.Log;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.util.Synthetic;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A minimal HTTP/1.1 client that performs any number of concurrent GET requests on a single
+ * selector thread using non-blocking sockets.
+ *
+ * <p>Only plain http is supported. Each request uses its own connection, and the response body
+ * is buffered in memory, up to {@link #MAX_BODY_SIZE} bytes, and delivered once it has been read
+ * completely. Host names are resolved on a separate executor, so that slow lookups don't stall
+ * the selector thread or the thread that starts the request.
+ *
+ * <p>The selector thread is started lazily by the first request and runs until
+ * {@link #shutdown()} is called.
+ */
+public final class NioHttpClient {
+  private static final String TAG = "NioHttpClient";
+  private static final String THREAD_NAME = "glide-nio-http-thread";
+  private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final long SELECT_TIMEOUT_MS = 100;
+  private static final String RESOLVER_EXECUTOR_NAME = "nio-http-resolver";
+  private static final int RESOLVER_THREADS = 2;
+  /**
+   * The largest response body the client will buffer, larger responses fail.
+   */
+  static final int MAX_BODY_SIZE = 32 * 1024 * 1024;
+
+  @Synthetic final Queue<Call> pendingCalls = new ConcurrentLinkedQueue<>();
+  private Selector selector;
+  private ExecutorService resolver;
+  private boolean isShutdown;
+
+  /**
+   * Starts a GET request for the given http url.
+   *
+   * @param timeout The maximum time in milliseconds to wait for a connection or for data.
+   * @param callback Called on the selector thread once the response has been read or the request
+   *                 has failed.
+   */
+  Call enqueue(URL url, Map<String, String> headers, int timeout, Callback callback)
+      throws IOException {
+    if (!"http".equalsIgnoreCase(url.getProtocol())) {
+      throw new IOException("Unsupported protocol: " + url.getProtocol());
+    }
+    final String host = url.getHost();
+    final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+    final Selector selector = obtainSelector();
+    final Call call = new Call(buildRequest(url, headers), timeout, callback);
+    Runnable resolve = new Runnable() {
+      @Override
+      public void run() {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+          call.setFailure(new UnknownHostException(host));
+        } else {
+          call.setAddress(address);
+        }
+        pendingCalls.add(call);
+        selector.wakeup();
+      }
+    };
+    try {
+      obtainResolver().execute(resolve);
+    } catch (RejectedExecutionException e) {
+      throw new IOException("Client is shut down");
+    }
+    return call;
+  }
+
+  /**
+   * Stops the selector thread and fails any outstanding requests.
+   */
+  public synchronized void shutdown() {
+    isShutdown = true;
+    if (selector != null) {
+      selector.wakeup();
+    }
+    if (resolver != null) {
+      resolver.shutdown();
+    }
+  }
+
+  private synchronized ExecutorService obtainResolver() {
+    if (resolver == null) {
+      resolver = GlideExecutor.newSourceBackgroundExecutor(RESOLVER_THREADS,
+          RESOLVER_EXECUTOR_NAME, GlideExecutor.UncaughtThrowableStrategy.DEFAULT);
+    }
+    return resolver;
+  }
+
+  private synchronized Selector obtainSelector() throws IOException {
+    if (isShutdown) {
+      throw new IOException("Client is shut down");
+    }
+    if (selector == null) {
+      selector = Selector.open();
+      Thread selectorThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          runSelectorLoop();
+        }
+      }, THREAD_NAME);
+      selectorThread.setDaemon(true);
+      selectorThread.start();
+    }
+    return selector;
+  }
+
+  @Synthetic
+  void runSelectorLoop() {
+    Selector selector;
+    synchronized (this) {
+      selector = this.selector;
+    }
+    try {
+      while (!isShutdown()) {
+        selector.select(SELECT_TIMEOUT_MS);
+        Call pending;
+        while ((pending = pendingCalls.poll()) != null) {
+          pending.register(selector);
+        }
+        Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+        while (selected.hasNext()) {
+          SelectionKey key = selected.next();
+          selected.remove();
+          ((Call) key.attachment()).onReady(key);
+        }
+        long now = System.currentTimeMillis();
+        for (SelectionKey key : selector.keys()) {
+          ((Call) key.attachment()).checkDeadline(now);
+        }
+      }
+    } catch (IOException | ClosedSelectorException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Selector loop stopped", e);
+      }
+    }
+    failAll(selector);
+    try {
+      selector.close();
+    } catch (IOException e) {
+      // Ignored.
+    }
+  }
+
+  private synchronized boolean isShutdown() {
+    return isShutdown;
+  }
+
+  private void failAll(Selector selector) {
+    IOException e = new IOException("Client is shut down");
+    if (selector.isOpen()) {
+      for (SelectionKey key : selector.keys()) {
+        ((Call) key.attachment()).fail(e);
+      }
+    }
+    Call pending;
+    while ((pending = pendingCalls.poll()) != null) {
+      pending.fail(e);
+    }
+  }
+
+  private static ByteBuffer buildRequest(URL url, Map<String, String> headers) {
+    String path = url.getFile();
+    StringBuilder request = new StringBuilder()
+        .append("GET ").append(path.isEmpty() ? "/" : path).append(" HTTP/1.1\r\n")
+        .append("Host: ").append(url.getHost());
+    if (url.getPort() != -1) {
+      request.append(':').append(url.getPort());
+    }
+    request.append("\r\n")
+        .append("Connection: close\r\n");
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      request.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+    }
+    request.append("\r\n");
+    return ByteBuffer.wrap(request.toString().getBytes(ISO_8859_1));
+  }
+
+  /**
+   * Receives the result of a request.
+   */
+  interface Callback {
+    void onResponse(Response response);
+
+    void onFailure(IOException e);
+  }
+
+  /**
+   * A completely read HTTP response.
+   */
+  static final class Response {
+    private final int statusCode;
+    private final String message;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    @Synthetic
+    Response(int statusCode, String message, Map<String, String> headers, byte[] body) {
+      this.statusCode = statusCode;
+      this.message = message;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    int getStatusCode() {
+      return statusCode;
+    }
+
+    String getMessage() {
+      return message;
+    }
+
+    /**
+     * Returns the value of the given header, ignoring case, or {@code null} if it wasn't sent.
+     */
+    String getHeader(String name) {
+      return headers.get(name.toLowerCase(Locale.US));
+    }
+
+    byte[] getBody() {
+      return body;
+    }
+  }
+
+  /**
+   * A single request, owned by the selector thread once it has been registered.
+   */
+  static final class Call {
+    private final ByteBuffer request;
+    private final int timeout;
+    private final Callback callback;
+    private final ResponseParser parser = new ResponseParser();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private volatile boolean isCancelled;
+    private SocketChannel channel;
+    private long deadline;
+    private boolean isComplete;
+    // Set on the resolver thread before the call is handed to the selector thread.
+    private volatile InetSocketAddress address;
+    private volatile IOException failure;
+
+    @Synthetic
+    Call(ByteBuffer request, int timeout, Callback callback) {
+      this.request = request;
+      this.timeout = timeout;
+      this.callback = callback;
+    }
+
+    /**
+     * Cancels the request. The callback is notified of a failure unless the request has already
+     * completed.
+     */
+    void cancel() {
+      isCancelled = true;
+    }
+
+    @Synthetic
+    void setAddress(InetSocketAddress address) {
+      this.address = address;
+    }
+
+    @Synthetic
+    void setFailure(IOException failure) {
+      this.failure = failure;
+    }
+
+    @Synthetic
+    void register(Selector selector) {
+      if (isCancelled) {
+        fail(new IOException("Canceled"));
+        return;
+      }
+      if (failure != null) {
+        fail(failure);
+        return;
+      }
+      try {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        int interest =
+            channel.connect(address) ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT;
+        channel.register(selector, interest, this);
+        touch();
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    @Synthetic
+    void onReady(SelectionKey key) {
+      if (isCancelled) {
+        fail(new IOException("Canceled"));
+        return;
+      }
+      try {
+        if (key.isConnectable() && channel.finishConnect()) {
+          key.interestOps(SelectionKey.OP_WRITE);
+          touch();
+        }
+        if (key.isValid() && key.isWritable()) {
+          channel.write(request);
+          if (!request.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ);
+          }
+          touch();
+        }
+        if (key.isValid() && key.isReadable()) {
+          readBuffer.clear();
+          int read = channel.read(readBuffer);
+          if (read == -1) {
+            complete(parser.onEndOfStream());
+          } else if (read > 0) {
+            readBuffer.flip();
+            if (parser.consume(readBuffer.array(), readBuffer.position(), readBuffer.limit())) {
+              complete(parser.buildResponse());
+            }
+            touch();
+          }
+        }
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    @Synthetic
+    void checkDeadline(long now) {
+      if (isCancelled) {
+        fail(new IOException("Canceled"));
+      } else if (now > deadline) {
+        fail(new SocketTimeoutException("Timed out after " + timeout + "ms"));
+      }
+    }
+
+    @Synthetic
+    void fail(IOException e) {
+      if (close()) {
+        callback.onFailure(e);
+      }
+    }
+
+    private void complete(Response response) {
+      if (close()) {
+        callback.onResponse(response);
+      }
+    }
+
+    private void touch() {
+      deadline = System.currentTimeMillis() + timeout;
+    }
+
+    private boolean close() {
+      if (isComplete) {
+        return false;
+      }
+      isComplete = true;
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Incrementally parses the status line, headers and body of a response, decoding chunked
+   * bodies.
+   */
+  static final class ResponseParser {
+    private static final int UNKNOWN = -1;
+    private static final long MAX_INITIAL_BODY_SIZE = 1024 * 1024;
+    private static final int STATE_HEADERS = 0;
+    private static final int STATE_BODY = 1;
+    private static final int STATE_CHUNK_SIZE = 2;
+    private static final int STATE_CHUNK_DATA = 3;
+    private static final int STATE_CHUNK_END = 4;
+    private static final int STATE_TRAILERS = 5;
+    private static final int STATE_DONE = 6;
+
+    private final StringBuilder line = new StringBuilder();
+    private final Map<String, String> headers = new HashMap<>();
+    // Sized exactly when the content length is known, so it's usually delivered without a copy.
+    private byte[] body = new byte[0];
+    private int bodyLength;
+    private int state = STATE_HEADERS;
+    private int statusCode = UNKNOWN;
+    private String message;
+    private long remaining = UNKNOWN;
+
+    /**
+     * Consumes the given bytes and returns {@code true} once the response is complete.
+     */
+    boolean consume(byte[] data, int offset, int end) throws IOException {
+      int i = offset;
+      while (i < end && state != STATE_DONE) {
+        switch (state) {
+          case STATE_HEADERS:
+          case STATE_CHUNK_SIZE:
+          case STATE_CHUNK_END:
+          case STATE_TRAILERS:
+            char c = (char) (data[i++] & 0xff);
+            if (c == '\n') {
+              onLine(trimLine());
+            } else {
+              line.append(c);
+            }
+            break;
+          case STATE_BODY:
+          case STATE_CHUNK_DATA:
+            int count = remaining == UNKNOWN
+                ? end - i : (int) Math.min(remaining, (long) (end - i));
+            appendBody(data, i, count);
+            i += count;
+            if (remaining != UNKNOWN) {
+              remaining -= count;
+              if (remaining == 0) {
+                state = state == STATE_BODY ? STATE_DONE : STATE_CHUNK_END;
+              }
+            }
+            break;
+          default:
+            throw new IllegalStateException("Unknown state: " + state);
+        }
+      }
+      return state == STATE_DONE;
+    }
+
+    /**
+     * Returns the response for a connection closed by the server, which is only complete if the
+     * length of the body was delimited by the end of the stream.
+     */
+    Response onEndOfStream() throws IOException {
+      if (state != STATE_DONE && !(state == STATE_BODY && remaining == UNKNOWN)) {
+        throw new IOException("Unexpected end of stream");
+      }
+      return buildResponse();
+    }
+
+    Response buildResponse() {
+      return new Response(statusCode, message, Collections.unmodifiableMap(headers),
+          bodyLength == body.length ? body : Arrays.copyOf(body, bodyLength));
+    }
+
+    private void appendBody(byte[] data, int offset, int count) throws IOException {
+      int required = bodyLength + count;
+      if (required > MAX_BODY_SIZE) {
+        throw new IOException("Response body is larger than " + MAX_BODY_SIZE + " bytes");
+      }
+      if (required > body.length) {
+        body = Arrays.copyOf(body, Math.min(MAX_BODY_SIZE, Math.max(required, 2 * body.length)));
+      }
+      System.arraycopy(data, offset, body, bodyLength, count);
+      bodyLength = required;
+    }
+
+    private String trimLine() {
+      int length = line.length();
+      if (length > 0 && line.charAt(length - 1) == '\r') {
+        line.setLength(length - 1);
+      }
+      String result = line.toString();
+      line.setLength(0);
+      return result;
+    }
+
+    private void onLine(String value) throws IOException {
+      switch (state) {
+        case STATE_HEADERS:
+          if (statusCode == UNKNOWN) {
+            parseStatusLine(value);
+          } else if (value.isEmpty()) {
+            onHeadersComplete();
+          } else {
+            int colon = value.indexOf(':');
+            if (colon > 0) {
+              headers.put(value.substring(0, colon).trim().toLowerCase(Locale.US),
+                  value.substring(colon + 1).trim());
+            }
+          }
+          break;
+        case STATE_CHUNK_SIZE:
+          int extension = value.indexOf(';');
+          String size = (extension == -1 ? value : value.substring(0, extension)).trim();
+          try {
+            remaining = Long.parseLong(size, 16 /*radix*/);
+          } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + size);
+          }
+          state = remaining == 0 ? STATE_TRAILERS : STATE_CHUNK_DATA;
+          break;
+        case STATE_CHUNK_END:
+          state = STATE_CHUNK_SIZE;
+          break;
+        case STATE_TRAILERS:
+          if (value.isEmpty()) {
+            state = STATE_DONE;
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unexpected line in state: " + state);
+      }
+    }
+
+    private void parseStatusLine(String value) throws IOException {
+      // HTTP/1.1 200 OK
+      String[] parts = value.split(" ", 3);
+      if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+        throw new IOException("Invalid status line: " + value);
+      }
+      try {
+        statusCode = Integer.parseInt(parts[1]);
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid status line: " + value);
+      }
+      message = parts.length > 2 ? parts[2] : "";
+    }
+
+    private void onHeadersComplete() throws IOException {
+      if (statusCode / 100 == 1) {
+        // Skip informational responses, the final response follows.
+        statusCode = UNKNOWN;
+        headers.clear();
+        return;
+      }
+      String transferEncoding = headers.get("transfer-encoding");
+      String contentLength = headers.get("content-length");
+      if (statusCode == 204 || statusCode == 304) {
+        state = STATE_DONE;
+      } else if ("chunked".equalsIgnoreCase(transferEncoding)) {
+        state = STATE_CHUNK_SIZE;
+        body = new byte[BUFFER_SIZE];
+      } else if (contentLength != null) {
+        try {
+          remaining = Long.parseLong(contentLength);
+        } catch (NumberFormatException e) {
+          throw new IOException("Invalid content length: " + contentLength);
+        }
+        if (remaining > MAX_BODY_SIZE) {
+          throw new IOException("Response body is larger than " + MAX_BODY_SIZE + " bytes");
+        }
+        body = new byte[(int) Math.min(remaining, MAX_INITIAL_BODY_SIZE)];
+        state = remaining == 0 ? STATE_DONE : STATE_BODY;
+      } else {
+        state = STATE_BODY;
+        body = new byte[BUFFER_SIZE];
+      }
+    }
+  }
+}
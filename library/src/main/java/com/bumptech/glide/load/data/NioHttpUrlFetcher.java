@@ -0,0 +1,135 @@
+package com.bumptech.glide.load.data;
+
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+import android.util.Log;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.HttpException;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.util.LogTime;
+import com.bumptech.glide.util.Synthetic;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * A DataFetcher that retrieves an {@link java.io.InputStream} for a http Url using a
+ * {@link NioHttpClient}, without blocking the calling thread while waiting on the network.
+ *
+ * <p>The data is delivered on the client's selector thread once the whole response has been
+ * read. Redirects to protocols other than http fail the load so that it can fall back to the next
+ * {@link com.bumptech.glide.load.model.ModelLoader} registered for the url.
+ */
+public class NioHttpUrlFetcher implements DataFetcher<InputStream> {
+  private static final String TAG = "NioHttpUrlFetcher";
+  private static final int MAXIMUM_REDIRECTS = 5;
+
+  private final NioHttpClient client;
+  private final GlideUrl glideUrl;
+  private final int timeout;
+
+  private volatile NioHttpClient.Call call;
+  private volatile boolean isCancelled;
+
+  public NioHttpUrlFetcher(NioHttpClient client, GlideUrl glideUrl, int timeout) {
+    this.client = client;
+    this.glideUrl = glideUrl;
+    this.timeout = timeout;
+  }
+
+  @Override
+  public void loadData(Priority priority, DataCallback<? super InputStream> callback) {
+    try {
+      enqueue(glideUrl.toURL(), 0 /*redirects*/, callback, LogTime.getLogTime());
+    } catch (IOException e) {
+      onLoadFailed(e, callback);
+    }
+  }
+
+  private void enqueue(final URL url, final int redirects,
+      final DataCallback<? super InputStream> callback, final long startTime) throws IOException {
+    if (redirects >= MAXIMUM_REDIRECTS) {
+      throw new HttpException("Too many (> " + MAXIMUM_REDIRECTS + ") redirects!");
+    }
+    Map<String, String> headers = glideUrl.getHeaders();
+    call = client.enqueue(url, headers, timeout, new NioHttpClient.Callback() {
+      @Override
+      public void onResponse(NioHttpClient.Response response) {
+        try {
+          onResponseReceived(url, redirects, response, callback, startTime);
+        } catch (IOException e) {
+          onLoadFailed(e, callback);
+        }
+      }
+
+      @Override
+      public void onFailure(IOException e) {
+        onLoadFailed(e, callback);
+      }
+    });
+    if (isCancelled) {
+      call.cancel();
+    }
+  }
+
+  // Called on the client's selector thread.
+  @Synthetic
+  void onResponseReceived(URL url, int redirects, NioHttpClient.Response response,
+      DataCallback<? super InputStream> callback, long startTime) throws IOException {
+    int statusCode = response.getStatusCode();
+    if (statusCode / 100 == 2) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Finished nio http url fetcher fetch in " + LogTime.getElapsedMillis(startTime)
+            + " ms and loaded " + response.getBody().length + " bytes");
+      }
+      callback.onDataReady(new ByteArrayInputStream(response.getBody()));
+    } else if (statusCode / 100 == 3) {
+      String redirectUrlString = response.getHeader("Location");
+      if (TextUtils.isEmpty(redirectUrlString)) {
+        throw new HttpException("Received empty or null redirect url");
+      }
+      enqueue(new URL(url, redirectUrlString), redirects + 1, callback, startTime);
+    } else {
+      throw new HttpException(response.getMessage(), statusCode);
+    }
+  }
+
+  @Synthetic
+  void onLoadFailed(IOException e, DataCallback<? super InputStream> callback) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Failed to load data for url", e);
+    }
+    callback.onLoadFailed(e);
+  }
+
+  @Override
+  public void cleanup() {
+    // The connection is closed by the client once the response has been read.
+  }
+
+  @Override
+  public void cancel() {
+    isCancelled = true;
+    NioHttpClient.Call local = call;
+    if (local != null) {
+      local.cancel();
+    }
+  }
+
+  @NonNull
+  @Override
+  public Class<InputStream> getDataClass() {
+    return InputStream.class;
+  }
+
+  // Responses are still remote so they stay eligible for the data disk cache, but the stream is
+  // only delivered once the body is fully buffered so decodes may be handed off.
+  @NonNull
+  @Override
+  public DataSource getDataSource() {
+    return DataSource.REMOTE;
+  }
+}
@@ -0,0 +1,421 @@
+package com.bumptech.glide.load.data;
+
+import android.util.Log;
+import com.bumptech.glide.load.engine.cache.SafeKeyGenerator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.util.Synthetic;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the bytes of http downloads that were interrupted before they finished so that later
+ * loads for the same {@link GlideUrl} can resume the download with a range request instead of
+ * starting over.
+ *
+ * <p>Partial data is only kept for responses that have a strong ETag or a Last-Modified date and a
+ * known content length, that are either large or advertise support for range requests with
+ * {@code Accept-Ranges}, and is only resumed if the server confirms with an If-Range request that
+ * the resource hasn't changed. Once the total size of partial data exceeds the maximum size, the
+ * least recently written partial downloads are removed.
+ *
+ * <p>To enable resumable downloads, replace the default {@link GlideUrl} loader with a
+ * {@link com.bumptech.glide.load.model.stream.HttpGlideUrlLoader.Factory} that uses a store.
+ */
+public final class PartialDownloadStore {
+  private static final String TAG = "PartialDownloadStore";
+  /** The default maximum total size in bytes of the kept partial downloads. */
+  public static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+  private static final String DATA_SUFFIX = ".part";
+  private static final String METADATA_SUFFIX = ".meta";
+  private static final int METADATA_VERSION = 1;
+  private static final long UNKNOWN_SIZE = -1;
+  private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+  private final SafeKeyGenerator safeKeyGenerator = new SafeKeyGenerator();
+  private final Set<String> inUse = new HashSet<>();
+  private final File directory;
+  private final long maxSize;
+  // The total size of the files in the directory, updated as partials are released, so that the
+  // directory only has to be listed when it needs trimming.
+  private long currentSize = UNKNOWN_SIZE;
+
+  public PartialDownloadStore(File directory) {
+    this(directory, DEFAULT_MAX_SIZE);
+  }
+
+  public PartialDownloadStore(File directory, long maxSize) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns exclusive access to the partial data for the given url, or {@code null} if another
+   * load for the url currently holds it.
+   *
+   * <p>The returned {@link Partial} must be {@link Partial#release() released} once the load
+   * completes.
+   */
+  Partial acquire(GlideUrl url) {
+    String name = safeKeyGenerator.getSafeKey(url);
+    synchronized (this) {
+      if (!inUse.add(name)) {
+        return null;
+      }
+    }
+    Partial partial = new Partial(this, name, new File(directory, name + DATA_SUFFIX),
+        new File(directory, name + METADATA_SUFFIX));
+    partial.readMetadata();
+    return partial;
+  }
+
+  /**
+   * @param sizeChange The number of bytes the partial's files grew, or shrank, by while it was
+   *                   acquired.
+   */
+  @Synthetic
+  void release(String name, long sizeChange) {
+    synchronized (this) {
+      inUse.remove(name);
+      if (currentSize != UNKNOWN_SIZE) {
+        currentSize = Math.max(0, currentSize + sizeChange);
+      }
+      if (currentSize == UNKNOWN_SIZE || currentSize > maxSize) {
+        trimToSize();
+      }
+    }
+  }
+
+  private void trimToSize() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      currentSize = 0;
+      return;
+    }
+    long size = 0;
+    for (File file : files) {
+      size += file.length();
+    }
+    currentSize = size;
+    if (size <= maxSize) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File lhs, File rhs) {
+        long lhsModified = lhs.lastModified();
+        long rhsModified = rhs.lastModified();
+        return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+      }
+    });
+    for (File file : files) {
+      if (size <= maxSize) {
+        break;
+      }
+      String fileName = file.getName();
+      if (!fileName.endsWith(DATA_SUFFIX)) {
+        continue;
+      }
+      String name = fileName.substring(0, fileName.length() - DATA_SUFFIX.length());
+      if (inUse.contains(name)) {
+        continue;
+      }
+      File metadata = new File(directory, name + METADATA_SUFFIX);
+      size -= file.length() + metadata.length();
+      delete(file);
+      delete(metadata);
+    }
+    currentSize = size;
+  }
+
+  @Synthetic
+  static void delete(File file) {
+    if (file.exists() && !file.delete() && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Failed to delete: " + file);
+    }
+  }
+
+  /**
+   * Exclusive access to the partial data kept for a single url.
+   *
+   * <p>Not thread safe, a {@link Partial} is expected to be used by a single load.
+   */
+  static final class Partial {
+    private final PartialDownloadStore store;
+    private final String name;
+    private final File dataFile;
+    private final File metadataFile;
+    private String validator;
+    private long totalLength;
+    private long initialSize;
+    private RecordingInputStream recordingStream;
+
+    @Synthetic
+    Partial(PartialDownloadStore store, String name, File dataFile, File metadataFile) {
+      this.store = store;
+      this.name = name;
+      this.dataFile = dataFile;
+      this.metadataFile = metadataFile;
+    }
+
+    @Synthetic
+    void readMetadata() {
+      // Includes any files deleted below, so that the store's total size accounts for them.
+      initialSize = getSize();
+      if (!metadataFile.exists()) {
+        delete(dataFile);
+        return;
+      }
+      DataInputStream is = null;
+      try {
+        is = new DataInputStream(new FileInputStream(metadataFile));
+        if (is.readInt() == METADATA_VERSION) {
+          validator = is.readUTF();
+          totalLength = is.readLong();
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to read partial download metadata", e);
+        }
+      } finally {
+        closeQuietly(is);
+      }
+      long length = dataFile.length();
+      if (validator == null || length <= 0 || length >= totalLength) {
+        discard();
+      }
+    }
+
+    /**
+     * Returns {@code true} if there is partial data that can be resumed.
+     */
+    boolean hasData() {
+      return validator != null;
+    }
+
+    /**
+     * Returns the number of bytes of partial data.
+     */
+    long getLength() {
+      return dataFile.length();
+    }
+
+    /**
+     * Returns the total length of the resource the partial data belongs to.
+     */
+    long getTotalLength() {
+      return totalLength;
+    }
+
+    /**
+     * Returns the ETag or Last-Modified date of the resource the partial data belongs to.
+     */
+    String getValidator() {
+      return validator;
+    }
+
+    /**
+     * Discards any existing partial data and returns a stream that writes the bytes read from the
+     * given stream to this partial.
+     */
+    InputStream startRecording(InputStream network, String validator, long totalLength) {
+      discard();
+      DataOutputStream os = null;
+      try {
+        File directory = dataFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+          throw new IOException("Failed to create directory: " + directory);
+        }
+        os = new DataOutputStream(new FileOutputStream(metadataFile));
+        os.writeInt(METADATA_VERSION);
+        os.writeUTF(validator);
+        os.writeLong(totalLength);
+        os.close();
+        os = null;
+        recordingStream = new RecordingInputStream(network, newDataOutputStream(false /*append*/));
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to start recording partial download", e);
+        }
+        closeQuietly(os);
+        discard();
+        return network;
+      }
+      this.validator = validator;
+      this.totalLength = totalLength;
+      return recordingStream;
+    }
+
+    /**
+     * Returns a stream that reads the partial data followed by the given stream, which must
+     * contain the remaining bytes of the resource, and appends the remaining bytes to this partial.
+     */
+    InputStream resume(InputStream network) throws IOException {
+      InputStream partialData = new FileInputStream(dataFile);
+      try {
+        recordingStream =
+            new RecordingInputStream(network, newDataOutputStream(true /*append*/));
+      } catch (IOException e) {
+        closeQuietly(partialData);
+        throw e;
+      }
+      return new SequenceInputStream(partialData, recordingStream);
+    }
+
+    // Buffered since network streams are often read a few bytes at a time.
+    private OutputStream newDataOutputStream(boolean append) throws IOException {
+      return new BufferedOutputStream(new FileOutputStream(dataFile, append), WRITE_BUFFER_SIZE);
+    }
+
+    /**
+     * Deletes any partial data.
+     */
+    void discard() {
+      stopRecording();
+      validator = null;
+      totalLength = 0;
+      delete(dataFile);
+      delete(metadataFile);
+    }
+
+    /**
+     * Stops recording and gives up exclusive access to the partial data.
+     *
+     * <p>Partial data is kept if the download didn't finish and deleted otherwise.
+     */
+    void release() {
+      stopRecording();
+      if (getLength() >= totalLength || getLength() <= 0) {
+        discard();
+      }
+      store.release(name, getSize() - initialSize);
+    }
+
+    private long getSize() {
+      return dataFile.length() + metadataFile.length();
+    }
+
+    private void stopRecording() {
+      if (recordingStream != null) {
+        recordingStream.stopRecording();
+        recordingStream = null;
+      }
+    }
+  }
+
+  @Synthetic
+  static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+
+  /**
+   * Writes every byte read from the wrapped stream to an {@link OutputStream}.
+   *
+   * <p>Recording is best effort and stops silently if a write fails. Marking isn't supported
+   * because bytes read again after a reset would be written twice.
+   */
+  private static final class RecordingInputStream extends FilterInputStream {
+    private final byte[] singleByte = new byte[1];
+    private OutputStream os;
+
+    @Synthetic
+    RecordingInputStream(InputStream in, OutputStream os) {
+      super(in);
+      this.os = os;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = super.read();
+      if (result != -1) {
+        singleByte[0] = (byte) result;
+        record(singleByte, 0, 1);
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+      int read = super.read(buffer, offset, count);
+      if (read > 0) {
+        record(buffer, offset, read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+      // Read rather than skip so that the skipped bytes are recorded.
+      byte[] buffer = new byte[(int) Math.min(byteCount, 8192)];
+      long skipped = 0;
+      while (skipped < byteCount) {
+        int read = read(buffer, 0, (int) Math.min(buffer.length, byteCount - skipped));
+        if (read == -1) {
+          break;
+        }
+        skipped += read;
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      // Not supported.
+    }
+
+    @Override
+    public void reset() throws IOException {
+      throw new IOException("Mark not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+      stopRecording();
+      super.close();
+    }
+
+    @Synthetic
+    synchronized void stopRecording() {
+      closeQuietly(os);
+      os = null;
+    }
+
+    private synchronized void record(byte[] buffer, int offset, int count) {
+      if (os == null) {
+        return;
+      }
+      try {
+        os.write(buffer, offset, count);
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to record partial download", e);
+        }
+        stopRecording();
+      }
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * Set of available strategies for removing entries from the {@link Engine}'s set of active
+ * resources after the resources they refer to are no longer reachable.
+ *
+ * <p>Regardless of the strategy, a small, bounded number of entries is also drained each time a
+ * load is started.
+ */
+public enum ActiveResourceDrainStrategy {
+  /**
+   * Drains entries only when the main thread's {@link android.os.MessageQueue} becomes idle.
+   *
+   * <p>The main thread may never go idle during long flings or continuous animations, so entries
+   * may not be drained until well after their resources are no longer reachable.
+   */
+  IDLE_HANDLER,
+
+  /**
+   * Uses a dedicated low priority background thread that blocks on the reference queue and
+   * drains entries as soon as they are enqueued, independent of the main thread's load.
+   */
+  REAPER_THREAD;
+
+  /** The default strategy, currently {@link #IDLE_HANDLER}. */
+  public static final ActiveResourceDrainStrategy DEFAULT = IDLE_HANDLER;
+}
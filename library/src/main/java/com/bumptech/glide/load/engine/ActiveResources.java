@@ -0,0 +1,281 @@
+package com.bumptech.glide.load.engine;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.MessageQueue;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks resources that have been provided to at least one consumer and that have not yet been
+ * released and drains entries for resources that have become unreachable.
+ *
+ * <p>Consumers aren't required to release their resources, so active resources are held weakly.
+ * How quickly entries for unreachable resources are drained is controlled by an
+ * {@link ActiveResourceDrainStrategy}. If retention is allowed, the underlying {@link Resource} of
+ * an unreachable entry is returned to the memory cache rather than discarded.
+ */
+final class ActiveResources {
+  private static final String TAG = "ActiveResources";
+  private static final String REAPER_THREAD_NAME = "glide-active-resources";
+  private static final int MSG_CLEAN_REF = 1;
+  // Visible for testing.
+  static final int MAX_DRAINED_PER_LOAD = 8;
+
+  private final Map<Key, WeakReference<EngineResource<?>>> activeEngineResources;
+  private final ActiveResourceDrainStrategy drainStrategy;
+  private final boolean isActiveResourceRetentionAllowed;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
+    @Override
+    public boolean handleMessage(Message msg) {
+      if (msg.what == MSG_CLEAN_REF) {
+        cleanupActiveReference((ResourceWeakReference) msg.obj);
+        return true;
+      }
+      return false;
+    }
+  });
+  private final AtomicLong clearedReferenceCount = new AtomicLong();
+  private final AtomicLong reclaimedResourceCount = new AtomicLong();
+  private EngineResource.ResourceListener listener;
+
+  // Lazily instantiate to avoid exceptions if Glide is initialized on a background thread. See
+  // #295.
+  private ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
+  private Thread reaperThread;
+  @Synthetic volatile boolean isShutdown;
+
+  ActiveResources(Map<Key, WeakReference<EngineResource<?>>> activeEngineResources,
+      ActiveResourceDrainStrategy drainStrategy, boolean isActiveResourceRetentionAllowed) {
+    this.activeEngineResources = activeEngineResources;
+    this.drainStrategy = drainStrategy;
+    this.isActiveResourceRetentionAllowed = isActiveResourceRetentionAllowed;
+  }
+
+  void setListener(EngineResource.ResourceListener listener) {
+    this.listener = listener;
+  }
+
+  void activate(Key key, EngineResource<?> resource) {
+    ResourceWeakReference toPut = new ResourceWeakReference(key, resource, getReferenceQueue(),
+        isActiveResourceRetentionAllowed);
+    WeakReference<EngineResource<?>> removed = activeEngineResources.put(key, toPut);
+    if (removed instanceof ResourceWeakReference) {
+      ((ResourceWeakReference) removed).reset();
+    }
+  }
+
+  void deactivate(Key key) {
+    WeakReference<EngineResource<?>> removed = activeEngineResources.remove(key);
+    if (removed instanceof ResourceWeakReference) {
+      ((ResourceWeakReference) removed).reset();
+    }
+  }
+
+  /**
+   * Returns the active resource for the given key, or {@code null} if there isn't one or if it's
+   * no longer reachable.
+   */
+  EngineResource<?> get(Key key) {
+    WeakReference<EngineResource<?>> activeRef = activeEngineResources.get(key);
+    if (activeRef == null) {
+      return null;
+    }
+
+    EngineResource<?> active = activeRef.get();
+    if (active == null) {
+      removeIfCurrent(key, activeRef);
+    }
+    return active;
+  }
+
+  /**
+   * Drains up to {@link #MAX_DRAINED_PER_LOAD} entries for unreachable resources without blocking.
+   *
+   * <p>May be called on any thread. Entries drained on background threads are cleaned up on the
+   * main thread.
+   */
+  void drainPending() {
+    ReferenceQueue<EngineResource<?>> queue = getReferenceQueue();
+    boolean isOnMainThread = Util.isOnMainThread();
+    for (int i = 0; i < MAX_DRAINED_PER_LOAD; i++) {
+      ResourceWeakReference ref = (ResourceWeakReference) queue.poll();
+      if (ref == null) {
+        break;
+      }
+      if (isOnMainThread) {
+        cleanupActiveReference(ref);
+      } else {
+        mainHandler.obtainMessage(MSG_CLEAN_REF, ref).sendToTarget();
+      }
+    }
+  }
+
+  /**
+   * Returns the total number of entries that have been drained because the resources they referred
+   * to were no longer reachable.
+   */
+  long getClearedReferenceCount() {
+    return clearedReferenceCount.get();
+  }
+
+  /**
+   * Returns the number of drained entries whose underlying resources were returned to the memory
+   * cache.
+   */
+  long getReclaimedResourceCount() {
+    return reclaimedResourceCount.get();
+  }
+
+  // Visible for testing.
+  void shutdown() {
+    isShutdown = true;
+    Thread toInterrupt;
+    synchronized (this) {
+      toInterrupt = reaperThread;
+      reaperThread = null;
+    }
+    if (toInterrupt != null) {
+      toInterrupt.interrupt();
+    }
+  }
+
+  @Synthetic
+  void cleanupActiveReference(ResourceWeakReference ref) {
+    Util.assertMainThread();
+    removeIfCurrent(ref.key, ref);
+    clearedReferenceCount.incrementAndGet();
+
+    Resource<?> resource = ref.resource;
+    ref.reset();
+    // If the key has since been re-activated, the newer resource will make its way to the memory
+    // cache when it's released, so there's nothing to reclaim.
+    if (!ref.isCacheable || resource == null || activeEngineResources.containsKey(ref.key)) {
+      return;
+    }
+    EngineResource<?> newResource = new EngineResource<>(resource, true /*isCacheable*/);
+    newResource.setResourceListener(ref.key, listener);
+    reclaimedResourceCount.incrementAndGet();
+    listener.onResourceReleased(ref.key, newResource);
+  }
+
+  @Synthetic
+  void drainBlocking() {
+    ReferenceQueue<EngineResource<?>> queue = getReferenceQueue();
+    while (!isShutdown) {
+      try {
+        ResourceWeakReference ref = (ResourceWeakReference) queue.remove();
+        mainHandler.obtainMessage(MSG_CLEAN_REF, ref).sendToTarget();
+      } catch (InterruptedException e) {
+        // Either we're shutting down, which we'll notice in the loop condition, or we were
+        // interrupted spuriously, in which case we go back to waiting.
+      }
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Reaper thread stopped, cleared " + clearedReferenceCount.get()
+          + " references");
+    }
+  }
+
+  private void removeIfCurrent(Key key, WeakReference<EngineResource<?>> ref) {
+    if (activeEngineResources instanceof ConcurrentMap) {
+      ((ConcurrentMap<Key, WeakReference<EngineResource<?>>>) activeEngineResources)
+          .remove(key, ref);
+    } else if (activeEngineResources.get(key) == ref) {
+      activeEngineResources.remove(key);
+    }
+  }
+
+  private synchronized ReferenceQueue<EngineResource<?>> getReferenceQueue() {
+    if (resourceReferenceQueue == null) {
+      resourceReferenceQueue = new ReferenceQueue<>();
+      switch (drainStrategy) {
+        case REAPER_THREAD:
+          startReaperThread();
+          break;
+        case IDLE_HANDLER:
+          addIdleHandler();
+          break;
+        default:
+          throw new IllegalArgumentException("Unrecognized drain strategy: " + drainStrategy);
+      }
+    }
+    return resourceReferenceQueue;
+  }
+
+  private void startReaperThread() {
+    reaperThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        drainBlocking();
+      }
+    }, REAPER_THREAD_NAME);
+    reaperThread.setDaemon(true);
+    reaperThread.start();
+  }
+
+  private void addIdleHandler() {
+    final RefQueueIdleHandler idleHandler = new RefQueueIdleHandler();
+    if (Util.isOnMainThread()) {
+      Looper.myQueue().addIdleHandler(idleHandler);
+    } else {
+      // Loads started on background threads may not have a Looper, and even if they do, the
+      // active resources are drained on the main thread.
+      mainHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          Looper.myQueue().addIdleHandler(idleHandler);
+        }
+      });
+    }
+  }
+
+  // Responsible for cleaning up the active resource map by removing weak references that have been
+  // cleared.
+  private final class RefQueueIdleHandler implements MessageQueue.IdleHandler {
+
+    @Synthetic
+    RefQueueIdleHandler() { }
+
+    @Override
+    public boolean queueIdle() {
+      ResourceWeakReference ref = (ResourceWeakReference) resourceReferenceQueue.poll();
+      if (ref != null) {
+        cleanupActiveReference(ref);
+      }
+
+      return !isShutdown;
+    }
+  }
+
+  // Visible for testing.
+  static final class ResourceWeakReference extends WeakReference<EngineResource<?>> {
+    @Synthetic final Key key;
+    @Synthetic final boolean isCacheable;
+    // Retained so that the resource can be returned to the memory cache if the EngineResource
+    // becomes unreachable without being released.
+    @Synthetic Resource<?> resource;
+
+    ResourceWeakReference(Key key, EngineResource<?> r,
+        ReferenceQueue<? super EngineResource<?>> q, boolean isActiveResourceRetentionAllowed) {
+      super(r, q);
+      this.key = key;
+      this.isCacheable = r.isCacheable();
+      this.resource = isActiveResourceRetentionAllowed && isCacheable ? r.getResource() : null;
+    }
+
+    void reset() {
+      resource = null;
+      clear();
+    }
+  }
+}
@@ -6,6 +6,7 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -21,13 +22,17 @@ class DataCacheGenerator implements DataFetcherGenerator,
 
   private int sourceIdIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
-  // PMD is wrong here, this File must be an instance variable because it may be used across
-  // multiple calls to startNext.
+  // PMD is wrong here, this File or ByteBuffer must be an instance variable because it may be used
+  // across multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
-  private File cacheFile;
+  private Object cacheData;
+  private Key cacheKey;
+  // Set while retrying cached data as a File after its ByteBuffer couldn't be decoded, so the
+  // same ByteBuffer isn't decoded twice.
+  private boolean isFileFallback;
 
   DataCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this(helper.getCacheKeys(), helper, cb);
@@ -44,6 +49,18 @@ class DataCacheGenerator implements DataFetcherGenerator,
   @Override
   public boolean startNext() {
     while (modelLoaders == null || !hasNextModelLoader()) {
+      if (cacheData instanceof ByteBuffer) {
+        // Nothing could decode the cached data from a ByteBuffer, so retry it as a File, which can
+        // also be opened as an InputStream or a ParcelFileDescriptor, for video for example.
+        File cacheFile = helper.getDiskCache().get(cacheKey);
+        cacheData = cacheFile;
+        if (cacheFile != null) {
+          isFileFallback = true;
+          modelLoaders = helper.getModelLoaders(cacheFile);
+          modelLoaderIndex = 0;
+          continue;
+        }
+      }
       sourceIdIndex++;
       if (sourceIdIndex >= cacheKeys.size()) {
         return false;
@@ -51,10 +68,12 @@ class DataCacheGenerator implements DataFetcherGenerator,
 
       Key sourceId = cacheKeys.get(sourceIdIndex);
       Key originalKey = new DataCacheKey(sourceId, helper.getSignature());
-      cacheFile = helper.getDiskCache().get(originalKey);
-      if (cacheFile != null) {
+      cacheData = helper.getFromDiskCache(originalKey);
+      if (cacheData != null) {
         this.sourceKey = sourceId;
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        cacheKey = originalKey;
+        isFileFallback = false;
+        modelLoaders = helper.getModelLoaders(cacheData);
         modelLoaderIndex = 0;
       }
     }
@@ -62,11 +81,12 @@ class DataCacheGenerator implements DataFetcherGenerator,
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
       loadData =
-          modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
+          modelLoader.buildLoadData(cacheData, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
-      if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
+      if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())
+          && !(isFileFallback && ByteBuffer.class.equals(loadData.fetcher.getDataClass()))) {
         started = true;
         loadData.fetcher.loadData(helper.getPriority(), this);
       }
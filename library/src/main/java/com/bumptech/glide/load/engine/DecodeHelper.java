@@ -1,5 +1,6 @@
 package com.bumptech.glide.load.engine;
 
+import android.support.annotation.Nullable;
 import com.bumptech.glide.GlideContext;
 import com.bumptech.glide.Priority;
 import com.bumptech.glide.Registry;
@@ -13,6 +14,7 @@ import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import com.bumptech.glide.load.resource.UnitTransformation;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -103,6 +105,10 @@ final class DecodeHelper<Transcode> {
     return priority;
   }
 
+  void setPriority(Priority priority) {
+    this.priority = priority;
+  }
+
   Options getOptions() {
     return options;
   }
@@ -155,9 +161,26 @@ final class DecodeHelper<Transcode> {
     return glideContext.getRegistry().getResultEncoder(resource);
   }
 
-  List<ModelLoader<File, ?>> getModelLoaders(File file)
+  List<ModelLoader<Object, ?>> getModelLoaders(Object cacheData)
       throws Registry.NoModelLoaderAvailableException {
-    return glideContext.getRegistry().getModelLoaders(file);
+    return glideContext.getRegistry().getModelLoaders(cacheData);
+  }
+
+  /**
+   * Returns the data in the disk cache for the given key, either as a {@link ByteBuffer} if the
+   * disk cache can provide one and it can be decoded, or as a {@link File}, or {@code null} if the
+   * key isn't in the cache.
+   */
+  @Nullable
+  Object getFromDiskCache(Key key) {
+    DiskCache diskCache = getDiskCache();
+    if (diskCache instanceof DiskCache.BufferReader && hasLoadPath(ByteBuffer.class)) {
+      ByteBuffer buffer = ((DiskCache.BufferReader) diskCache).getBuffer(key);
+      if (buffer != null) {
+        return buffer;
+      }
+    }
+    return diskCache.get(key);
   }
 
   boolean isSourceKey(Key key) {
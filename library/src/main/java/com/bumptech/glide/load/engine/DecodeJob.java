@@ -19,6 +19,9 @@ import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.StateVerifier;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +48,14 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private final Pools.Pool<DecodeJob<?>> pool;
   @Synthetic final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
   private final ReleaseManager releaseManager = new ReleaseManager();
+  // Null unless per stage events were requested.
+  @Synthetic final EngineEventListener eventListener;
+  // Null unless encodes should be moved off of the decoding thread.
+  private final WriteBehindEncoder writeBehindEncoder;
+  // True if local data obtained on a source executor should be decoded on a separate executor.
+  private final boolean isDecodeHandOffAllowed;
+  // Only used if an event listener is set.
+  private final ReadTrackingInputStream readTrackingStream = new ReadTrackingInputStream();
 
   private GlideContext glideContext;
   @Synthetic Key signature;
@@ -62,19 +73,32 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private boolean onlyRetrieveFromCache;
 
   private Thread currentThread;
+  // Set when data was obtained synchronously in run and should be decoded on another executor once
+  // run completes.
+  private boolean isDecodeHandOffPending;
   @Synthetic Key currentSourceKey;
   private Key currentAttemptingKey;
   private Object currentData;
   private DataSource currentDataSource;
   private DataFetcher<?> currentFetcher;
 
+  // Stage timestamps, only recorded if an event listener is set.
+  private long decodeStartNanos;
+  @Synthetic long transformStartNanos;
+  @Synthetic long transformEndNanos;
+
   private volatile DataFetcherGenerator currentGenerator;
   private volatile boolean isCallbackNotified;
   private volatile boolean isCancelled;
 
-  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool,
+      EngineEventListener eventListener, WriteBehindEncoder writeBehindEncoder,
+      boolean isDecodeHandOffAllowed) {
     this.diskCacheProvider = diskCacheProvider;
     this.pool = pool;
+    this.eventListener = eventListener;
+    this.writeBehindEncoder = writeBehindEncoder;
+    this.isDecodeHandOffAllowed = isDecodeHandOffAllowed;
   }
 
   DecodeJob<R> init(
@@ -132,6 +156,23 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return firstStage == Stage.RESOURCE_CACHE || firstStage == Stage.DATA_CACHE;
   }
 
+  /**
+   * Returns true if this job has obtained data on a source executor and is waiting to be run on the
+   * source decode executor to decode it.
+   */
+  boolean isDecodeHandOff() {
+    return runReason == RunReason.DECODE_DATA_ON_DECODE_EXECUTOR;
+  }
+
+  /**
+   * Called each time this job is submitted to an executor.
+   */
+  void onQueued() {
+    if (eventListener != null) {
+      eventListener.onJobQueued(loadKey, System.nanoTime());
+    }
+  }
+
   /**
    * Called when this object is no longer in use externally.
    *
@@ -177,11 +218,15 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     stage = null;
     currentGenerator = null;
     currentThread = null;
+    isDecodeHandOffPending = false;
     currentSourceKey = null;
     currentData = null;
     currentDataSource = null;
     currentFetcher = null;
     startFetchTime = 0L;
+    decodeStartNanos = 0L;
+    transformStartNanos = 0L;
+    transformEndNanos = 0L;
     isCancelled = false;
     exceptions.clear();
     pool.release(this);
@@ -200,6 +245,48 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return priority.ordinal();
   }
 
+  /**
+   * Returns {@code true} if this job was started before the given job.
+   */
+  boolean isOlderThan(DecodeJob<?> other) {
+    return order < other.order;
+  }
+
+  /**
+   * Returns {@code true} if this job would run after jobs with the given priority.
+   */
+  boolean isLowerPriorityThan(Priority other) {
+    return priority.ordinal() > other.ordinal();
+  }
+
+  /**
+   * Changes the priority of this job and of any data it fetches from now on.
+   *
+   * <p>Must not be called while this job is in an executor's queue, since changing the priority of
+   * a queued job breaks the queue's ordering.
+   */
+  void setPriority(Priority priority) {
+    this.priority = priority;
+    decodeHelper.setPriority(priority);
+  }
+
+  /**
+   * Fails this job without running it.
+   *
+   * <p>Must only be called on a job that isn't in an executor's queue and isn't running on another
+   * thread.
+   */
+  void shed(JobShedException e) {
+    exceptions.add(e);
+    try {
+      notifyFailed();
+    } finally {
+      if (currentFetcher != null) {
+        currentFetcher.cleanup();
+      }
+    }
+  }
+
   public void cancel() {
     isCancelled = true;
     DataFetcherGenerator local = currentGenerator;
@@ -219,6 +306,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         notifyFailed();
         return;
       }
+      if (eventListener != null) {
+        eventListener.onJobStarted(loadKey, System.nanoTime());
+      }
       runWrapped();
     } catch (RuntimeException e) {
       if (Log.isLoggable(TAG, Log.DEBUG)) {
@@ -234,11 +324,16 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         throw e;
       }
     } finally {
-      if (currentFetcher != null) {
+      // Data that's being handed off to the decode executor is still needed.
+      if (currentFetcher != null && !isDecodeHandOffPending) {
         currentFetcher.cleanup();
       }
       TraceCompat.endSection();
     }
+    if (isDecodeHandOffPending) {
+      isDecodeHandOffPending = false;
+      callback.reschedule(this);
+    }
   }
 
   private void runWrapped() {
@@ -252,6 +347,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         runGenerators();
         break;
       case DECODE_DATA:
+      case DECODE_DATA_ON_DECODE_EXECUTOR:
         decodeFromRetrievedData();
         break;
       default:
@@ -277,6 +373,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private void runGenerators() {
     currentThread = Thread.currentThread();
     startFetchTime = LogTime.getLogTime();
+    if (eventListener != null) {
+      eventListener.onFetchStarted(loadKey, System.nanoTime());
+    }
     boolean isStarted = false;
     while (!isCancelled && currentGenerator != null
         && !(isStarted = currentGenerator.startNext())) {
@@ -345,14 +444,27 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   @Override
   public void onDataFetcherReady(Key sourceKey, Object data, DataFetcher<?> fetcher,
       DataSource dataSource, Key attemptedKey) {
+    if (eventListener != null) {
+      eventListener.onFetchComplete(loadKey, dataSource, System.nanoTime());
+    }
     this.currentSourceKey = sourceKey;
     this.currentData = data;
     this.currentFetcher = fetcher;
     this.currentDataSource = dataSource;
     this.currentAttemptingKey = attemptedKey;
+    // Remote data may still be streaming from the network, so it's decoded where it was fetched
+    // unless it has already been read into memory.
+    boolean isDecodeHandOff = isDecodeHandOffAllowed && stage == Stage.SOURCE
+        && (fetcher.getDataSource() != DataSource.REMOTE || isInMemory(data));
     if (Thread.currentThread() != currentThread) {
-      runReason = RunReason.DECODE_DATA;
+      runReason =
+          isDecodeHandOff ? RunReason.DECODE_DATA_ON_DECODE_EXECUTOR : RunReason.DECODE_DATA;
       callback.reschedule(this);
+    } else if (isDecodeHandOff) {
+      // We're being called synchronously from run, so wait until run has finished with this job
+      // before handing it to another thread.
+      runReason = RunReason.DECODE_DATA_ON_DECODE_EXECUTOR;
+      isDecodeHandOffPending = true;
     } else {
       TraceCompat.beginSection("DecodeJob.decodeFromRetrievedData");
       try {
@@ -363,9 +475,17 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  private static boolean isInMemory(Object data) {
+    return data instanceof ByteArrayInputStream || data instanceof ByteBuffer
+        || data instanceof byte[];
+  }
+
   @Override
   public void onDataFetcherFailed(Key attemptedKey, Exception e, DataFetcher<?> fetcher,
       DataSource dataSource) {
+    if (eventListener != null) {
+      eventListener.onFetchFailed(loadKey, dataSource, System.nanoTime());
+    }
     fetcher.cleanup();
     GlideException exception = new GlideException("Fetching data failed", e);
     exception.setLoggingDetails(attemptedKey, dataSource, fetcher.getDataClass());
@@ -394,6 +514,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
     if (resource != null) {
       notifyEncodeAndRelease(resource, currentDataSource);
+    } else if (runReason == RunReason.DECODE_DATA_ON_DECODE_EXECUTOR) {
+      // Go back to the source executor to try the next source, which may require network access.
+      reschedule();
     } else {
       runGenerators();
     }
@@ -414,9 +537,19 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     notifyComplete(result, dataSource);
 
     stage = Stage.ENCODE;
+    if (writeBehindEncoder != null && deferredEncodeManager.hasResourceToEncode()) {
+      // The write behind encoder releases both locks once the encode completes or is dropped.
+      deferredEncodeManager.encodeBehind(writeBehindEncoder, loadKey, options, lockedResource);
+      onEncodeComplete();
+      return;
+    }
     try {
       if (deferredEncodeManager.hasResourceToEncode()) {
+        long encodeStartNanos = eventListener != null ? System.nanoTime() : 0L;
         deferredEncodeManager.encode(diskCacheProvider, options);
+        if (eventListener != null) {
+          eventListener.onEncoded(loadKey, encodeStartNanos, System.nanoTime());
+        }
       }
     } finally {
       if (lockedResource != null) {
@@ -446,8 +579,37 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   @SuppressWarnings("unchecked")
   private <Data> Resource<R> decodeFromFetcher(Data data, DataSource dataSource)
       throws GlideException {
-    LoadPath<Data, ?, R> path = decodeHelper.getLoadPath((Class<Data>) data.getClass());
-    return runLoadPath(data, dataSource, path);
+    if (eventListener == null) {
+      LoadPath<Data, ?, R> path = decodeHelper.getLoadPath((Class<Data>) data.getClass());
+      return runLoadPath(data, dataSource, path);
+    }
+
+    Data toDecode = data;
+    if (data instanceof InputStream) {
+      toDecode = (Data) readTrackingStream.init((InputStream) data);
+    }
+    decodeStartNanos = System.nanoTime();
+    transformStartNanos = 0L;
+    try {
+      LoadPath<Data, ?, R> path = decodeHelper.getLoadPath((Class<Data>) toDecode.getClass());
+      Resource<R> result = runLoadPath(toDecode, dataSource, path);
+      // The decode callback is only called if a decoder produced a resource.
+      if (transformStartNanos != 0L) {
+        eventListener.onDecoded(loadKey, dataSource, decodeStartNanos, transformStartNanos);
+        eventListener.onTransformed(loadKey, dataSource, transformStartNanos, transformEndNanos);
+        eventListener.onTranscoded(loadKey, dataSource, transformEndNanos, System.nanoTime());
+      }
+      return result;
+    } finally {
+      if (toDecode != data) {
+        if (readTrackingStream.hasReadFirstByte()) {
+          eventListener.onFirstByteRead(loadKey, dataSource,
+              readTrackingStream.getFirstByteNanos());
+        }
+        eventListener.onBytesRead(loadKey, dataSource, readTrackingStream.getBytesRead());
+        readTrackingStream.release();
+      }
+    }
   }
 
   private <Data, ResourceType> Resource<R> runLoadPath(Data data, DataSource dataSource,
@@ -487,6 +649,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
 
     @Override
     public Resource<Z> onResourceDecoded(Resource<Z> decoded) {
+      if (eventListener != null) {
+        transformStartNanos = System.nanoTime();
+      }
       Class<Z> resourceSubClass = getResourceClass(decoded);
       Transformation<Z> appliedTransformation = null;
       Resource<Z> transformed = decoded;
@@ -494,6 +659,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         appliedTransformation = decodeHelper.getTransformation(resourceSubClass);
         transformed = appliedTransformation.transform(glideContext, decoded, width, height);
       }
+      if (eventListener != null) {
+        transformEndNanos = System.nanoTime();
+      }
       // TODO: Make this the responsibility of the Transformation.
       if (!decoded.equals(transformed)) {
         decoded.recycle();
@@ -607,6 +775,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       }
     }
 
+    void encodeBehind(WriteBehindEncoder writeBehindEncoder, Key loadKey, Options options,
+        LockedResource<?> lockedResult) {
+      writeBehindEncoder.encode(loadKey, key, encoder, toEncode, options, lockedResult);
+    }
+
     boolean hasResourceToEncode() {
       return toEncode != null;
     }
@@ -646,6 +819,11 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
      * process the data.
      */
     DECODE_DATA,
+    /**
+     * We retrieved local data on a source executor and want to decode it on the source decode
+     * executor.
+     */
+    DECODE_DATA_ON_DECODE_EXECUTOR,
   }
 
   /**
@@ -1,7 +1,5 @@
 package com.bumptech.glide.load.engine;
 
-import android.os.Looper;
-import android.os.MessageQueue;
 import android.support.v4.util.Pools;
 import android.util.Log;
 import com.bumptech.glide.GlideContext;
@@ -19,10 +17,10 @@ import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
-import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Responsible for starting loads and managing active and cached resources.
@@ -30,20 +28,28 @@ import java.util.Map;
 public class Engine implements EngineJobListener,
     MemoryCache.ResourceRemovedListener,
     EngineResource.ResourceListener {
+  /**
+   * Indicates that any number of loads may wait to run on each executor and that no loads are
+   * shed.
+   */
+  public static final int UNLIMITED_PENDING_JOBS = Integer.MAX_VALUE;
   private static final String TAG = "Engine";
   private static final int JOB_POOL_SIZE = 150;
   private final Map<Key, EngineJob<?>> jobs;
   private final EngineKeyFactory keyFactory;
   private final MemoryCache cache;
   private final EngineJobFactory engineJobFactory;
-  private final Map<Key, WeakReference<EngineResource<?>>> activeResources;
+  private final ActiveResources activeResources;
   private final ResourceRecycler resourceRecycler;
   private final LazyDiskCacheProvider diskCacheProvider;
   private final DecodeJobFactory decodeJobFactory;
-
-  // Lazily instantiate to avoid exceptions if Glide is initialized on a background thread. See
-  // #295.
-  private ReferenceQueue<EngineResource<?>> resourceReferenceQueue;
+  private final boolean isConcurrentLoadAllowed;
+  private final SizeBucketStrategy sizeBucketStrategy;
+  private final WriteBehindEncoder writeBehindEncoder;
+  private final JobAdmissionController admissionController;
+  // Guards jobs and the callbacks of the jobs it contains so that a callback can never be added to
+  // an EngineJob that has already completed or been cancelled.
+  private final Object jobLock = new Object();
 
   /**
    * Allows a request to indicate it no longer is interested in a given load.
@@ -51,14 +57,18 @@ public class Engine implements EngineJobListener,
   public static class LoadStatus {
     private final EngineJob<?> engineJob;
     private final ResourceCallback cb;
+    private final Object jobLock;
 
-    public LoadStatus(ResourceCallback cb, EngineJob<?> engineJob) {
+    LoadStatus(ResourceCallback cb, EngineJob<?> engineJob, Object jobLock) {
       this.cb = cb;
       this.engineJob = engineJob;
+      this.jobLock = jobLock;
     }
 
     public void cancel() {
-      engineJob.removeCallback(cb);
+      synchronized (jobLock) {
+        engineJob.removeCallback(cb);
+      }
     }
   }
 
@@ -68,7 +78,61 @@ public class Engine implements EngineJobListener,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor) {
     this(memoryCache, diskCacheFactory, diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
-        null, null, null, null, null, null);
+        null /*sourceDecodeExecutor*/, null /*diskCacheEncodeExecutor*/,
+        false /*isConcurrentLoadAllowed*/, ActiveResourceDrainStrategy.DEFAULT,
+        false /*isActiveResourceRetentionAllowed*/, SizeBucketStrategy.NONE,
+        null /*eventListener*/, UNLIMITED_PENDING_JOBS, JobShedPolicy.DEFAULT);
+  }
+
+  /**
+   * Constructs a new Engine.
+   *
+   * @param sourceDecodeExecutor An optional executor to decode data obtained by the source
+   *                             executors on once that data is available locally, so that the
+   *                             source executors can be sized for network concurrency and this
+   *                             executor for the number of cores, or {@code null} to decode on the
+   *                             source executors.
+   * @param diskCacheEncodeExecutor An optional executor to write resources to the disk cache on
+   *                                after they've been delivered, or {@code null} to write them on
+   *                                the thread that decoded them. Encodes rejected by the executor
+   *                                are dropped.
+   * @param isConcurrentLoadAllowed {@code true} to allow {@link #load} to be called on any thread,
+   *                                backed by concurrent job and active resource tables,
+   *                                {@code false} to require that loads be started on the main
+   *                                thread.
+   * @param drainStrategy The strategy used to drain entries for active resources that are no
+   *                      longer reachable.
+   * @param isActiveResourceRetentionAllowed {@code true} to return the underlying resources of
+   *                                         unreachable active resources to the memory cache,
+   *                                         {@code false} to let them be garbage collected.
+   * @param sizeBucketStrategy The strategy used to round the requested dimensions of loads so that
+   *                           loads with similar dimensions can share work.
+   * @param eventListener An optional listener to notify as each load moves through its stages, or
+   *                      {@code null}.
+   * @param maxPendingJobsPerExecutor The approximate maximum number of loads that can wait in each
+   *                                  executor's queue before loads are shed, or
+   *                                  {@link #UNLIMITED_PENDING_JOBS}.
+   * @param jobShedPolicy The policy used to choose which load to shed when an executor's queue is
+   *                      full.
+   */
+  public Engine(MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor sourceDecodeExecutor,
+      GlideExecutor diskCacheEncodeExecutor,
+      boolean isConcurrentLoadAllowed,
+      ActiveResourceDrainStrategy drainStrategy,
+      boolean isActiveResourceRetentionAllowed,
+      SizeBucketStrategy sizeBucketStrategy,
+      EngineEventListener eventListener,
+      int maxPendingJobsPerExecutor,
+      JobShedPolicy jobShedPolicy) {
+    this(memoryCache, diskCacheFactory, diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
+        sourceDecodeExecutor, diskCacheEncodeExecutor, null, null, null, null, null, null,
+        isConcurrentLoadAllowed, drainStrategy, isActiveResourceRetentionAllowed,
+        sizeBucketStrategy, eventListener, maxPendingJobsPerExecutor, jobShedPolicy);
   }
 
   // Visible for testing.
@@ -77,19 +141,34 @@ public class Engine implements EngineJobListener,
       GlideExecutor diskCacheExecutor,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor sourceDecodeExecutor,
+      GlideExecutor diskCacheEncodeExecutor,
       Map<Key, EngineJob<?>> jobs,
       EngineKeyFactory keyFactory,
       Map<Key, WeakReference<EngineResource<?>>> activeResources,
       EngineJobFactory engineJobFactory,
       DecodeJobFactory decodeJobFactory,
-      ResourceRecycler resourceRecycler) {
+      ResourceRecycler resourceRecycler,
+      boolean isConcurrentLoadAllowed,
+      ActiveResourceDrainStrategy drainStrategy,
+      boolean isActiveResourceRetentionAllowed,
+      SizeBucketStrategy sizeBucketStrategy,
+      EngineEventListener eventListener,
+      int maxPendingJobsPerExecutor,
+      JobShedPolicy jobShedPolicy) {
     this.cache = cache;
+    this.isConcurrentLoadAllowed = isConcurrentLoadAllowed;
+    this.sizeBucketStrategy = sizeBucketStrategy;
     this.diskCacheProvider = new LazyDiskCacheProvider(diskCacheFactory);
 
     if (activeResources == null) {
-      activeResources = new HashMap<>();
+      activeResources = isConcurrentLoadAllowed
+          ? new ConcurrentHashMap<Key, WeakReference<EngineResource<?>>>()
+          : new HashMap<Key, WeakReference<EngineResource<?>>>();
     }
-    this.activeResources = activeResources;
+    this.activeResources =
+        new ActiveResources(activeResources, drainStrategy, isActiveResourceRetentionAllowed);
+    this.activeResources.setListener(this);
 
     if (keyFactory == null) {
       keyFactory = new EngineKeyFactory();
@@ -97,18 +176,35 @@ public class Engine implements EngineJobListener,
     this.keyFactory = keyFactory;
 
     if (jobs == null) {
-      jobs = new HashMap<>();
+      jobs = isConcurrentLoadAllowed
+          ? new ConcurrentHashMap<Key, EngineJob<?>>()
+          : new HashMap<Key, EngineJob<?>>();
     }
     this.jobs = jobs;
 
+    if (maxPendingJobsPerExecutor != UNLIMITED_PENDING_JOBS) {
+      admissionController = new JobAdmissionController(maxPendingJobsPerExecutor, jobShedPolicy);
+    } else {
+      admissionController = null;
+    }
+
     if (engineJobFactory == null) {
       engineJobFactory = new EngineJobFactory(diskCacheExecutor, sourceExecutor,
-          sourceUnlimitedExecutor, this);
+          sourceUnlimitedExecutor, sourceDecodeExecutor, admissionController, this,
+          isConcurrentLoadAllowed, jobLock);
     }
     this.engineJobFactory = engineJobFactory;
 
+    if (diskCacheEncodeExecutor != null) {
+      writeBehindEncoder =
+          new WriteBehindEncoder(diskCacheEncodeExecutor, diskCacheProvider, eventListener);
+    } else {
+      writeBehindEncoder = null;
+    }
+
     if (decodeJobFactory == null) {
-      decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+      decodeJobFactory = new DecodeJobFactory(diskCacheProvider, isConcurrentLoadAllowed,
+          eventListener, writeBehindEncoder, sourceDecodeExecutor != null);
     }
     this.decodeJobFactory = decodeJobFactory;
 
@@ -121,7 +217,9 @@ public class Engine implements EngineJobListener,
   }
 
   /**
-   * Starts a load for the given arguments. Must be called on the main thread.
+   * Starts a load for the given arguments. Must be called on the main thread unless this Engine
+   * was constructed with {@code isConcurrentLoadAllowed} set to {@code true}, in which case it may
+   * be called on any thread.
    *
    * <p> The flow for any request is as follows: <ul> <li>Check the memory cache and provide the
    * cached resource if present</li> <li>Check the current put of actively used resources and return
@@ -135,6 +233,10 @@ public class Engine implements EngineJobListener,
    * re-used if possible and the resource is discarded. There is no strict requirement that
    * consumers release their resources so active resources are held weakly. </p>
    *
+   * <p> The given dimensions are first rounded by the Engine's {@link SizeBucketStrategy}, so the
+   * loaded resource may be larger than the requested dimensions and the given transformations are
+   * applied at the rounded dimensions, which keep the requested aspect ratio. </p>
+   *
    * @param width  The target width in pixels of the desired resource.
    * @param height The target height in pixels of the desired resource.
    * @param cb     The callback that will be called when the load completes.
@@ -156,11 +258,16 @@ public class Engine implements EngineJobListener,
       boolean useUnlimitedSourceExecutorPool,
       boolean onlyRetrieveFromCache,
       ResourceCallback cb) {
-    Util.assertMainThread();
+    if (!isConcurrentLoadAllowed) {
+      Util.assertMainThread();
+    }
     long startTime = LogTime.getLogTime();
+    activeResources.drainPending();
 
-    EngineKey key = keyFactory.buildKey(model, signature, width, height, transformations,
-        resourceClass, transcodeClass, options);
+    int bucketedWidth = sizeBucketStrategy.getBucketedWidth(width, height);
+    int bucketedHeight = sizeBucketStrategy.getBucketedHeight(width, height);
+    EngineKey key = keyFactory.buildKey(model, signature, bucketedWidth, bucketedHeight,
+        transformations, resourceClass, transcodeClass, options);
 
     EngineResource<?> cached = loadFromCache(key, isMemoryCacheable);
     if (cached != null) {
@@ -180,41 +287,44 @@ public class Engine implements EngineJobListener,
       return null;
     }
 
-    EngineJob<?> current = jobs.get(key);
-    if (current != null) {
-      current.addCallback(cb);
+    synchronized (jobLock) {
+      EngineJob<?> current = jobs.get(key);
+      if (current != null) {
+        current.addCallback(cb);
+        current.raisePriority(priority);
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+          logWithTimeAndKey("Added to existing load", startTime, key);
+        }
+        return new LoadStatus(cb, current, jobLock);
+      }
+
+      EngineJob<R> engineJob = engineJobFactory.build(key, isMemoryCacheable,
+          useUnlimitedSourceExecutorPool);
+      DecodeJob<R> decodeJob = decodeJobFactory.build(
+          glideContext,
+          model,
+          key,
+          signature,
+          bucketedWidth,
+          bucketedHeight,
+          resourceClass,
+          transcodeClass,
+          priority,
+          diskCacheStrategy,
+          transformations,
+          isTransformationRequired,
+          onlyRetrieveFromCache,
+          options,
+          engineJob);
+      jobs.put(key, engineJob);
+      engineJob.addCallback(cb);
+      engineJob.start(decodeJob);
+
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
-        logWithTimeAndKey("Added to existing load", startTime, key);
+        logWithTimeAndKey("Started new load", startTime, key);
       }
-      return new LoadStatus(cb, current);
-    }
-
-    EngineJob<R> engineJob = engineJobFactory.build(key, isMemoryCacheable,
-        useUnlimitedSourceExecutorPool);
-    DecodeJob<R> decodeJob = decodeJobFactory.build(
-        glideContext,
-        model,
-        key,
-        signature,
-        width,
-        height,
-        resourceClass,
-        transcodeClass,
-        priority,
-        diskCacheStrategy,
-        transformations,
-        isTransformationRequired,
-        onlyRetrieveFromCache,
-        options,
-        engineJob);
-    jobs.put(key, engineJob);
-    engineJob.addCallback(cb);
-    engineJob.start(decodeJob);
-
-    if (Log.isLoggable(TAG, Log.VERBOSE)) {
-      logWithTimeAndKey("Started new load", startTime, key);
-    }
-    return new LoadStatus(cb, engineJob);
+      return new LoadStatus(cb, engineJob, jobLock);
+    }
   }
 
   private static void logWithTimeAndKey(String log, long startTime, Key key) {
@@ -226,14 +336,14 @@ public class Engine implements EngineJobListener,
       return null;
     }
 
-    EngineResource<?> active = null;
-    WeakReference<EngineResource<?>> activeRef = activeResources.get(key);
-    if (activeRef != null) {
-      active = activeRef.get();
-      if (active != null) {
+    EngineResource<?> active = activeResources.get(key);
+    if (active != null) {
+      if (!isConcurrentLoadAllowed) {
         active.acquire();
-      } else {
-        activeResources.remove(key);
+      } else if (!active.acquireIfActive()) {
+        // The last consumer released the resource on the main thread after we checked the memory
+        // cache, so the resource has been moved (back) to the memory cache.
+        active = loadFromCache(key, isMemoryCacheable);
       }
     }
 
@@ -247,8 +357,12 @@ public class Engine implements EngineJobListener,
 
     EngineResource<?> cached = getEngineResourceFromCache(key);
     if (cached != null) {
-      cached.acquire();
-      activeResources.put(key, new ResourceWeakReference(key, cached, getReferenceQueue()));
+      if (isConcurrentLoadAllowed) {
+        cached.acquireOnAnyThread();
+      } else {
+        cached.acquire();
+      }
+      activeResources.activate(key, cached);
     }
     return cached;
   }
@@ -278,28 +392,45 @@ public class Engine implements EngineJobListener,
     }
   }
 
+  /**
+   * Returns {@code true} if {@link #load} may be called on any thread, and {@code false} if it must
+   * be called on the main thread.
+   */
+  public boolean isConcurrentLoadAllowed() {
+    return isConcurrentLoadAllowed;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public void onEngineJobComplete(Key key, EngineResource<?> resource) {
-    Util.assertMainThread();
+    // Jobs complete on the thread that finished the load if it was started off the main thread.
+    if (!isConcurrentLoadAllowed) {
+      Util.assertMainThread();
+    }
     // A null resource indicates that the load failed, usually due to an exception.
     if (resource != null) {
       resource.setResourceListener(key, this);
 
       if (resource.isCacheable()) {
-        activeResources.put(key, new ResourceWeakReference(key, resource, getReferenceQueue()));
+        activeResources.activate(key, resource);
       }
     }
     // TODO: should this check that the engine job is still current?
-    jobs.remove(key);
+    synchronized (jobLock) {
+      jobs.remove(key);
+    }
   }
 
   @Override
   public void onEngineJobCancelled(EngineJob engineJob, Key key) {
-    Util.assertMainThread();
-    EngineJob<?> current = jobs.get(key);
-    if (engineJob.equals(current)) {
-      jobs.remove(key);
+    if (!isConcurrentLoadAllowed) {
+      Util.assertMainThread();
+    }
+    synchronized (jobLock) {
+      EngineJob<?> current = jobs.get(key);
+      if (engineJob.equals(current)) {
+        jobs.remove(key);
+      }
     }
   }
 
@@ -312,7 +443,7 @@ public class Engine implements EngineJobListener,
   @Override
   public void onResourceReleased(Key cacheKey, EngineResource resource) {
     Util.assertMainThread();
-    activeResources.remove(cacheKey);
+    activeResources.deactivate(cacheKey);
     if (resource.isCacheable()) {
       cache.put(cacheKey, resource);
     } else {
@@ -320,17 +451,48 @@ public class Engine implements EngineJobListener,
     }
   }
 
-  public void clearDiskCache() {
-    diskCacheProvider.getDiskCache().clear();
+  /**
+   * Returns the number of entries for active resources that have been drained because the resources
+   * they referred to were no longer reachable.
+   */
+  public long getClearedActiveResourceCount() {
+    return activeResources.getClearedReferenceCount();
   }
 
-  private ReferenceQueue<EngineResource<?>> getReferenceQueue() {
-    if (resourceReferenceQueue == null) {
-      resourceReferenceQueue = new ReferenceQueue<>();
-      MessageQueue queue = Looper.myQueue();
-      queue.addIdleHandler(new RefQueueIdleHandler(activeResources, resourceReferenceQueue));
-    }
-    return resourceReferenceQueue;
+  /**
+   * Returns the number of unreachable active resources whose underlying resources were returned to
+   * the memory cache.
+   */
+  public long getReclaimedActiveResourceCount() {
+    return activeResources.getReclaimedResourceCount();
+  }
+
+  /**
+   * Returns the number of write behind encodes that were dropped because the encode executor's
+   * queue was full, or 0 if write behind encoding isn't enabled.
+   */
+  public long getDroppedEncodeCount() {
+    return writeBehindEncoder != null ? writeBehindEncoder.getDroppedCount() : 0;
+  }
+
+  /**
+   * Returns the number of write behind encodes that were dropped because an encode for the same
+   * disk cache key was already pending, or 0 if write behind encoding isn't enabled.
+   */
+  public long getDedupedEncodeCount() {
+    return writeBehindEncoder != null ? writeBehindEncoder.getDedupedCount() : 0;
+  }
+
+  /**
+   * Returns the number of loads that have been shed because too many loads were waiting to run, or
+   * 0 if the number of pending loads isn't bounded.
+   */
+  public long getShedJobCount() {
+    return admissionController != null ? admissionController.getShedCount() : 0;
+  }
+
+  public void clearDiskCache() {
+    diskCacheProvider.getDiskCache().clear();
   }
 
   private static class LazyDiskCacheProvider implements DecodeJob.DiskCacheProvider {
@@ -358,53 +520,34 @@ public class Engine implements EngineJobListener,
     }
   }
 
-  private static class ResourceWeakReference extends WeakReference<EngineResource<?>> {
-    @Synthetic final Key key;
-
-    public ResourceWeakReference(Key key, EngineResource<?> r,
-        ReferenceQueue<? super EngineResource<?>> q) {
-      super(r, q);
-      this.key = key;
-    }
-  }
-
-  // Responsible for cleaning up the active resource map by remove weak references that have been
-  // cleared.
-  private static class RefQueueIdleHandler implements MessageQueue.IdleHandler {
-    private final Map<Key, WeakReference<EngineResource<?>>> activeResources;
-    private final ReferenceQueue<EngineResource<?>> queue;
-
-    public RefQueueIdleHandler(Map<Key, WeakReference<EngineResource<?>>> activeResources,
-        ReferenceQueue<EngineResource<?>> queue) {
-      this.activeResources = activeResources;
-      this.queue = queue;
-    }
-
-    @Override
-    public boolean queueIdle() {
-      ResourceWeakReference ref = (ResourceWeakReference) queue.poll();
-      if (ref != null) {
-        activeResources.remove(ref.key);
-      }
-
-      return true;
-    }
-  }
-
   // Visible for testing.
   static class DecodeJobFactory {
     @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
-    @Synthetic final Pools.Pool<DecodeJob<?>> pool = FactoryPools.simple(JOB_POOL_SIZE,
-        new FactoryPools.Factory<DecodeJob<?>>() {
-          @Override
-          public DecodeJob<?> create() {
-            return new DecodeJob<Object>(diskCacheProvider, pool);
-          }
-        });
+    @Synthetic final EngineEventListener eventListener;
+    @Synthetic final WriteBehindEncoder writeBehindEncoder;
+    @Synthetic final boolean isDecodeHandOffAllowed;
+    @Synthetic final Pools.Pool<DecodeJob<?>> pool;
     private int creationOrder;
 
-    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider,
+        boolean isConcurrentLoadAllowed, EngineEventListener eventListener,
+        WriteBehindEncoder writeBehindEncoder, boolean isDecodeHandOffAllowed) {
       this.diskCacheProvider = diskCacheProvider;
+      this.eventListener = eventListener;
+      this.writeBehindEncoder = writeBehindEncoder;
+      this.isDecodeHandOffAllowed = isDecodeHandOffAllowed;
+      FactoryPools.Factory<DecodeJob<?>> factory = new FactoryPools.Factory<DecodeJob<?>>() {
+        @Override
+        public DecodeJob<?> create() {
+          return new DecodeJob<Object>(DecodeJobFactory.this.diskCacheProvider, pool,
+              DecodeJobFactory.this.eventListener, DecodeJobFactory.this.writeBehindEncoder,
+              DecodeJobFactory.this.isDecodeHandOffAllowed);
+        }
+      };
+      // Jobs are acquired on the loading thread but released on the main thread.
+      pool = isConcurrentLoadAllowed
+          ? FactoryPools.threadSafe(JOB_POOL_SIZE, factory)
+          : FactoryPools.simple(JOB_POOL_SIZE, factory);
     }
 
     @SuppressWarnings("unchecked")
@@ -449,22 +592,39 @@ public class Engine implements EngineJobListener,
     @Synthetic final GlideExecutor diskCacheExecutor;
     @Synthetic final GlideExecutor sourceExecutor;
     @Synthetic final GlideExecutor sourceUnlimitedExecutor;
+    @Synthetic final GlideExecutor sourceDecodeExecutor;
+    @Synthetic final JobAdmissionController admissionController;
     @Synthetic final EngineJobListener listener;
-    @Synthetic final Pools.Pool<EngineJob<?>> pool = FactoryPools.simple(JOB_POOL_SIZE,
-        new FactoryPools.Factory<EngineJob<?>>() {
-          @Override
-          public EngineJob<?> create() {
-            return new EngineJob<Object>(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
-                listener, pool);
-          }
-        });
+    @Synthetic final boolean isConcurrentLoadAllowed;
+    @Synthetic final Object jobLock;
+    @Synthetic final Pools.Pool<EngineJob<?>> pool;
 
     EngineJobFactory(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
-        GlideExecutor sourceUnlimitedExecutor, EngineJobListener listener) {
+        GlideExecutor sourceUnlimitedExecutor, GlideExecutor sourceDecodeExecutor,
+        JobAdmissionController admissionController, EngineJobListener listener,
+        boolean isConcurrentLoadAllowed, Object jobLock) {
       this.diskCacheExecutor = diskCacheExecutor;
       this.sourceExecutor = sourceExecutor;
       this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
+      this.sourceDecodeExecutor = sourceDecodeExecutor;
+      this.admissionController = admissionController;
       this.listener = listener;
+      this.isConcurrentLoadAllowed = isConcurrentLoadAllowed;
+      this.jobLock = jobLock;
+      FactoryPools.Factory<EngineJob<?>> factory = new FactoryPools.Factory<EngineJob<?>>() {
+        @Override
+        public EngineJob<?> create() {
+          return new EngineJob<Object>(EngineJobFactory.this.diskCacheExecutor,
+              EngineJobFactory.this.sourceExecutor, EngineJobFactory.this.sourceUnlimitedExecutor,
+              EngineJobFactory.this.sourceDecodeExecutor,
+              EngineJobFactory.this.admissionController, EngineJobFactory.this.listener, pool,
+              EngineJobFactory.this.isConcurrentLoadAllowed, EngineJobFactory.this.jobLock);
+        }
+      };
+      // Jobs are acquired on the loading thread but released on the main thread.
+      pool = isConcurrentLoadAllowed
+          ? FactoryPools.threadSafe(JOB_POOL_SIZE, factory)
+          : FactoryPools.simple(JOB_POOL_SIZE, factory);
     }
 
     @SuppressWarnings("unchecked")
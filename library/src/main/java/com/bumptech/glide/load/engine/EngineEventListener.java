@@ -0,0 +1,118 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+
+/**
+ * Receives structured timing events for each stage of the loads started by an {@link Engine}.
+ *
+ * <p>All timestamps are in nanoseconds as returned by {@link System#nanoTime()}. Every event for a
+ * given load is reported with the same load {@link Key}, which can be used to correlate events,
+ * for example to compute queue wait as the difference between {@link #onJobStarted(Key, long)} and
+ * the preceding {@link #onJobQueued(Key, long)}. A single load may be queued and started more than
+ * once, once per executor it runs on, and may fetch and decode more than once if a cache entry
+ * turns out to be unusable.
+ *
+ * <p>Callbacks are made synchronously on whichever thread the stage ran on, usually one of Glide's
+ * executor threads. Implementations must be thread safe, should return quickly and should avoid
+ * allocating. No objects are allocated by Glide to deliver events.
+ *
+ * <p>All methods do nothing by default, subclasses can override only the events they're
+ * interested in.
+ */
+public abstract class EngineEventListener {
+
+  /**
+   * Called when a load is submitted to an executor.
+   */
+  public void onJobQueued(Key loadKey, long queuedNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when a load starts running on an executor thread.
+   */
+  public void onJobStarted(Key loadKey, long startedNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when a load starts looking for data in the resource cache, the data cache or the
+   * source.
+   */
+  public void onFetchStarted(Key loadKey, long startedNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when data has been obtained from the given {@link DataSource}.
+   *
+   * <p>For streamed data, the data is typically still being read when this method is called. See
+   * {@link #onFirstByteRead(Key, DataSource, long)} and
+   * {@link #onBytesRead(Key, DataSource, long)}.
+   */
+  public void onFetchComplete(Key loadKey, DataSource dataSource, long completedNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when obtaining data from the given {@link DataSource} failed.
+   */
+  public void onFetchFailed(Key loadKey, DataSource dataSource, long failedNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called after a decode attempt with the time at which the first byte of streamed
+   * ({@link java.io.InputStream}) data was read.
+   *
+   * <p>Not called for data that isn't streamed or if no bytes were read.
+   */
+  public void onFirstByteRead(Key loadKey, DataSource dataSource, long firstByteNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called after a decode attempt with the number of bytes of streamed
+   * ({@link java.io.InputStream}) data that were read.
+   *
+   * <p>Not called for data that isn't streamed.
+   */
+  public void onBytesRead(Key loadKey, DataSource dataSource, long byteCount) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when data from the given {@link DataSource} has been decoded into a resource.
+   */
+  public void onDecoded(Key loadKey, DataSource dataSource, long startNanos, long endNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when a decoded resource has been transformed.
+   *
+   * <p>Resources decoded from the resource disk cache are not transformed again, so the interval
+   * will be close to zero.
+   */
+  public void onTransformed(Key loadKey, DataSource dataSource, long startNanos, long endNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when a transformed resource has been transcoded into the requested type.
+   */
+  public void onTranscoded(Key loadKey, DataSource dataSource, long startNanos, long endNanos) {
+    // Do nothing by default.
+  }
+
+  /**
+   * Called when a transformed resource or the original data has been written to the disk cache.
+   *
+   * <p>If write behind encoding is enabled, this is called on the encode executor, after the load
+   * has completed.
+   */
+  public void onEncoded(Key loadKey, long startNanos, long endNanos) {
+    // Do nothing by default.
+  }
+}
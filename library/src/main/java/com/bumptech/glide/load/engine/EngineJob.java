@@ -4,6 +4,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
@@ -13,6 +14,7 @@ import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.StateVerifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,6 +34,9 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private static final int MSG_CANCELLED = 3;
 
   private final List<ResourceCallback> cbs = new ArrayList<>(2);
+  // Callbacks added off of the main thread when concurrent loads are allowed, which are notified
+  // on the thread that finishes the load so that they don't wait on the main thread.
+  private final List<ResourceCallback> anyThreadCbs = new ArrayList<>(2);
   private final StateVerifier stateVerifier = StateVerifier.newInstance();
   private final Pools.Pool<EngineJob<?>> pool;
   private final EngineResourceFactory engineResourceFactory;
@@ -39,6 +44,16 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private final GlideExecutor diskCacheExecutor;
   private final GlideExecutor sourceExecutor;
   private final GlideExecutor sourceUnlimitedExecutor;
+  // Null unless decoding data obtained by source executors is handed off to a separate executor.
+  private final GlideExecutor sourceDecodeExecutor;
+  // Null unless the number of jobs waiting in each executor's queue is bounded.
+  private final JobAdmissionController admissionController;
+  private final boolean isConcurrentLoadAllowed;
+  // The Engine's lock for its job table, which serializes adding and removing callbacks with this
+  // job completing when concurrent loads are allowed.
+  private final Object jobLock;
+  // Serializes submitting our DecodeJob to an executor with changes to its priority.
+  private final Object queueLock = new Object();
 
   private Key key;
   private boolean isCacheable;
@@ -58,23 +73,49 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private volatile boolean isCancelled;
 
   EngineJob(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
-      GlideExecutor sourceUnlimitedExecutor,
-      EngineJobListener listener, Pools.Pool<EngineJob<?>> pool) {
-    this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, listener, pool,
-        DEFAULT_FACTORY);
+      GlideExecutor sourceUnlimitedExecutor, GlideExecutor sourceDecodeExecutor,
+      JobAdmissionController admissionController, EngineJobListener listener,
+      Pools.Pool<EngineJob<?>> pool, boolean isConcurrentLoadAllowed, Object jobLock) {
+    this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, sourceDecodeExecutor,
+        admissionController, listener, pool, DEFAULT_FACTORY, isConcurrentLoadAllowed, jobLock);
   }
 
   // Visible for testing.
   EngineJob(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
-      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor sourceUnlimitedExecutor, GlideExecutor sourceDecodeExecutor,
       EngineJobListener listener, Pools.Pool<EngineJob<?>> pool,
       EngineResourceFactory engineResourceFactory) {
+    this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, sourceDecodeExecutor,
+        null /*admissionController*/, listener, pool, engineResourceFactory,
+        false /*isConcurrentLoadAllowed*/, new Object() /*jobLock*/);
+  }
+
+  // Visible for testing.
+  EngineJob(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor, EngineJobListener listener,
+      Pools.Pool<EngineJob<?>> pool, EngineResourceFactory engineResourceFactory,
+      Object jobLock) {
+    this(diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor,
+        null /*sourceDecodeExecutor*/, null /*admissionController*/, listener, pool,
+        engineResourceFactory, true /*isConcurrentLoadAllowed*/, jobLock);
+  }
+
+  private EngineJob(GlideExecutor diskCacheExecutor, GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor, GlideExecutor sourceDecodeExecutor,
+      JobAdmissionController admissionController, EngineJobListener listener,
+      Pools.Pool<EngineJob<?>> pool,
+      EngineResourceFactory engineResourceFactory, boolean isConcurrentLoadAllowed,
+      Object jobLock) {
     this.diskCacheExecutor = diskCacheExecutor;
     this.sourceExecutor = sourceExecutor;
     this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
+    this.sourceDecodeExecutor = sourceDecodeExecutor;
+    this.admissionController = admissionController;
     this.listener = listener;
     this.pool = pool;
     this.engineResourceFactory = engineResourceFactory;
+    this.isConcurrentLoadAllowed = isConcurrentLoadAllowed;
+    this.jobLock = jobLock;
   }
 
   // Visible for testing.
@@ -86,33 +127,91 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   }
 
   public void start(DecodeJob<R> decodeJob) {
-    this.decodeJob = decodeJob;
-    GlideExecutor executor = decodeJob.willDecodeFromCache()
-        ? diskCacheExecutor
-        : getActiveSourceExecutor();
-    executor.execute(decodeJob);
+    synchronized (queueLock) {
+      this.decodeJob = decodeJob;
+      GlideExecutor executor = decodeJob.willDecodeFromCache()
+          ? diskCacheExecutor
+          : getActiveSourceExecutor();
+      decodeJob.onQueued();
+      execute(executor, decodeJob);
+    }
   }
 
+  /**
+   * Raises the priority of this job's load to the given priority if the given priority is higher
+   * than the load's current priority, for example because a request with a higher priority has
+   * been added to this job.
+   *
+   * <p>If the load is waiting in an executor's queue, it's moved ahead of any queued loads with a
+   * lower priority. Otherwise the new priority applies the next time the load is queued and to any
+   * data fetched from then on.
+   */
+  public void raisePriority(Priority priority) {
+    synchronized (queueLock) {
+      if (decodeJob == null || isCancelled || !decodeJob.isLowerPriorityThan(priority)) {
+        return;
+      }
+      // The priority of a job in a PriorityBlockingQueue can't be changed in place without
+      // breaking the queue's ordering, so queued jobs are removed and inserted again.
+      GlideExecutor queuedOn = null;
+      if (diskCacheExecutor.remove(decodeJob)) {
+        queuedOn = diskCacheExecutor;
+      } else if (getActiveSourceExecutor().remove(decodeJob)) {
+        queuedOn = getActiveSourceExecutor();
+      } else if (sourceDecodeExecutor != null && sourceDecodeExecutor.remove(decodeJob)) {
+        queuedOn = sourceDecodeExecutor;
+      }
+      decodeJob.setPriority(priority);
+      if (queuedOn != null) {
+        queuedOn.execute(decodeJob);
+      }
+    }
+  }
+
+  /**
+   * Adds a callback to be notified when this job completes.
+   *
+   * <p> Must be called on the main thread unless concurrent loads are allowed, in which case the
+   * {@link Engine} is responsible for serializing calls to this method with
+   * {@link #removeCallback(ResourceCallback)} and with the removal of this job from its job table
+   * by holding its job lock. Callbacks added on the main thread are notified on the main thread,
+   * callbacks added on other threads are notified on the thread that finishes the load. </p>
+   */
   public void addCallback(ResourceCallback cb) {
-    Util.assertMainThread();
+    if (!isConcurrentLoadAllowed) {
+      Util.assertMainThread();
+    }
     stateVerifier.throwIfRecycled();
     if (hasResource) {
       cb.onResourceReady(engineResource, dataSource);
     } else if (hasLoadFailed) {
       cb.onLoadFailed(exception);
+    } else if (isConcurrentLoadAllowed && Util.isOnBackgroundThread()) {
+      anyThreadCbs.add(cb);
     } else {
       cbs.add(cb);
     }
   }
 
+  /**
+   * Removes a callback so that it's not notified when this job completes, and cancels the job if
+   * no callbacks remain.
+   *
+   * <p> Must be called on the main thread unless concurrent loads are allowed, in which case the
+   * {@link Engine} is responsible for serializing calls to this method as for
+   * {@link #addCallback(ResourceCallback)}. </p>
+   */
   public void removeCallback(ResourceCallback cb) {
-    Util.assertMainThread();
+    if (!isConcurrentLoadAllowed) {
+      Util.assertMainThread();
+    }
     stateVerifier.throwIfRecycled();
     if (hasResource || hasLoadFailed) {
       addIgnoredCallback(cb);
     } else {
       cbs.remove(cb);
-      if (cbs.isEmpty()) {
+      anyThreadCbs.remove(cb);
+      if (cbs.isEmpty() && anyThreadCbs.isEmpty()) {
         cancel();
       }
     }
@@ -127,17 +226,23 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   // request such that if notifying a callback early in the callbacks list cancels a callback later
   // in the request list, the cancellation for the later request is still obeyed. Using a put of
   // ignored callbacks allows us to avoid the exception while still meeting the requirement.
+  // When concurrent loads are allowed, callbacks may be ignored on one thread while callbacks are
+  // being notified on another.
   private void addIgnoredCallback(ResourceCallback cb) {
-    if (ignoredCallbacks == null) {
-      ignoredCallbacks = new ArrayList<>(2);
-    }
-    if (!ignoredCallbacks.contains(cb)) {
-      ignoredCallbacks.add(cb);
+    synchronized (jobLock) {
+      if (ignoredCallbacks == null) {
+        ignoredCallbacks = new ArrayList<>(2);
+      }
+      if (!ignoredCallbacks.contains(cb)) {
+        ignoredCallbacks.add(cb);
+      }
     }
   }
 
   private boolean isInIgnoredCallbacks(ResourceCallback cb) {
-    return ignoredCallbacks != null && ignoredCallbacks.contains(cb);
+    synchronized (jobLock) {
+      return ignoredCallbacks != null && ignoredCallbacks.contains(cb);
+    }
   }
 
   // Exposed for testing.
@@ -161,23 +266,41 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   @Synthetic
   void handleResultOnMainThread() {
     stateVerifier.throwIfRecycled();
-    if (isCancelled) {
-      resource.recycle();
-      release(false /*isRemovedFromQueue*/);
-      return;
-    } else if (cbs.isEmpty()) {
-      throw new IllegalStateException("Received a resource without any callbacks to notify");
-    } else if (hasResource) {
-      throw new IllegalStateException("Already have resource");
+    // Callbacks added off of the main thread after onResourceReady found none to notify.
+    List<ResourceCallback> lateAnyThreadCbs = Collections.emptyList();
+    synchronized (jobLock) {
+      if (isCancelled) {
+        resource.recycle();
+        release(false /*isRemovedFromQueue*/);
+        return;
+      } else if (hasResource && !isConcurrentLoadAllowed) {
+        throw new IllegalStateException("Already have resource");
+      } else if (!hasResource) {
+        // Otherwise callbacks added off of the main thread were already notified in
+        // onResourceReady.
+        if (cbs.isEmpty() && anyThreadCbs.isEmpty()) {
+          throw new IllegalStateException("Received a resource without any callbacks to notify");
+        }
+        engineResource = engineResourceFactory.build(resource, isCacheable);
+
+        // Hold on to resource for duration of request so we don't recycle it in the middle of
+        // notifying if it synchronously released by one of the callbacks.
+        engineResource.acquire();
+        // Notify the listener before marking ourselves complete so that, when loads are allowed
+        // on other threads, no callback can be added after we've been removed from the Engine's
+        // job table but before we notify our callbacks.
+        listener.onEngineJobComplete(key, engineResource);
+        hasResource = true;
+        lateAnyThreadCbs = new ArrayList<>(anyThreadCbs);
+      }
     }
-    engineResource = engineResourceFactory.build(resource, isCacheable);
-    hasResource = true;
-
-    // Hold on to resource for duration of request so we don't recycle it in the middle of
-    // notifying if it synchronously released by one of the callbacks.
-    engineResource.acquire();
-    listener.onEngineJobComplete(key, engineResource);
 
+    for (ResourceCallback cb : lateAnyThreadCbs) {
+      if (!isInIgnoredCallbacks(cb)) {
+        engineResource.acquire();
+        cb.onResourceReady(engineResource, dataSource);
+      }
+    }
     for (ResourceCallback cb : cbs) {
       if (!isInIgnoredCallbacks(cb)) {
         engineResource.acquire();
@@ -203,6 +326,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private void release(boolean isRemovedFromQueue) {
     Util.assertMainThread();
     cbs.clear();
+    anyThreadCbs.clear();
     key = null;
     engineResource = null;
     resource = null;
@@ -223,37 +347,120 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   public void onResourceReady(Resource<R> resource, DataSource dataSource) {
     this.resource = resource;
     this.dataSource = dataSource;
+    if (isConcurrentLoadAllowed) {
+      notifyAnyThreadCallbacksOfResource();
+    }
     MAIN_THREAD_HANDLER.obtainMessage(MSG_COMPLETE, this).sendToTarget();
   }
 
   @Override
   public void onLoadFailed(GlideException e) {
     this.exception = e;
+    if (isConcurrentLoadAllowed) {
+      notifyAnyThreadCallbacksOfFailure();
+    }
     MAIN_THREAD_HANDLER.obtainMessage(MSG_EXCEPTION, this).sendToTarget();
   }
 
+  /**
+   * Completes this job and notifies the callbacks that were added off of the main thread, if there
+   * are any, on the current thread. Callbacks added on the main thread are notified later in
+   * {@link #handleResultOnMainThread()}, which also releases this job's hold on the resource.
+   */
+  private void notifyAnyThreadCallbacksOfResource() {
+    EngineResource<?> result;
+    List<ResourceCallback> toNotify;
+    synchronized (jobLock) {
+      if (isCancelled || anyThreadCbs.isEmpty()) {
+        return;
+      }
+      result = engineResourceFactory.build(resource, isCacheable);
+      // Released on the main thread, once callbacks added on the main thread have been notified.
+      result.acquireOnAnyThread();
+      listener.onEngineJobComplete(key, result);
+      engineResource = result;
+      hasResource = true;
+      toNotify = new ArrayList<>(anyThreadCbs);
+    }
+    for (ResourceCallback cb : toNotify) {
+      if (!isInIgnoredCallbacks(cb)) {
+        result.acquireOnAnyThread();
+        cb.onResourceReady(result, dataSource);
+      }
+    }
+  }
+
+  /**
+   * Fails this job and notifies the callbacks that were added off of the main thread, if there are
+   * any, on the current thread.
+   */
+  private void notifyAnyThreadCallbacksOfFailure() {
+    List<ResourceCallback> toNotify;
+    synchronized (jobLock) {
+      if (isCancelled || anyThreadCbs.isEmpty()) {
+        return;
+      }
+      listener.onEngineJobComplete(key, null);
+      hasLoadFailed = true;
+      toNotify = new ArrayList<>(anyThreadCbs);
+    }
+    for (ResourceCallback cb : toNotify) {
+      if (!isInIgnoredCallbacks(cb)) {
+        cb.onLoadFailed(exception);
+      }
+    }
+  }
+
   @Override
   public void reschedule(DecodeJob<?> job) {
     // Even if the job is cancelled here, it still needs to be scheduled so that it can clean itself
     // up.
-    getActiveSourceExecutor().execute(job);
+    synchronized (queueLock) {
+      GlideExecutor executor = sourceDecodeExecutor != null && job.isDecodeHandOff()
+          ? sourceDecodeExecutor
+          : getActiveSourceExecutor();
+      job.onQueued();
+      execute(executor, job);
+    }
+  }
+
+  private void execute(GlideExecutor executor, DecodeJob<?> job) {
+    if (admissionController != null) {
+      admissionController.execute(executor, job);
+    } else {
+      executor.execute(job);
+    }
   }
 
   @Synthetic
   void handleExceptionOnMainThread() {
     stateVerifier.throwIfRecycled();
-    if (isCancelled) {
-      release(false /*isRemovedFromQueue*/);
-      return;
-    } else if (cbs.isEmpty()) {
-      throw new IllegalStateException("Received an exception without any callbacks to notify");
-    } else if (hasLoadFailed) {
-      throw new IllegalStateException("Already failed once");
+    // Callbacks added off of the main thread after onLoadFailed found none to notify.
+    List<ResourceCallback> lateAnyThreadCbs = Collections.emptyList();
+    synchronized (jobLock) {
+      if (isCancelled) {
+        release(false /*isRemovedFromQueue*/);
+        return;
+      } else if (hasLoadFailed && !isConcurrentLoadAllowed) {
+        throw new IllegalStateException("Already failed once");
+      } else if (!hasLoadFailed) {
+        // Otherwise callbacks added off of the main thread were already notified in onLoadFailed.
+        if (cbs.isEmpty() && anyThreadCbs.isEmpty()) {
+          throw new IllegalStateException(
+              "Received an exception without any callbacks to notify");
+        }
+        // See handleResultOnMainThread for why we notify the listener first.
+        listener.onEngineJobComplete(key, null);
+        hasLoadFailed = true;
+        lateAnyThreadCbs = new ArrayList<>(anyThreadCbs);
+      }
     }
-    hasLoadFailed = true;
-
-    listener.onEngineJobComplete(key, null);
 
+    for (ResourceCallback cb : lateAnyThreadCbs) {
+      if (!isInIgnoredCallbacks(cb)) {
+        cb.onLoadFailed(exception);
+      }
+    }
     for (ResourceCallback cb : cbs) {
       if (!isInIgnoredCallbacks(cb)) {
         cb.onLoadFailed(exception);
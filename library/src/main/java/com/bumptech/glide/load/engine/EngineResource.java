@@ -36,6 +36,10 @@ class EngineResource<Z> implements Resource<Z> {
     return isCacheable;
   }
 
+  Resource<Z> getResource() {
+    return resource;
+  }
+
   @Override
   public Class<Z> getResourceClass() {
     return resource.getResourceClass();
@@ -52,7 +56,7 @@ class EngineResource<Z> implements Resource<Z> {
   }
 
   @Override
-  public void recycle() {
+  public synchronized void recycle() {
     if (acquired > 0) {
       throw new IllegalStateException("Cannot recycle a resource while it is still acquired");
     }
@@ -72,14 +76,38 @@ class EngineResource<Z> implements Resource<Z> {
    * than necessary. Generally external users should never call this method, the framework will take
    * care of this for you. </p>
    */
-  void acquire() {
+  synchronized void acquire() {
+    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
+      throw new IllegalThreadStateException("Must call acquire on the main thread");
+    }
+    acquireOnAnyThread();
+  }
+
+  /**
+   * Identical to {@link #acquire()}, but may be called on any thread.
+   *
+   * <p> Only used by {@link Engine}s that allow loads to be started off of the main thread. </p>
+   */
+  synchronized void acquireOnAnyThread() {
     if (isRecycled) {
       throw new IllegalStateException("Cannot acquire a recycled resource");
     }
-    if (!Looper.getMainLooper().equals(Looper.myLooper())) {
-      throw new IllegalThreadStateException("Must call acquire on the main thread");
+    ++acquired;
+  }
+
+  /**
+   * Increments the number of consumers using the wrapped resource only if the resource is
+   * currently in use by at least one other consumer. May be called on any thread.
+   *
+   * <p> Returns {@code false} if the last consumer released the resource concurrently, in which
+   * case the resource has been (or is about to be) handed back to the memory cache. </p>
+   */
+  synchronized boolean acquireIfActive() {
+    if (isRecycled || acquired <= 0) {
+      return false;
     }
     ++acquired;
+    return true;
   }
 
   /**
@@ -90,7 +118,7 @@ class EngineResource<Z> implements Resource<Z> {
    * done with the resource. Generally external users should never callthis method, the framework
    * will take care of this for you. </p>
    */
-  void release() {
+  synchronized void release() {
     if (acquired <= 0) {
       throw new IllegalStateException("Cannot release a recycled or not yet acquired resource");
     }
@@ -0,0 +1,82 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of {@link DecodeJob}s waiting in each executor's queue, shedding queued or
+ * submitted jobs chosen by a {@link JobShedPolicy} when an executor's queue is full.
+ *
+ * <p>The bound is approximate. Jobs submitted concurrently on different threads may briefly
+ * exceed it.
+ */
+final class JobAdmissionController {
+  private final int maxPendingJobsPerExecutor;
+  private final JobShedPolicy shedPolicy;
+  private final AtomicLong shedCount = new AtomicLong();
+
+  JobAdmissionController(int maxPendingJobsPerExecutor, JobShedPolicy shedPolicy) {
+    this.maxPendingJobsPerExecutor = maxPendingJobsPerExecutor;
+    this.shedPolicy = shedPolicy;
+  }
+
+  /**
+   * Submits the given job to the given executor, or fails the given job or a job that's waiting in
+   * the executor's queue if the executor already has the maximum number of pending jobs.
+   */
+  void execute(GlideExecutor executor, DecodeJob<?> job) {
+    DecodeJob<?> toShed = null;
+    if (executor.getQueue().size() >= maxPendingJobsPerExecutor) {
+      toShed = selectJobToShed(executor, job);
+      // If the job we picked has started running or been re-queued in the meantime, admit the new
+      // job rather than searching again.
+      if (toShed != null && toShed != job && !executor.remove(toShed)) {
+        toShed = null;
+      }
+    }
+    if (toShed != job) {
+      executor.execute(job);
+    }
+    if (toShed != null) {
+      shedCount.incrementAndGet();
+      toShed.shed(new JobShedException("Shed by " + shedPolicy + " policy, more than "
+          + maxPendingJobsPerExecutor + " loads were pending"));
+    }
+  }
+
+  /**
+   * Returns the number of jobs that have been shed.
+   */
+  long getShedCount() {
+    return shedCount.get();
+  }
+
+  private DecodeJob<?> selectJobToShed(GlideExecutor executor, DecodeJob<?> submitted) {
+    DecodeJob<?> candidate = null;
+    for (Runnable runnable : executor.getQueue()) {
+      if (!(runnable instanceof DecodeJob)) {
+        continue;
+      }
+      DecodeJob<?> queued = (DecodeJob<?>) runnable;
+      if (candidate == null || isBetterToShed(queued, candidate)) {
+        candidate = queued;
+      }
+    }
+    if (candidate == null || !isBetterToShed(candidate, submitted)) {
+      candidate = submitted;
+    }
+    return candidate;
+  }
+
+  private boolean isBetterToShed(DecodeJob<?> job, DecodeJob<?> other) {
+    switch (shedPolicy) {
+      case LOWEST_PRIORITY:
+        // Jobs that compare greater run later.
+        return job.compareTo(other) > 0;
+      case OLDEST:
+        return job.isOlderThan(other);
+      default:
+        throw new IllegalArgumentException("Unrecognized shed policy: " + shedPolicy);
+    }
+  }
+}
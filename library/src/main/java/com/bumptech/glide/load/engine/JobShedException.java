@@ -0,0 +1,24 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * Indicates that a load failed without being run because too many loads were waiting to run on
+ * the same executor and the load was chosen by the {@link JobShedPolicy} to be shed.
+ *
+ * <p>Shed loads can safely be retried later, for example when the view they're for becomes
+ * visible again.
+ */
+public final class JobShedException extends Exception {
+  private static final StackTraceElement[] EMPTY_ELEMENTS = new StackTraceElement[0];
+
+  JobShedException(String message) {
+    super(message);
+    setStackTrace(EMPTY_ELEMENTS);
+  }
+
+  @Override
+  public Throwable fillInStackTrace() {
+    // Loads are shed when Glide is overloaded, so avoid an expensive allocation that wouldn't
+    // point anywhere useful anyway.
+    return this;
+  }
+}
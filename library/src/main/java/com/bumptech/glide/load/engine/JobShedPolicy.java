@@ -0,0 +1,26 @@
+package com.bumptech.glide.load.engine;
+
+/**
+ * Set of available policies for choosing which load to fail when a load is submitted to an
+ * executor that already has the maximum number of pending loads.
+ *
+ * <p>Loads that are shed fail with a {@link GlideException} caused by a
+ * {@link JobShedException}.
+ */
+public enum JobShedPolicy {
+  /**
+   * Sheds the pending load with the lowest {@link com.bumptech.glide.Priority}, preferring the
+   * most recently started load among loads with the same priority. If the submitted load has
+   * the lowest priority, the submitted load is shed instead.
+   */
+  LOWEST_PRIORITY,
+
+  /**
+   * Sheds the load that was started first, on the assumption that loads started long ago, for
+   * example for views that have since been scrolled off screen, are the least useful.
+   */
+  OLDEST;
+
+  /** The default policy, currently {@link #LOWEST_PRIORITY}. */
+  public static final JobShedPolicy DEFAULT = LOWEST_PRIORITY;
+}
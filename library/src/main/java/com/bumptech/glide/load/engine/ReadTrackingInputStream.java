@@ -0,0 +1,114 @@
+package com.bumptech.glide.load.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} that records how many bytes have been consumed from a wrapped stream and
+ * when the first byte was read.
+ *
+ * <p>Bytes that are read again after {@link #reset()} are only counted once. Instances are reused
+ * for each decode attempt of a load so that instrumenting streamed data doesn't allocate.
+ */
+final class ReadTrackingInputStream extends InputStream {
+  private InputStream wrapped;
+  private long position;
+  private long markPosition;
+  private long bytesRead;
+  private long firstByteNanos;
+  private boolean hasReadFirstByte;
+
+  ReadTrackingInputStream init(InputStream wrapped) {
+    this.wrapped = wrapped;
+    return this;
+  }
+
+  void release() {
+    wrapped = null;
+    position = 0;
+    markPosition = 0;
+    bytesRead = 0;
+    firstByteNanos = 0;
+    hasReadFirstByte = false;
+  }
+
+  long getBytesRead() {
+    return bytesRead;
+  }
+
+  boolean hasReadFirstByte() {
+    return hasReadFirstByte;
+  }
+
+  long getFirstByteNanos() {
+    return firstByteNanos;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int result = wrapped.read();
+    if (result != -1) {
+      onConsumed(1);
+    }
+    return result;
+  }
+
+  @Override
+  public int read(byte[] buffer) throws IOException {
+    return read(buffer, 0, buffer.length);
+  }
+
+  @Override
+  public int read(byte[] buffer, int byteOffset, int byteCount) throws IOException {
+    int result = wrapped.read(buffer, byteOffset, byteCount);
+    if (result > 0) {
+      onConsumed(result);
+    }
+    return result;
+  }
+
+  @Override
+  public long skip(long byteCount) throws IOException {
+    long result = wrapped.skip(byteCount);
+    if (result > 0) {
+      onConsumed(result);
+    }
+    return result;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return wrapped.available();
+  }
+
+  @Override
+  public boolean markSupported() {
+    return wrapped.markSupported();
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {
+    wrapped.mark(readLimit);
+    markPosition = position;
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    wrapped.reset();
+    position = markPosition;
+  }
+
+  @Override
+  public void close() throws IOException {
+    wrapped.close();
+  }
+
+  private void onConsumed(long byteCount) {
+    if (!hasReadFirstByte) {
+      hasReadFirstByte = true;
+      firstByteNanos = System.nanoTime();
+    }
+    position += byteCount;
+    bytesRead = Math.max(bytesRead, position);
+  }
+}
@@ -7,6 +7,7 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -22,14 +23,17 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
   private int sourceIdIndex = 0;
   private int resourceClassIndex = -1;
   private Key sourceKey;
-  private List<ModelLoader<File, ?>> modelLoaders;
+  private List<ModelLoader<Object, ?>> modelLoaders;
   private int modelLoaderIndex;
   private volatile LoadData<?> loadData;
-  // PMD is wrong here, this File must be an instance variable because it may be used across
-  // multiple calls to startNext.
+  // PMD is wrong here, this File or ByteBuffer must be an instance variable because it may be used
+  // across multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
-  private File cacheFile;
+  private Object cacheData;
   private ResourceCacheKey currentKey;
+  // Set while retrying cached data as a File after its ByteBuffer couldn't be decoded, so the
+  // same ByteBuffer isn't decoded twice.
+  private boolean isFileFallback;
 
   public ResourceCacheGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
     this.helper = helper;
@@ -44,6 +48,18 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     }
     List<Class<?>> resourceClasses = helper.getRegisteredResourceClasses();
     while (modelLoaders == null || !hasNextModelLoader()) {
+      if (cacheData instanceof ByteBuffer) {
+        // Nothing could decode the cached resource from a ByteBuffer, so retry it as a File, which
+        // can also be opened as an InputStream or a ParcelFileDescriptor.
+        File cacheFile = helper.getDiskCache().get(currentKey);
+        cacheData = cacheFile;
+        if (cacheFile != null) {
+          isFileFallback = true;
+          modelLoaders = helper.getModelLoaders(cacheFile);
+          modelLoaderIndex = 0;
+          continue;
+        }
+      }
       resourceClassIndex++;
       if (resourceClassIndex >= resourceClasses.size()) {
         sourceIdIndex++;
@@ -59,10 +75,11 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
 
       currentKey = new ResourceCacheKey(sourceId, helper.getSignature(), helper.getWidth(),
           helper.getHeight(), transformation, resourceClass, helper.getOptions());
-      cacheFile = helper.getDiskCache().get(currentKey);
-      if (cacheFile != null) {
+      cacheData = helper.getFromDiskCache(currentKey);
+      if (cacheData != null) {
         this.sourceKey = sourceId;
-        modelLoaders = helper.getModelLoaders(cacheFile);
+        isFileFallback = false;
+        modelLoaders = helper.getModelLoaders(cacheData);
         modelLoaderIndex = 0;
       }
     }
@@ -70,11 +87,12 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     loadData = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
-      ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
+      ModelLoader<Object, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
       loadData =
-          modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
+          modelLoader.buildLoadData(cacheData, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
-      if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
+      if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())
+          && !(isFileFallback && ByteBuffer.class.equals(loadData.fetcher.getDataClass()))) {
         started = true;
         loadData.fetcher.loadData(helper.getPriority(), this);
       }
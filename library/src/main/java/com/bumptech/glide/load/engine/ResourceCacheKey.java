@@ -3,7 +3,7 @@ package com.bumptech.glide.load.engine;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.Transformation;
-import com.bumptech.glide.util.LruCache;
+import com.bumptech.glide.util.ConcurrentLruCache;
 import com.bumptech.glide.util.Util;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
@@ -12,7 +12,8 @@ import java.security.MessageDigest;
  * A cache key for downsampled and transformed resource data + any requested signature.
  */
 final class ResourceCacheKey implements Key {
-  private static final LruCache<Class<?>, byte[]> RESOURCE_CLASS_BYTES = new LruCache<>(50);
+  private static final ConcurrentLruCache<Class<?>, byte[]> RESOURCE_CLASS_BYTES =
+      new ConcurrentLruCache<>(50);
   private final Key sourceKey;
   private final Key signature;
   private final int width;
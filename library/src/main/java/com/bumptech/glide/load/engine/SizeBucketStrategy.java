@@ -0,0 +1,127 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.util.Preconditions;
+
+/**
+ * Set of available strategies for rounding the dimensions of a load to a coarser set of sizes.
+ *
+ * <p>Loads for the same model whose requested dimensions fall in the same bucket share one
+ * decode, one memory cache entry and one resource disk cache entry. Only the larger dimension of
+ * a load is rounded, the smaller one is scaled by the same factor so that the bucketed size keeps
+ * the requested aspect ratio. Dimensions are only ever rounded up, so the decoded resource is
+ * always at least as large as the requested size and can be fit to the exact size cheaply by the
+ * target, for example by an {@link android.widget.ImageView}'s
+ * {@link android.widget.ImageView.ScaleType}.
+ *
+ * <p>Transformations are applied at the bucketed dimensions. Since those have the requested aspect
+ * ratio, to within a pixel, a transformation that crops, like
+ * {@link com.bumptech.glide.load.resource.bitmap.CenterCrop}, produces the same image the target
+ * would have received without bucketing, only slightly larger. Targets that require resources of
+ * exactly the requested size should not be used with any strategy other than {@link #NONE}.
+ */
+public abstract class SizeBucketStrategy {
+
+  /**
+   * Uses the exact requested dimensions.
+   */
+  public static final SizeBucketStrategy NONE = new SizeBucketStrategy() {
+    @Override
+    public int getBucketedSize(int size) {
+      return size;
+    }
+  };
+
+  /**
+   * Returns a strategy that rounds each dimension up to the nearest multiple of the given step.
+   *
+   * @param stepPx The size of each bucket in pixels, must be greater than zero.
+   */
+  public static SizeBucketStrategy roundUpToMultipleOf(final int stepPx) {
+    Preconditions.checkArgument(stepPx > 0, "Step must be > 0");
+    return new SizeBucketStrategy() {
+      @Override
+      public int getBucketedSize(int size) {
+        if (!isBucketable(size)) {
+          return size;
+        }
+        long bucket = ((size + (long) stepPx - 1) / stepPx) * stepPx;
+        return (int) Math.min(Integer.MAX_VALUE, bucket);
+      }
+    };
+  }
+
+  /**
+   * Returns a strategy that rounds each dimension up to the nearest bucket in a geometric series
+   * starting at the given minimum size, so that buckets are proportionally, rather than
+   * absolutely, sized.
+   *
+   * <p>For example, a ratio of 1.1 bounds the extra pixels decoded in each dimension to 10%.
+   *
+   * @param ratio The ratio between consecutive buckets, must be greater than 1.
+   * @param minSizePx The size of the smallest bucket in pixels, must be greater than zero. Sizes
+   *                  smaller than this value are not rounded.
+   */
+  public static SizeBucketStrategy roundUpGeometrically(final float ratio, final int minSizePx) {
+    Preconditions.checkArgument(ratio > 1f, "Ratio must be > 1");
+    Preconditions.checkArgument(minSizePx > 0, "Minimum size must be > 0");
+    return new SizeBucketStrategy() {
+      @Override
+      public int getBucketedSize(int size) {
+        if (!isBucketable(size) || size <= minSizePx) {
+          return size;
+        }
+        int bucket = minSizePx;
+        while (bucket < size) {
+          bucket = Math.max(bucket + 1, (int) Math.ceil(bucket * ratio));
+        }
+        return bucket;
+      }
+    };
+  }
+
+  /**
+   * Returns the bucket the given dimension belongs to.
+   *
+   * @param size A width or height in pixels, or
+   *             {@link com.bumptech.glide.request.target.Target#SIZE_ORIGINAL}.
+   */
+  public abstract int getBucketedSize(int size);
+
+  /**
+   * Returns the bucketed width of a load with the given dimensions, which is either the bucket of
+   * the width, if the width is the larger dimension, or the width scaled by the same factor as
+   * the height.
+   */
+  public final int getBucketedWidth(int width, int height) {
+    return width >= height
+        ? getBucketedSize(width) : scaleLike(width, height, getBucketedSize(height));
+  }
+
+  /**
+   * Returns the bucketed height of a load with the given dimensions, which is either the bucket
+   * of the height, if the height is the larger dimension, or the height scaled by the same factor
+   * as the width.
+   */
+  public final int getBucketedHeight(int width, int height) {
+    return height > width
+        ? getBucketedSize(height) : scaleLike(height, width, getBucketedSize(width));
+  }
+
+  /**
+   * Scales the given size by the factor the other dimension was bucketed by, rounding up so that
+   * the result is never smaller than the given size.
+   */
+  private static int scaleLike(int size, int other, int bucketedOther) {
+    // Without both dimensions there's no aspect ratio to preserve.
+    if (!isBucketable(size) || !isBucketable(other)) {
+      return size;
+    }
+    long scaled = ((long) size * bucketedOther + other - 1) / other;
+    return (int) Math.min(Integer.MAX_VALUE, scaled);
+  }
+
+  // Target.SIZE_ORIGINAL and other sentinel values are negative.
+  static boolean isBucketable(int size) {
+    return size > 0;
+  }
+}
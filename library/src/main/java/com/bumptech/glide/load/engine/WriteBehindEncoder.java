@@ -0,0 +1,132 @@
+package com.bumptech.glide.load.engine;
+
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.util.Synthetic;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes transformed resources and source data to the disk cache on a dedicated executor so that
+ * slow encodes don't occupy the threads that fetch and decode resources.
+ *
+ * <p>Encodes are best effort. An encode is dropped if an encode for the same disk cache key is
+ * already pending or if the executor rejects it because its queue is full. A dropped encode only
+ * means that a later load may have to decode the resource again.
+ */
+final class WriteBehindEncoder {
+  private static final String TAG = "WriteBehindEncoder";
+
+  private final Executor executor;
+  @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
+  @Synthetic final EngineEventListener eventListener;
+  @Synthetic final Set<Key> pendingKeys =
+      Collections.newSetFromMap(new ConcurrentHashMap<Key, Boolean>());
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong dedupedCount = new AtomicLong();
+
+  WriteBehindEncoder(Executor executor, DecodeJob.DiskCacheProvider diskCacheProvider,
+      EngineEventListener eventListener) {
+    this.executor = executor;
+    this.diskCacheProvider = diskCacheProvider;
+    this.eventListener = eventListener;
+  }
+
+  /**
+   * Queues the given resource to be written to the disk cache.
+   *
+   * <p>Takes ownership of the given locks, which are released once the encode completes or is
+   * dropped.
+   *
+   * @param loadKey The key of the load that produced the resource.
+   * @param cacheKey The disk cache key to write the resource to.
+   * @param toEncode The locked resource to encode.
+   * @param lockedResult An optional lock on the resource delivered to the load's callbacks, which
+   *                     may share data with {@code toEncode}.
+   * @return {@code true} if the encode was queued, {@code false} if it was dropped.
+   */
+  <Z> boolean encode(Key loadKey, Key cacheKey, ResourceEncoder<Z> encoder,
+      LockedResource<Z> toEncode, Options options, LockedResource<?> lockedResult) {
+    if (!pendingKeys.add(cacheKey)) {
+      dedupedCount.incrementAndGet();
+      unlock(toEncode, lockedResult);
+      return false;
+    }
+    try {
+      executor.execute(
+          new EncodeTask<>(loadKey, cacheKey, encoder, toEncode, options, lockedResult));
+      return true;
+    } catch (RejectedExecutionException e) {
+      pendingKeys.remove(cacheKey);
+      droppedCount.incrementAndGet();
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Encode queue full, dropped encode for: " + cacheKey);
+      }
+      unlock(toEncode, lockedResult);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the number of encodes dropped because the executor's queue was full.
+   */
+  long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Returns the number of encodes dropped because an encode for the same key was pending.
+   */
+  long getDedupedCount() {
+    return dedupedCount.get();
+  }
+
+  @Synthetic
+  static void unlock(LockedResource<?> toEncode, LockedResource<?> lockedResult) {
+    toEncode.unlock();
+    if (lockedResult != null) {
+      lockedResult.unlock();
+    }
+  }
+
+  private final class EncodeTask<Z> implements Runnable {
+    private final Key loadKey;
+    private final Key cacheKey;
+    private final ResourceEncoder<Z> encoder;
+    private final LockedResource<Z> toEncode;
+    private final Options options;
+    private final LockedResource<?> lockedResult;
+
+    @Synthetic
+    EncodeTask(Key loadKey, Key cacheKey, ResourceEncoder<Z> encoder, LockedResource<Z> toEncode,
+        Options options, LockedResource<?> lockedResult) {
+      this.loadKey = loadKey;
+      this.cacheKey = cacheKey;
+      this.encoder = encoder;
+      this.toEncode = toEncode;
+      this.options = options;
+      this.lockedResult = lockedResult;
+    }
+
+    @Override
+    public void run() {
+      long startNanos = eventListener != null ? System.nanoTime() : 0L;
+      try {
+        diskCacheProvider.getDiskCache().put(cacheKey,
+            new DataCacheWriter<>(encoder, toEncode, options));
+      } finally {
+        unlock(toEncode, lockedResult);
+        pendingKeys.remove(cacheKey);
+      }
+      if (eventListener != null) {
+        eventListener.onEncoded(loadKey, startNanos, System.nanoTime());
+      }
+    }
+  }
+}
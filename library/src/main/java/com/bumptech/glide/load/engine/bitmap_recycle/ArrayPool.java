@@ -28,6 +28,10 @@ public interface ArrayPool {
   <T> T get(int size, Class<T> arrayClass);
   /**
    * Clears all arrays from the pool.
+   *
+   * <p>Pools that let threads keep arrays for themselves, like {@link LruArrayPool}, may only
+   * release those arrays the next time each thread uses the pool, so threads that are idle keep
+   * their arrays until then.
    */
   void clearMemory();
 
@@ -38,4 +42,9 @@ public interface ArrayPool {
    */
   void trimMemory(int level);
 
+  /**
+   * Returns a snapshot of the pool's hit, miss, eviction and rejection counts, which can be used to
+   * tune the size of the pool.
+   */
+  PoolStats getStats();
 }
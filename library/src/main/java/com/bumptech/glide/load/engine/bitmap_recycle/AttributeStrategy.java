@@ -45,6 +45,11 @@ class AttributeStrategy implements LruPoolStrategy {
     return Util.getBitmapByteSize(bitmap);
   }
 
+  @Override
+  public Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+    return Bitmap.createBitmap(width, height, config);
+  }
+
   @Override
   public String toString() {
     return "AttributeStrategy:\n  " + groupedMap;
@@ -105,4 +105,11 @@ public interface BitmapPool {
    * @see android.content.ComponentCallbacks2
    */
   void trimMemory(int level);
+
+  /**
+   * Returns a snapshot of the pool's hit, miss, eviction and rejection counts, which can be used to
+   * tune the size of the pool.
+   */
+  @NonNull
+  PoolStats getStats();
 }
@@ -2,6 +2,7 @@ package com.bumptech.glide.load.engine.bitmap_recycle;
 
 import android.graphics.Bitmap;
 import android.support.annotation.NonNull;
+import com.bumptech.glide.util.Util;
 
 /**
  * An {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool BitmapPool} implementation
@@ -9,6 +10,8 @@ import android.support.annotation.NonNull;
  * null} from get.
  */
 public class BitmapPoolAdapter implements BitmapPool {
+  private final PoolStatsRecorder stats = new PoolStatsRecorder();
+
   @Override
   public int getMaxSize() {
     return 0;
@@ -21,12 +24,14 @@ public class BitmapPoolAdapter implements BitmapPool {
 
   @Override
   public void put(Bitmap bitmap) {
+    stats.recordReject(PoolStats.RejectReason.TOO_LARGE);
     bitmap.recycle();
   }
 
   @NonNull
   @Override
   public Bitmap get(int width, int height, Bitmap.Config config) {
+    stats.recordMiss(Util.getBitmapByteSize(width, height, config));
     return Bitmap.createBitmap(width, height, config);
   }
 
@@ -45,4 +50,10 @@ public class BitmapPoolAdapter implements BitmapPool {
   public void trimMemory(int level) {
     // Do nothing.
   }
+
+  @NonNull
+  @Override
+  public PoolStats getStats() {
+    return stats.snapshot(0 /*currentSize*/, 0 /*maxSize*/);
+  }
 }
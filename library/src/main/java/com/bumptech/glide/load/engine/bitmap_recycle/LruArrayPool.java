@@ -5,14 +5,17 @@ import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 
 /**
  * A fixed size Array Pool that evicts arrays using an LRU strategy to keep the pool under
  * the maximum byte size.
+ *
+ * <p>Arrays are indexed by their primitive lengths in linked lists that are re-used as arrays move
+ * in and out of the pool, so that once the pool has warmed up, neither {@link #get(int, Class)}
+ * nor {@link #put(Object, Class)} allocate.
  */
 public final class LruArrayPool implements ArrayPool {
   // 4MB.
@@ -25,17 +28,30 @@ public final class LruArrayPool implements ArrayPool {
   private static final int MAX_OVER_SIZE_MULTIPLE = 8;
   /** Used to calculate the maximum % of the total pool size a single byte array may consume. */
   private static final int SINGLE_ARRAY_MAX_SIZE_DIVISOR = 2;
+  /** The maximum number of arrays each thread keeps, regardless of their size. */
+  private static final int MAX_THREAD_LOCAL_ARRAYS = 4;
 
-  private final GroupedLinkedMap<Key, Object> groupedMap = new GroupedLinkedMap<>();
-  private final KeyPool keyPool = new KeyPool();
-  private final Map<Class<?>, NavigableMap<Integer, Integer>> sortedSizes = new HashMap<>();
+  // Arrays are kept in one list for each power of two range of lengths.
+  private static final int SIZE_CLASS_COUNT = 32;
+
+  private final EntryPool entryPool = new EntryPool();
+  // The head of a circular list of every pooled array, from least to most recently put.
+  private final Entry lru = new Entry(null /*pool*/);
+  private final Map<Class<?>, Entry[]> sizeClassesByType = new HashMap<>();
+  // Filled in the constructor and never modified, so it can be read without holding the lock.
   private final Map<Class<?>, ArrayAdapterInterface<?>> adapters = new HashMap<>();
-  private final int maxSize;
+  private final PoolStatsRecorder stats = new PoolStatsRecorder();
+  private final int initialMaxSize;
+  @Synthetic final int maxThreadLocalSize;
+  @Nullable private final ThreadLocal<LocalArrays> localArrays;
+  private int maxSize;
   private int currentSize;
+  // Incremented when the pool is cleared, so that threads know to drop the arrays they keep.
+  @Synthetic volatile int generation;
 
   @VisibleForTesting
   public LruArrayPool() {
-    maxSize = DEFAULT_SIZE;
+    this(DEFAULT_SIZE);
   }
 
   /**
@@ -44,44 +60,126 @@ public final class LruArrayPool implements ArrayPool {
    * @param maxSize The maximum size in integers of the pool.
    */
   public LruArrayPool(int maxSize) {
+    this(maxSize, 0 /*maxThreadLocalSize*/);
+  }
+
+  /**
+   * Constructor for a new pool that lets each thread keep a few arrays it puts into the pool for
+   * itself, so that a thread that repeatedly gets and puts arrays of similar sizes doesn't contend
+   * with other threads for the shared pool.
+   *
+   * <p>Arrays kept by threads don't count towards the maximum size of the pool. Each thread keeps
+   * up to the given number of bytes and moves its least recently put arrays to the shared pool to
+   * stay under it. Arrays kept by a thread are dropped the next time the thread uses the pool after
+   * {@link #clearMemory()} or {@link #trimMemory(int)}, so each idle thread may keep up to the
+   * given number of bytes until it's used again.
+   *
+   * @param maxSize            The maximum size in bytes of the arrays shared by all threads.
+   * @param maxThreadLocalSize The maximum size in bytes of the arrays kept by each thread, or 0 to
+   *                           share every array.
+   */
+  public LruArrayPool(int maxSize, int maxThreadLocalSize) {
+    this.initialMaxSize = maxSize;
     this.maxSize = maxSize;
+    this.maxThreadLocalSize = maxThreadLocalSize;
+    lru.newer = lru;
+    lru.older = lru;
+    adapters.put(int[].class, new IntegerArrayAdapter());
+    adapters.put(byte[].class, new ByteArrayAdapter());
+    localArrays = maxThreadLocalSize > 0 ? new ThreadLocal<LocalArrays>() {
+      @Override
+      protected LocalArrays initialValue() {
+        return new LocalArrays();
+      }
+    } : null;
+  }
+
+  /**
+   * Multiplies the initial size of the pool by the given multiplier to dynamically and
+   * synchronously allow users to adjust the size of the pool, evicting arrays if the pool is
+   * larger than the new size.
+   *
+   * @param sizeMultiplier The size multiplier to apply, must be >= 0.
+   */
+  public synchronized void setSizeMultiplier(float sizeMultiplier) {
+    Preconditions.checkArgument(sizeMultiplier >= 0, "Size multiplier must be >= 0");
+    maxSize = Math.round(initialMaxSize * sizeMultiplier);
+    evict();
   }
 
   @Override
-  public synchronized <T> void put(T array, Class<T> arrayClass) {
-    ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
-    int size = arrayAdapter.getArrayLength(array);
-    int arrayBytes = size * arrayAdapter.getElementSizeInBytes();
+  public <T> void put(T array, Class<T> arrayClass) {
+    if (localArrays != null) {
+      ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
+      int length = arrayAdapter.getArrayLength(array);
+      int arrayBytes = length * arrayAdapter.getElementSizeInBytes();
+      if (arrayBytes <= maxThreadLocalSize) {
+        stats.recordPut();
+        localArrays.get().put(array, length, arrayBytes);
+        return;
+      }
+    }
+    if (putShared(array)) {
+      stats.recordPut();
+    }
+  }
+
+  /**
+   * Adds the given array to the pool shared by all threads and returns {@code true}, or returns
+   * {@code false} if the array is too large to be added.
+   */
+  @Synthetic
+  synchronized boolean putShared(Object array) {
+    ArrayAdapterInterface<Object> arrayAdapter = getAdapterFromObject(array);
+    int length = arrayAdapter.getArrayLength(array);
+    int arrayBytes = length * arrayAdapter.getElementSizeInBytes();
     if (!isSmallEnoughForReuse(arrayBytes)) {
-      return;
+      stats.recordReject(PoolStats.RejectReason.TOO_LARGE);
+      return false;
     }
-    Key key = keyPool.get(size, arrayClass);
+    Entry[] sizeClasses = getSizeClassesForType(array.getClass());
+    Entry entry = entryPool.get(array, length, arrayBytes, sizeClasses);
+
+    int sizeClass = getSizeClass(length);
+    entry.nextInSizeClass = sizeClasses[sizeClass];
+    if (entry.nextInSizeClass != null) {
+      entry.nextInSizeClass.previousInSizeClass = entry;
+    }
+    sizeClasses[sizeClass] = entry;
+
+    entry.newer = lru;
+    entry.older = lru.older;
+    lru.older.newer = entry;
+    lru.older = entry;
 
-    groupedMap.put(key, array);
-    NavigableMap<Integer, Integer> sizes = getSizesForAdapter(arrayClass);
-    Integer current = sizes.get(key.size);
-    sizes.put(key.size, current == null ? 1 : current + 1);
     currentSize += arrayBytes;
     evict();
+    return true;
   }
 
   @Override
   public <T> T get(int size, Class<T> arrayClass) {
     ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
-    T result;
-    synchronized (this) {
-      Integer possibleSize = getSizesForAdapter(arrayClass).ceilingKey(size);
-      final Key key;
-      if (mayFillRequest(size, possibleSize)) {
-        key = keyPool.get(possibleSize, arrayClass);
-      } else {
-        key = keyPool.get(size, arrayClass);
+    int requestedBytes = size * arrayAdapter.getElementSizeInBytes();
+    T result = null;
+    if (localArrays != null) {
+      result = localArrays.get().get(size, arrayClass);
+      if (result != null) {
+        stats.recordLocalHit(requestedBytes);
+        return result;
       }
+    }
+    synchronized (this) {
+      int maxLength = isNoMoreThanHalfFull() ? Integer.MAX_VALUE
+          : getMaxOverSizeLength(size);
+      Entry entry = findBestFit(getSizeClassesForType(arrayClass), size, maxLength);
 
-      result = getArrayForKey(key);
-      if (result != null) {
-        currentSize -= arrayAdapter.getArrayLength(result) * arrayAdapter.getElementSizeInBytes();
-        decrementArrayOfSize(arrayAdapter.getArrayLength(result), arrayClass);
+      if (entry == null) {
+        stats.recordMiss(requestedBytes);
+      } else {
+        stats.recordHit(requestedBytes);
+        result = getArrayForEntry(entry);
+        remove(entry);
       }
     }
 
@@ -94,19 +192,62 @@ public final class LruArrayPool implements ArrayPool {
     return result;
   }
 
+  @Synthetic
+  static int getMaxOverSizeLength(int size) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) MAX_OVER_SIZE_MULTIPLE * size);
+  }
+
   @SuppressWarnings("unchecked")
+  private static <T> T getArrayForEntry(Entry entry) {
+    return (T) entry.array;
+  }
+
+  /**
+   * Returns the entry for the shortest array with a length between the given minimum and maximum,
+   * or {@code null} if there isn't one.
+   */
   @Nullable
-  private <T> T getArrayForKey(Key key) {
-    return (T) groupedMap.get(key);
+  private static Entry findBestFit(Entry[] sizeClasses, int minLength, int maxLength) {
+    for (int i = getSizeClass(minLength); i < SIZE_CLASS_COUNT; i++) {
+      Entry best = null;
+      for (Entry entry = sizeClasses[i]; entry != null; entry = entry.nextInSizeClass) {
+        if (entry.length >= minLength && entry.length <= maxLength
+            && (best == null || entry.length < best.length)) {
+          best = entry;
+          if (entry.length == minLength) {
+            break;
+          }
+        }
+      }
+      // Every array in the following size classes is longer than every array in this one.
+      if (best != null) {
+        return best;
+      }
+      if (i + 1 < SIZE_CLASS_COUNT && 1 << (i + 1) > maxLength) {
+        break;
+      }
+    }
+    return null;
   }
 
-  private boolean isSmallEnoughForReuse(int byteSize) {
-    return byteSize <= maxSize / SINGLE_ARRAY_MAX_SIZE_DIVISOR;
+  private void remove(Entry entry) {
+    if (entry.previousInSizeClass != null) {
+      entry.previousInSizeClass.nextInSizeClass = entry.nextInSizeClass;
+    } else {
+      entry.sizeClasses[getSizeClass(entry.length)] = entry.nextInSizeClass;
+    }
+    if (entry.nextInSizeClass != null) {
+      entry.nextInSizeClass.previousInSizeClass = entry.previousInSizeClass;
+    }
+    entry.older.newer = entry.newer;
+    entry.newer.older = entry.older;
+
+    currentSize -= entry.bytes;
+    entry.offer();
   }
 
-  private boolean mayFillRequest(int requestedSize, Integer actualSize) {
-    return actualSize != null
-        && (isNoMoreThanHalfFull() || actualSize <= (MAX_OVER_SIZE_MULTIPLE * requestedSize));
+  private boolean isSmallEnoughForReuse(int byteSize) {
+    return byteSize <= maxSize / SINGLE_ARRAY_MAX_SIZE_DIVISOR;
   }
 
   private boolean isNoMoreThanHalfFull() {
@@ -116,6 +257,8 @@ public final class LruArrayPool implements ArrayPool {
   @Override
   public synchronized void clearMemory() {
     evictToSize(0);
+    // Each thread drops its arrays the next time it uses the pool.
+    generation++;
   }
 
   @Override
@@ -124,47 +267,45 @@ public final class LruArrayPool implements ArrayPool {
       clearMemory();
     } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
       evictToSize(maxSize / 2);
+      generation++;
     }
   }
 
+  @Override
+  public synchronized PoolStats getStats() {
+    return stats.snapshot(currentSize, maxSize);
+  }
+
   private void evict() {
     evictToSize(maxSize);
   }
 
   private void evictToSize(int size) {
     while (currentSize > size) {
-      Object evicted = groupedMap.removeLast();
-      Preconditions.checkNotNull(evicted);
-      ArrayAdapterInterface<Object> arrayAdapter = getAdapterFromObject(evicted);
-      currentSize -= arrayAdapter.getArrayLength(evicted) * arrayAdapter.getElementSizeInBytes();
-      decrementArrayOfSize(arrayAdapter.getArrayLength(evicted), evicted.getClass());
+      Entry evicted = lru.newer;
+      if (evicted == lru) {
+        throw new IllegalStateException("Pool is empty, but has size: " + currentSize);
+      }
+      ArrayAdapterInterface<Object> arrayAdapter = getAdapterFromObject(evicted.array);
+      stats.recordEviction(evicted.bytes);
       if (Log.isLoggable(arrayAdapter.getTag(), Log.VERBOSE)) {
-        Log.v(arrayAdapter.getTag(), "evicted: " + arrayAdapter.getArrayLength(evicted));
+        Log.v(arrayAdapter.getTag(), "evicted: " + evicted.length);
       }
+      remove(evicted);
     }
   }
 
-  private void decrementArrayOfSize(int size, Class<?> arrayClass) {
-    NavigableMap<Integer, Integer> sizes = getSizesForAdapter(arrayClass);
-    Integer current = sizes.get(size);
-    if (current == null) {
-      throw new NullPointerException(
-          "Tried to decrement empty size" + ", size: " + size + ", this: " + this);
-    }
-    if (current == 1) {
-      sizes.remove(size);
-    } else {
-      sizes.put(size, current - 1);
+  private Entry[] getSizeClassesForType(Class<?> arrayClass) {
+    Entry[] sizeClasses = sizeClassesByType.get(arrayClass);
+    if (sizeClasses == null) {
+      sizeClasses = new Entry[SIZE_CLASS_COUNT];
+      sizeClassesByType.put(arrayClass, sizeClasses);
     }
+    return sizeClasses;
   }
 
-  private NavigableMap<Integer, Integer> getSizesForAdapter(Class<?> arrayClass) {
-    NavigableMap<Integer, Integer> sizes = sortedSizes.get(arrayClass);
-    if (sizes == null) {
-      sizes = new TreeMap<>();
-      sortedSizes.put(arrayClass, sizes);
-    }
-    return sizes;
+  private static int getSizeClass(int length) {
+    return length == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(length);
   }
 
   @SuppressWarnings("unchecked")
@@ -176,86 +317,156 @@ public final class LruArrayPool implements ArrayPool {
   private <T> ArrayAdapterInterface<T> getAdapterFromType(Class<T> arrayPoolClass) {
     ArrayAdapterInterface<?> adapter = adapters.get(arrayPoolClass);
     if (adapter == null) {
-      if (arrayPoolClass.equals(int[].class)) {
-        adapter = new IntegerArrayAdapter();
-      } else if (arrayPoolClass.equals(byte[].class)) {
-        adapter = new ByteArrayAdapter();
-      } else {
-          throw new IllegalArgumentException("No array pool found for: "
-              + arrayPoolClass.getSimpleName());
-      }
-      adapters.put(arrayPoolClass, adapter);
+      throw new IllegalArgumentException("No array pool found for: "
+          + arrayPoolClass.getSimpleName());
     }
     return (ArrayAdapterInterface<T>) adapter;
   }
 
   // VisibleForTesting
-  int getCurrentSize() {
+  synchronized int getCurrentSize() {
     int currentSize = 0;
-    for (Class<?> type : sortedSizes.keySet()) {
-      for (Integer size : sortedSizes.get(type).keySet()) {
-        ArrayAdapterInterface<?> adapter = getAdapterFromType(type);
-        currentSize += size * sortedSizes.get(type).get(size) * adapter.getElementSizeInBytes();
-      }
+    for (Entry entry = lru.newer; entry != lru; entry = entry.newer) {
+      currentSize += entry.bytes;
     }
     return currentSize;
   }
 
-  private static final class KeyPool extends BaseKeyPool<Key> {
+  /**
+   * The arrays a single thread has most recently put into the pool, from least to most recently
+   * put.
+   *
+   * <p>Only used by the thread that owns it, so it needs no locking.
+   */
+  private final class LocalArrays {
+    private final Object[] arrays = new Object[MAX_THREAD_LOCAL_ARRAYS];
+    private final int[] lengths = new int[MAX_THREAD_LOCAL_ARRAYS];
+    private final int[] bytes = new int[MAX_THREAD_LOCAL_ARRAYS];
+    private int count;
+    private int size;
+    private int localGeneration = generation;
 
     @Synthetic
-    KeyPool() { }
-
-    Key get(int size, Class<?> arrayClass) {
-      Key result = get();
-      result.init(size, arrayClass);
+    LocalArrays() { }
+
+    @Nullable
+    <T> T get(int length, Class<T> arrayClass) {
+      dropIfCleared();
+      int maxLength = getMaxOverSizeLength(length);
+      int best = -1;
+      // Search from the most recently put array, which is the most likely to be re-used.
+      for (int i = count - 1; i >= 0; i--) {
+        if (arrays[i].getClass() == arrayClass && lengths[i] >= length && lengths[i] <= maxLength
+            && (best == -1 || lengths[i] < lengths[best])) {
+          best = i;
+          if (lengths[i] == length) {
+            break;
+          }
+        }
+      }
+      if (best == -1) {
+        return null;
+      }
+      @SuppressWarnings("unchecked")
+      T result = (T) arrays[best];
+      remove(best);
       return result;
     }
 
-    @Override
-    protected Key create() {
-      return new Key(this);
+    void put(Object array, int length, int arrayBytes) {
+      dropIfCleared();
+      while (count == MAX_THREAD_LOCAL_ARRAYS || size + arrayBytes > maxThreadLocalSize) {
+        Object oldest = arrays[0];
+        remove(0);
+        putShared(oldest);
+      }
+      arrays[count] = array;
+      lengths[count] = length;
+      bytes[count] = arrayBytes;
+      count++;
+      size += arrayBytes;
     }
-  }
 
-  private static final class Key implements Poolable {
-    private final KeyPool pool;
-    @Synthetic int size;
-    private Class<?> arrayClass;
+    private void remove(int index) {
+      size -= bytes[index];
+      count--;
+      System.arraycopy(arrays, index + 1, arrays, index, count - index);
+      System.arraycopy(lengths, index + 1, lengths, index, count - index);
+      System.arraycopy(bytes, index + 1, bytes, index, count - index);
+      arrays[count] = null;
+    }
 
-    Key(KeyPool pool) {
-      this.pool = pool;
+    private void dropIfCleared() {
+      int currentGeneration = generation;
+      if (localGeneration != currentGeneration) {
+        Arrays.fill(arrays, null);
+        count = 0;
+        size = 0;
+        localGeneration = currentGeneration;
+      }
     }
+  }
+
+  private static final class EntryPool extends BaseKeyPool<Entry> {
+
+    @Synthetic
+    EntryPool() { }
 
-    void init(int length, Class<?> arrayClass) {
-      this.size = length;
-      this.arrayClass = arrayClass;
+    Entry get(Object array, int length, int bytes, Entry[] sizeClasses) {
+      Entry result = get();
+      result.init(array, length, bytes, sizeClasses);
+      return result;
     }
 
     @Override
-    public boolean equals(Object o) {
-      if (o instanceof Key) {
-        Key other = (Key) o;
-        return size == other.size && arrayClass == other.arrayClass;
-      }
-      return false;
+    protected Entry create() {
+      return new Entry(this);
     }
+  }
 
-    @Override
-    public String toString() {
-      return "Key{" + "size=" + size + "array=" + arrayClass + '}';
+  /**
+   * A pooled array, linked both into the list of arrays in its size class and into the list of all
+   * arrays in the order they were put into the pool.
+   */
+  private static final class Entry implements Poolable {
+    @Nullable private final EntryPool pool;
+    @Synthetic Object array;
+    @Synthetic int length;
+    @Synthetic int bytes;
+    @Synthetic Entry[] sizeClasses;
+    @Synthetic Entry previousInSizeClass;
+    @Synthetic Entry nextInSizeClass;
+    @Synthetic Entry newer;
+    @Synthetic Entry older;
+
+    @Synthetic
+    Entry(@Nullable EntryPool pool) {
+      this.pool = pool;
+    }
+
+    void init(Object array, int length, int bytes, Entry[] sizeClasses) {
+      this.array = array;
+      this.length = length;
+      this.bytes = bytes;
+      this.sizeClasses = sizeClasses;
     }
 
     @Override
     public void offer() {
-      pool.offer(this);
+      array = null;
+      sizeClasses = null;
+      previousInSizeClass = null;
+      nextInSizeClass = null;
+      newer = null;
+      older = null;
+      if (pool != null) {
+        pool.offer(this);
+      }
     }
 
     @Override
-    public int hashCode() {
-      int result = size;
-      result = 31 * result + (arrayClass != null ? arrayClass.hashCode() : 0);
-      return result;
+    public String toString() {
+      return "Entry{" + "length=" + length + ", array=" + array + '}';
     }
   }
 }
@@ -9,6 +9,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -28,13 +29,10 @@ public class LruBitmapPool implements BitmapPool {
   private final Set<Bitmap.Config> allowedConfigs;
   private final int initialMaxSize;
   private final BitmapTracker tracker;
+  private final PoolStatsRecorder stats = new PoolStatsRecorder();
 
   private int maxSize;
   private int currentSize;
-  private int hits;
-  private int misses;
-  private int puts;
-  private int evictions;
 
   // Exposed for testing only.
   LruBitmapPool(int maxSize, LruPoolStrategy strategy, Set<Bitmap.Config> allowedConfigs) {
@@ -66,6 +64,23 @@ public class LruBitmapPool implements BitmapPool {
     this(maxSize, getDefaultStrategy(), allowedConfigs);
   }
 
+  /**
+   * Returns a new pool that rounds the allocations of the {@link Bitmap}s it creates up to a fixed
+   * set of size classes, and only re-uses {@link Bitmap}s from the size class of each request.
+   *
+   * <p>Compared to the default pool, less memory is wasted on {@link Bitmap}s that are larger than
+   * the images decoded into them, and requests for unusual sizes are more likely to be filled
+   * from the pool. Before KitKat, where {@link Bitmap}s can't be reconfigured, the pool behaves
+   * like a pool created with {@link #LruBitmapPool(int)}.
+   *
+   * @param maxSize The initial maximum size of the pool in bytes.
+   */
+  public static LruBitmapPool newSizeClassPool(int maxSize) {
+    LruPoolStrategy strategy = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+        ? new SizeClassStrategy() : getDefaultStrategy();
+    return new LruBitmapPool(maxSize, strategy, getDefaultAllowedConfigs());
+  }
+
   @Override
   public int getMaxSize() {
     return maxSize;
@@ -85,8 +100,16 @@ public class LruBitmapPool implements BitmapPool {
     if (bitmap.isRecycled()) {
       throw new IllegalStateException("Cannot pool recycled bitmap");
     }
-    if (!bitmap.isMutable() || strategy.getSize(bitmap) > maxSize
-        || !allowedConfigs.contains(bitmap.getConfig())) {
+    PoolStats.RejectReason rejectReason = null;
+    if (!bitmap.isMutable()) {
+      rejectReason = PoolStats.RejectReason.NOT_MUTABLE;
+    } else if (strategy.getSize(bitmap) > maxSize) {
+      rejectReason = PoolStats.RejectReason.TOO_LARGE;
+    } else if (!allowedConfigs.contains(bitmap.getConfig())) {
+      rejectReason = PoolStats.RejectReason.DISALLOWED_CONFIG;
+    }
+    if (rejectReason != null) {
+      stats.recordReject(rejectReason);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         Log.v(TAG, "Reject bitmap from pool"
                 + ", bitmap: " + strategy.logBitmap(bitmap)
@@ -101,7 +124,7 @@ public class LruBitmapPool implements BitmapPool {
     strategy.put(bitmap);
     tracker.add(bitmap);
 
-    puts++;
+    stats.recordPut();
     currentSize += size;
 
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
@@ -116,6 +139,12 @@ public class LruBitmapPool implements BitmapPool {
     trimToSize(maxSize);
   }
 
+  @NonNull
+  @Override
+  public synchronized PoolStats getStats() {
+    return stats.snapshot(currentSize, maxSize);
+  }
+
   @Override
   @NonNull
   public Bitmap get(int width, int height, Bitmap.Config config) {
@@ -126,7 +155,7 @@ public class LruBitmapPool implements BitmapPool {
       // contents individually, so we do so here. See issue #131.
       result.eraseColor(Color.TRANSPARENT);
     } else {
-      result = Bitmap.createBitmap(width, height, config);
+      result = strategy.createBitmap(width, height, config);
     }
 
     return result;
@@ -137,7 +166,7 @@ public class LruBitmapPool implements BitmapPool {
   public Bitmap getDirty(int width, int height, Bitmap.Config config) {
     Bitmap result = getDirtyOrNull(width, height, config);
     if (result == null) {
-      result = Bitmap.createBitmap(width, height, config);
+      result = strategy.createBitmap(width, height, config);
     }
     return result;
   }
@@ -146,14 +175,16 @@ public class LruBitmapPool implements BitmapPool {
   private synchronized Bitmap getDirtyOrNull(int width, int height, Bitmap.Config config) {
     // Config will be null for non public config types, which can lead to transformations naively
     // passing in null as the requested config here. See issue #194.
-    final Bitmap result = strategy.get(width, height, config != null ? config : DEFAULT_CONFIG);
+    Bitmap.Config requestedConfig = config != null ? config : DEFAULT_CONFIG;
+    final Bitmap result = strategy.get(width, height, requestedConfig);
+    int requestedSize = Util.getBitmapByteSize(width, height, requestedConfig);
     if (result == null) {
       if (Log.isLoggable(TAG, Log.DEBUG)) {
         Log.d(TAG, "Missing bitmap=" + strategy.logBitmap(width, height, config));
       }
-      misses++;
+      stats.recordMiss(requestedSize);
     } else {
-      hits++;
+      stats.recordHit(requestedSize);
       currentSize -= strategy.getSize(result);
       tracker.remove(result);
       normalize(result);
@@ -168,7 +199,7 @@ public class LruBitmapPool implements BitmapPool {
 
   // Setting these two values provides Bitmaps that are essentially equivalent to those returned
   // from Bitmap.createBitmap.
-  private static void normalize(Bitmap bitmap) {
+  static void normalize(Bitmap bitmap) {
     bitmap.setHasAlpha(true);
     maybeSetPreMultiplied(bitmap);
   }
@@ -214,8 +245,9 @@ public class LruBitmapPool implements BitmapPool {
         return;
       }
       tracker.remove(removed);
-      currentSize -= strategy.getSize(removed);
-      evictions++;
+      int removedSize = strategy.getSize(removed);
+      currentSize -= removedSize;
+      stats.recordEviction(removedSize);
       if (Log.isLoggable(TAG, Log.DEBUG)) {
         Log.d(TAG, "Evicting bitmap=" + strategy.logBitmap(removed));
       }
@@ -231,11 +263,10 @@ public class LruBitmapPool implements BitmapPool {
   }
 
   private void dumpUnchecked() {
-    Log.v(TAG, "Hits=" + hits + ", misses=" + misses + ", puts=" + puts + ", evictions=" + evictions
-        + ", currentSize=" + currentSize + ", maxSize=" + maxSize + "\nStrategy=" + strategy);
+    Log.v(TAG, "Stats=" + stats.snapshot(currentSize, maxSize) + "\nStrategy=" + strategy);
   }
 
-  private static LruPoolStrategy getDefaultStrategy() {
+  static LruPoolStrategy getDefaultStrategy() {
     final LruPoolStrategy strategy;
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
       strategy = new SizeConfigStrategy();
@@ -245,7 +276,7 @@ public class LruBitmapPool implements BitmapPool {
     return strategy;
   }
 
-  private static Set<Bitmap.Config> getDefaultAllowedConfigs() {
+  static Set<Bitmap.Config> getDefaultAllowedConfigs() {
     Set<Bitmap.Config> configs = new HashSet<>();
     configs.addAll(Arrays.asList(Bitmap.Config.values()));
     if (Build.VERSION.SDK_INT >= 19) {
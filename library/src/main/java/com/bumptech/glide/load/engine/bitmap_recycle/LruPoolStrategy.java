@@ -17,4 +17,10 @@ interface LruPoolStrategy {
   String logBitmap(int width, int height, Bitmap.Config config);
 
   int getSize(Bitmap bitmap);
+
+  /**
+   * Returns a new {@link Bitmap} with the given dimensions and config, used to fill requests that
+   * miss the pool, allocated so that it can be re-used by this strategy once it's put back.
+   */
+  Bitmap createBitmap(int width, int height, Bitmap.Config config);
 }
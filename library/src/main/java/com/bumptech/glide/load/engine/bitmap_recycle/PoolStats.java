@@ -0,0 +1,187 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the statistics of a {@link BitmapPool} or an {@link ArrayPool}.
+ *
+ * <p>Counts accumulate from when the pool was created. To look at a period of time, subtract the
+ * counts of a snapshot taken at its start from the counts of a snapshot taken at its end.
+ */
+public final class PoolStats {
+  /**
+   * The number of size classes in {@link #getMissHistogram()}.
+   */
+  public static final int SIZE_CLASS_COUNT = 32;
+
+  /**
+   * The reasons a pool may discard an object instead of adding it.
+   */
+  public enum RejectReason {
+    /** The {@link android.graphics.Bitmap} wasn't mutable, so it can't be re-used. */
+    NOT_MUTABLE,
+    /** The object was too large for the current maximum size of the pool. */
+    TOO_LARGE,
+    /** The {@link android.graphics.Bitmap.Config} of the Bitmap isn't allowed in the pool. */
+    DISALLOWED_CONFIG,
+  }
+
+  private final long hitCount;
+  private final long localHitCount;
+  private final long missCount;
+  private final long hitBytes;
+  private final long missBytes;
+  private final long putCount;
+  private final long evictionCount;
+  private final long evictedBytes;
+  private final long[] rejectCounts;
+  private final long[] missHistogram;
+  private final int currentSize;
+  private final int maxSize;
+
+  PoolStats(long hitCount, long localHitCount, long missCount, long hitBytes, long missBytes,
+      long putCount, long evictionCount, long evictedBytes, long[] rejectCounts,
+      long[] missHistogram, int currentSize, int maxSize) {
+    this.hitCount = hitCount;
+    this.localHitCount = localHitCount;
+    this.missCount = missCount;
+    this.hitBytes = hitBytes;
+    this.missBytes = missBytes;
+    this.putCount = putCount;
+    this.evictionCount = evictionCount;
+    this.evictedBytes = evictedBytes;
+    this.rejectCounts = rejectCounts;
+    this.missHistogram = missHistogram;
+    this.currentSize = currentSize;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the number of requests that were filled from the pool.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of the requests counted by {@link #getHitCount()} that were filled from
+   * arrays kept by the requesting thread, without locking the pool.
+   *
+   * <p>The remaining hits were filled from the part of the pool shared by all threads. Always 0
+   * for pools that don't keep objects for each thread.
+   */
+  public long getLocalHitCount() {
+    return localHitCount;
+  }
+
+  /**
+   * Returns the number of requests that required a new allocation.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the sum of the requested sizes in bytes of the requests that were filled from the pool.
+   */
+  public long getHitBytes() {
+    return hitBytes;
+  }
+
+  /**
+   * Returns the sum of the requested sizes in bytes of the requests that required a new
+   * allocation.
+   */
+  public long getMissBytes() {
+    return missBytes;
+  }
+
+  /**
+   * Returns the fraction of requests that were filled from the pool, or 0 if there were no
+   * requests.
+   */
+  public float getHitRate() {
+    long total = hitCount + missCount;
+    return total == 0 ? 0 : hitCount / (float) total;
+  }
+
+  /**
+   * Returns the fraction of requested bytes that were filled from the pool, or 0 if there were no
+   * requests.
+   *
+   * <p>Unlike {@link #getHitRate()}, misses for large objects, which are the most expensive to
+   * allocate, weigh more than misses for small objects.
+   */
+  public float getByteHitRate() {
+    long total = hitBytes + missBytes;
+    return total == 0 ? 0 : hitBytes / (float) total;
+  }
+
+  /**
+   * Returns the number of objects that were added to the pool.
+   */
+  public long getPutCount() {
+    return putCount;
+  }
+
+  /**
+   * Returns the number of objects that were evicted from the pool, including by
+   * {@link BitmapPool#clearMemory()} and {@link BitmapPool#trimMemory(int)}.
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the sum of the sizes in bytes of the objects that were evicted from the pool.
+   */
+  public long getEvictedBytes() {
+    return evictedBytes;
+  }
+
+  /**
+   * Returns the number of objects that were discarded instead of added to the pool for the given
+   * reason.
+   */
+  public long getRejectCount(RejectReason reason) {
+    return rejectCounts[reason.ordinal()];
+  }
+
+  /**
+   * Returns the number of misses by size class, where the count at index {@code i} is the number of
+   * requests for between {@code 2^i} and {@code 2^(i + 1) - 1} bytes that required a new
+   * allocation.
+   */
+  public long[] getMissHistogram() {
+    return Arrays.copyOf(missHistogram, missHistogram.length);
+  }
+
+  /**
+   * Returns the size of the pool in bytes when the snapshot was taken.
+   */
+  public int getCurrentSize() {
+    return currentSize;
+  }
+
+  /**
+   * Returns the maximum size of the pool in bytes when the snapshot was taken.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public String toString() {
+    return "PoolStats{"
+        + "hits=" + hitCount
+        + ", localHits=" + localHitCount
+        + ", misses=" + missCount
+        + ", byteHitRate=" + getByteHitRate()
+        + ", puts=" + putCount
+        + ", evictions=" + evictionCount
+        + ", rejects=" + Arrays.toString(rejectCounts)
+        + ", currentSize=" + currentSize
+        + ", maxSize=" + maxSize
+        + '}';
+  }
+}
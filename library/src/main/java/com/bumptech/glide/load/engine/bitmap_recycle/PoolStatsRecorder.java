@@ -0,0 +1,70 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates the counts in {@link PoolStats}.
+ *
+ * <p>Thread safe, so pools that don't have a single lock can record without adding one.
+ */
+final class PoolStatsRecorder {
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong localHitCount = new AtomicLong();
+  private final AtomicLong hitBytes = new AtomicLong();
+  private final AtomicLong missBytes = new AtomicLong();
+  private final AtomicLong putCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final AtomicLong evictedBytes = new AtomicLong();
+  private final AtomicLongArray rejectCounts =
+      new AtomicLongArray(PoolStats.RejectReason.values().length);
+  private final AtomicLongArray missHistogram = new AtomicLongArray(PoolStats.SIZE_CLASS_COUNT);
+
+  void recordHit(int requestedBytes) {
+    hitCount.incrementAndGet();
+    hitBytes.addAndGet(requestedBytes);
+  }
+
+  void recordLocalHit(int requestedBytes) {
+    localHitCount.incrementAndGet();
+    recordHit(requestedBytes);
+  }
+
+  void recordMiss(int requestedBytes) {
+    missCount.incrementAndGet();
+    missBytes.addAndGet(requestedBytes);
+    missHistogram.incrementAndGet(getSizeClass(requestedBytes));
+  }
+
+  void recordPut() {
+    putCount.incrementAndGet();
+  }
+
+  void recordEviction(int bytes) {
+    evictionCount.incrementAndGet();
+    evictedBytes.addAndGet(bytes);
+  }
+
+  void recordReject(PoolStats.RejectReason reason) {
+    rejectCounts.incrementAndGet(reason.ordinal());
+  }
+
+  PoolStats snapshot(int currentSize, int maxSize) {
+    long[] rejects = new long[rejectCounts.length()];
+    for (int i = 0; i < rejects.length; i++) {
+      rejects[i] = rejectCounts.get(i);
+    }
+    long[] histogram = new long[missHistogram.length()];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = missHistogram.get(i);
+    }
+    return new PoolStats(hitCount.get(), localHitCount.get(), missCount.get(), hitBytes.get(),
+        missBytes.get(), putCount.get(), evictionCount.get(), evictedBytes.get(), rejects,
+        histogram, currentSize, maxSize);
+  }
+
+  private static int getSizeClass(int bytes) {
+    return bytes <= 0 ? 0 : 31 - Integer.numberOfLeadingZeros(bytes);
+  }
+}
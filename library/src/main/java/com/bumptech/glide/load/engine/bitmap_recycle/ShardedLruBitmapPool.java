@@ -0,0 +1,297 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.annotation.SuppressLint;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BitmapPool} for loads that decode on many threads at once, which splits
+ * {@link Bitmap}s between shards by size class so that threads working with differently sized
+ * {@link Bitmap}s don't wait on each other.
+ *
+ * <p>Each shard covers a power of two range of byte sizes and has its own lock and its own
+ * {@link LruPoolStrategy}. The size of the pool is tracked across shards without locking. When the
+ * pool is full, {@link Bitmap}s are evicted from the shard that was used least recently, in the
+ * order given by that shard's strategy, which approximates the eviction order of
+ * {@link LruBitmapPool}.
+ */
+public class ShardedLruBitmapPool implements BitmapPool {
+  private static final String TAG = "ShardedBitmapPool";
+  private static final Bitmap.Config DEFAULT_CONFIG = Bitmap.Config.ARGB_8888;
+  private static final int SHARD_COUNT = 16;
+  // Bitmaps smaller than 4kb share the first shard, bitmaps larger than 64mb share the last.
+  private static final int MIN_SIZE_CLASS = 12;
+  // SizeConfigStrategy re-uses Bitmaps up to 8 times larger than the requested size.
+  private static final int SIZE_CONFIG_SHARD_SPAN = 3;
+
+  private final Shard[] shards = new Shard[SHARD_COUNT];
+  private final Set<Bitmap.Config> allowedConfigs;
+  private final int shardSpan;
+  private final int initialMaxSize;
+  private final AtomicInteger currentSize = new AtomicInteger();
+  private final AtomicLong accessCount = new AtomicLong();
+  private final PoolStatsRecorder stats = new PoolStatsRecorder();
+  private volatile int maxSize;
+
+  // Exposed for testing only.
+  ShardedLruBitmapPool(int maxSize, StrategyFactory strategyFactory,
+      Set<Bitmap.Config> allowedConfigs, int shardSpan) {
+    this.initialMaxSize = maxSize;
+    this.maxSize = maxSize;
+    this.allowedConfigs = allowedConfigs;
+    this.shardSpan = shardSpan;
+    for (int i = 0; i < SHARD_COUNT; i++) {
+      shards[i] = new Shard(strategyFactory.build());
+    }
+  }
+
+  /**
+   * Constructor for ShardedLruBitmapPool.
+   *
+   * @param maxSize The initial maximum size of the pool in bytes.
+   */
+  public ShardedLruBitmapPool(int maxSize) {
+    this(maxSize, LruBitmapPool.getDefaultAllowedConfigs());
+  }
+
+  /**
+   * Constructor for ShardedLruBitmapPool.
+   *
+   * @param maxSize        The initial maximum size of the pool in bytes.
+   * @param allowedConfigs A white listed set of {@link android.graphics.Bitmap.Config} that are
+   *                       allowed to be put into the pool. Configs not in the allowed set will be
+   *                       rejected.
+   */
+  public ShardedLruBitmapPool(int maxSize, Set<Bitmap.Config> allowedConfigs) {
+    this(maxSize, new StrategyFactory() {
+      @Override
+      public LruPoolStrategy build() {
+        return LruBitmapPool.getDefaultStrategy();
+      }
+    }, allowedConfigs, getDefaultShardSpan());
+  }
+
+  @Override
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  // Visible for testing.
+  int getCurrentSize() {
+    return currentSize.get();
+  }
+
+  @Override
+  public void setSizeMultiplier(float sizeMultiplier) {
+    maxSize = Math.round(initialMaxSize * sizeMultiplier);
+    trimToSize(maxSize);
+  }
+
+  @Override
+  public void put(Bitmap bitmap) {
+    if (bitmap == null) {
+      throw new NullPointerException("Bitmap must not be null");
+    }
+    if (bitmap.isRecycled()) {
+      throw new IllegalStateException("Cannot pool recycled bitmap");
+    }
+    // Sizes don't depend on the state of the strategy, so any shard's strategy will do.
+    final int size = shards[0].strategy.getSize(bitmap);
+    PoolStats.RejectReason rejectReason = null;
+    if (!bitmap.isMutable()) {
+      rejectReason = PoolStats.RejectReason.NOT_MUTABLE;
+    } else if (size > maxSize) {
+      rejectReason = PoolStats.RejectReason.TOO_LARGE;
+    } else if (!allowedConfigs.contains(bitmap.getConfig())) {
+      rejectReason = PoolStats.RejectReason.DISALLOWED_CONFIG;
+    }
+    if (rejectReason != null) {
+      stats.recordReject(rejectReason);
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Reject bitmap from pool"
+                + ", bitmap: " + shards[0].strategy.logBitmap(bitmap)
+                + ", is mutable: " + bitmap.isMutable()
+                + ", is allowed config: " + allowedConfigs.contains(bitmap.getConfig()));
+      }
+      bitmap.recycle();
+      return;
+    }
+
+    Shard shard = shards[getShardIndex(size)];
+    synchronized (shard) {
+      shard.strategy.put(bitmap);
+      shard.size += size;
+      shard.lastAccess = accessCount.incrementAndGet();
+      currentSize.addAndGet(size);
+    }
+    stats.recordPut();
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Put bitmap in pool=" + shard.strategy.logBitmap(bitmap));
+    }
+
+    trimToSize(maxSize);
+  }
+
+  @NonNull
+  @Override
+  public PoolStats getStats() {
+    return stats.snapshot(currentSize.get(), maxSize);
+  }
+
+  @Override
+  @NonNull
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    if (result != null) {
+      // See LruBitmapPool#get and issue #131.
+      result.eraseColor(Color.TRANSPARENT);
+    } else {
+      result = Bitmap.createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @NonNull
+  @Override
+  public Bitmap getDirty(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    if (result == null) {
+      result = Bitmap.createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @Nullable
+  private Bitmap getDirtyOrNull(int width, int height, Bitmap.Config config) {
+    // Config will be null for non public config types. See issue #194.
+    Bitmap.Config requestedConfig = config != null ? config : DEFAULT_CONFIG;
+    int requestedSize = Util.getBitmapByteSize(width, height, requestedConfig);
+    int firstIndex = getShardIndex(requestedSize);
+    int lastIndex = Math.min(SHARD_COUNT - 1, firstIndex + shardSpan);
+    for (int i = firstIndex; i <= lastIndex; i++) {
+      Shard shard = shards[i];
+      // Racy, but avoids taking the locks of empty shards. A Bitmap put concurrently may be missed.
+      if (shard.size == 0) {
+        continue;
+      }
+      Bitmap result;
+      synchronized (shard) {
+        result = shard.strategy.get(width, height, requestedConfig);
+        if (result != null) {
+          int size = shard.strategy.getSize(result);
+          shard.size -= size;
+          shard.lastAccess = accessCount.incrementAndGet();
+          currentSize.addAndGet(-size);
+        }
+      }
+      if (result != null) {
+        stats.recordHit(requestedSize);
+        LruBitmapPool.normalize(result);
+        return result;
+      }
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Missing bitmap=" + shards[0].strategy.logBitmap(width, height, config));
+    }
+    stats.recordMiss(requestedSize);
+    return null;
+  }
+
+  @Override
+  public void clearMemory() {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "clearMemory");
+    }
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "trimMemory, level=" + level);
+    }
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      trimToSize(maxSize / 2);
+    }
+  }
+
+  private void trimToSize(int size) {
+    while (currentSize.get() > size) {
+      Shard victim = null;
+      for (Shard shard : shards) {
+        if (shard.size > 0 && (victim == null || shard.lastAccess < victim.lastAccess)) {
+          victim = shard;
+        }
+      }
+      // Other threads emptied the pool while we were looking.
+      if (victim == null) {
+        return;
+      }
+      Bitmap removed;
+      int removedSize = 0;
+      synchronized (victim) {
+        if (victim.size == 0) {
+          continue;
+        }
+        removed = victim.strategy.removeLast();
+        if (removed != null) {
+          removedSize = victim.strategy.getSize(removed);
+          victim.size -= removedSize;
+          currentSize.addAndGet(-removedSize);
+        } else {
+          if (Log.isLoggable(TAG, Log.WARN)) {
+            Log.w(TAG, "Size mismatch, resetting shard=" + victim.strategy);
+          }
+          currentSize.addAndGet(-victim.size);
+          victim.size = 0;
+        }
+      }
+      if (removed != null) {
+        stats.recordEviction(removedSize);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Evicting bitmap=" + victim.strategy.logBitmap(removed));
+        }
+        removed.recycle();
+      }
+    }
+  }
+
+  private static int getShardIndex(int size) {
+    int sizeClass = 31 - Integer.numberOfLeadingZeros(size);
+    return Math.max(0, Math.min(SHARD_COUNT - 1, sizeClass - MIN_SIZE_CLASS));
+  }
+
+  private static int getDefaultShardSpan() {
+    // AttributeStrategy only re-uses Bitmaps of exactly the requested size.
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ? SIZE_CONFIG_SHARD_SPAN : 0;
+  }
+
+  // Exposed for testing only.
+  interface StrategyFactory {
+    LruPoolStrategy build();
+  }
+
+  private static final class Shard {
+    final LruPoolStrategy strategy;
+    // Guarded by this, but read without locking to skip empty shards.
+    volatile int size;
+    volatile long lastAccess;
+
+    @Synthetic
+    Shard(LruPoolStrategy strategy) {
+      this.strategy = strategy;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.util.Util;
+import java.util.Arrays;
+
+/**
+ * Keys {@link android.graphics.Bitmap Bitmaps} by {@link android.graphics.Bitmap.Config} and by a
+ * size class, one of a fixed set of byte sizes that grow geometrically by
+ * {@link #SIZE_CLASS_RATIO}.
+ *
+ * <p>Unlike {@link SizeConfigStrategy}, which re-uses any {@link android.graphics.Bitmap} up to 8
+ * times larger than the request, requests are only filled with {@link android.graphics.Bitmap
+ * Bitmaps} from the smallest size class that fits them, so re-used allocations are at most about
+ * 25% larger than the requests they fill. To keep hit rates high, new
+ * {@link android.graphics.Bitmap Bitmaps} should be allocated with {@link #createBitmap(int, int,
+ * Bitmap.Config)}, which rounds the allocation up to the size class so that the
+ * {@link android.graphics.Bitmap} can later be re-used, via
+ * {@link android.graphics.Bitmap#reconfigure(int, int, Bitmap.Config)}, for any request in the
+ * same class.
+ */
+@TargetApi(Build.VERSION_CODES.KITKAT)
+final class SizeClassStrategy implements LruPoolStrategy {
+  // Visible for testing.
+  static final float SIZE_CLASS_RATIO = 1.25f;
+  private static final int MIN_SIZE_CLASS_BYTES = 1024;
+  // Keeps size classes divisible by the number of bytes per pixel of every config.
+  private static final int SIZE_CLASS_ALIGNMENT = 64;
+  private static final int[] SIZE_CLASSES = buildSizeClasses();
+
+  private final SizeConfigStrategy.KeyPool keyPool = new SizeConfigStrategy.KeyPool();
+  private final GroupedLinkedMap<SizeConfigStrategy.Key, Bitmap> groupedMap =
+      new GroupedLinkedMap<>();
+
+  @Override
+  public void put(Bitmap bitmap) {
+    SizeConfigStrategy.Key key = keyPool.get(getFloorSizeClassBytes(getSize(bitmap)),
+        bitmap.getConfig());
+    groupedMap.put(key, bitmap);
+  }
+
+  @Override
+  @Nullable
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    int sizeClassBytes = getSizeClassBytes(Util.getBitmapByteSize(width, height, config));
+    if (sizeClassBytes == -1) {
+      return null;
+    }
+    Bitmap result = null;
+    for (Bitmap.Config possibleConfig : SizeConfigStrategy.getInConfigs(config)) {
+      result = groupedMap.get(keyPool.get(sizeClassBytes, possibleConfig));
+      if (result != null) {
+        break;
+      }
+    }
+    if (result != null) {
+      result.reconfigure(width, height,
+          result.getConfig() != null ? result.getConfig() : Bitmap.Config.ARGB_8888);
+    }
+    return result;
+  }
+
+  @Override
+  @Nullable
+  public Bitmap removeLast() {
+    return groupedMap.removeLast();
+  }
+
+  @Override
+  public String logBitmap(Bitmap bitmap) {
+    return SizeConfigStrategy.getBitmapString(getFloorSizeClassBytes(getSize(bitmap)),
+        bitmap.getConfig());
+  }
+
+  @Override
+  public String logBitmap(int width, int height, Bitmap.Config config) {
+    return SizeConfigStrategy.getBitmapString(
+        getSizeClassBytes(Util.getBitmapByteSize(width, height, config)), config);
+  }
+
+  @Override
+  public int getSize(Bitmap bitmap) {
+    return Util.getBitmapByteSize(bitmap);
+  }
+
+  /**
+   * Returns a new {@link android.graphics.Bitmap} with the given dimensions and config whose
+   * allocation is rounded up to the size class of the request.
+   */
+  @Override
+  public Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+    int allocationHeight = getAllocationHeight(width, height, config);
+    if (allocationHeight == height) {
+      return Bitmap.createBitmap(width, height, config);
+    }
+    Bitmap result = Bitmap.createBitmap(width, allocationHeight, config);
+    result.reconfigure(width, height, config);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "SizeClassStrategy{groupedMap=" + groupedMap + "}";
+  }
+
+  /**
+   * Returns the smallest height at which a {@link android.graphics.Bitmap} with the given width and
+   * config is at least as large as the size class of a request for the given dimensions, or the
+   * given height if the request has no size class or is already the size of its class.
+   */
+  // Visible for testing.
+  static int getAllocationHeight(int width, int height, Bitmap.Config config) {
+    int size = Util.getBitmapByteSize(width, height, config);
+    int sizeClassBytes = getSizeClassBytes(size);
+    if (sizeClassBytes == size || sizeClassBytes == -1) {
+      return height;
+    }
+    int rowBytes = size / height;
+    return (sizeClassBytes + rowBytes - 1) / rowBytes;
+  }
+
+  /**
+   * Returns the size in bytes of the smallest size class that can hold the given number of bytes,
+   * or -1 if the given size is larger than the largest size class.
+   */
+  // Visible for testing.
+  static int getSizeClassBytes(int size) {
+    int index = Arrays.binarySearch(SIZE_CLASSES, size);
+    if (index < 0) {
+      index = -(index + 1);
+    }
+    return index < SIZE_CLASSES.length ? SIZE_CLASSES[index] : -1;
+  }
+
+  /**
+   * Returns the size in bytes of the largest size class that fits in an allocation of the given
+   * size, or the given size if it's smaller than the smallest size class.
+   */
+  // Visible for testing.
+  static int getFloorSizeClassBytes(int size) {
+    int index = Arrays.binarySearch(SIZE_CLASSES, size);
+    if (index < 0) {
+      index = -(index + 1) - 1;
+    }
+    return index >= 0 ? SIZE_CLASSES[index] : size;
+  }
+
+  private static int[] buildSizeClasses() {
+    int[] sizes = new int[128];
+    int count = 0;
+    long size = MIN_SIZE_CLASS_BYTES;
+    while (size <= Integer.MAX_VALUE) {
+      sizes[count++] = (int) size;
+      long next = (long) Math.ceil(size * (double) SIZE_CLASS_RATIO);
+      size = (next + SIZE_CLASS_ALIGNMENT - 1) / SIZE_CLASS_ALIGNMENT * SIZE_CLASS_ALIGNMENT;
+    }
+    return Arrays.copyOf(sizes, count);
+  }
+}
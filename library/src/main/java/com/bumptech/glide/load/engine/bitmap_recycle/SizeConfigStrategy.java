@@ -144,6 +144,11 @@ public class SizeConfigStrategy implements LruPoolStrategy {
     return Util.getBitmapByteSize(bitmap);
   }
 
+  @Override
+  public Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+    return Bitmap.createBitmap(width, height, config);
+  }
+
   @Override
   public String toString() {
     StringBuilder sb =
@@ -230,7 +235,7 @@ public class SizeConfigStrategy implements LruPoolStrategy {
     return "[" + size + "](" + config + ")";
   }
 
-  private static Bitmap.Config[] getInConfigs(Bitmap.Config requested) {
+  static Bitmap.Config[] getInConfigs(Bitmap.Config requested) {
     switch (requested) {
       case ARGB_8888:
         return ARGB_8888_IN_CONFIGS;
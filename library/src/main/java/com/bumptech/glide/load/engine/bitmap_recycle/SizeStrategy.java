@@ -91,6 +91,11 @@ class SizeStrategy implements LruPoolStrategy {
     return Util.getBitmapByteSize(bitmap);
   }
 
+  @Override
+  public Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+    return Bitmap.createBitmap(width, height, config);
+  }
+
   @Override
   public String toString() {
     return "SizeStrategy:\n  " + groupedMap + "\n" + "  SortedSizes" + sortedSizes;
@@ -0,0 +1,200 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.bumptech.glide.util.Synthetic;
+
+/**
+ * Periodically samples heap usage and adjusts a size multiplier for Glide's memory cache and pools
+ * so that a target fraction of the heap stays free.
+ *
+ * <p>The multiplier shrinks when the free fraction of the heap, projected one sample ahead using
+ * the allocation rate since the previous sample, falls below the target, or when blocking garbage
+ * collections took a long time since the previous sample. It grows slowly when the free fraction
+ * is comfortably above the target. Inside a band around the target the multiplier doesn't change,
+ * so that budgets don't oscillate.
+ *
+ * <p>Only the Java heap is sampled. On Android O and above, where {@link android.graphics.Bitmap}
+ * pixels are allocated outside of the Java heap, the controller reacts mostly to garbage
+ * collection pauses.
+ */
+public final class AdaptiveMemoryController {
+  private static final String TAG = "AdaptiveMemory";
+  /** The default fraction of the maximum heap size to keep free. */
+  public static final float DEFAULT_TARGET_HEADROOM = 0.25f;
+  // Visible for testing.
+  static final float MIN_SIZE_MULTIPLIER = 0.25f;
+  static final float MAX_SIZE_MULTIPLIER = 1.5f;
+  static final float HYSTERESIS = 0.05f;
+  static final float GROW_STEP = 0.05f;
+  static final float SHRINK_FACTOR = 0.75f;
+  static final long GC_PAUSE_THRESHOLD_MS = 50;
+  private static final long SAMPLE_INTERVAL_MS = 2000;
+
+  private final float targetHeadroom;
+  private final Callback callback;
+  private final HeapSampler heapSampler;
+  @Synthetic final Handler handler;
+  private final Runnable sampleRunnable = new Runnable() {
+    @Override
+    public void run() {
+      sample();
+      if (isRunning) {
+        handler.postDelayed(this, SAMPLE_INTERVAL_MS);
+      }
+    }
+  };
+  private float sizeMultiplier = 1f;
+  private long lastUsedBytes = -1;
+  private long lastGcTimeMs = -1;
+  @Synthetic boolean isRunning;
+
+  /**
+   * Called on the main thread when the size multiplier changes.
+   */
+  public interface Callback {
+    void onSizeMultiplierChanged(float sizeMultiplier);
+  }
+
+  /**
+   * @param targetHeadroom The fraction of the maximum heap size to keep free, between 0 and 1.
+   */
+  public AdaptiveMemoryController(float targetHeadroom, Callback callback) {
+    this(targetHeadroom, callback, new RuntimeHeapSampler(), new Handler(Looper.getMainLooper()));
+  }
+
+  // Visible for testing.
+  AdaptiveMemoryController(float targetHeadroom, Callback callback, HeapSampler heapSampler,
+      Handler handler) {
+    if (targetHeadroom <= 0 || targetHeadroom >= 1) {
+      throw new IllegalArgumentException("Target headroom must be between 0 and 1");
+    }
+    this.targetHeadroom = targetHeadroom;
+    this.callback = callback;
+    this.heapSampler = heapSampler;
+    this.handler = handler;
+  }
+
+  /**
+   * Starts sampling the heap periodically on the main thread.
+   */
+  public void start() {
+    if (!isRunning) {
+      isRunning = true;
+      handler.postDelayed(sampleRunnable, SAMPLE_INTERVAL_MS);
+    }
+  }
+
+  /**
+   * Stops sampling the heap. The current size multiplier is kept.
+   */
+  public void stop() {
+    isRunning = false;
+    handler.removeCallbacks(sampleRunnable);
+  }
+
+  /**
+   * Returns the current size multiplier, between 0.25 and 1.5.
+   */
+  public float getSizeMultiplier() {
+    return sizeMultiplier;
+  }
+
+  /**
+   * Returns the product of the given {@link com.bumptech.glide.MemoryCategory} multiplier and size
+   * multiplier, clamped so that growth of the size multiplier can't take caches and pools past the
+   * largest size either multiplier allows on its own.
+   *
+   * <p>Without the clamp, {@link com.bumptech.glide.MemoryCategory#HIGH} combined with the largest
+   * size multiplier would allow 2.25 times the configured sizes.
+   */
+  public static float combineSizeMultipliers(float memoryCategoryMultiplier,
+      float sizeMultiplier) {
+    float maxMultiplier = Math.max(MAX_SIZE_MULTIPLIER, memoryCategoryMultiplier);
+    return Math.min(maxMultiplier, memoryCategoryMultiplier * sizeMultiplier);
+  }
+
+  // Visible for testing.
+  void sample() {
+    long maxBytes = heapSampler.getMaxBytes();
+    long usedBytes = heapSampler.getUsedBytes();
+    long gcTimeMs = heapSampler.getBlockingGcTimeMs();
+
+    float headroom = 1f - usedBytes / (float) maxBytes;
+    float projectedHeadroom = headroom;
+    // Collections make the difference negative, which says nothing about the allocation rate.
+    if (lastUsedBytes >= 0 && usedBytes > lastUsedBytes) {
+      projectedHeadroom -= (usedBytes - lastUsedBytes) / (float) maxBytes;
+    }
+    boolean isGcPressure = lastGcTimeMs >= 0 && gcTimeMs - lastGcTimeMs > GC_PAUSE_THRESHOLD_MS;
+    lastUsedBytes = usedBytes;
+    lastGcTimeMs = gcTimeMs;
+
+    float newSizeMultiplier = sizeMultiplier;
+    if (projectedHeadroom < targetHeadroom - HYSTERESIS || isGcPressure) {
+      newSizeMultiplier = Math.max(MIN_SIZE_MULTIPLIER, sizeMultiplier * SHRINK_FACTOR);
+    } else if (projectedHeadroom > targetHeadroom + HYSTERESIS) {
+      newSizeMultiplier = Math.min(MAX_SIZE_MULTIPLIER, sizeMultiplier + GROW_STEP);
+    }
+    if (newSizeMultiplier != sizeMultiplier) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Changing size multiplier from " + sizeMultiplier + " to " + newSizeMultiplier
+            + ", headroom: " + headroom + ", projected headroom: " + projectedHeadroom
+            + ", gc pressure: " + isGcPressure);
+      }
+      sizeMultiplier = newSizeMultiplier;
+      callback.onSizeMultiplierChanged(newSizeMultiplier);
+    }
+  }
+
+  // Visible for testing.
+  interface HeapSampler {
+    long getUsedBytes();
+
+    long getMaxBytes();
+
+    /**
+     * Returns the total time spent in blocking garbage collections, or a constant if unknown.
+     */
+    long getBlockingGcTimeMs();
+  }
+
+  private static final class RuntimeHeapSampler implements HeapSampler {
+    private static final String BLOCKING_GC_TIME_STAT = "art.gc.blocking-gc-time";
+    private final Runtime runtime = Runtime.getRuntime();
+
+    @Synthetic
+    RuntimeHeapSampler() { }
+
+    @Override
+    public long getUsedBytes() {
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Override
+    public long getMaxBytes() {
+      return runtime.maxMemory();
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public long getBlockingGcTimeMs() {
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+        return 0;
+      }
+      String value = Debug.getRuntimeStat(BLOCKING_GC_TIME_STAT);
+      if (value == null) {
+        return 0;
+      }
+      try {
+        return Long.parseLong(value);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.bumptech.glide.load.engine.cache;
 import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Key;
 import java.io.File;
+import java.nio.ByteBuffer;
 
 /**
  * An interface for writing to and reading from a disk cache.
@@ -38,6 +39,25 @@ public interface DiskCache {
     boolean write(File file);
   }
 
+  /**
+   * An optional interface for disk caches that can return entries as {@link ByteBuffer}s without
+   * copying them, for example by memory mapping them.
+   *
+   * <p>Glide reads cached data with {@link #getBuffer(Key)} when the data can be decoded from a
+   * {@link ByteBuffer}. If no buffer is returned, or if the buffer can't be decoded, Glide falls
+   * back to {@link DiskCache#get(Key)}, so every entry must still be readable as a {@link File}.
+   */
+  interface BufferReader {
+    /**
+     * Returns a {@link ByteBuffer} containing the data at the given key, or {@code null} if the
+     * data isn't in the cache or can only be read with {@link DiskCache#get(Key)}.
+     *
+     * @param key The key in the cache.
+     */
+    @Nullable
+    ByteBuffer getBuffer(Key key);
+  }
+
   /**
    * Get the cache for the value at the given key.
    *
@@ -0,0 +1,39 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Maps files returned by {@link DiskCache}s that store each entry in its own file for
+ * {@link DiskCache.BufferReader#getBuffer(com.bumptech.glide.load.Key)}.
+ */
+final class DiskCacheBuffers {
+  private static final String TAG = "DiskCacheBuffers";
+
+  private DiskCacheBuffers() {
+    // Utility class.
+  }
+
+  /**
+   * Returns the contents of the given cache file as a memory mapped {@link ByteBuffer}, or
+   * {@code null} if the file is {@code null} or can't be mapped.
+   */
+  @Nullable
+  static ByteBuffer map(@Nullable File file) {
+    if (file == null) {
+      return null;
+    }
+    try {
+      return ByteBufferUtil.fromFile(file);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to map file from disk cache", e);
+      }
+      return null;
+    }
+  }
+}
@@ -4,12 +4,14 @@
 
 package com.bumptech.glide.load.engine.cache;
 
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.disklrucache.DiskLruCache;
 import com.bumptech.glide.disklrucache.DiskLruCache.Value;
 import com.bumptech.glide.load.Key;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * The default DiskCache implementation. There must be no more than one active instance for a given
@@ -17,7 +19,7 @@ import java.io.IOException;
  *
  * @see #get(java.io.File, int)
  */
-public class DiskLruCacheWrapper implements DiskCache {
+public class DiskLruCacheWrapper implements DiskCache, DiskCache.BufferReader {
   private static final String TAG = "DiskLruCacheWrapper";
 
   private static final int APP_VERSION = 1;
@@ -84,6 +86,12 @@ public class DiskLruCacheWrapper implements DiskCache {
     return result;
   }
 
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    return DiskCacheBuffers.map(get(key));
+  }
+
   @Override
   public void put(Key key, Writer writer) {
     // We want to make sure that puts block so that data is available when put completes. We may
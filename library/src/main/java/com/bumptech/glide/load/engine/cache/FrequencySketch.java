@@ -0,0 +1,96 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * A probabilistic count of how often keys have been accessed recently, used as the admission
+ * filter of {@link TinyLfuResourceCache}.
+ *
+ * <p>The sketch is a count-min sketch with four rows of 4-bit counters packed into longs. Once the
+ * number of recorded accesses reaches ten times the width of the table, every counter is halved so
+ * that the sketch tracks recent rather than all time popularity.
+ *
+ * <p>Not thread safe.
+ */
+final class FrequencySketch {
+  private static final long[] SEEDS = new long[] {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_FREQUENCY = 15;
+  private static final int MIN_WIDTH = 16;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * @param expectedEntryCount The number of distinct keys the sketch should be able to tell apart.
+   */
+  FrequencySketch(int expectedEntryCount) {
+    int width = Integer.highestOneBit(Math.max(MIN_WIDTH, expectedEntryCount) - 1) << 1;
+    table = new long[width];
+    tableMask = width - 1;
+    sampleSize = 10 * width;
+  }
+
+  /**
+   * Returns the estimated number of recent accesses of the given key, at most 15.
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      int shift = counterOffset(hash, i) << 2;
+      frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 0xfL));
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an access of the given key.
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      added |= incrementAt(indexOf(hash, i), counterOffset(hash, i));
+    }
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    long shift = counter << 2;
+    long mask = 0xfL << shift;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << shift;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size /= 2;
+  }
+
+  private int indexOf(int hash, int row) {
+    long result = (hash + SEEDS[row]) * SEEDS[row];
+    result += result >>> 32;
+    return ((int) result) & tableMask;
+  }
+
+  // Each long holds 16 counters, each row uses one of four counters selected by the hash.
+  private static int counterOffset(int hash, int row) {
+    return (((hash >>> (row << 3)) & 3) << 2) + row;
+  }
+
+  private static int spread(int hash) {
+    int result = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    result = ((result >>> 16) ^ result) * 0x45d9f3b;
+    return (result >>> 16) ^ result;
+  }
+}
@@ -7,6 +7,9 @@ import android.text.format.Formatter;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import com.bumptech.glide.util.Preconditions;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A calculator that tries to intelligently determine cache sizes for a given device based on some
@@ -22,6 +25,7 @@ public final class MemorySizeCalculator {
   private final int memoryCacheSize;
   private final Context context;
   private final int arrayPoolSize;
+  private final Map<Class<?>, Integer> memoryCachePartitionSizes;
 
   interface ScreenDimensions {
     int getWidthPixels();
@@ -30,7 +34,8 @@ public final class MemorySizeCalculator {
 
   MemorySizeCalculator(Context context, ActivityManager activityManager,
       ScreenDimensions screenDimensions, float memoryCacheScreens, float bitmapPoolScreens,
-      int targetArrayPoolSize, float maxSizeMultiplier, float lowMemoryMaxSizeMultiplier) {
+      int targetArrayPoolSize, float maxSizeMultiplier, float lowMemoryMaxSizeMultiplier,
+      Map<Class<?>, Float> memoryCachePartitionFractions) {
     this.context = context;
     arrayPoolSize =
         isLowMemoryDevice(activityManager)
@@ -54,6 +59,12 @@ public final class MemorySizeCalculator {
       bitmapPoolSize = Math.round(part * bitmapPoolScreens);
     }
 
+    Map<Class<?>, Integer> partitionSizes = new LinkedHashMap<>();
+    for (Map.Entry<Class<?>, Float> entry : memoryCachePartitionFractions.entrySet()) {
+      partitionSizes.put(entry.getKey(), (int) (memoryCacheSize * entry.getValue()));
+    }
+    memoryCachePartitionSizes = Collections.unmodifiableMap(partitionSizes);
+
     if (Log.isLoggable(TAG, Log.DEBUG)) {
       Log.d(
           TAG,
@@ -82,6 +93,16 @@ public final class MemorySizeCalculator {
     return memoryCacheSize;
   }
 
+  /**
+   * Returns the sizes in bytes of the memory cache partitions for each resource class, or an empty
+   * map if the memory cache shouldn't be partitioned.
+   *
+   * @see Builder#setMemoryCachePartition(Class, float)
+   */
+  public Map<Class<?>, Integer> getMemoryCachePartitionSizes() {
+    return memoryCachePartitionSizes;
+  }
+
   /**
    * Returns the recommended bitmap pool size for the device it is run on in bytes.
    */
@@ -142,6 +163,7 @@ public final class MemorySizeCalculator {
     private float maxSizeMultiplier = MAX_SIZE_MULTIPLIER;
     private float lowMemoryMaxSizeMultiplier = LOW_MEMORY_MAX_SIZE_MULTIPLIER;
     private int arrayPoolSizeBytes = ARRAY_POOL_SIZE_BYTES;
+    private final Map<Class<?>, Float> memoryCachePartitionFractions = new LinkedHashMap<>();
 
     public Builder(Context context) {
       this.context = context;
@@ -217,6 +239,34 @@ public final class MemorySizeCalculator {
       return this;
     }
 
+    /**
+     * Reserves the given fraction of the {@link
+     * com.bumptech.glide.load.engine.cache.MemoryCache} for resources of the given class and
+     * returns this builder.
+     *
+     * <p>If any partition is set, the default memory cache is a {@link PartitionedResourceCache}.
+     * Resources whose {@link com.bumptech.glide.load.engine.Resource#getResourceClass()} is
+     * assignable to none of the partition classes share the fraction that remains. Partitions
+     * are matched in the order they were set.
+     *
+     * @param resourceClass The class of resources, for example
+     *                      {@link android.graphics.drawable.BitmapDrawable}.
+     * @param fraction The fraction of the memory cache size, between 0 and 1.
+     */
+    public Builder setMemoryCachePartition(Class<?> resourceClass, float fraction) {
+      Preconditions.checkArgument(fraction >= 0 && fraction <= 1,
+          "Partition fraction must be between 0 and 1");
+      float total = fraction;
+      for (Map.Entry<Class<?>, Float> entry : memoryCachePartitionFractions.entrySet()) {
+        if (!entry.getKey().equals(resourceClass)) {
+          total += entry.getValue();
+        }
+      }
+      Preconditions.checkArgument(total <= 1, "Partition fractions must add up to at most 1");
+      memoryCachePartitionFractions.put(resourceClass, fraction);
+      return this;
+    }
+
     // Visible for testing.
     Builder setActivityManager(ActivityManager activityManager) {
       this.activityManager = activityManager;
@@ -232,7 +282,7 @@ public final class MemorySizeCalculator {
     public MemorySizeCalculator build() {
       return new MemorySizeCalculator(context, activityManager, screenDimensions,
           memoryCacheScreens, bitmapPoolScreens, arrayPoolSizeBytes, maxSizeMultiplier,
-          lowMemoryMaxSizeMultiplier);
+          lowMemoryMaxSizeMultiplier, new LinkedHashMap<>(memoryCachePartitionFractions));
       }
   }
 
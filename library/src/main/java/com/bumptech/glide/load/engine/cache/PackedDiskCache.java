@@ -0,0 +1,705 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.util.ByteBufferUtil;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * A DiskCache that packs small entries into a few large segment files, so that reading an entry
+ * doesn't require looking up and opening a file of its own. There must be no more than one active
+ * instance for a given directory at a time.
+ *
+ * <p>Entries are appended to the newest segment as records containing the entry's key and data,
+ * and are read as slices of read only memory mappings of their segments, so loads of cached data
+ * don't copy the data onto the Java heap. The offsets of entries are kept
+ * in memory and rebuilt by reading the records' headers the first time the cache is used after a
+ * restart. Deleted entries are marked by appending a record without data. Once less than half of
+ * a segment is used by entries that are still in the cache, the remaining entries are copied to
+ * the newest segment on a background thread and the segment is deleted.
+ *
+ * <p>Entries larger than the maximum packed entry size are stored as files in a separate
+ * {@link DiskCache}. Packed entries are meant to be read with {@link #getBuffer(Key)}. When
+ * {@link #get(Key)} is called for one, for example by loads that need a {@link File}, a copy of it
+ * is written to the separate cache, where it's evicted like any other large entry.
+ *
+ * <p>Evictions aren't recorded, and records marking deleted entries are dropped when their
+ * segment is compacted, so entries that were evicted or deleted may be returned again after a
+ * restart if the segment that holds their data hasn't been compacted yet. Since a key always maps
+ * to the same data, they're still valid, and they count towards the maximum size as usual.
+ *
+ * @see PackedDiskCacheFactory
+ */
+public class PackedDiskCache implements DiskCache, DiskCache.BufferReader {
+  private static final String TAG = "PackedDiskCache";
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String PACKED_DIRECTORY = "packed";
+  private static final String LARGE_ENTRY_DIRECTORY = "large";
+  private static final String COMPACTION_EXECUTOR_NAME = "disk-cache-compaction";
+  // Visible for testing.
+  static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+  // Visible for testing.
+  static final int DEFAULT_MAX_PACKED_ENTRY_SIZE = 64 * 1024;
+  // Key length, data length and checksum.
+  private static final int HEADER_SIZE = 12;
+  private static final int TOMBSTONE = -1;
+  // Safe keys are 64 hex characters, anything longer is from a partially written record.
+  private static final int MAX_KEY_LENGTH = 256;
+  private static final float MIN_LIVE_RATIO = 0.5f;
+  private static final int CHECKSUM_CHUNK_SIZE = 8 * 1024;
+
+  private final SafeKeyGenerator safeKeyGenerator = new SafeKeyGenerator();
+  private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+  private final File directory;
+  private final int maxSize;
+  private final int segmentSize;
+  private final int maxPackedEntrySize;
+  private final DiskCache largeEntryCache;
+  // Created when it's first needed, since most caches rarely need compacting.
+  private Executor compactionExecutor;
+  // Ordered from least to most recently used.
+  private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+  private final List<Segment> segments = new ArrayList<>();
+  private Segment currentSegment;
+  private int nextSegmentId;
+  private int currentSize;
+  private boolean isOpen;
+  private boolean isCompacting;
+
+  /**
+   * Half of the given size is used for packed entries and the other half for entries too large to
+   * pack.
+   *
+   * @param directory The directory for the disk cache, which must not be used by any other cache.
+   * @param maxSize   The max size for the disk cache.
+   */
+  public PackedDiskCache(File directory, int maxSize) {
+    this(new File(directory, PACKED_DIRECTORY), maxSize / 2,
+        new DiskLruCacheWrapper(new File(directory, LARGE_ENTRY_DIRECTORY), maxSize - maxSize / 2));
+  }
+
+  protected PackedDiskCache(File directory, int maxSize, DiskCache largeEntryCache) {
+    this(directory, maxSize, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_PACKED_ENTRY_SIZE,
+        largeEntryCache, null /*compactionExecutor*/);
+  }
+
+  // Visible for testing.
+  PackedDiskCache(File directory, int maxSize, int segmentSize, int maxPackedEntrySize,
+      DiskCache largeEntryCache, @Nullable Executor compactionExecutor) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.segmentSize = segmentSize;
+    this.maxPackedEntrySize = maxPackedEntrySize;
+    this.largeEntryCache = largeEntryCache;
+    this.compactionExecutor = compactionExecutor;
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    File result = largeEntryCache.get(key);
+    if (result != null) {
+      return result;
+    }
+    ByteBuffer packed = getBuffer(key);
+    if (packed == null) {
+      return null;
+    }
+    largeEntryCache.put(key, new BufferWriter(packed));
+    return largeEntryCache.get(key);
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    Entry entry;
+    ByteBuffer result;
+    boolean isVerified;
+    try {
+      synchronized (this) {
+        open();
+        entry = index.get(safeKey);
+        if (entry == null) {
+          return null;
+        }
+        result = getMappedSlice(entry);
+        isVerified = entry.isVerified;
+      }
+      // Checking each entry once catches corruption without reading every entry on every load.
+      if (isVerified || getChecksum(result.duplicate()) == entry.checksum) {
+        if (!isVerified) {
+          synchronized (this) {
+            entry.isVerified = true;
+          }
+        }
+        return result;
+      }
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Removing corrupt entry: " + safeKey);
+      }
+      synchronized (this) {
+        if (entry.isLive) {
+          remove(safeKey);
+          append(safeKey, null /*data*/);
+        }
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to get from disk cache", e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a read only view of the given entry's data in a memory mapping of its segment.
+   *
+   * <p>Mappings stay valid after their segment is closed and deleted, so the view can be used for
+   * as long as it's referenced, even if the entry is moved or removed in the meantime.
+   */
+  private ByteBuffer getMappedSlice(Entry entry) throws IOException {
+    Segment segment = entry.segment;
+    long end = entry.offset + entry.length;
+    // The newest segment grows, so its mapping is replaced when it no longer covers new entries.
+    if (segment.mapping == null || segment.mapping.capacity() < end) {
+      segment.mapping = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+    }
+    ByteBuffer result = segment.mapping.duplicate();
+    result.position((int) entry.offset);
+    result.limit((int) end);
+    return result.slice();
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    // See DiskLruCacheWrapper#put.
+    writeLocker.acquire(key);
+    try {
+      String safeKey = safeKeyGenerator.getSafeKey(key);
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Put: Obtained: " + safeKey + " for for Key: " + key);
+      }
+      File temp = new File(directory, safeKey + TEMP_SUFFIX);
+      try {
+        synchronized (this) {
+          open();
+          if (index.containsKey(safeKey)) {
+            return;
+          }
+        }
+        if (largeEntryCache.get(key) != null) {
+          return;
+        }
+        if (!writer.write(temp) || !temp.exists()) {
+          return;
+        }
+        if (temp.length() > maxPackedEntrySize) {
+          largeEntryCache.put(key, new RenamingWriter(temp));
+          return;
+        }
+        byte[] data = readFile(temp);
+        synchronized (this) {
+          add(safeKey, append(safeKey, data));
+          trimToSize(maxSize);
+        }
+        maybeStartCompaction();
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to put to disk cache", e);
+        }
+      } finally {
+        if (temp.exists() && !temp.delete() && Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to delete temp file: " + temp);
+        }
+      }
+    } finally {
+      writeLocker.release(key);
+    }
+  }
+
+  @Override
+  public void delete(Key key) {
+    largeEntryCache.delete(key);
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    try {
+      synchronized (this) {
+        open();
+        if (remove(safeKey) != null) {
+          append(safeKey, null /*data*/);
+        }
+      }
+      maybeStartCompaction();
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to delete from disk cache", e);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this) {
+      for (Entry entry : index.values()) {
+        entry.isLive = false;
+      }
+      index.clear();
+      currentSize = 0;
+      for (Segment segment : segments) {
+        segment.isRemoved = true;
+        closeIfUnused(segment);
+      }
+      segments.clear();
+      currentSegment = null;
+      // Segments being read are deleted once the reads finish.
+      isOpen = false;
+    }
+    largeEntryCache.clear();
+  }
+
+  // Visible for testing.
+  synchronized int getCurrentSize() {
+    return currentSize;
+  }
+
+  // Visible for testing.
+  synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  private void open() throws IOException {
+    if (isOpen) {
+      return;
+    }
+    if (!directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Unable to create cache directory: " + directory);
+    }
+    File[] files = directory.listFiles();
+    List<Integer> segmentIds = new ArrayList<>();
+    if (files != null) {
+      for (File file : files) {
+        String name = file.getName();
+        if (name.endsWith(TEMP_SUFFIX)) {
+          // Left behind by a put that didn't finish.
+          file.delete();
+        } else if (name.startsWith(SEGMENT_PREFIX)) {
+          try {
+            segmentIds.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length())));
+          } catch (NumberFormatException e) {
+            // Not one of ours.
+          }
+        }
+      }
+    }
+    Integer[] sortedIds = segmentIds.toArray(new Integer[segmentIds.size()]);
+    Arrays.sort(sortedIds);
+    for (int id : sortedIds) {
+      // Segments that are still being read after a clear may not have been deleted yet.
+      if (id < nextSegmentId) {
+        continue;
+      }
+      Segment segment = openSegment(id);
+      scan(segment);
+      segments.add(segment);
+      currentSegment = segment;
+      nextSegmentId = id + 1;
+    }
+    isOpen = true;
+    trimToSize(maxSize);
+  }
+
+  /**
+   * Adds the entries of the given segment to the index and truncates any partially written record
+   * at the end of the segment.
+   */
+  private void scan(Segment segment) throws IOException {
+    FileChannel channel = segment.channel;
+    long length = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    long position = 0;
+    while (position + HEADER_SIZE <= length) {
+      header.clear();
+      readFully(channel, header, position);
+      int keyLength = header.getInt(0);
+      int dataLength = header.getInt(4);
+      int checksum = header.getInt(8);
+      long keyOffset = position + HEADER_SIZE;
+      long dataOffset = keyOffset + keyLength;
+      if (keyLength <= 0 || keyLength > MAX_KEY_LENGTH || dataLength < TOMBSTONE
+          || dataOffset + Math.max(0, dataLength) > length) {
+        break;
+      }
+      ByteBuffer keyBytes = ByteBuffer.allocate(keyLength);
+      readFully(channel, keyBytes, keyOffset);
+      String safeKey = new String(keyBytes.array(), Key.CHARSET);
+      if (dataLength == TOMBSTONE) {
+        remove(safeKey);
+      } else {
+        add(safeKey, new Entry(segment, dataOffset, dataLength,
+            HEADER_SIZE + keyLength + dataLength, checksum));
+      }
+      position = dataOffset + Math.max(0, dataLength);
+    }
+    if (position < length) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Truncating partially written record in: " + segment.file);
+      }
+      channel.truncate(position);
+    }
+    segment.size = position;
+  }
+
+  /**
+   * Appends a record for the given key and data, or a record marking the key as deleted if the data
+   * is {@code null}, and returns an entry for the appended data.
+   */
+  @Nullable
+  @Synthetic
+  Entry append(String safeKey, @Nullable byte[] data) throws IOException {
+    byte[] keyBytes = safeKey.getBytes(Key.CHARSET);
+    int dataLength = data == null ? 0 : data.length;
+    int recordSize = HEADER_SIZE + keyBytes.length + dataLength;
+    if (currentSegment == null || currentSegment.size + recordSize > segmentSize) {
+      currentSegment = openSegment(nextSegmentId++);
+      segments.add(currentSegment);
+    }
+    int checksum = data == null ? 0 : getChecksum(data);
+    ByteBuffer record = ByteBuffer.allocate(recordSize);
+    record.putInt(keyBytes.length)
+        .putInt(data == null ? TOMBSTONE : dataLength)
+        .putInt(checksum)
+        .put(keyBytes);
+    if (data != null) {
+      record.put(data);
+    }
+    record.flip();
+    long recordOffset = currentSegment.size;
+    writeFully(currentSegment.channel, record, recordOffset);
+    currentSegment.size += recordSize;
+    return data == null ? null : new Entry(currentSegment,
+        recordOffset + HEADER_SIZE + keyBytes.length, dataLength, recordSize, checksum);
+  }
+
+  private void add(String safeKey, Entry entry) {
+    Entry previous = index.put(safeKey, entry);
+    if (previous != null) {
+      removeLiveBytes(previous);
+    }
+    entry.segment.liveBytes += entry.recordLength;
+    currentSize += entry.length;
+  }
+
+  @Nullable
+  @Synthetic
+  Entry remove(String safeKey) {
+    Entry removed = index.remove(safeKey);
+    if (removed != null) {
+      removeLiveBytes(removed);
+    }
+    return removed;
+  }
+
+  private void removeLiveBytes(Entry entry) {
+    entry.isLive = false;
+    entry.segment.liveBytes -= entry.recordLength;
+    currentSize -= entry.length;
+  }
+
+  private void trimToSize(int size) {
+    Iterator<Entry> iterator = index.values().iterator();
+    while (currentSize > size && iterator.hasNext()) {
+      Entry eldest = iterator.next();
+      iterator.remove();
+      removeLiveBytes(eldest);
+    }
+  }
+
+  private Segment openSegment(int id) throws IOException {
+    File file = new File(directory, SEGMENT_PREFIX + id);
+    return new Segment(file, new RandomAccessFile(file, "rw"));
+  }
+
+  @Synthetic
+  void release(Segment segment) {
+    segment.readers--;
+    closeIfUnused(segment);
+  }
+
+  private void closeIfUnused(Segment segment) {
+    if (!segment.isRemoved || segment.readers > 0) {
+      return;
+    }
+    try {
+      segment.randomAccessFile.close();
+    } catch (IOException e) {
+      // Ignored.
+    }
+    if (!segment.file.delete() && Log.isLoggable(TAG, Log.WARN)) {
+      Log.w(TAG, "Unable to delete segment: " + segment.file);
+    }
+  }
+
+  @Nullable
+  @Synthetic
+  Segment findSegmentToCompact() {
+    for (Segment segment : segments) {
+      if (segment != currentSegment && segment.liveBytes < segment.size * MIN_LIVE_RATIO) {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  private void maybeStartCompaction() {
+    Executor executor;
+    synchronized (this) {
+      if (isCompacting || findSegmentToCompact() == null) {
+        return;
+      }
+      isCompacting = true;
+      if (compactionExecutor == null) {
+        compactionExecutor = GlideExecutor.newDiskBackgroundExecutor(COMPACTION_EXECUTOR_NAME,
+            GlideExecutor.UncaughtThrowableStrategy.DEFAULT);
+      }
+      executor = compactionExecutor;
+    }
+    boolean isScheduled = false;
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          compact();
+        }
+      });
+      isScheduled = true;
+    } catch (RejectedExecutionException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to start compaction", e);
+      }
+    } finally {
+      if (!isScheduled) {
+        // Lets the next put or delete try again.
+        synchronized (this) {
+          isCompacting = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the entries of segments that are mostly unused to the newest segment and deletes the
+   * segments, until none are left.
+   */
+  @Synthetic
+  void compact() {
+    while (true) {
+      Segment segment;
+      List<Map.Entry<String, Entry>> liveEntries = new ArrayList<>();
+      synchronized (this) {
+        segment = findSegmentToCompact();
+        if (segment == null) {
+          isCompacting = false;
+          return;
+        }
+        segment.readers++;
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+          if (entry.getValue().segment == segment) {
+            liveEntries.add(entry);
+          }
+        }
+      }
+      try {
+        for (Map.Entry<String, Entry> liveEntry : liveEntries) {
+          Entry entry = liveEntry.getValue();
+          ByteBuffer data = ByteBuffer.allocate(entry.length);
+          readFully(segment.channel, data, entry.offset);
+          // Corrupt entries aren't moved, so they're dropped along with the segment.
+          if (getChecksum(data.array()) != entry.checksum) {
+            continue;
+          }
+          synchronized (this) {
+            if (!entry.isLive || entry.segment != segment) {
+              continue;
+            }
+            Entry moved = append(liveEntry.getKey(), data.array());
+            // Update the entry in place so that moving it doesn't change its recency.
+            entry.segment.liveBytes -= entry.recordLength;
+            entry.segment = moved.segment;
+            entry.offset = moved.offset;
+            entry.segment.liveBytes += entry.recordLength;
+          }
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to compact disk cache", e);
+        }
+      } finally {
+        synchronized (this) {
+          // Entries that couldn't be moved are dropped along with the segment.
+          Iterator<Entry> iterator = index.values().iterator();
+          while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.segment == segment) {
+              iterator.remove();
+              removeLiveBytes(entry);
+            }
+          }
+          segments.remove(segment);
+          segment.isRemoved = true;
+          release(segment);
+        }
+      }
+    }
+  }
+
+  private static byte[] readFile(File file) throws IOException {
+    byte[] result = new byte[(int) file.length()];
+    InputStream is = new FileInputStream(file);
+    try {
+      int read = 0;
+      while (read < result.length) {
+        int current = is.read(result, read, result.length - read);
+        if (current == -1) {
+          throw new IOException("Unexpected end of file: " + file);
+        }
+        read += current;
+      }
+    } finally {
+      is.close();
+    }
+    return result;
+  }
+
+  @Synthetic
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read == -1) {
+        throw new IOException("Unexpected end of segment");
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+
+  @Synthetic
+  static int getChecksum(byte[] data) {
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length);
+    return (int) crc.getValue();
+  }
+
+  private static int getChecksum(ByteBuffer data) {
+    CRC32 crc = new CRC32();
+    byte[] chunk = new byte[Math.min(CHECKSUM_CHUNK_SIZE, data.remaining())];
+    while (data.hasRemaining()) {
+      int length = Math.min(chunk.length, data.remaining());
+      data.get(chunk, 0, length);
+      crc.update(chunk, 0, length);
+    }
+    return (int) crc.getValue();
+  }
+
+  private static final class RenamingWriter implements Writer {
+    private final File source;
+
+    @Synthetic
+    RenamingWriter(File source) {
+      this.source = source;
+    }
+
+    @Override
+    public boolean write(File file) {
+      return source.renameTo(file);
+    }
+  }
+
+  private static final class BufferWriter implements Writer {
+    private final ByteBuffer buffer;
+
+    @Synthetic
+    BufferWriter(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public boolean write(File file) {
+      try {
+        ByteBufferUtil.toFile(buffer, file);
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to copy packed entry to file", e);
+        }
+        return false;
+      }
+    }
+  }
+
+  private static final class Segment {
+    final File file;
+    final RandomAccessFile randomAccessFile;
+    final FileChannel channel;
+    long size;
+    // The size of the records of entries that are still in the cache.
+    long liveBytes;
+    // Guarded by the cache, null until an entry in the segment is read.
+    MappedByteBuffer mapping;
+    // The number of compactions reading from the segment, it's only closed once they're finished.
+    int readers;
+    boolean isRemoved;
+
+    @Synthetic
+    Segment(File file, RandomAccessFile randomAccessFile) {
+      this.file = file;
+      this.randomAccessFile = randomAccessFile;
+      this.channel = randomAccessFile.getChannel();
+    }
+  }
+
+  private static final class Entry {
+    final int length;
+    final int recordLength;
+    final int checksum;
+    Segment segment;
+    long offset;
+    // False once the entry is replaced, removed or evicted.
+    boolean isLive = true;
+    boolean isVerified;
+
+    @Synthetic
+    Entry(Segment segment, long offset, int length, int recordLength, int checksum) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.recordLength = recordLength;
+      this.checksum = checksum;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import java.io.File;
+
+/**
+ * Creates a {@link PackedDiskCache}, which packs small entries like thumbnails into a few large
+ * files, in the internal cache directory.
+ */
+public final class PackedDiskCacheFactory implements DiskCache.Factory {
+  /**
+   * The default name of the directory in the application's cache directory that holds the packed
+   * segments and the entries too large to pack.
+   */
+  public static final String DEFAULT_PACKED_DISK_CACHE_DIR = "image_manager_packed_disk_cache";
+
+  private final Context context;
+  private final int diskCacheSize;
+
+  public PackedDiskCacheFactory(Context context) {
+    this(context, DiskCache.Factory.DEFAULT_DISK_CACHE_SIZE);
+  }
+
+  /**
+   * @param context       Any context, used to find the cache directory.
+   * @param diskCacheSize Desired max bytes size of the disk cache, split evenly between packed
+   *                      entries and entries too large to pack.
+   */
+  public PackedDiskCacheFactory(Context context, int diskCacheSize) {
+    this.context = context.getApplicationContext();
+    this.diskCacheSize = diskCacheSize;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDirectory = context.getCacheDir();
+    if (cacheDirectory == null) {
+      return null;
+    }
+    File cacheDir = new File(cacheDirectory, DEFAULT_PACKED_DISK_CACHE_DIR);
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return new PackedDiskCache(cacheDir, diskCacheSize);
+  }
+}
@@ -0,0 +1,207 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.util.Synthetic;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in memory cache for {@link com.bumptech.glide.load.engine.Resource}s that divides its size
+ * between partitions for different resource classes, so that large resources of one class, like
+ * animated GIFs, can't evict all the resources of another class, like thumbnails.
+ *
+ * <p>Each partition has a budget. Resources that don't match any partition's class share the
+ * budget that remains. A partition may borrow space that other partitions aren't using. When the
+ * cache is full, the least recently used resources of the partition that exceeds its budget by the
+ * most are evicted first, so borrowed space is returned as soon as its owner needs it.
+ */
+public class PartitionedResourceCache implements MemoryCache {
+  private final List<Partition> partitions = new ArrayList<>();
+  private final Partition defaultPartition;
+  private final Map<Class<?>, Partition> partitionsByResourceClass = new HashMap<>();
+  private final Map<Key, Partition> partitionsByKey = new HashMap<>();
+  private final int initialMaxSize;
+  private ResourceRemovedListener listener;
+  private int maxSize;
+  private int currentSize;
+
+  /**
+   * Constructor for PartitionedResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   * @param partitionSizes The budget in bytes for each resource class, matched in iteration order
+   *                       against {@link Resource#getResourceClass()} using
+   *                       {@link Class#isAssignableFrom(Class)}. The budgets must add up to at
+   *                       most {@code size}.
+   */
+  public PartitionedResourceCache(int size, Map<Class<?>, Integer> partitionSizes) {
+    this.initialMaxSize = size;
+    this.maxSize = size;
+    int remaining = size;
+    for (Map.Entry<Class<?>, Integer> entry : partitionSizes.entrySet()) {
+      int budget = entry.getValue();
+      if (budget < 0) {
+        throw new IllegalArgumentException("Partition size must be >= 0");
+      }
+      partitions.add(new Partition(entry.getKey(), budget));
+      remaining -= budget;
+    }
+    if (remaining < 0) {
+      throw new IllegalArgumentException("Partition sizes must add up to at most: " + size);
+    }
+    defaultPartition = new Partition(Object.class, remaining);
+    partitions.add(defaultPartition);
+  }
+
+  @Override
+  public void setResourceRemovedListener(ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public synchronized int getCurrentSize() {
+    return currentSize;
+  }
+
+  /**
+   * Returns the sum of the sizes of the resources of the given class in the cache, or of all
+   * resources that don't match a partition if the given class doesn't have its own partition.
+   */
+  public synchronized int getCurrentSize(Class<?> resourceClass) {
+    return getPartition(resourceClass).size;
+  }
+
+  @Override
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    maxSize = Math.round(initialMaxSize * multiplier);
+    trimToSize(maxSize);
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(Key key) {
+    Partition partition = partitionsByKey.remove(key);
+    if (partition == null) {
+      return null;
+    }
+    Resource<?> removed = partition.resources.remove(key);
+    partition.size -= removed.getSize();
+    currentSize -= removed.getSize();
+    return removed;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(Key key, Resource<?> resource) {
+    int size = resource.getSize();
+    if (size >= maxSize) {
+      notifyRemoved(resource);
+      return null;
+    }
+    Resource<?> previous = remove(key);
+    Partition partition = getPartition(resource.getResourceClass());
+    partition.resources.put(key, resource);
+    partition.size += size;
+    partitionsByKey.put(key, partition);
+    currentSize += size;
+    trimToSize(maxSize);
+    return previous;
+  }
+
+  @Override
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Nearing middle of list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      // Entering list of cached background apps
+      // Evict oldest half of our bitmap cache
+      trimToSize(getCurrentSize() / 2);
+    }
+  }
+
+  /**
+   * Evicts resources from the partitions that exceed their budgets, scaled to the given size, by
+   * the most until the current size is less than or equal to the given size.
+   */
+  protected synchronized void trimToSize(int size) {
+    float scale = initialMaxSize == 0 ? 0 : size / (float) initialMaxSize;
+    while (currentSize > size) {
+      Partition victim = null;
+      float victimExcess = 0;
+      for (Partition partition : partitions) {
+        if (partition.resources.isEmpty()) {
+          continue;
+        }
+        float excess = partition.size - partition.budget * scale;
+        if (victim == null || excess > victimExcess) {
+          victim = partition;
+          victimExcess = excess;
+        }
+      }
+      Map.Entry<Key, Resource<?>> eldest = victim.resources.entrySet().iterator().next();
+      Key key = eldest.getKey();
+      Resource<?> resource = eldest.getValue();
+      victim.resources.remove(key);
+      partitionsByKey.remove(key);
+      victim.size -= resource.getSize();
+      currentSize -= resource.getSize();
+      notifyRemoved(resource);
+    }
+  }
+
+  private Partition getPartition(Class<?> resourceClass) {
+    Partition result = partitionsByResourceClass.get(resourceClass);
+    if (result == null) {
+      result = defaultPartition;
+      for (Partition partition : partitions) {
+        if (partition.resourceClass.isAssignableFrom(resourceClass)) {
+          result = partition;
+          break;
+        }
+      }
+      partitionsByResourceClass.put(resourceClass, result);
+    }
+    return result;
+  }
+
+  private void notifyRemoved(Resource<?> resource) {
+    if (listener != null) {
+      listener.onResourceRemoved(resource);
+    }
+  }
+
+  private static final class Partition {
+    final LinkedHashMap<Key, Resource<?>> resources = new LinkedHashMap<>();
+    final Class<?> resourceClass;
+    final int budget;
+    int size;
+
+    @Synthetic
+    Partition(Class<?> resourceClass, int budget) {
+      this.resourceClass = resourceClass;
+      this.budget = budget;
+    }
+  }
+}
@@ -2,7 +2,7 @@ package com.bumptech.glide.load.engine.cache;
 
 import android.support.v4.util.Pools;
 import com.bumptech.glide.load.Key;
-import com.bumptech.glide.util.LruCache;
+import com.bumptech.glide.util.ConcurrentLruCache;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
@@ -15,7 +15,8 @@ import java.security.NoSuchAlgorithmException;
  * com.bumptech.glide.load.Key}s.
  */
 public class SafeKeyGenerator {
-  private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
+  private final ConcurrentLruCache<Key, String> loadIdToSafeHash =
+      new ConcurrentLruCache<>(1000);
   private final Pools.Pool<PoolableDigestContainer> digestPool = FactoryPools.threadSafe(10,
       new FactoryPools.Factory<PoolableDigestContainer>() {
         @Override
@@ -29,14 +30,9 @@ public class SafeKeyGenerator {
       });
 
   public String getSafeKey(Key key) {
-    String safeKey;
-    synchronized (loadIdToSafeHash) {
-      safeKey = loadIdToSafeHash.get(key);
-    }
+    String safeKey = loadIdToSafeHash.get(key);
     if (safeKey == null) {
       safeKey = calculateHexStringDigest(key);
-    }
-    synchronized (loadIdToSafeHash) {
       loadIdToSafeHash.put(key, safeKey);
     }
     return safeKey;
@@ -0,0 +1,77 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import java.io.File;
+
+/**
+ * Creates a {@link ShardedDiskLruCacheWrapper} that splits entries between several
+ * {@link com.bumptech.glide.disklrucache.DiskLruCache}s so that the disk cache can be read from
+ * and written to by more than one thread at a time.
+ *
+ * <p>Use with a disk cache executor with about as many threads as the cache has shards, for
+ * example:
+ * <pre>
+ * {@code
+ * builder.setDiskCache(new ShardedDiskLruCacheFactory(context, 4))
+ *     .setDiskCacheExecutor(GlideExecutor.newDiskCacheExecutor(4,
+ *         GlideExecutor.DEFAULT_DISK_CACHE_EXECUTOR_NAME,
+ *         GlideExecutor.UncaughtThrowableStrategy.DEFAULT));
+ * }
+ * </pre>
+ */
+public final class ShardedDiskLruCacheFactory implements DiskCache.Factory {
+  /**
+   * The default name of the directory in the application's cache directory that holds the shards,
+   * one sub directory per shard.
+   */
+  public static final String DEFAULT_SHARDED_DISK_CACHE_DIR = "image_manager_sharded_disk_cache";
+
+  private final DiskLruCacheFactory.CacheDirectoryGetter cacheDirectoryGetter;
+  private final int diskCacheSize;
+  private final int shardCount;
+
+  public ShardedDiskLruCacheFactory(Context context, int shardCount) {
+    this(context, DiskCache.Factory.DEFAULT_DISK_CACHE_SIZE, shardCount);
+  }
+
+  public ShardedDiskLruCacheFactory(final Context context, int diskCacheSize, int shardCount) {
+    this(new DiskLruCacheFactory.CacheDirectoryGetter() {
+      @Override
+      public File getCacheDirectory() {
+        File cacheDirectory = context.getCacheDir();
+        if (cacheDirectory == null) {
+          return null;
+        }
+        return new File(cacheDirectory, DEFAULT_SHARDED_DISK_CACHE_DIR);
+      }
+    }, diskCacheSize, shardCount);
+  }
+
+  /**
+   * @param cacheDirectoryGetter Interface called off of the UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size of the disk cache, split evenly between the
+   *                             shards.
+   * @param shardCount           The number of shards, between 1 and 256.
+   */
+  public ShardedDiskLruCacheFactory(DiskLruCacheFactory.CacheDirectoryGetter cacheDirectoryGetter,
+      int diskCacheSize, int shardCount) {
+    this.cacheDirectoryGetter = cacheDirectoryGetter;
+    this.diskCacheSize = diskCacheSize;
+    this.shardCount = shardCount;
+  }
+
+  @Override
+  public DiskCache build() {
+    File cacheDir = cacheDirectoryGetter.getCacheDirectory();
+
+    if (cacheDir == null) {
+      return null;
+    }
+
+    if (!cacheDir.mkdirs() && (!cacheDir.exists() || !cacheDir.isDirectory())) {
+      return null;
+    }
+
+    return new ShardedDiskLruCacheWrapper(cacheDir, diskCacheSize, shardCount);
+  }
+}
@@ -0,0 +1,182 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.disklrucache.DiskLruCache;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A DiskCache that splits entries between several {@link DiskLruCache}s by the hash of their keys,
+ * so that reads and writes of different keys usually don't wait on the same journal. There must be
+ * no more than one active instance for a given directory at a time.
+ *
+ * <p>Each shard lives in its own sub directory, has its own journal and lock, and holds up to an
+ * equal share of the maximum size. No lock is shared by all shards, so unlike
+ * {@link DiskLruCacheWrapper}, this cache benefits from a disk cache executor with more than one
+ * thread, see
+ * {@link com.bumptech.glide.load.engine.executor.GlideExecutor#newDiskCacheExecutor(int, String,
+ * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy)}.
+ *
+ * <p>Because keys are hashed, shards fill evenly, but each evicts the least recently used entries
+ * of its own share rather than of the whole cache.
+ *
+ * @see ShardedDiskLruCacheFactory
+ */
+public class ShardedDiskLruCacheWrapper implements DiskCache, DiskCache.BufferReader {
+  private static final String TAG = "ShardedDiskCache";
+
+  private static final int APP_VERSION = 1;
+  private static final int VALUE_COUNT = 1;
+  private static final int MAX_SHARD_COUNT = 256;
+
+  private final SafeKeyGenerator safeKeyGenerator;
+  private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
+  private final Shard[] shards;
+
+  /**
+   * @param directory  The directory for the disk cache, which must not be used by any other cache.
+   * @param maxSize    The max size for the disk cache, split evenly between the shards.
+   * @param shardCount The number of shards, between 1 and 256.
+   */
+  public ShardedDiskLruCacheWrapper(File directory, int maxSize, int shardCount) {
+    Preconditions.checkArgument(shardCount > 0 && shardCount <= MAX_SHARD_COUNT,
+        "Shard count must be between 1 and " + MAX_SHARD_COUNT);
+    this.safeKeyGenerator = new SafeKeyGenerator();
+    shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(new File(directory, String.valueOf(i)), maxSize / shardCount);
+    }
+  }
+
+  private Shard getShard(String safeKey) {
+    // Safe keys are hex encoded SHA-256 hashes, so their first byte is evenly distributed.
+    int hash = Character.digit(safeKey.charAt(0), 16) << 4 | Character.digit(safeKey.charAt(1), 16);
+    return shards[hash % shards.length];
+  }
+
+  @Override
+  public File get(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Get: Obtained: " + safeKey + " for for Key: " + key);
+    }
+    File result = null;
+    try {
+      // See DiskLruCacheWrapper#get.
+      final DiskLruCache.Value value = getShard(safeKey).getDiskCache().get(safeKey);
+      if (value != null) {
+        result = value.getFile(0);
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to get from disk cache", e);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    return DiskCacheBuffers.map(get(key));
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    // See DiskLruCacheWrapper#put.
+    writeLocker.acquire(key);
+    try {
+      String safeKey = safeKeyGenerator.getSafeKey(key);
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Put: Obtained: " + safeKey + " for for Key: " + key);
+      }
+      try {
+        DiskLruCache diskCache = getShard(safeKey).getDiskCache();
+        DiskLruCache.Value current = diskCache.get(safeKey);
+        if (current != null) {
+          return;
+        }
+
+        DiskLruCache.Editor editor = diskCache.edit(safeKey);
+        if (editor == null) {
+          throw new IllegalStateException("Had two simultaneous puts for: " + safeKey);
+        }
+        try {
+          File file = editor.getFile(0);
+          if (writer.write(file)) {
+            editor.commit();
+          }
+        } finally {
+          editor.abortUnlessCommitted();
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to put to disk cache", e);
+        }
+      }
+    } finally {
+      writeLocker.release(key);
+    }
+  }
+
+  @Override
+  public void delete(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    try {
+      getShard(safeKey).getDiskCache().remove(safeKey);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to delete from disk cache", e);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Shard shard : shards) {
+      try {
+        shard.clear();
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to clear disk cache", e);
+        }
+      }
+    }
+  }
+
+  private static final class Shard {
+    private final File directory;
+    private final int maxSize;
+    private volatile DiskLruCache diskLruCache;
+
+    @Synthetic
+    Shard(File directory, int maxSize) {
+      this.directory = directory;
+      this.maxSize = maxSize;
+    }
+
+    DiskLruCache getDiskCache() throws IOException {
+      DiskLruCache result = diskLruCache;
+      if (result == null) {
+        synchronized (this) {
+          result = diskLruCache;
+          if (result == null) {
+            result = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT, maxSize);
+            diskLruCache = result;
+          }
+        }
+      }
+      return result;
+    }
+
+    synchronized void clear() throws IOException {
+      getDiskCache().delete();
+      diskLruCache = null;
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.util.Synthetic;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A DiskCache made of a small hot tier, meant for fast storage, in front of a large cold tier.
+ *
+ * <p>New entries are always written to the cold tier. Entries that are read from the cold tier
+ * often enough, as estimated by a {@link FrequencySketch}, and that are small enough, are copied
+ * to the hot tier, which is checked first by {@link #get(Key)}. Since transformed resources like
+ * thumbnails are much smaller than the original data they're decoded from, the most frequently
+ * used resources end up in the hot tier, where evictions caused by writing large originals to the
+ * cold tier can't reach them.
+ *
+ * <p>Entries are copied on a background thread. The read that triggers a promotion is served from
+ * the cold tier, so it doesn't wait for the copy.
+ *
+ * <p>Promoted entries aren't removed from the cold tier, so that files previously returned by
+ * {@link #get(Key)} stay valid, and so that entries evicted from the hot tier can be promoted
+ * again.
+ *
+ * @see TieredDiskCacheFactory
+ */
+public class TieredDiskCache implements DiskCache, DiskCache.BufferReader {
+  private static final String TAG = "TieredDiskCache";
+  // Entries are promoted the second time they're read from the cold tier.
+  private static final int DEFAULT_PROMOTION_FREQUENCY = 2;
+  // Keeps the hot tier from being filled by a few large entries.
+  private static final int MAX_HOT_ENTRY_FRACTION = 32;
+  // A typical thumbnail, used to estimate how many distinct entries the sketch has to count.
+  private static final int EXPECTED_HOT_ENTRY_SIZE = 16 * 1024;
+  private static final int COPY_BUFFER_SIZE = 8 * 1024;
+  private static final String PROMOTION_EXECUTOR_NAME = "disk-cache-promotion";
+
+  @Synthetic final DiskCache hotCache;
+  private final DiskCache coldCache;
+  private final int maxHotEntrySize;
+  private final int promotionFrequency;
+  private final FrequencySketch sketch;
+  // Guarded by sketch.
+  private final Set<Key> pendingPromotions = new HashSet<>();
+  // Pending promotions of keys that were deleted since, guarded by sketch.
+  private final Set<Key> cancelledPromotions = new HashSet<>();
+  // Created when it's first needed, since entries are only promoted after being read repeatedly.
+  private Executor promotionExecutor;
+
+  /**
+   * @param hotDirectory  The directory for the hot tier, ideally on the fastest available storage.
+   * @param hotMaxSize    The max size for the hot tier.
+   * @param coldDirectory The directory for the cold tier.
+   * @param coldMaxSize   The max size for the cold tier.
+   */
+  public TieredDiskCache(File hotDirectory, int hotMaxSize, File coldDirectory,
+      int coldMaxSize) {
+    this(new DiskLruCacheWrapper(hotDirectory, hotMaxSize),
+        new DiskLruCacheWrapper(coldDirectory, coldMaxSize), hotMaxSize,
+        hotMaxSize / MAX_HOT_ENTRY_FRACTION, DEFAULT_PROMOTION_FREQUENCY,
+        null /*promotionExecutor*/);
+  }
+
+  // Visible for testing.
+  TieredDiskCache(DiskCache hotCache, DiskCache coldCache, int hotMaxSize, int maxHotEntrySize,
+      int promotionFrequency, @Nullable Executor promotionExecutor) {
+    this.hotCache = hotCache;
+    this.coldCache = coldCache;
+    this.maxHotEntrySize = maxHotEntrySize;
+    this.promotionFrequency = promotionFrequency;
+    this.promotionExecutor = promotionExecutor;
+    // The sketch only has to tell apart entries small enough to be promoted, so it's sized from the
+    // number of typical entries the hot tier holds rather than from the much larger cold tier.
+    sketch = new FrequencySketch(
+        Math.max(MAX_HOT_ENTRY_FRACTION, hotMaxSize / EXPECTED_HOT_ENTRY_SIZE));
+  }
+
+  @Nullable
+  @Override
+  public File get(Key key) {
+    File result = hotCache.get(key);
+    if (result != null) {
+      return result;
+    }
+    result = coldCache.get(key);
+    if (result == null || result.length() > maxHotEntrySize) {
+      return result;
+    }
+    int frequency;
+    Executor executor;
+    synchronized (sketch) {
+      sketch.increment(key);
+      frequency = sketch.frequency(key);
+      if (frequency < promotionFrequency || !pendingPromotions.add(key)) {
+        return result;
+      }
+      if (promotionExecutor == null) {
+        promotionExecutor = GlideExecutor.newDiskBackgroundExecutor(PROMOTION_EXECUTOR_NAME,
+            GlideExecutor.UncaughtThrowableStrategy.DEFAULT);
+      }
+      executor = promotionExecutor;
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Promoting to hot tier, key: " + key + ", frequency: " + frequency);
+    }
+    final Key promotedKey = key;
+    final File source = result;
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            hotCache.put(promotedKey, new CopyWriter(source));
+          } finally {
+            finishPromotion(promotedKey);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to start promotion, key: " + key, e);
+      }
+      finishPromotion(key);
+    }
+    return result;
+  }
+
+  @Synthetic
+  void finishPromotion(Key key) {
+    boolean isCancelled;
+    synchronized (sketch) {
+      pendingPromotions.remove(key);
+      isCancelled = cancelledPromotions.remove(key);
+    }
+    // The key was deleted while it was being copied, possibly before the copy was written.
+    if (isCancelled) {
+      hotCache.delete(key);
+    }
+  }
+
+  @Nullable
+  @Override
+  public ByteBuffer getBuffer(Key key) {
+    return DiskCacheBuffers.map(get(key));
+  }
+
+  @Override
+  public void put(Key key, Writer writer) {
+    coldCache.put(key, writer);
+  }
+
+  @Override
+  public void delete(Key key) {
+    synchronized (sketch) {
+      if (pendingPromotions.contains(key)) {
+        cancelledPromotions.add(key);
+      }
+    }
+    hotCache.delete(key);
+    coldCache.delete(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    synchronized (sketch) {
+      cancelledPromotions.addAll(pendingPromotions);
+    }
+    hotCache.clear();
+    coldCache.clear();
+  }
+
+  private static final class CopyWriter implements Writer {
+    private final File source;
+
+    @Synthetic
+    CopyWriter(File source) {
+      this.source = source;
+    }
+
+    @Override
+    public boolean write(File file) {
+      InputStream is = null;
+      OutputStream os = null;
+      try {
+        is = new FileInputStream(source);
+        os = new FileOutputStream(file);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+          os.write(buffer, 0, read);
+        }
+        os.close();
+        os = null;
+        return true;
+      } catch (IOException e) {
+        // The entry may have been evicted from the cold tier while it was being copied.
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+          Log.d(TAG, "Failed to promote entry to hot tier", e);
+        }
+        return false;
+      } finally {
+        if (is != null) {
+          try {
+            is.close();
+          } catch (IOException e) {
+            // Ignored.
+          }
+        }
+        if (os != null) {
+          try {
+            os.close();
+          } catch (IOException e) {
+            // Ignored.
+          }
+        }
+      }
+    }
+  }
+}
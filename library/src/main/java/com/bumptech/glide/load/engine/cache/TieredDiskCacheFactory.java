@@ -0,0 +1,83 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.content.Context;
+import java.io.File;
+
+/**
+ * Creates a {@link TieredDiskCache} with a small hot tier and a large cold tier, both in the
+ * internal cache directory by default.
+ *
+ * <p>The cold tier can optionally be put in the external cache directory, see
+ * {@link #TieredDiskCacheFactory(Context, int, int, boolean)}. <b>Images in the cold tier can be
+ * read by everyone when it's in the external cache directory.</b>
+ */
+public final class TieredDiskCacheFactory implements DiskCache.Factory {
+  /** The default name of the directory in the internal cache directory that holds the hot tier. */
+  public static final String DEFAULT_HOT_DISK_CACHE_DIR = "image_manager_hot_disk_cache";
+  /** The default name of the directory that holds the cold tier. */
+  public static final String DEFAULT_COLD_DISK_CACHE_DIR = "image_manager_cold_disk_cache";
+  /** 25 MB of hot cache, enough for a few hundred thumbnails. */
+  public static final int DEFAULT_HOT_DISK_CACHE_SIZE = 25 * 1024 * 1024;
+
+  private final Context context;
+  private final int hotDiskCacheSize;
+  private final int coldDiskCacheSize;
+  private final boolean isColdTierExternal;
+
+  public TieredDiskCacheFactory(Context context) {
+    this(context, DEFAULT_HOT_DISK_CACHE_SIZE, DiskCache.Factory.DEFAULT_DISK_CACHE_SIZE);
+  }
+
+  /**
+   * @param context           Any context, used to find the cache directories.
+   * @param hotDiskCacheSize  Desired max bytes size of the hot tier.
+   * @param coldDiskCacheSize Desired max bytes size of the cold tier.
+   */
+  public TieredDiskCacheFactory(Context context, int hotDiskCacheSize, int coldDiskCacheSize) {
+    this(context, hotDiskCacheSize, coldDiskCacheSize, false /*isColdTierExternal*/);
+  }
+
+  /**
+   * @param context            Any context, used to find the cache directories.
+   * @param hotDiskCacheSize   Desired max bytes size of the hot tier.
+   * @param coldDiskCacheSize  Desired max bytes size of the cold tier.
+   * @param isColdTierExternal {@code true} to put the cold tier in the external cache directory,
+   *                           or in the internal cache directory if external storage isn't
+   *                           available. <b>Images in the external cache directory can be read by
+   *                           everyone.</b>
+   */
+  public TieredDiskCacheFactory(Context context, int hotDiskCacheSize, int coldDiskCacheSize,
+      boolean isColdTierExternal) {
+    this.context = context.getApplicationContext();
+    this.hotDiskCacheSize = hotDiskCacheSize;
+    this.coldDiskCacheSize = coldDiskCacheSize;
+    this.isColdTierExternal = isColdTierExternal;
+  }
+
+  @Override
+  public DiskCache build() {
+    File internalCacheDirectory = context.getCacheDir();
+    if (internalCacheDirectory == null) {
+      return null;
+    }
+    File coldCacheDirectory = internalCacheDirectory;
+    if (isColdTierExternal) {
+      File externalCacheDirectory = context.getExternalCacheDir();
+      if (externalCacheDirectory != null) {
+        coldCacheDirectory = externalCacheDirectory;
+      }
+    }
+    File hotCacheDir = new File(internalCacheDirectory, DEFAULT_HOT_DISK_CACHE_DIR);
+    File coldCacheDir = new File(coldCacheDirectory, DEFAULT_COLD_DISK_CACHE_DIR);
+
+    if (!makeDirectory(hotCacheDir) || !makeDirectory(coldCacheDir)) {
+      return null;
+    }
+
+    return new TieredDiskCache(hotCacheDir, hotDiskCacheSize, coldCacheDir, coldDiskCacheSize);
+  }
+
+  private static boolean makeDirectory(File directory) {
+    return directory.mkdirs() || (directory.exists() && directory.isDirectory());
+  }
+}
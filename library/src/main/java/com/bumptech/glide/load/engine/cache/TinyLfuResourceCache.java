@@ -0,0 +1,327 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A scan resistant in memory cache for {@link com.bumptech.glide.load.engine.Resource}s that uses
+ * the W-TinyLFU policy.
+ *
+ * <p>New resources enter a small LRU window. Resources evicted from the window are only admitted
+ * to the main segmented LRU if they've been requested more often recently than the resources they
+ * would replace, as estimated by a {@link FrequencySketch}. A burst of resources that are used
+ * once, for example while flinging through a long list, therefore doesn't evict resources that are
+ * used repeatedly. Resources that are requested from the main segments are promoted to its
+ * protected segment when they're put back into the cache.
+ *
+ * <p>Because the {@link com.bumptech.glide.load.engine.Engine} removes resources from the memory
+ * cache when they're requested, {@link #remove(Key)} is counted as an access.
+ */
+public class TinyLfuResourceCache implements MemoryCache {
+  // Larger than is typical for W-TinyLFU because resources are few and large.
+  private static final float WINDOW_FRACTION = 0.1f;
+  private static final float PROTECTED_FRACTION = 0.8f;
+  /** The default number of resources the frequency sketch is sized for. */
+  public static final int DEFAULT_EXPECTED_ENTRY_COUNT = 256;
+
+  private final LinkedHashMap<Key, Resource<?>> window = new LinkedHashMap<>();
+  private final LinkedHashMap<Key, Resource<?>> probation = new LinkedHashMap<>();
+  private final LinkedHashMap<Key, Resource<?>> protectedSegment = new LinkedHashMap<>();
+  private final LinkedHashMap<Key, Boolean> hitInMain;
+  private final FrequencySketch sketch;
+  private final int initialMaxSize;
+  private ResourceRemovedListener listener;
+  private int maxSize;
+  private int windowMaxSize;
+  private int protectedMaxSize;
+  private int windowSize;
+  private int probationSize;
+  private int protectedSize;
+  private long hitCount;
+  private long missCount;
+  private long admissionRejectCount;
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   */
+  public TinyLfuResourceCache(int size) {
+    this(size, DEFAULT_EXPECTED_ENTRY_COUNT);
+  }
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   * @param expectedEntryCount The number of distinct resources whose frequency should be tracked,
+   *                           typically a small multiple of the number of resources that fit in
+   *                           the cache.
+   */
+  public TinyLfuResourceCache(int size, final int expectedEntryCount) {
+    this.initialMaxSize = size;
+    sketch = new FrequencySketch(expectedEntryCount);
+    hitInMain = new LinkedHashMap<Key, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+        return size() > expectedEntryCount;
+      }
+    };
+    setMaxSize(size);
+  }
+
+  @Override
+  public void setResourceRemovedListener(ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public synchronized int getCurrentSize() {
+    return windowSize + probationSize + protectedSize;
+  }
+
+  @Override
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    setMaxSize(Math.round(initialMaxSize * multiplier));
+    demoteProtectedOverflow();
+    evictWindowOverflow();
+    evictMainOverflow();
+  }
+
+  /**
+   * Returns the number of calls to {@link #remove(Key)} that returned a resource.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of calls to {@link #remove(Key)} that didn't return a resource.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of resources that were evicted from the window without being admitted to
+   * the main cache because they were requested less often than the resources they'd replace.
+   */
+  public synchronized long getAdmissionRejectCount() {
+    return admissionRejectCount;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(Key key) {
+    sketch.increment(key);
+    Resource<?> result = removeFromSegments(key);
+    if (result == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(Key key, Resource<?> resource) {
+    int size = resource.getSize();
+    if (size >= maxSize) {
+      notifyRemoved(resource);
+      return null;
+    }
+    Resource<?> previous = removeFromSegments(key);
+    if (hitInMain.remove(key) != null && size <= protectedMaxSize) {
+      protectedSegment.put(key, resource);
+      protectedSize += size;
+      demoteProtectedOverflow();
+      evictMainOverflow();
+    } else {
+      window.put(key, resource);
+      windowSize += size;
+      evictWindowOverflow();
+    }
+    return previous;
+  }
+
+  @Override
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Nearing middle of list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      // Entering list of cached background apps
+      // Evict the least valuable half of our bitmap cache
+      trimToSize(getCurrentSize() / 2);
+    }
+  }
+
+  /**
+   * Evicts resources, least valuable first, until the current size is less than or equal to the
+   * given size.
+   */
+  protected synchronized void trimToSize(int size) {
+    while (getCurrentSize() > size) {
+      if (!probation.isEmpty()) {
+        probationSize -= evictEldest(probation);
+      } else if (!window.isEmpty()) {
+        windowSize -= evictEldest(window);
+      } else {
+        protectedSize -= evictEldest(protectedSegment);
+      }
+    }
+  }
+
+  private void setMaxSize(int size) {
+    maxSize = size;
+    windowMaxSize = Math.round(size * WINDOW_FRACTION);
+    protectedMaxSize = Math.round((size - windowMaxSize) * PROTECTED_FRACTION);
+  }
+
+  private Resource<?> removeFromSegments(Key key) {
+    Resource<?> result = window.remove(key);
+    if (result != null) {
+      windowSize -= result.getSize();
+      return result;
+    }
+    result = probation.remove(key);
+    if (result != null) {
+      probationSize -= result.getSize();
+      hitInMain.put(key, true);
+      return result;
+    }
+    result = protectedSegment.remove(key);
+    if (result != null) {
+      protectedSize -= result.getSize();
+      hitInMain.put(key, true);
+    }
+    return result;
+  }
+
+  private void evictWindowOverflow() {
+    while (windowSize > windowMaxSize) {
+      Map.Entry<Key, Resource<?>> eldest = window.entrySet().iterator().next();
+      Key key = eldest.getKey();
+      Resource<?> candidate = eldest.getValue();
+      window.remove(key);
+      windowSize -= candidate.getSize();
+      admit(key, candidate);
+    }
+  }
+
+  /**
+   * Moves the given resource from the window to the main cache if it's been requested more often
+   * than the resources that would have to be evicted to make room for it, or evicts it otherwise.
+   */
+  private void admit(Key key, Resource<?> candidate) {
+    int size = candidate.getSize();
+    int excess = probationSize + protectedSize + size - (maxSize - windowMaxSize);
+    if (excess > 0) {
+      List<Key> victims = new ArrayList<>();
+      int candidateFrequency = sketch.frequency(key);
+      int freed = collectVictims(probation, candidateFrequency, excess, victims);
+      if (freed >= 0 && freed < excess) {
+        int freedProtected =
+            collectVictims(protectedSegment, candidateFrequency, excess - freed, victims);
+        freed = freedProtected < 0 ? freedProtected : freed + freedProtected;
+      }
+      if (freed < excess) {
+        admissionRejectCount++;
+        notifyRemoved(candidate);
+        return;
+      }
+      for (Key victim : victims) {
+        Resource<?> removed = probation.remove(victim);
+        if (removed != null) {
+          probationSize -= removed.getSize();
+        } else {
+          removed = protectedSegment.remove(victim);
+          protectedSize -= removed.getSize();
+        }
+        notifyRemoved(removed);
+      }
+    }
+    probation.put(key, candidate);
+    probationSize += size;
+  }
+
+  /**
+   * Adds the least recently used keys of the given segment to victims until their sizes add up to
+   * the given size and returns the added size, or -1 if a resource that is requested at least as
+   * often as the candidate would have to be evicted.
+   */
+  private int collectVictims(LinkedHashMap<Key, Resource<?>> segment, int candidateFrequency,
+      int size, List<Key> victims) {
+    int freed = 0;
+    Iterator<Map.Entry<Key, Resource<?>>> iterator = segment.entrySet().iterator();
+    while (freed < size && iterator.hasNext()) {
+      Map.Entry<Key, Resource<?>> entry = iterator.next();
+      if (sketch.frequency(entry.getKey()) >= candidateFrequency) {
+        return -1;
+      }
+      victims.add(entry.getKey());
+      freed += entry.getValue().getSize();
+    }
+    return freed;
+  }
+
+  private void demoteProtectedOverflow() {
+    while (protectedSize > protectedMaxSize) {
+      Map.Entry<Key, Resource<?>> eldest = protectedSegment.entrySet().iterator().next();
+      Key key = eldest.getKey();
+      Resource<?> resource = eldest.getValue();
+      protectedSegment.remove(key);
+      protectedSize -= resource.getSize();
+      probation.put(key, resource);
+      probationSize += resource.getSize();
+    }
+  }
+
+  private void evictMainOverflow() {
+    int mainMaxSize = maxSize - windowMaxSize;
+    while (probationSize + protectedSize > mainMaxSize) {
+      if (!probation.isEmpty()) {
+        probationSize -= evictEldest(probation);
+      } else {
+        protectedSize -= evictEldest(protectedSegment);
+      }
+    }
+  }
+
+  private int evictEldest(LinkedHashMap<Key, Resource<?>> segment) {
+    Map.Entry<Key, Resource<?>> eldest = segment.entrySet().iterator().next();
+    Resource<?> resource = eldest.getValue();
+    segment.remove(eldest.getKey());
+    notifyRemoved(resource);
+    return resource.getSize();
+  }
+
+  private void notifyRemoved(Resource<?> resource) {
+    if (listener != null) {
+      listener.onResourceRemoved(resource);
+    }
+  }
+}
@@ -11,6 +11,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
@@ -28,6 +29,17 @@ public final class GlideExecutor extends ThreadPoolExecutor {
    * cache.
    */
   public static final String DEFAULT_SOURCE_EXECUTOR_NAME = "source";
+  /**
+   * The default thread name prefix for executors used to decode/transform data obtained by source
+   * executors.
+   */
+  public static final String DEFAULT_SOURCE_DECODE_EXECUTOR_NAME = "source-decode";
+  /**
+   * The default thread count for source executors that only obtain data and hand decoding off to a
+   * separate source decode executor. Such executors spend most of their time waiting on the
+   * network, so they're sized for network concurrency rather than for the number of cores.
+   */
+  public static final int DEFAULT_SOURCE_IO_EXECUTOR_THREADS = 8;
   /**
    * The default thread name prefix for executors used to load/decode/transform data found in
    * Glide's cache.
@@ -38,6 +50,16 @@ public final class GlideExecutor extends ThreadPoolExecutor {
    * cache.
    */
   public static final int DEFAULT_DISK_CACHE_EXECUTOR_THREADS = 1;
+  /**
+   * The default thread name prefix for executors used to write resources to Glide's disk cache
+   * after they've been delivered.
+   */
+  public static final String DEFAULT_DISK_CACHE_ENCODE_EXECUTOR_NAME = "disk-cache-encode";
+  /**
+   * The default maximum number of encodes that can be waiting to run on executors used to write
+   * resources to Glide's disk cache.
+   */
+  public static final int DEFAULT_DISK_CACHE_ENCODE_QUEUE_SIZE = 16;
 
   private static final String TAG = "GlideExecutor";
   private static final String CPU_NAME_REGEX = "cpu[0-9]+";
@@ -56,6 +78,15 @@ public final class GlideExecutor extends ThreadPoolExecutor {
    */
   private static final long SOURCE_UNLIMITED_EXECUTOR_KEEP_ALIVE_TIME_MS =
       TimeUnit.SECONDS.toMillis(10);
+  /**
+   * The keep alive time for threads in background executors in milliseconds.
+   */
+  private static final long BACKGROUND_EXECUTOR_KEEP_ALIVE_TIME_MS = TimeUnit.SECONDS.toMillis(10);
+  /**
+   * The priority of threads in executors that load, decode and transform resources.
+   */
+  private static final int DEFAULT_THREAD_PRIORITY = android.os.Process.THREAD_PRIORITY_BACKGROUND
+      + android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE;
 
   /**
    * Returns a new fixed thread pool with the default thread count returned from
@@ -121,6 +152,40 @@ public final class GlideExecutor extends ThreadPoolExecutor {
         false /*preventNetworkOperations*/, false /*executeSynchronously*/);
   }
 
+  /**
+   * Returns a new fixed thread pool with the default thread count returned from
+   * {@link #calculateBestThreadCount()}, the {@link #DEFAULT_SOURCE_DECODE_EXECUTOR_NAME} thread
+   * name prefix, and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy.
+   *
+   * <p>Source decode executors decode and transform data that source executors have obtained, so
+   * their thread count should track the number of cores.
+   */
+  public static GlideExecutor newSourceDecodeExecutor() {
+    return newSourceDecodeExecutor(calculateBestThreadCount(), DEFAULT_SOURCE_DECODE_EXECUTOR_NAME,
+        UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new fixed thread pool with the given thread count, thread name prefix,
+   * and {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}.
+   *
+   * <p>Source decode executors decode and transform data that source executors have obtained, so
+   * their thread count should track the number of cores.
+   *
+   * @param threadCount The number of threads.
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   */
+  public static GlideExecutor newSourceDecodeExecutor(int threadCount, String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    return new GlideExecutor(threadCount, name, uncaughtThrowableStrategy,
+        false /*preventNetworkOperations*/, false /*executeSynchronously*/);
+  }
+
   /**
    * Returns a new unlimited thread pool with zero core thread count to make sure no threads are
    * created by default, {@link #SOURCE_UNLIMITED_EXECUTOR_KEEP_ALIVE_TIME_MS} keep alive
@@ -146,6 +211,108 @@ public final class GlideExecutor extends ThreadPoolExecutor {
         new SynchronousQueue<Runnable>());
   }
 
+  /**
+   * Returns a new single threaded executor with a queue of at most
+   * {@link #DEFAULT_DISK_CACHE_ENCODE_QUEUE_SIZE} encodes, the
+   * {@link #DEFAULT_DISK_CACHE_ENCODE_EXECUTOR_NAME} thread name prefix, and the
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy#DEFAULT}
+   * uncaught throwable strategy.
+   *
+   * <p>Disk cache encode executors run at a lower priority than other Glide executors, do not allow
+   * network operations on their threads and reject new encodes when their queue is full.
+   */
+  public static GlideExecutor newDiskCacheEncodeExecutor() {
+    return newDiskCacheEncodeExecutor(DEFAULT_DISK_CACHE_ENCODE_QUEUE_SIZE,
+        DEFAULT_DISK_CACHE_ENCODE_EXECUTOR_NAME, UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new single threaded executor with the given maximum queue size, thread name prefix,
+   * and {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy}.
+   *
+   * <p>Disk cache encode executors run at a lower priority than other Glide executors, do not allow
+   * network operations on their threads and reject new encodes when their queue is full.
+   *
+   * @param maxQueuedEncodes The maximum number of encodes that can be waiting to run.
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   */
+  public static GlideExecutor newDiskCacheEncodeExecutor(int maxQueuedEncodes, String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    return new GlideExecutor(1 /*corePoolSize*/,
+        1 /*maximumPoolSize*/,
+        0 /*keepAliveTimeInMs*/,
+        name,
+        uncaughtThrowableStrategy,
+        true /*preventNetworkOperations*/,
+        false /*executeSynchronously*/,
+        new LinkedBlockingQueue<Runnable>(maxQueuedEncodes),
+        android.os.Process.THREAD_PRIORITY_BACKGROUND);
+  }
+
+  /**
+   * Returns a new single threaded executor with the given thread name prefix and
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} for
+   * occasional disk work that isn't part of a load, like maintaining caches.
+   *
+   * <p>Unlike the executors that run loads, disk background executors run tasks in the order they
+   * were submitted, so tasks don't have to be {@link Comparable}, and their thread exits once it
+   * has been idle for {@link #BACKGROUND_EXECUTOR_KEEP_ALIVE_TIME_MS}. They run at a lower priority
+   * than other Glide executors and do not allow network operations on their threads.
+   *
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   */
+  public static GlideExecutor newDiskBackgroundExecutor(String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    GlideExecutor executor = new GlideExecutor(1 /*corePoolSize*/,
+        1 /*maximumPoolSize*/,
+        BACKGROUND_EXECUTOR_KEEP_ALIVE_TIME_MS,
+        name,
+        uncaughtThrowableStrategy,
+        true /*preventNetworkOperations*/,
+        false /*executeSynchronously*/,
+        new LinkedBlockingQueue<Runnable>(),
+        android.os.Process.THREAD_PRIORITY_BACKGROUND);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Returns a new fixed thread pool with the given thread count, thread name prefix, and
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} for
+   * short network operations that support loads but aren't loads themselves, like resolving host
+   * names.
+   *
+   * <p>Like disk background executors, source background executors run tasks in the order they
+   * were submitted, so tasks don't have to be {@link Comparable}, and their threads exit once they
+   * have been idle for {@link #BACKGROUND_EXECUTOR_KEEP_ALIVE_TIME_MS}. They run at the same
+   * priority as source executors and allow network operations on their threads.
+   *
+   * @param threadCount The number of threads.
+   * @param name The prefix for each thread name.
+   * @param uncaughtThrowableStrategy The {@link
+   * com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} to use to
+   *                                  handle uncaught exceptions.
+   */
+  public static GlideExecutor newSourceBackgroundExecutor(int threadCount, String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    GlideExecutor executor = new GlideExecutor(threadCount /*corePoolSize*/,
+        threadCount /*maximumPoolSize*/,
+        BACKGROUND_EXECUTOR_KEEP_ALIVE_TIME_MS,
+        name,
+        uncaughtThrowableStrategy,
+        false /*preventNetworkOperations*/,
+        false /*executeSynchronously*/,
+        new LinkedBlockingQueue<Runnable>());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   // Visible for testing.
   GlideExecutor(int poolSize, String name,
       UncaughtThrowableStrategy uncaughtThrowableStrategy, boolean preventNetworkOperations,
@@ -177,13 +344,29 @@ public final class GlideExecutor extends ThreadPoolExecutor {
   GlideExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTimeInMs, String name,
       UncaughtThrowableStrategy uncaughtThrowableStrategy, boolean preventNetworkOperations,
       boolean executeSynchronously, BlockingQueue<Runnable> queue) {
+    this(
+        corePoolSize,
+        maximumPoolSize,
+        keepAliveTimeInMs,
+        name,
+        uncaughtThrowableStrategy,
+        preventNetworkOperations,
+        executeSynchronously,
+        queue,
+        DEFAULT_THREAD_PRIORITY);
+  }
+
+  GlideExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTimeInMs, String name,
+      UncaughtThrowableStrategy uncaughtThrowableStrategy, boolean preventNetworkOperations,
+      boolean executeSynchronously, BlockingQueue<Runnable> queue, int threadPriority) {
     super(
         corePoolSize,
         maximumPoolSize,
         keepAliveTimeInMs,
         TimeUnit.MILLISECONDS,
         queue,
-        new DefaultThreadFactory(name, uncaughtThrowableStrategy, preventNetworkOperations));
+        new DefaultThreadFactory(name, uncaughtThrowableStrategy, preventNetworkOperations,
+            threadPriority));
     this.executeSynchronously = executeSynchronously;
   }
 
@@ -312,20 +495,22 @@ public final class GlideExecutor extends ThreadPoolExecutor {
   }
 
   /**
-   * A {@link java.util.concurrent.ThreadFactory} that builds threads slightly above priority {@link
-   * android.os.Process#THREAD_PRIORITY_BACKGROUND}.
+   * A {@link java.util.concurrent.ThreadFactory} that builds threads with the given priority,
+   * by default slightly above priority {@link android.os.Process#THREAD_PRIORITY_BACKGROUND}.
    */
   private static final class DefaultThreadFactory implements ThreadFactory {
     private final String name;
     @Synthetic final UncaughtThrowableStrategy uncaughtThrowableStrategy;
     @Synthetic final boolean preventNetworkOperations;
+    @Synthetic final int threadPriority;
     private int threadNum;
 
     DefaultThreadFactory(String name, UncaughtThrowableStrategy uncaughtThrowableStrategy,
-        boolean preventNetworkOperations) {
+        boolean preventNetworkOperations, int threadPriority) {
       this.name = name;
       this.uncaughtThrowableStrategy = uncaughtThrowableStrategy;
       this.preventNetworkOperations = preventNetworkOperations;
+      this.threadPriority = threadPriority;
     }
 
     @Override
@@ -333,9 +518,7 @@ public final class GlideExecutor extends ThreadPoolExecutor {
       final Thread result = new Thread(runnable, "glide-" + name + "-thread-" + threadNum) {
         @Override
         public void run() {
-          android.os.Process.setThreadPriority(
-              android.os.Process.THREAD_PRIORITY_BACKGROUND
-              + android.os.Process.THREAD_PRIORITY_MORE_FAVORABLE);
+          android.os.Process.setThreadPriority(threadPriority);
           if (preventNetworkOperations) {
             StrictMode.setThreadPolicy(
                 new ThreadPolicy.Builder()
@@ -4,6 +4,7 @@ import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.SystemClock;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
@@ -53,7 +54,7 @@ final class BitmapPreFillRunner implements Runnable {
   static final long MAX_BACKOFF_MS = TimeUnit.SECONDS.toMillis(1);
 
   private final BitmapPool bitmapPool;
-  private final MemoryCache memoryCache;
+  @Nullable private final MemoryCache memoryCache;
   private final PreFillQueue toPrefill;
   private final Clock clock;
   private final Set<PreFillType> seenTypes = new HashSet<>();
@@ -68,9 +69,18 @@ final class BitmapPreFillRunner implements Runnable {
         new Handler(Looper.getMainLooper()));
   }
 
+  /**
+   * Creates a runner that puts every {@link android.graphics.Bitmap} it allocates in the given
+   * pool, so that decodes can re-use them, rather than filling the memory cache first.
+   */
+  BitmapPreFillRunner(BitmapPool bitmapPool, PreFillQueue allocationOrder) {
+    this(bitmapPool, null /*memoryCache*/, allocationOrder, DEFAULT_CLOCK,
+        new Handler(Looper.getMainLooper()));
+  }
+
   // Visible for testing.
-  BitmapPreFillRunner(BitmapPool bitmapPool, MemoryCache memoryCache, PreFillQueue allocationOrder,
-      Clock clock, Handler handler) {
+  BitmapPreFillRunner(BitmapPool bitmapPool, @Nullable MemoryCache memoryCache,
+      PreFillQueue allocationOrder, Clock clock, Handler handler) {
     this.bitmapPool = bitmapPool;
     this.memoryCache = memoryCache;
     this.toPrefill = allocationOrder;
@@ -103,7 +113,7 @@ final class BitmapPreFillRunner implements Runnable {
       // Don't over fill the memory cache to avoid evicting useful resources, but make sure it's
       // not empty so
       // we use all available space.
-      if (getFreeMemoryCacheBytes() >= Util.getBitmapByteSize(bitmap)) {
+      if (memoryCache != null && getFreeMemoryCacheBytes() >= Util.getBitmapByteSize(bitmap)) {
         memoryCache.put(new UniqueKey(), BitmapResource.obtain(bitmap, bitmapPool));
       } else {
         bitmapPool.put(bitmap);
@@ -134,6 +144,16 @@ final class BitmapPreFillRunner implements Runnable {
     }
   }
 
+  /**
+   * Allocates all of the {@link android.graphics.Bitmap}s on the current thread, which must not be
+   * the main thread, sleeping between batches with the same backoff used between posts.
+   */
+  void runOnCurrentThread() throws InterruptedException {
+    while (allocate()) {
+      Thread.sleep(getNextDelay());
+    }
+  }
+
   private long getNextDelay() {
     long result = currentDelay;
     currentDelay = Math.min(currentDelay * BACKOFF_RATIO, MAX_BACKOFF_MS);
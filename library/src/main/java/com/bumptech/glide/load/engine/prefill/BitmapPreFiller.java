@@ -6,22 +6,31 @@ import android.os.Looper;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A class for pre-filling {@link android.graphics.Bitmap Bitmaps} in a
  * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool}.
  */
 public final class BitmapPreFiller {
+  private static final String PREFILL_EXECUTOR_NAME = "prefill";
 
   private final MemoryCache memoryCache;
-  private final BitmapPool bitmapPool;
+  @Synthetic final BitmapPool bitmapPool;
   private final DecodeFormat defaultFormat;
   private final Handler handler = new Handler(Looper.getMainLooper());
 
   private BitmapPreFillRunner current;
+  // Created when it's first needed, since most applications don't use predictive pre-filling.
+  private ExecutorService predictionExecutor;
+  private Future<?> predictedPreFill;
 
   public BitmapPreFiller(MemoryCache memoryCache, BitmapPool bitmapPool,
       DecodeFormat defaultFormat) {
@@ -50,11 +59,77 @@ public final class BitmapPreFiller {
     handler.post(current);
   }
 
+  /**
+   * Pre-fills the pool on a background thread with {@link android.graphics.Bitmap Bitmaps} for the
+   * decodes recorded by the given histogram the last time the application started, if any.
+   *
+   * <p>At most as many {@link android.graphics.Bitmap Bitmaps} of each type as were decoded are
+   * allocated, and all of them are put in the pool, rather than in the memory cache, so that the
+   * decodes can re-use them.
+   */
+  public synchronized void preFill(final DecodeSizeHistogram histogram) {
+    if (predictionExecutor == null) {
+      predictionExecutor = GlideExecutor.newDiskBackgroundExecutor(PREFILL_EXECUTOR_NAME,
+          GlideExecutor.UncaughtThrowableStrategy.DEFAULT);
+    }
+    if (predictedPreFill != null) {
+      predictedPreFill.cancel(true /*mayInterruptIfRunning*/);
+    }
+    predictedPreFill = predictionExecutor.submit(new Runnable() {
+      @Override
+      public void run() {
+        List<PreFillType> types = histogram.load();
+        if (types.isEmpty()) {
+          return;
+        }
+        PreFillQueue allocationOrder = generatePoolAllocationOrder(
+            types.toArray(new PreFillType[types.size()]));
+        if (allocationOrder.isEmpty()) {
+          return;
+        }
+        try {
+          new BitmapPreFillRunner(bitmapPool, allocationOrder).runOnCurrentThread();
+        } catch (InterruptedException e) {
+          // Cancelled.
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+  }
+
+  /**
+   * Stops any pre-fills that are in progress. {@link android.graphics.Bitmap Bitmaps} that were
+   * already allocated are left in the pool and memory cache.
+   */
+  public synchronized void cancel() {
+    if (current != null) {
+      current.cancel();
+      current = null;
+    }
+    if (predictedPreFill != null) {
+      predictedPreFill.cancel(true /*mayInterruptIfRunning*/);
+      predictedPreFill = null;
+    }
+  }
+
   // Visible for testing.
   PreFillQueue generateAllocationOrder(PreFillType... preFillSizes) {
     final int maxSize =
         memoryCache.getMaxSize() - memoryCache.getCurrentSize() + bitmapPool.getMaxSize();
+    return generateAllocationOrder(maxSize, false /*capToWeights*/, preFillSizes);
+  }
 
+  /**
+   * Returns the order in which to allocate {@link android.graphics.Bitmap Bitmaps} for the given
+   * types to fill only the pool, with at most as many of each type as its weight.
+   */
+  // Visible for testing.
+  PreFillQueue generatePoolAllocationOrder(PreFillType... preFillSizes) {
+    return generateAllocationOrder(bitmapPool.getMaxSize(), true /*capToWeights*/, preFillSizes);
+  }
+
+  private PreFillQueue generateAllocationOrder(int maxSize, boolean capToWeights,
+      PreFillType... preFillSizes) {
     int totalWeight = 0;
     for (PreFillType size : preFillSizes) {
       totalWeight += size.getWeight();
@@ -67,6 +142,12 @@ public final class BitmapPreFiller {
       int bytesForSize = Math.round(bytesPerWeight * size.getWeight());
       int bytesPerBitmap = getSizeInBytes(size);
       int bitmapsForSize = bytesForSize / bytesPerBitmap;
+      if (capToWeights) {
+        bitmapsForSize = Math.min(bitmapsForSize, size.getWeight());
+        if (bitmapsForSize == 0) {
+          continue;
+        }
+      }
       attributeToCount.put(size, bitmapsForSize);
     }
 
@@ -0,0 +1,233 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Records the dimensions and {@link android.graphics.Bitmap.Config}s of the first
+ * {@link android.graphics.Bitmap}s decoded after an application starts and saves them to a file,
+ * so that the next time the same version of the application starts, the
+ * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} can be pre-filled with
+ * {@link android.graphics.Bitmap}s those decodes can re-use.
+ *
+ * <p>The histogram is saved once {@link #MAX_RECORDED_DECODES} decodes have been recorded, or
+ * earlier, when the application's UI is hidden, for applications whose first screens decode fewer
+ * {@link android.graphics.Bitmap}s. See {@link #trimMemory(int)}.
+ *
+ * <p>Histograms saved by other versions of the application are ignored, since layouts, and
+ * therefore decode sizes, are likely to have changed.
+ */
+public final class DecodeSizeHistogram {
+  private static final String TAG = "DecodeSizeHistogram";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  /**
+   * The default name of the file in the application's cache directory that histograms are saved
+   * to.
+   */
+  public static final String DEFAULT_FILE_NAME = "glide_decode_sizes";
+  // Roughly the number of decodes needed to show an application's first screens.
+  static final int MAX_RECORDED_DECODES = 64;
+  private static final int MAX_TYPES = 16;
+
+  private final File file;
+  private final String appVersion;
+  private final Executor saveExecutor;
+  private final Map<PreFillType, Integer> counts = new LinkedHashMap<>();
+  private final Object saveLock = new Object();
+  private final Runnable saveRunnable = new Runnable() {
+    @Override
+    public void run() {
+      save();
+    }
+  };
+  private int recordedDecodes;
+  private int savedDecodes;
+
+  /**
+   * Creates a histogram saved to {@link #DEFAULT_FILE_NAME} in the application's cache directory
+   * and keyed by the application's version code.
+   *
+   * <p>The given executor must accept plain {@link Runnable}s, so it can't be one of the
+   * prioritized executors Glide runs loads on. See
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor#newDiskBackgroundExecutor}.
+   *
+   * @param saveExecutor The executor the histogram is written to disk on.
+   */
+  public DecodeSizeHistogram(Context context, Executor saveExecutor) {
+    this(new File(context.getCacheDir(), DEFAULT_FILE_NAME), getAppVersion(context),
+        saveExecutor);
+  }
+
+  // Visible for testing.
+  DecodeSizeHistogram(File file, String appVersion, Executor saveExecutor) {
+    this.file = file;
+    this.appVersion = appVersion;
+    this.saveExecutor = saveExecutor;
+  }
+
+  /**
+   * Records a decoded {@link android.graphics.Bitmap}, and saves the histogram once enough decodes
+   * have been recorded.
+   */
+  public void record(int width, int height, @Nullable Bitmap.Config config) {
+    // Bitmaps with non public configs can't be pre-filled.
+    if (config == null || width <= 0 || height <= 0) {
+      return;
+    }
+    boolean shouldSave;
+    synchronized (this) {
+      if (recordedDecodes >= MAX_RECORDED_DECODES) {
+        return;
+      }
+      recordedDecodes++;
+      PreFillType type = new PreFillType(width, height, config, 1 /*weight*/);
+      Integer count = counts.get(type);
+      counts.put(type, count == null ? 1 : count + 1);
+      shouldSave = recordedDecodes == MAX_RECORDED_DECODES;
+    }
+    if (shouldSave) {
+      saveExecutor.execute(saveRunnable);
+    }
+  }
+
+  /**
+   * Saves the decodes recorded so far if the application's UI was hidden and they haven't been
+   * saved yet, so that applications that decode fewer than {@link #MAX_RECORDED_DECODES}
+   * {@link android.graphics.Bitmap}s still get a histogram.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  public void trimMemory(int level) {
+    if (level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      return;
+    }
+    synchronized (this) {
+      if (recordedDecodes == savedDecodes) {
+        return;
+      }
+    }
+    saveExecutor.execute(saveRunnable);
+  }
+
+  /**
+   * Returns the most frequently decoded types saved by a previous run of the same version of the
+   * application, weighted by the number of times each was decoded, or an empty list if there
+   * isn't one.
+   *
+   * <p>Reads from disk, so must not be called on the main thread.
+   */
+  List<PreFillType> load() {
+    List<PreFillType> result = new ArrayList<>();
+    if (!file.exists()) {
+      return result;
+    }
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+      if (!appVersion.equals(reader.readLine())) {
+        return result;
+      }
+      String line;
+      while ((line = reader.readLine()) != null && result.size() < MAX_TYPES) {
+        String[] parts = line.split(",");
+        result.add(new PreFillType(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+            Bitmap.Config.valueOf(parts[2]), Integer.parseInt(parts[3])));
+      }
+    } catch (IOException | RuntimeException e) {
+      // Includes malformed lines and configs that don't exist on this version of Android.
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Failed to load decode size histogram", e);
+      }
+      result.clear();
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+    }
+    return result;
+  }
+
+  private static String getAppVersion(Context context) {
+    try {
+      return String.valueOf(
+          context.getPackageManager().getPackageInfo(context.getPackageName(), 0).versionCode);
+    } catch (PackageManager.NameNotFoundException e) {
+      // Should never happen, and an empty version only means saved histograms won't be ignored.
+      return "";
+    }
+  }
+
+  // Visible for testing.
+  void save() {
+    // Saves may be started by both record and trimMemory.
+    synchronized (saveLock) {
+      List<Map.Entry<PreFillType, Integer>> entries;
+      synchronized (this) {
+        // Copied so that decodes recorded while saving don't change the counts being written.
+        entries = new ArrayList<>(new LinkedHashMap<>(counts).entrySet());
+        savedDecodes = recordedDecodes;
+      }
+      Collections.sort(entries, new Comparator<Map.Entry<PreFillType, Integer>>() {
+        @Override
+        public int compare(Map.Entry<PreFillType, Integer> lhs,
+            Map.Entry<PreFillType, Integer> rhs) {
+          return rhs.getValue() - lhs.getValue();
+        }
+      });
+
+      File temp = new File(file.getPath() + ".tmp");
+      Writer writer = null;
+      try {
+        writer = new OutputStreamWriter(new FileOutputStream(temp), UTF_8);
+        writer.write(appVersion);
+        writer.write('\n');
+        for (int i = 0; i < entries.size() && i < MAX_TYPES; i++) {
+          PreFillType type = entries.get(i).getKey();
+          writer.write(type.getWidth() + "," + type.getHeight() + "," + type.getConfig() + ","
+              + entries.get(i).getValue() + "\n");
+        }
+        writer.close();
+        writer = null;
+        if (!temp.renameTo(file) && Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Failed to rename decode size histogram to: " + file);
+        }
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Failed to save decode size histogram", e);
+        }
+      } finally {
+        if (writer != null) {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            // Ignored.
+          }
+        }
+      }
+    }
+  }
+}
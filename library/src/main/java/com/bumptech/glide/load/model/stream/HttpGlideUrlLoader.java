@@ -4,6 +4,7 @@ import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Option;
 import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.data.HttpUrlFetcher;
+import com.bumptech.glide.load.data.PartialDownloadStore;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.load.model.ModelCache;
 import com.bumptech.glide.load.model.ModelLoader;
@@ -26,13 +27,23 @@ public class HttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
       "com.bumptech.glide.load.model.stream.HttpGlideUrlLoader.Timeout", 2500);
 
   @Nullable private final ModelCache<GlideUrl, GlideUrl> modelCache;
+  @Nullable private final PartialDownloadStore partialDownloadStore;
 
   public HttpGlideUrlLoader() {
     this(null);
   }
 
   public HttpGlideUrlLoader(ModelCache<GlideUrl, GlideUrl> modelCache) {
+    this(modelCache, null /*partialDownloadStore*/);
+  }
+
+  /**
+   * @param partialDownloadStore An optional store used to resume interrupted downloads.
+   */
+  public HttpGlideUrlLoader(@Nullable ModelCache<GlideUrl, GlideUrl> modelCache,
+      @Nullable PartialDownloadStore partialDownloadStore) {
     this.modelCache = modelCache;
+    this.partialDownloadStore = partialDownloadStore;
   }
 
   @Override
@@ -49,7 +60,7 @@ public class HttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
       }
     }
     int timeout = options.get(TIMEOUT);
-    return new LoadData<>(url, new HttpUrlFetcher(url, timeout));
+    return new LoadData<>(url, new HttpUrlFetcher(url, timeout, partialDownloadStore));
   }
 
   @Override
@@ -62,10 +73,23 @@ public class HttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
    */
   public static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
     private final ModelCache<GlideUrl, GlideUrl> modelCache = new ModelCache<>(500);
+    @Nullable private final PartialDownloadStore partialDownloadStore;
+
+    public Factory() {
+      this(null /*partialDownloadStore*/);
+    }
+
+    /**
+     * @param partialDownloadStore An optional store used to keep the data of interrupted downloads
+     *                             so that they can be resumed by later loads.
+     */
+    public Factory(@Nullable PartialDownloadStore partialDownloadStore) {
+      this.partialDownloadStore = partialDownloadStore;
+    }
 
     @Override
     public ModelLoader<GlideUrl, InputStream> build(MultiModelLoaderFactory multiFactory) {
-      return new HttpGlideUrlLoader(modelCache);
+      return new HttpGlideUrlLoader(modelCache, partialDownloadStore);
     }
 
     @Override
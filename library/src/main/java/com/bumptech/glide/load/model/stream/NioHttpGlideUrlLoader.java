@@ -0,0 +1,65 @@
+package com.bumptech.glide.load.model.stream;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.NioHttpClient;
+import com.bumptech.glide.load.data.NioHttpUrlFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import java.io.InputStream;
+
+/**
+ * A {@link com.bumptech.glide.load.model.ModelLoader} for translating plain http
+ * {@link com.bumptech.glide.load.model.GlideUrl}s into {@link java.io.InputStream} data using a
+ * {@link NioHttpClient}, so that waiting on the network doesn't occupy a source thread.
+ *
+ * <p>Urls with other protocols, including https, aren't handled. To use this loader for http
+ * urls while keeping the default loader for everything else, prepend its factory:
+ * {@code registry.prepend(GlideUrl.class, InputStream.class, new NioHttpGlideUrlLoader.Factory())}.
+ * Loads that are redirected to https fail and fall back to the next registered loader.
+ */
+public class NioHttpGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
+  private final NioHttpClient client;
+
+  public NioHttpGlideUrlLoader(NioHttpClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public LoadData<InputStream> buildLoadData(GlideUrl model, int width, int height,
+      Options options) {
+    int timeout = options.get(HttpGlideUrlLoader.TIMEOUT);
+    return new LoadData<>(model, new NioHttpUrlFetcher(client, model, timeout));
+  }
+
+  @Override
+  public boolean handles(GlideUrl model) {
+    return model.toStringUrl().regionMatches(true /*ignoreCase*/, 0, "http:", 0, 5);
+  }
+
+  /**
+   * The default factory for {@link NioHttpGlideUrlLoader}s.
+   */
+  public static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
+    private final NioHttpClient client;
+
+    public Factory() {
+      this(new NioHttpClient());
+    }
+
+    public Factory(NioHttpClient client) {
+      this.client = client;
+    }
+
+    @Override
+    public ModelLoader<GlideUrl, InputStream> build(MultiModelLoaderFactory multiFactory) {
+      return new NioHttpGlideUrlLoader(client);
+    }
+
+    @Override
+    public void teardown() {
+      client.shutdown();
+    }
+  }
+}
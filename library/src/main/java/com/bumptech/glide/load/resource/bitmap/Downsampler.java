@@ -15,6 +15,7 @@ import com.bumptech.glide.load.Options;
 import com.bumptech.glide.load.engine.Resource;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.prefill.DecodeSizeHistogram;
 import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy.SampleSizeRounding;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.util.Preconditions;
@@ -103,13 +104,26 @@ public final class Downsampler {
   private final DisplayMetrics displayMetrics;
   private final ArrayPool byteArrayPool;
   private final List<ImageHeaderParser> parsers;
+  @Nullable private final DecodeSizeHistogram decodeSizeHistogram;
 
   public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
       BitmapPool bitmapPool, ArrayPool byteArrayPool) {
+    this(parsers, displayMetrics, bitmapPool, byteArrayPool, null /*decodeSizeHistogram*/);
+  }
+
+  /**
+   * @param decodeSizeHistogram Records the dimensions and configs of decoded Bitmaps so that the
+   *                            pool can be pre-filled with them the next time the application
+   *                            starts, or null.
+   */
+  public Downsampler(List<ImageHeaderParser> parsers, DisplayMetrics displayMetrics,
+      BitmapPool bitmapPool, ArrayPool byteArrayPool,
+      @Nullable DecodeSizeHistogram decodeSizeHistogram) {
     this.parsers = parsers;
     this.displayMetrics = Preconditions.checkNotNull(displayMetrics);
     this.bitmapPool = Preconditions.checkNotNull(bitmapPool);
     this.byteArrayPool = Preconditions.checkNotNull(byteArrayPool);
+    this.decodeSizeHistogram = decodeSizeHistogram;
   }
 
   public boolean handles(InputStream is) {
@@ -242,6 +256,10 @@ public final class Downsampler {
     }
     Bitmap downsampled = decodeStream(is, options, callbacks, bitmapPool);
     callbacks.onDecodeComplete(bitmapPool, downsampled);
+    if (decodeSizeHistogram != null && downsampled != null) {
+      decodeSizeHistogram.record(
+          downsampled.getWidth(), downsampled.getHeight(), downsampled.getConfig());
+    }
 
     if (Log.isLoggable(TAG, Log.VERBOSE)) {
       logDecode(sourceWidth, sourceHeight, sourceMimeType, options, downsampled,
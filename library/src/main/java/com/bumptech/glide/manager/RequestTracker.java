@@ -42,8 +42,11 @@ public class RequestTracker {
     }
   }
 
-  // Visible for testing.
-  void addRequest(Request request) {
+  /**
+   * Starts tracking the given request without beginning it, for requests that have already been
+   * begun elsewhere.
+   */
+  public void addRequest(Request request) {
     requests.add(request);
   }
 
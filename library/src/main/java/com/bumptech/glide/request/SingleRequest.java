@@ -38,7 +38,8 @@ public final class SingleRequest<R> implements Request,
   private static final String TAG = "Request";
   /** Tag for logging externally useful events (request completion, timing etc). */
   private static final String GLIDE_TAG = "Glide";
-  private static final Pools.Pool<SingleRequest<?>> POOL = FactoryPools.simple(150,
+  // Requests for futures may be obtained off of the main thread when concurrent loads are allowed.
+  private static final Pools.Pool<SingleRequest<?>> POOL = FactoryPools.threadSafe(150,
       new FactoryPools.Factory<SingleRequest<?>>() {
         @Override
         public SingleRequest<?> create() {
@@ -0,0 +1,303 @@
+package com.bumptech.glide.util;
+
+import android.support.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size limited cache with the same API as {@link LruCache} that can be read concurrently without
+ * locking.
+ *
+ * <p>Entries are stored in a {@link ConcurrentHashMap}. Reads don't reorder the eviction queue
+ * directly. Instead they're recorded in striped, lossy ring buffers that are replayed against the
+ * queue while holding a lock, either by a writer or by a reader that fills its buffer and manages
+ * to acquire the lock without waiting. Writes and evictions are serialized by the same lock.
+ * Because recorded reads may be dropped when buffers are full or replayed out of order, eviction
+ * order approximates LRU rather than following it exactly.
+ *
+ * @param <T> The type of the keys.
+ * @param <Y> The type of the values.
+ */
+public class ConcurrentLruCache<T, Y> {
+  private static final int MAX_STRIPES = 16;
+  private static final int READ_BUFFER_SIZE = 32;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+  private final ConcurrentHashMap<T, Node<T, Y>> cache = new ConcurrentHashMap<>(100, 0.75f);
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ReadBuffer<T, Y>[] readBuffers;
+  private final int stripeMask;
+  // The sentinel of the circular eviction queue, head.next is the least recently used entry.
+  private final Node<T, Y> head = new Node<>(null, null, 0);
+  private final int initialMaxSize;
+  private volatile int maxSize;
+  private volatile int currentSize;
+
+  /**
+   * Constructor for ConcurrentLruCache.
+   *
+   * @param size The maximum size of the cache, the units must match the units used in {@link
+   *             #getSize(Object)}.
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentLruCache(int size) {
+    this.initialMaxSize = size;
+    this.maxSize = size;
+    int stripes = Math.min(MAX_STRIPES,
+        Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+    readBuffers = new ReadBuffer[stripes];
+    for (int i = 0; i < stripes; i++) {
+      readBuffers[i] = new ReadBuffer<>();
+    }
+    stripeMask = stripes - 1;
+    head.prev = head;
+    head.next = head;
+  }
+
+  /**
+   * Sets a size multiplier that will be applied to the size provided in the constructor to put the
+   * new size of the cache. If the new size is less than the current size, entries will be evicted
+   * until the current size is less than or equal to the new size.
+   *
+   * @param multiplier The multiplier to apply.
+   */
+  public void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    evictionLock.lock();
+    try {
+      maxSize = Math.round(initialMaxSize * multiplier);
+      trimToSizeLocked(maxSize);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the size of a given item, defaulting to one. The units must match those used in the
+   * size passed in to the constructor. Subclasses can override this method to return sizes in
+   * various units, usually bytes.
+   *
+   * @param item The item to get the size of.
+   */
+  protected int getSize(Y item) {
+    return 1;
+  }
+
+  /**
+   * A callback called whenever an item is evicted from the cache. Subclasses can override.
+   *
+   * <p>Called while holding the cache's eviction lock.
+   *
+   * @param key  The key of the evicted item.
+   * @param item The evicted item.
+   */
+  protected void onItemEvicted(T key, Y item) {
+    // optional override
+  }
+
+  /**
+   * Returns the current maximum size of the cache.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the sum of the sizes of all items in the cache.
+   */
+  public int getCurrentSize() {
+    return currentSize;
+  }
+
+  /**
+   * Returns true if there is a value for the given key in the cache.
+   *
+   * @param key The key to check.
+   */
+  public boolean contains(T key) {
+    return cache.containsKey(key);
+  }
+
+  /**
+   * Returns the item in the cache for the given key or null if no such item exists.
+   *
+   * @param key The key to check.
+   */
+  @Nullable
+  public Y get(T key) {
+    Node<T, Y> node = cache.get(key);
+    if (node == null) {
+      return null;
+    }
+    recordRead(node);
+    return node.value;
+  }
+
+  /**
+   * Adds the given item to the cache with the given key and returns any previous entry for the
+   * given key that may have already been in the cache.
+   *
+   * <p> If the size of the item is larger than the total cache size, the item will not be added to
+   * the cache and instead {@link #onItemEvicted(Object, Object)} will be called synchronously with
+   * the given key and item. </p>
+   *
+   * @param key  The key to add the item at.
+   * @param item The item to add.
+   */
+  @Nullable
+  public Y put(T key, Y item) {
+    final int itemSize = getSize(item);
+    evictionLock.lock();
+    try {
+      if (itemSize >= maxSize) {
+        onItemEvicted(key, item);
+        return null;
+      }
+      drainReadBuffers();
+      Node<T, Y> node = new Node<>(key, item, itemSize);
+      Node<T, Y> previous = cache.put(key, node);
+      linkLast(node);
+      currentSize += itemSize;
+      if (previous != null) {
+        unlink(previous);
+        currentSize -= previous.size;
+      }
+      trimToSizeLocked(maxSize);
+      return previous != null ? previous.value : null;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Removes the item at the given key and returns the removed item if present, and null otherwise.
+   *
+   * @param key The key to remove the item at.
+   */
+  @Nullable
+  public Y remove(T key) {
+    evictionLock.lock();
+    try {
+      Node<T, Y> node = cache.remove(key);
+      if (node == null) {
+        return null;
+      }
+      unlink(node);
+      currentSize -= node.size;
+      return node.value;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Clears all items in the cache.
+   */
+  public void clearMemory() {
+    trimToSize(0);
+  }
+
+  /**
+   * Removes the least recently used items from the cache until the current size is less than the
+   * given size.
+   *
+   * @param size The size the cache should be less than.
+   */
+  protected void trimToSize(int size) {
+    evictionLock.lock();
+    try {
+      drainReadBuffers();
+      trimToSizeLocked(size);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void trimToSizeLocked(int size) {
+    while (currentSize > size) {
+      Node<T, Y> eldest = head.next;
+      cache.remove(eldest.key, eldest);
+      unlink(eldest);
+      currentSize -= eldest.size;
+      onItemEvicted(eldest.key, eldest.value);
+    }
+  }
+
+  private void recordRead(Node<T, Y> node) {
+    ReadBuffer<T, Y> buffer =
+        readBuffers[(int) Thread.currentThread().getId() & stripeMask];
+    long count = buffer.writeCount.getAndIncrement();
+    // Lossy, a slot that hasn't been drained yet is overwritten.
+    buffer.nodes.lazySet((int) (count & READ_BUFFER_MASK), node);
+    if ((count & (DRAIN_THRESHOLD - 1)) == DRAIN_THRESHOLD - 1 && evictionLock.tryLock()) {
+      try {
+        drainReadBuffer(buffer);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void drainReadBuffers() {
+    for (ReadBuffer<T, Y> buffer : readBuffers) {
+      drainReadBuffer(buffer);
+    }
+  }
+
+  private void drainReadBuffer(ReadBuffer<T, Y> buffer) {
+    for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+      Node<T, Y> node = buffer.nodes.get(i);
+      if (node != null && buffer.nodes.compareAndSet(i, node, null) && node.isLinked()) {
+        unlink(node);
+        linkLast(node);
+      }
+    }
+  }
+
+  private void linkLast(Node<T, Y> node) {
+    node.prev = head.prev;
+    node.next = head;
+    head.prev.next = node;
+    head.prev = node;
+  }
+
+  private static <T, Y> void unlink(Node<T, Y> node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
+  }
+
+  private static final class Node<T, Y> {
+    final T key;
+    final Y value;
+    final int size;
+    // Guarded by the eviction lock.
+    Node<T, Y> prev;
+    Node<T, Y> next;
+
+    @Synthetic
+    Node(T key, Y value, int size) {
+      this.key = key;
+      this.value = value;
+      this.size = size;
+    }
+
+    boolean isLinked() {
+      return next != null;
+    }
+  }
+
+  private static final class ReadBuffer<T, Y> {
+    final AtomicLong writeCount = new AtomicLong();
+    final AtomicReferenceArray<Node<T, Y>> nodes = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+    @Synthetic
+    ReadBuffer() { }
+  }
+}
@@ -3,6 +3,7 @@ package com.bumptech.glide;
 import static com.bumptech.glide.request.RequestOptions.decodeTypeOf;
 import static com.bumptech.glide.request.RequestOptions.errorOf;
 import static com.bumptech.glide.request.RequestOptions.placeholderOf;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
@@ -54,6 +55,7 @@ import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.SizeReadyCallback;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.tests.BackgroundUtil;
 import com.bumptech.glide.tests.GlideShadowLooper;
 import com.bumptech.glide.tests.Util;
 import com.bumptech.glide.testutil.TestResourceUtil;
@@ -66,6 +68,8 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -81,6 +85,7 @@ import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.Resetter;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ShadowBitmap;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.shadows.ShadowPackageManager;
 
 /**
@@ -151,6 +156,33 @@ public class GlideTest {
     verify(bitmapPool).setSizeMultiplier(eq(memoryCategory.getMultiplier()));
   }
 
+  @Test
+  public void testSubmitOnBackgroundThreadCompletesWhileMainLooperIsPausedIfConcurrentLoadAllowed()
+      throws Exception {
+    GlideExecutor executor = MockGlideExecutor.newMainThreadExecutor();
+    DiskCache.Factory diskCacheFactory = mock(DiskCache.Factory.class);
+    when(diskCacheFactory.build()).thenReturn(mock(DiskCache.class));
+    Glide glide = new GlideBuilder().setMemoryCache(mock(MemoryCache.class))
+        .setDiskCache(diskCacheFactory).setResizeExecutor(executor).setDiskCacheExecutor(executor)
+        .setIsConcurrentLoadAllowed(true)
+        .build(getContext());
+    final RequestManager manager =
+        new RequestManager(glide, mock(Lifecycle.class), mock(RequestManagerTreeNode.class));
+    final File file = new File("fake");
+    final AtomicReference<File> result = new AtomicReference<>();
+
+    ShadowLooper.pauseMainLooper();
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() throws Exception {
+        result.set(manager.asFile().load(file).submit().get(10, TimeUnit.SECONDS));
+      }
+    });
+    ShadowLooper.unPauseMainLooper();
+
+    assertEquals(file, result.get());
+  }
+
   @Test
   public void testClearMemory() {
     BitmapPool bitmapPool = mock(BitmapPool.class);
@@ -10,10 +10,12 @@ import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.load.model.Headers;
 import com.bumptech.glide.testutil.TestUtil;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -28,6 +30,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 /**
@@ -230,10 +233,137 @@ public class HttpUrlFetcherServerTest {
     assertThat(mockWebServer.takeRequest().getHeader(headerField)).isEqualTo(headerValue);
   }
 
+  @Test
+  public void testResumesInterruptedDownloadWithRangeRequest() throws Exception {
+    PartialDownloadStore store = getPartialDownloadStore();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata")
+        .setHeader("ETag", "\"etag\"").setHeader("Accept-Ranges", "bytes"));
+    interruptDownloadAfter(4, store);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(206).setBody("data")
+        .setHeader("Content-Range", "bytes 4-7/8"));
+    HttpUrlFetcher fetcher = getFetcher(store);
+    fetcher.loadData(Priority.HIGH, callback);
+    verify(callback).onDataReady(streamCaptor.capture());
+    TestUtil.assertStreamOf("fakedata", streamCaptor.getValue());
+    fetcher.cleanup();
+
+    mockWebServer.takeRequest();
+    RecordedRequest resumed = mockWebServer.takeRequest();
+    assertThat(resumed.getHeader("Range")).isEqualTo("bytes=4-");
+    assertThat(resumed.getHeader("If-Range")).isEqualTo("\"etag\"");
+  }
+
+  @Test
+  public void testReturnsWholeResourceIfServerIgnoresRange() throws Exception {
+    PartialDownloadStore store = getPartialDownloadStore();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata")
+        .setHeader("ETag", "\"etag\"").setHeader("Accept-Ranges", "bytes"));
+    interruptDownloadAfter(4, store);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("newdata"));
+    HttpUrlFetcher fetcher = getFetcher(store);
+    fetcher.loadData(Priority.HIGH, callback);
+    verify(callback).onDataReady(streamCaptor.capture());
+    TestUtil.assertStreamOf("newdata", streamCaptor.getValue());
+  }
+
+  @Test
+  public void testDoesNotResumeDownloadWithoutValidator() throws Exception {
+    PartialDownloadStore store = getPartialDownloadStore();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata")
+        .setHeader("Accept-Ranges", "bytes"));
+    interruptDownloadAfter(4, store);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata"));
+    getFetcher(store).loadData(Priority.HIGH, callback);
+
+    mockWebServer.takeRequest();
+    assertThat(mockWebServer.takeRequest().getHeader("Range")).isNull();
+  }
+
+  @Test
+  public void testDoesNotResumeSmallDownloadWithoutAcceptRanges() throws Exception {
+    PartialDownloadStore store = getPartialDownloadStore();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata")
+        .setHeader("ETag", "\"etag\""));
+    interruptDownloadAfter(4, store);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata"));
+    getFetcher(store).loadData(Priority.HIGH, callback);
+
+    mockWebServer.takeRequest();
+    assertThat(mockWebServer.takeRequest().getHeader("Range")).isNull();
+  }
+
+  @Test
+  public void testResumesLargeDownloadWithoutAcceptRanges() throws Exception {
+    PartialDownloadStore store = getPartialDownloadStore();
+    char[] body = new char[HttpUrlFetcher.MIN_RECORDED_CONTENT_LENGTH];
+    Arrays.fill(body, 'a');
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(new String(body))
+        .setHeader("ETag", "\"etag\""));
+    interruptDownloadAfter(4, store);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(206)
+        .setBody(new String(body, 4, body.length - 4))
+        .setHeader("Content-Range", "bytes 4-" + (body.length - 1) + "/" + body.length));
+    HttpUrlFetcher fetcher = getFetcher(store);
+    fetcher.loadData(Priority.HIGH, callback);
+    verify(callback).onDataReady(streamCaptor.capture());
+    TestUtil.assertStreamOf(new String(body), streamCaptor.getValue());
+    fetcher.cleanup();
+
+    mockWebServer.takeRequest();
+    assertThat(mockWebServer.takeRequest().getHeader("Range")).isEqualTo("bytes=4-");
+  }
+
+  @Test
+  public void testDoesNotResumeDownloadRemovedToStayUnderMaxSize() throws Exception {
+    PartialDownloadStore store = new PartialDownloadStore(
+        new File(RuntimeEnvironment.application.getCacheDir(), "small_partial_downloads"),
+        1 /*maxSize*/);
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata")
+        .setHeader("ETag", "\"etag\"").setHeader("Accept-Ranges", "bytes"));
+    interruptDownloadAfter(4, store);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("fakedata"));
+    getFetcher(store).loadData(Priority.HIGH, callback);
+
+    mockWebServer.takeRequest();
+    assertThat(mockWebServer.takeRequest().getHeader("Range")).isNull();
+  }
+
+  private void interruptDownloadAfter(int bytes, PartialDownloadStore store) throws IOException {
+    @SuppressWarnings("unchecked")
+    DataFetcher.DataCallback<InputStream> interruptedCallback =
+        mock(DataFetcher.DataCallback.class);
+    HttpUrlFetcher fetcher = getFetcher(store);
+    fetcher.loadData(Priority.HIGH, interruptedCallback);
+    verify(interruptedCallback).onDataReady(streamCaptor.capture());
+    InputStream is = streamCaptor.getValue();
+    for (int i = 0; i < bytes; i++) {
+      is.read();
+    }
+    fetcher.cancel();
+    fetcher.cleanup();
+  }
+
+  private static PartialDownloadStore getPartialDownloadStore() {
+    return new PartialDownloadStore(
+        new File(RuntimeEnvironment.application.getCacheDir(), "partial_downloads"));
+  }
+
   private HttpUrlFetcher getFetcher() {
     return getFetcher(Headers.DEFAULT);
   }
 
+  private HttpUrlFetcher getFetcher(PartialDownloadStore store) {
+    URL url = mockWebServer.url(DEFAULT_PATH).url();
+    return new HttpUrlFetcher(new GlideUrl(url), TIMEOUT_TIME_MS,
+        HttpUrlFetcher.DEFAULT_CONNECTION_FACTORY, store);
+  }
+
   private HttpUrlFetcher getFetcher(Headers headers) {
     URL url = mockWebServer.url(DEFAULT_PATH).url();
     return new HttpUrlFetcher(new GlideUrl(url, headers), TIMEOUT_TIME_MS,
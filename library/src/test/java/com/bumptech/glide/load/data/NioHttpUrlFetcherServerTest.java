@@ -0,0 +1,153 @@
+package com.bumptech.glide.load.data;
+
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.testutil.TestUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Tests {@link com.bumptech.glide.load.data.NioHttpUrlFetcher} against server responses.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class NioHttpUrlFetcherServerTest {
+  private static final String DEFAULT_PATH = "/fakepath";
+  private static final int TIMEOUT_TIME_MS = 300;
+  private static final int VERIFY_TIMEOUT_MS = 1000;
+
+  @Mock DataFetcher.DataCallback<InputStream> callback;
+
+  private MockWebServer mockWebServer;
+  private NioHttpClient client;
+  private ArgumentCaptor<InputStream> streamCaptor;
+
+  @Before
+  public void setUp() throws IOException {
+    MockitoAnnotations.initMocks(this);
+    mockWebServer = new MockWebServer();
+    mockWebServer.start();
+    client = new NioHttpClient();
+    streamCaptor = ArgumentCaptor.forClass(InputStream.class);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.shutdown();
+    mockWebServer.shutdown();
+  }
+
+  @Test
+  public void testReturnsInputStreamOnStatusOk() throws Exception {
+    String expected = "fakedata";
+    mockWebServer.enqueue(new MockResponse().setBody(expected).setResponseCode(200));
+    getFetcher().loadData(Priority.HIGH, callback);
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onDataReady(streamCaptor.capture());
+    TestUtil.assertStreamOf(expected, streamCaptor.getValue());
+  }
+
+  @Test
+  public void testReturnsInputStreamForChunkedBody() throws Exception {
+    String expected = "fakedata that spans several chunks";
+    mockWebServer.enqueue(new MockResponse().setChunkedBody(expected, 5 /*maxChunkSize*/));
+    getFetcher().loadData(Priority.HIGH, callback);
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onDataReady(streamCaptor.capture());
+    TestUtil.assertStreamOf(expected, streamCaptor.getValue());
+  }
+
+  @Test
+  public void testHandlesRedirects() throws Exception {
+    String expected = "fakedata";
+    String redirectUrl = mockWebServer.url("/redirect").toString();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(302).setHeader("Location", redirectUrl));
+    mockWebServer.enqueue(new MockResponse().setBody(expected).setResponseCode(200));
+    getFetcher().loadData(Priority.HIGH, callback);
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onDataReady(streamCaptor.capture());
+    TestUtil.assertStreamOf(expected, streamCaptor.getValue());
+  }
+
+  @Test
+  public void testReturnsInputStreamsForManyRequests() throws Exception {
+    int requestCount = 5;
+    List<DataFetcher.DataCallback<InputStream>> callbacks = new ArrayList<>();
+    for (int i = 0; i < requestCount; i++) {
+      mockWebServer.enqueue(new MockResponse().setBody("fakedata").setResponseCode(200));
+    }
+    for (int i = 0; i < requestCount; i++) {
+      @SuppressWarnings("unchecked") DataFetcher.DataCallback<InputStream> requestCallback =
+          mock(DataFetcher.DataCallback.class);
+      callbacks.add(requestCallback);
+      getFetcher().loadData(Priority.HIGH, requestCallback);
+    }
+
+    for (DataFetcher.DataCallback<InputStream> requestCallback : callbacks) {
+      verify(requestCallback, timeout(VERIFY_TIMEOUT_MS)).onDataReady(streamCaptor.capture());
+      TestUtil.assertStreamOf("fakedata", streamCaptor.getValue());
+    }
+  }
+
+  @Test
+  public void testFailsIfRedirectedToUnsupportedProtocol() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(301)
+        .setHeader("Location", "https://www.google.com/fake"));
+    getFetcher().loadData(Priority.HIGH, callback);
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onLoadFailed(isA(IOException.class));
+  }
+
+  @Test
+  public void testFailsIfStatusCodeIs500() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+    getFetcher().loadData(Priority.HIGH, callback);
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onLoadFailed(isA(IOException.class));
+  }
+
+  @Test
+  public void testFailsIfContentLengthIsLargerThanMaxBodySize() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200)
+        .setHeader("Content-Length", NioHttpClient.MAX_BODY_SIZE + 1));
+    getFetcher().loadData(Priority.HIGH, callback);
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onLoadFailed(isA(IOException.class));
+  }
+
+  @Test
+  public void testFailsIfCancelled() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setBody("fakedata").setBodyDelay(
+        VERIFY_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    NioHttpUrlFetcher fetcher = getFetcher();
+    fetcher.loadData(Priority.HIGH, callback);
+    fetcher.cancel();
+
+    verify(callback, timeout(VERIFY_TIMEOUT_MS)).onLoadFailed(isA(IOException.class));
+  }
+
+  private NioHttpUrlFetcher getFetcher() {
+    return new NioHttpUrlFetcher(client, new GlideUrl(mockWebServer.url(DEFAULT_PATH).url()),
+        TIMEOUT_TIME_MS);
+  }
+}
@@ -0,0 +1,158 @@
+package com.bumptech.glide.load.engine;
+
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.load.Key;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ActiveResourcesTest {
+  private final Key key = mock(Key.class);
+  private final Map<Key, WeakReference<EngineResource<?>>> map = new HashMap<>();
+  private EngineResource.ResourceListener listener;
+  private ActiveResources activeResources;
+
+  @Before
+  public void setUp() {
+    listener = mock(EngineResource.ResourceListener.class);
+    activeResources = newActiveResources(true /*isActiveResourceRetentionAllowed*/);
+  }
+
+  @After
+  public void tearDown() {
+    activeResources.shutdown();
+  }
+
+  @Test
+  public void testGetReturnsActivatedResource() {
+    EngineResource<Object> engineResource = newEngineResource();
+    activeResources.activate(key, engineResource);
+
+    assertThat(activeResources.get(key)).isEqualTo(engineResource);
+  }
+
+  @Test
+  public void testGetReturnsNullForDeactivatedResource() {
+    activeResources.activate(key, newEngineResource());
+    activeResources.deactivate(key);
+
+    assertThat(activeResources.get(key)).isNull();
+  }
+
+  @Test
+  public void testGetRemovesClearedReference() {
+    activeResources.activate(key, newEngineResource());
+    map.get(key).clear();
+
+    assertThat(activeResources.get(key)).isNull();
+    assertThat(map).doesNotContainKey(key);
+  }
+
+  @Test
+  public void testDrainPendingRemovesAndCountsEnqueuedReference() {
+    activeResources.activate(key, newEngineResource());
+    map.get(key).enqueue();
+
+    activeResources.drainPending();
+
+    assertThat(map).doesNotContainKey(key);
+    assertThat(activeResources.getClearedReferenceCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testDrainPendingReturnsResourceToListenerIfRetentionAllowed() {
+    Resource<Object> resource = mockResource();
+    activeResources.activate(key, new EngineResource<>(resource, true /*isCacheable*/));
+    map.get(key).enqueue();
+
+    activeResources.drainPending();
+
+    ArgumentCaptor<EngineResource> captor = ArgumentCaptor.forClass(EngineResource.class);
+    verify(listener).onResourceReleased(eq(key), captor.capture());
+    assertThat(captor.getValue().getResource()).isEqualTo(resource);
+    assertThat(activeResources.getReclaimedResourceCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testDrainPendingDoesNotReturnResourceToListenerIfRetentionDisallowed() {
+    activeResources.shutdown();
+    activeResources = newActiveResources(false /*isActiveResourceRetentionAllowed*/);
+    activeResources.activate(key, newEngineResource());
+    map.get(key).enqueue();
+
+    activeResources.drainPending();
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    assertThat(activeResources.getClearedReferenceCount()).isEqualTo(1L);
+    assertThat(activeResources.getReclaimedResourceCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void testDrainPendingDoesNotReturnResourceToListenerIfKeyReactivated() {
+    activeResources.activate(key, newEngineResource());
+    WeakReference<EngineResource<?>> first = map.get(key);
+    EngineResource<Object> second = newEngineResource();
+    map.remove(key);
+    activeResources.activate(key, second);
+    first.enqueue();
+
+    activeResources.drainPending();
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+    assertThat(activeResources.get(key)).isEqualTo(second);
+  }
+
+  @Test
+  public void testDrainPendingDrainsAtMostMaxDrainedPerLoad() {
+    for (int i = 0; i < ActiveResources.MAX_DRAINED_PER_LOAD + 1; i++) {
+      Key current = mock(Key.class);
+      activeResources.activate(current, newEngineResource());
+      map.get(current).enqueue();
+    }
+
+    activeResources.drainPending();
+
+    assertThat(activeResources.getClearedReferenceCount())
+        .isEqualTo((long) ActiveResources.MAX_DRAINED_PER_LOAD);
+    assertThat(map).hasSize(1);
+  }
+
+  @Test
+  public void testDeactivatePreventsResourceFromBeingReclaimed() {
+    activeResources.activate(key, newEngineResource());
+    WeakReference<EngineResource<?>> ref = map.get(key);
+    activeResources.deactivate(key);
+    ref.enqueue();
+
+    activeResources.drainPending();
+
+    verify(listener, never()).onResourceReleased(any(Key.class), any(EngineResource.class));
+  }
+
+  private ActiveResources newActiveResources(boolean isActiveResourceRetentionAllowed) {
+    ActiveResources result = new ActiveResources(map, ActiveResourceDrainStrategy.IDLE_HANDLER,
+        isActiveResourceRetentionAllowed);
+    result.setListener(listener);
+    return result;
+  }
+
+  private static EngineResource<Object> newEngineResource() {
+    return new EngineResource<>(mockResource(), true /*isCacheable*/);
+  }
+}
@@ -3,6 +3,7 @@ package com.bumptech.glide.load.engine;
 import static com.bumptech.glide.tests.Util.anyResource;
 import static com.bumptech.glide.tests.Util.isADataSource;
 import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -12,19 +13,29 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.os.Handler;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.GlideContext;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
 import com.bumptech.glide.load.engine.executor.MockGlideExecutor;
 import com.bumptech.glide.request.ResourceCallback;
+import com.bumptech.glide.tests.BackgroundUtil;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -67,6 +78,99 @@ public class EngineJobTest {
     verify(harness.listener).onEngineJobComplete(eq(harness.key), eq(harness.engineResource));
   }
 
+  @Test
+  public void testNotifiesCallbackAddedOffMainThreadWithoutWaitingForMainThread()
+      throws InterruptedException {
+    final EngineJob<Object> job = harness.getConcurrentJob();
+    final ResourceCallback backgroundCb = mock(ResourceCallback.class);
+    ShadowLooper.pauseMainLooper();
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        job.addCallback(backgroundCb);
+        job.start(harness.decodeJob);
+        job.onResourceReady(harness.resource, harness.dataSource);
+      }
+    });
+
+    verify(backgroundCb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+    verify(harness.cb, never()).onResourceReady(anyResource(), isADataSource());
+
+    ShadowLooper.unPauseMainLooper();
+    ShadowLooper.runUiThreadTasks();
+    verify(harness.cb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+    verify(harness.listener).onEngineJobComplete(eq(harness.key), eq(harness.engineResource));
+  }
+
+  @Test
+  public void testNotifiesCallbackAddedOffMainThreadOfFailureWithoutWaitingForMainThread()
+      throws InterruptedException {
+    final EngineJob<Object> job = harness.getConcurrentJob();
+    final ResourceCallback backgroundCb = mock(ResourceCallback.class);
+    final GlideException exception = new GlideException("test");
+    ShadowLooper.pauseMainLooper();
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        job.addCallback(backgroundCb);
+        job.start(harness.decodeJob);
+        job.onLoadFailed(exception);
+      }
+    });
+
+    verify(backgroundCb).onLoadFailed(eq(exception));
+    verify(harness.cb, never()).onLoadFailed(any(GlideException.class));
+
+    ShadowLooper.unPauseMainLooper();
+    ShadowLooper.runUiThreadTasks();
+    verify(harness.cb).onLoadFailed(eq(exception));
+  }
+
+  @Test
+  public void testNotifiesCallbackAddedOffMainThreadAfterResourceReadyOnMainThread()
+      throws InterruptedException {
+    final EngineJob<Object> job = harness.getConcurrentJobWithoutCallbacks();
+    final ResourceCallback backgroundCb = mock(ResourceCallback.class);
+    ShadowLooper.pauseMainLooper();
+    job.start(harness.decodeJob);
+    job.onResourceReady(harness.resource, harness.dataSource);
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        job.addCallback(backgroundCb);
+      }
+    });
+    verify(backgroundCb, never()).onResourceReady(anyResource(), isADataSource());
+
+    ShadowLooper.unPauseMainLooper();
+    ShadowLooper.runUiThreadTasks();
+    verify(backgroundCb).onResourceReady(eq(harness.engineResource), eq(harness.dataSource));
+    verify(harness.listener).onEngineJobComplete(eq(harness.key), eq(harness.engineResource));
+  }
+
+  @Test
+  public void testNotifiesCallbackAddedOffMainThreadAfterLoadFailedOnMainThread()
+      throws InterruptedException {
+    final EngineJob<Object> job = harness.getConcurrentJobWithoutCallbacks();
+    final ResourceCallback backgroundCb = mock(ResourceCallback.class);
+    GlideException exception = new GlideException("test");
+    ShadowLooper.pauseMainLooper();
+    job.start(harness.decodeJob);
+    job.onLoadFailed(exception);
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() {
+        job.addCallback(backgroundCb);
+      }
+    });
+    verify(backgroundCb, never()).onLoadFailed(any(GlideException.class));
+
+    ShadowLooper.unPauseMainLooper();
+    ShadowLooper.runUiThreadTasks();
+    verify(backgroundCb).onLoadFailed(eq(exception));
+    verify(harness.listener).onEngineJobComplete(eq(harness.key), isNull(EngineResource.class));
+  }
+
   @Test
   public void testNotifiesAllCallbacksOnReady() {
     MultiCbHarness harness = new MultiCbHarness();
@@ -451,6 +555,110 @@ public class EngineJobTest {
     verify(harness.decodeJob).run();
   }
 
+  @Test
+  public void testSubmitsDecodeJobToSourceDecodeServiceOnRescheduleForDecodeHandOff() {
+    harness.sourceService = GlideExecutor.newSourceExecutor();
+    harness.sourceService.shutdown();
+    harness.sourceDecodeService = MockGlideExecutor.newMainThreadExecutor();
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.isDecodeHandOff()).thenReturn(true);
+
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void testSubmitsDecodeJobToSourceServiceOnRescheduleIfNotDecodeHandOff() {
+    harness.sourceDecodeService = GlideExecutor.newSourceDecodeExecutor();
+    harness.sourceDecodeService.shutdown();
+    EngineJob<Object> job = harness.getJob();
+    when(harness.decodeJob.isDecodeHandOff()).thenReturn(false);
+
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob).run();
+  }
+
+  @Test
+  public void testRaisePriorityUpdatesDecodeJobIfPriorityIsHigher() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    when(harness.decodeJob.isLowerPriorityThan(Priority.IMMEDIATE)).thenReturn(true);
+
+    job.raisePriority(Priority.IMMEDIATE);
+
+    verify(harness.decodeJob).setPriority(Priority.IMMEDIATE);
+  }
+
+  @Test
+  public void testRaisePriorityDoesNotUpdateDecodeJobIfPriorityIsNotHigher() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    when(harness.decodeJob.isLowerPriorityThan(Priority.LOW)).thenReturn(false);
+
+    job.raisePriority(Priority.LOW);
+
+    verify(harness.decodeJob, never()).setPriority(any(Priority.class));
+  }
+
+  @Test
+  public void testRaisePriorityDoesNotUpdateDecodeJobIfCancelled() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    job.cancel();
+    when(harness.decodeJob.isLowerPriorityThan(Priority.IMMEDIATE)).thenReturn(true);
+
+    job.raisePriority(Priority.IMMEDIATE);
+
+    verify(harness.decodeJob, never()).setPriority(any(Priority.class));
+  }
+
+  @Test
+  public void testRaisePriorityRunsQueuedJobBeforeOtherQueuedJobs() throws InterruptedException {
+    GlideExecutor executor = GlideExecutor.newSourceExecutor(1 /*threadCount*/, "test",
+        GlideExecutor.UncaughtThrowableStrategy.THROW);
+    try {
+      List<DecodeJob<Object>> runOrder = Collections.synchronizedList(
+          new ArrayList<DecodeJob<Object>>());
+      CountDownLatch blockerStarted = new CountDownLatch(1);
+      CountDownLatch releaseBlocker = new CountDownLatch(1);
+      CountDownLatch allRun = new CountDownLatch(4);
+      DecodeJob<Object> blocker = harness.newRecordingDecodeJob(Priority.IMMEDIATE, 0 /*order*/,
+          runOrder, allRun, blockerStarted, releaseBlocker);
+      harness.getRealExecutorJob(executor).start(blocker);
+      assertTrue(blockerStarted.await(1, TimeUnit.SECONDS));
+
+      DecodeJob<Object> normal = harness.newRecordingDecodeJob(Priority.NORMAL, 1 /*order*/,
+          runOrder, allRun, null /*started*/, null /*release*/);
+      harness.getRealExecutorJob(executor).start(normal);
+      DecodeJob<Object> high = harness.newRecordingDecodeJob(Priority.HIGH, 2 /*order*/,
+          runOrder, allRun, null /*started*/, null /*release*/);
+      harness.getRealExecutorJob(executor).start(high);
+      DecodeJob<Object> raised = harness.newRecordingDecodeJob(Priority.LOW, 3 /*order*/,
+          runOrder, allRun, null /*started*/, null /*release*/);
+      EngineJob<Object> raisedJob = harness.getRealExecutorJob(executor);
+      raisedJob.start(raised);
+
+      raisedJob.raisePriority(Priority.IMMEDIATE);
+      releaseBlocker.countDown();
+
+      assertTrue(allRun.await(1, TimeUnit.SECONDS));
+      assertThat(runOrder).containsExactly(blocker, raised, high, normal).inOrder();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testNotifiesDecodeJobQueuedOnStartAndReschedule() {
+    EngineJob<Object> job = harness.getJob();
+    job.start(harness.decodeJob);
+    job.reschedule(harness.decodeJob);
+
+    verify(harness.decodeJob, times(2)).onQueued();
+  }
+
   @SuppressWarnings("unchecked")
   private static class MultiCbHarness {
     Key key = mock(Key.class);
@@ -472,8 +680,9 @@ public class EngineJobTest {
 
     public MultiCbHarness() {
       when(factory.build(eq(resource), eq(isCacheable))).thenReturn(engineResource);
-      job = new EngineJob<>(diskCacheService, sourceService, sourceUnlimitedService, listener, pool,
-          factory).init(key, isCacheable, useUnlimitedSourceGeneratorPool);
+      job = new EngineJob<>(diskCacheService, sourceService, sourceUnlimitedService,
+          null /*sourceDecodeExecutor*/, listener, pool, factory)
+          .init(key, isCacheable, useUnlimitedSourceGeneratorPool);
       for (int i = 0; i < numCbs; i++) {
         cbs.add(mock(ResourceCallback.class));
       }
@@ -495,6 +704,7 @@ public class EngineJobTest {
     GlideExecutor diskCacheService = MockGlideExecutor.newMainThreadExecutor();
     GlideExecutor sourceService = MockGlideExecutor.newMainThreadExecutor();
     GlideExecutor sourceUnlimitedService = MockGlideExecutor.newMainThreadUnlimitedExecutor();
+    GlideExecutor sourceDecodeService = null;
     boolean isCacheable = true;
     boolean useUnlimitedSourceGeneratorPool = false;
     DecodeJob<Object> decodeJob = mock(DecodeJob.class);
@@ -504,10 +714,69 @@ public class EngineJobTest {
     public EngineJob<Object> getJob() {
       when(factory.build(eq(resource), eq(isCacheable))).thenReturn(engineResource);
       EngineJob<Object> result = new EngineJob<>(
-          diskCacheService, sourceService, sourceUnlimitedService, listener, pool, factory)
+          diskCacheService, sourceService, sourceUnlimitedService, sourceDecodeService, listener,
+          pool, factory)
           .init(key, isCacheable, useUnlimitedSourceGeneratorPool);
       result.addCallback(cb);
       return result;
     }
+
+    public EngineJob<Object> getRealExecutorJob(GlideExecutor executor) {
+      when(factory.build(eq(resource), eq(isCacheable))).thenReturn(engineResource);
+      EngineJob<Object> result = new EngineJob<>(
+          diskCacheService, executor, executor, null /*sourceDecodeExecutor*/, listener, pool,
+          factory)
+          .init(key, isCacheable, useUnlimitedSourceGeneratorPool);
+      result.addCallback(cb);
+      return result;
+    }
+
+    /**
+     * Returns a {@link DecodeJob} that decodes from source and orders itself in executor queues
+     * by the given priority and order, but whose {@link DecodeJob#run()} only records that it ran
+     * and optionally blocks until released.
+     */
+    public DecodeJob<Object> newRecordingDecodeJob(Priority priority, int order,
+        final List<DecodeJob<Object>> runOrder, final CountDownLatch allRun,
+        final CountDownLatch started, final CountDownLatch release) {
+      DecodeJob<Object> real = new DecodeJob<>(mock(DecodeJob.DiskCacheProvider.class),
+          mock(Pools.Pool.class), null /*eventListener*/, null /*writeBehindEncoder*/,
+          false /*isDecodeHandOffAllowed*/);
+      real.init(mock(GlideContext.class), new Object() /*model*/, mock(EngineKey.class),
+          mock(Key.class) /*signature*/, 100 /*width*/, 100 /*height*/, Object.class,
+          Object.class, priority, DiskCacheStrategy.NONE,
+          new HashMap<Class<?>, Transformation<?>>(), false /*isTransformationRequired*/,
+          false /*onlyRetrieveFromCache*/, new Options(), mock(DecodeJob.Callback.class), order);
+      final DecodeJob<Object> result = spy(real);
+      doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocationOnMock) throws Throwable {
+          runOrder.add(result);
+          if (started != null) {
+            started.countDown();
+          }
+          if (release != null) {
+            release.await();
+          }
+          allRun.countDown();
+          return null;
+        }
+      }).when(result).run();
+      return result;
+    }
+
+    public EngineJob<Object> getConcurrentJob() {
+      EngineJob<Object> result = getConcurrentJobWithoutCallbacks();
+      result.addCallback(cb);
+      return result;
+    }
+
+    public EngineJob<Object> getConcurrentJobWithoutCallbacks() {
+      when(factory.build(eq(resource), eq(isCacheable))).thenReturn(engineResource);
+      return new EngineJob<>(
+          diskCacheService, sourceService, sourceUnlimitedService, listener, pool, factory,
+          new Object() /*jobLock*/)
+          .init(key, isCacheable, useUnlimitedSourceGeneratorPool);
+    }
   }
 }
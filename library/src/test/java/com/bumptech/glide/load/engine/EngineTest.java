@@ -107,6 +107,16 @@ public class EngineTest {
     verify(harness.job).addCallback(eq(newCallback));
   }
 
+  @Test
+  public void testPriorityOfExistingJobIsRaisedWithExistingLoad() {
+    harness.doLoad();
+
+    harness.cb = mock(ResourceCallback.class);
+    harness.doLoad();
+
+    verify(harness.job).raisePriority(eq(Priority.HIGH));
+  }
+
   @Test
   public void testLoadStatusIsReturnedForExistingJob() {
     harness.doLoad();
@@ -458,6 +468,77 @@ public class EngineTest {
     });
   }
 
+  @Test
+  public void testStartsNewLoadOnBackgroundThreadIfConcurrentLoadAllowed()
+      throws InterruptedException {
+    harness = new EngineTestHarness(true /*isConcurrentLoadAllowed*/);
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() throws Exception {
+        harness.doLoad();
+      }
+    });
+
+    verify(harness.job).start(any(DecodeJob.class));
+    assertThat(harness.jobs).containsKey(harness.cacheKey);
+  }
+
+  @Test
+  public void testResourceIsReturnedFromActiveResourcesOnBackgroundThreadIfConcurrentLoadAllowed()
+      throws InterruptedException {
+    harness = new EngineTestHarness(true /*isConcurrentLoadAllowed*/);
+    harness.activeResources
+        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    when(harness.resource.acquireIfActive()).thenReturn(true);
+
+    BackgroundUtil.testInBackground(new BackgroundUtil.BackgroundTester() {
+      @Override
+      public void runTest() throws Exception {
+        harness.doLoad();
+      }
+    });
+
+    verify(harness.cb).onResourceReady(eq(harness.resource), eq(DataSource.MEMORY_CACHE));
+    verify(harness.job, never()).start(any(DecodeJob.class));
+  }
+
+  @Test
+  public void testStartsNewLoadIfActiveResourceIsConcurrentlyReleased() {
+    harness = new EngineTestHarness(true /*isConcurrentLoadAllowed*/);
+    harness.activeResources
+        .put(harness.cacheKey, new WeakReference<EngineResource<?>>(harness.resource));
+    when(harness.resource.acquireIfActive()).thenReturn(false);
+
+    harness.doLoad();
+
+    verify(harness.cb, never()).onResourceReady(anyResource(), isADataSource());
+    verify(harness.job).start(any(DecodeJob.class));
+  }
+
+  @Test
+  public void testBuildsKeyFromBucketedDimensions() {
+    harness = new EngineTestHarness(false /*isConcurrentLoadAllowed*/,
+        SizeBucketStrategy.roundUpToMultipleOf(16));
+    harness.width = 100;
+    harness.height = 33;
+
+    harness.doLoad();
+
+    verify(harness.keyFactory).buildKey(eq(harness.model), eq(harness.signature), eq(112), eq(37),
+        eq(harness.transformations), eq(Object.class), eq(Object.class), eq(harness.options));
+  }
+
+  @Test
+  public void testBuildsKeyFromRequestedDimensionsWithoutBucketing() {
+    harness.width = 100;
+    harness.height = 33;
+
+    harness.doLoad();
+
+    verify(harness.keyFactory).buildKey(eq(harness.model), eq(harness.signature), eq(100), eq(33),
+        eq(harness.transformations), eq(Object.class), eq(Object.class), eq(harness.options));
+  }
+
   private static class EngineTestHarness {
     EngineKey cacheKey = mock(EngineKey.class);
     EngineKeyFactory keyFactory = mock(EngineKeyFactory.class);
@@ -486,6 +567,15 @@ public class EngineTest {
     boolean onlyRetrieveFromCache = false;
 
     public EngineTestHarness() {
+      this(false /*isConcurrentLoadAllowed*/);
+    }
+
+    public EngineTestHarness(boolean isConcurrentLoadAllowed) {
+      this(isConcurrentLoadAllowed, SizeBucketStrategy.NONE);
+    }
+
+    public EngineTestHarness(boolean isConcurrentLoadAllowed,
+        SizeBucketStrategy sizeBucketStrategy) {
       when(keyFactory.buildKey(eq(model), eq(signature), anyInt(), anyInt(), eq(transformations),
           eq(Object.class), eq(Object.class), eq(options))).thenReturn(cacheKey);
 
@@ -495,8 +585,11 @@ public class EngineTest {
           GlideExecutor.newDiskCacheExecutor(),
           MockGlideExecutor.newMainThreadExecutor(),
           MockGlideExecutor.newMainThreadUnlimitedExecutor(),
-          jobs, keyFactory, activeResources,
-          engineJobFactory, decodeJobFactory, resourceRecycler);
+          null /*sourceDecodeExecutor*/, null /*diskCacheEncodeExecutor*/, jobs, keyFactory,
+          activeResources, engineJobFactory, decodeJobFactory, resourceRecycler,
+          isConcurrentLoadAllowed, ActiveResourceDrainStrategy.DEFAULT,
+          false /*isActiveResourceRetentionAllowed*/, sizeBucketStrategy, null /*eventListener*/,
+          Engine.UNLIMITED_PENDING_JOBS, JobShedPolicy.DEFAULT);
     }
 
     public Engine.LoadStatus doLoad() {
@@ -0,0 +1,106 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class JobAdmissionControllerTest {
+  private final CountDownLatch blocker = new CountDownLatch(1);
+  private final DecodeJob<?> queued = mock(DecodeJob.class);
+  private final DecodeJob<?> submitted = mock(DecodeJob.class);
+  private GlideExecutor executor;
+
+  @Before
+  public void setUp() throws InterruptedException {
+    executor = GlideExecutor.newSourceExecutor(1 /*threadCount*/, "test",
+        GlideExecutor.UncaughtThrowableStrategy.THROW);
+    final CountDownLatch started = new CountDownLatch(1);
+    // Occupy the executor's only thread so that submitted jobs stay in its queue.
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          blocker.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    started.await(500, TimeUnit.MILLISECONDS);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    blocker.countDown();
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void testExecuteAdmitsJobIfBelowLimit() {
+    JobAdmissionController controller = new JobAdmissionController(2, JobShedPolicy.DEFAULT);
+    controller.execute(executor, queued);
+    controller.execute(executor, submitted);
+
+    assertThat(executor.getQueue()).containsExactly(queued, submitted);
+    verify(queued, never()).shed(any(JobShedException.class));
+    verify(submitted, never()).shed(any(JobShedException.class));
+    assertThat(controller.getShedCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void testExecuteShedsQueuedJobWithLowerPriority() {
+    JobAdmissionController controller =
+        new JobAdmissionController(1, JobShedPolicy.LOWEST_PRIORITY);
+    controller.execute(executor, queued);
+    when(queued.compareTo(submitted)).thenReturn(1);
+
+    controller.execute(executor, submitted);
+
+    verify(queued).shed(any(JobShedException.class));
+    assertThat(executor.getQueue()).containsExactly(submitted);
+    assertThat(controller.getShedCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testExecuteShedsSubmittedJobWithLowerPriority() {
+    JobAdmissionController controller =
+        new JobAdmissionController(1, JobShedPolicy.LOWEST_PRIORITY);
+    controller.execute(executor, queued);
+    when(queued.compareTo(submitted)).thenReturn(-1);
+
+    controller.execute(executor, submitted);
+
+    verify(submitted).shed(any(JobShedException.class));
+    verify(queued, never()).shed(any(JobShedException.class));
+    assertThat(executor.getQueue()).containsExactly(queued);
+  }
+
+  @Test
+  public void testExecuteShedsOldestJob() {
+    JobAdmissionController controller = new JobAdmissionController(1, JobShedPolicy.OLDEST);
+    controller.execute(executor, queued);
+    when(queued.isOlderThan(submitted)).thenReturn(true);
+
+    controller.execute(executor, submitted);
+
+    verify(queued).shed(any(JobShedException.class));
+    assertThat(executor.getQueue()).containsExactly(submitted);
+  }
+}
@@ -0,0 +1,76 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ReadTrackingInputStreamTest {
+  private final byte[] data = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+  private ReadTrackingInputStream stream;
+
+  @Before
+  public void setUp() {
+    stream = new ReadTrackingInputStream().init(new ByteArrayInputStream(data));
+  }
+
+  @Test
+  public void testCountsBytesRead() throws IOException {
+    stream.read();
+    stream.read(new byte[4]);
+    stream.read(new byte[10], 2, 3);
+
+    assertThat(stream.getBytesRead()).isEqualTo(8L);
+  }
+
+  @Test
+  public void testCountsSkippedBytes() throws IOException {
+    stream.skip(3);
+
+    assertThat(stream.getBytesRead()).isEqualTo(3L);
+  }
+
+  @Test
+  public void testDoesNotCountEndOfStream() throws IOException {
+    stream.read(new byte[data.length]);
+    stream.read();
+    stream.read(new byte[4]);
+
+    assertThat(stream.getBytesRead()).isEqualTo((long) data.length);
+  }
+
+  @Test
+  public void testDoesNotCountBytesReadAgainAfterReset() throws IOException {
+    stream.mark(data.length);
+    stream.read(new byte[6]);
+    stream.reset();
+    stream.read(new byte[4]);
+
+    assertThat(stream.getBytesRead()).isEqualTo(6L);
+  }
+
+  @Test
+  public void testRecordsFirstByteTime() throws IOException {
+    assertThat(stream.hasReadFirstByte()).isFalse();
+
+    long beforeRead = System.nanoTime();
+    stream.read();
+
+    assertThat(stream.hasReadFirstByte()).isTrue();
+    assertThat(stream.getFirstByteNanos()).isAtLeast(beforeRead);
+  }
+
+  @Test
+  public void testReleaseResetsState() throws IOException {
+    stream.read(new byte[4]);
+    stream.release();
+
+    assertThat(stream.getBytesRead()).isEqualTo(0L);
+    assertThat(stream.hasReadFirstByte()).isFalse();
+  }
+}
@@ -0,0 +1,112 @@
+package com.bumptech.glide.load.engine;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.bumptech.glide.request.target.Target;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SizeBucketStrategyTest {
+
+  @Test
+  public void testNoneReturnsRequestedSize() {
+    assertThat(SizeBucketStrategy.NONE.getBucketedSize(313)).isEqualTo(313);
+  }
+
+  @Test
+  public void testRoundUpToMultipleOfRoundsUp() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpToMultipleOf(16);
+
+    assertThat(strategy.getBucketedSize(312)).isEqualTo(320);
+    assertThat(strategy.getBucketedSize(318)).isEqualTo(320);
+    assertThat(strategy.getBucketedSize(320)).isEqualTo(320);
+    assertThat(strategy.getBucketedSize(321)).isEqualTo(336);
+    assertThat(strategy.getBucketedSize(1)).isEqualTo(16);
+  }
+
+  @Test
+  public void testRoundUpToMultipleOfDoesNotOverflow() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpToMultipleOf(16);
+
+    assertThat(strategy.getBucketedSize(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testRoundUpGeometricallyRoundsUpToBucket() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpGeometrically(1.25f, 100);
+
+    // Buckets are 100, 125, 157, 197, 247, 309, 387...
+    assertThat(strategy.getBucketedSize(101)).isEqualTo(125);
+    assertThat(strategy.getBucketedSize(125)).isEqualTo(125);
+    assertThat(strategy.getBucketedSize(312)).isEqualTo(387);
+    assertThat(strategy.getBucketedSize(318)).isEqualTo(387);
+  }
+
+  @Test
+  public void testRoundUpGeometricallyDoesNotRoundSizesBelowMinimum() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpGeometrically(1.25f, 100);
+
+    assertThat(strategy.getBucketedSize(37)).isEqualTo(37);
+    assertThat(strategy.getBucketedSize(100)).isEqualTo(100);
+  }
+
+  @Test
+  public void testStrategiesDoNotChangeSizeOriginal() {
+    assertThat(SizeBucketStrategy.roundUpToMultipleOf(16).getBucketedSize(Target.SIZE_ORIGINAL))
+        .isEqualTo(Target.SIZE_ORIGINAL);
+    assertThat(
+        SizeBucketStrategy.roundUpGeometrically(1.25f, 100).getBucketedSize(Target.SIZE_ORIGINAL))
+        .isEqualTo(Target.SIZE_ORIGINAL);
+  }
+
+  @Test
+  public void testBucketedDimensionsKeepRequestedAspectRatio() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpToMultipleOf(16);
+
+    assertThat(strategy.getBucketedWidth(300, 200)).isEqualTo(304);
+    assertThat(strategy.getBucketedHeight(300, 200)).isEqualTo(203);
+    assertThat(304 / 203d).isWithin(0.01).of(300 / 200d);
+    assertThat(strategy.getBucketedWidth(200, 300)).isEqualTo(203);
+    assertThat(strategy.getBucketedHeight(200, 300)).isEqualTo(304);
+  }
+
+  @Test
+  public void testBucketedDimensionsAreSharedBySizesWithSameAspectRatio() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpGeometrically(1.25f, 100);
+
+    assertThat(strategy.getBucketedWidth(290, 145)).isEqualTo(309);
+    assertThat(strategy.getBucketedHeight(290, 145)).isEqualTo(155);
+    assertThat(strategy.getBucketedWidth(300, 150)).isEqualTo(309);
+    assertThat(strategy.getBucketedHeight(300, 150)).isEqualTo(155);
+  }
+
+  @Test
+  public void testBucketedDimensionsWithSizeOriginalOnlyRoundOtherDimension() {
+    SizeBucketStrategy strategy = SizeBucketStrategy.roundUpToMultipleOf(16);
+
+    assertThat(strategy.getBucketedWidth(Target.SIZE_ORIGINAL, 200))
+        .isEqualTo(Target.SIZE_ORIGINAL);
+    assertThat(strategy.getBucketedHeight(Target.SIZE_ORIGINAL, 200)).isEqualTo(208);
+    assertThat(strategy.getBucketedWidth(200, Target.SIZE_ORIGINAL)).isEqualTo(208);
+    assertThat(strategy.getBucketedHeight(200, Target.SIZE_ORIGINAL))
+        .isEqualTo(Target.SIZE_ORIGINAL);
+  }
+
+  @Test
+  public void testNoneKeepsRequestedDimensions() {
+    assertThat(SizeBucketStrategy.NONE.getBucketedWidth(313, 17)).isEqualTo(313);
+    assertThat(SizeBucketStrategy.NONE.getBucketedHeight(313, 17)).isEqualTo(17);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRoundUpToMultipleOfThrowsForNonPositiveStep() {
+    SizeBucketStrategy.roundUpToMultipleOf(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRoundUpGeometricallyThrowsForRatioOfOne() {
+    SizeBucketStrategy.roundUpGeometrically(1f, 100);
+  }
+}
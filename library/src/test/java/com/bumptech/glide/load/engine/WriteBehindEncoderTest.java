@@ -0,0 +1,133 @@
+package com.bumptech.glide.load.engine;
+
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.ResourceEncoder;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class WriteBehindEncoderTest {
+  private final Key loadKey = mock(Key.class);
+  private final Key cacheKey = mock(Key.class);
+  private final Options options = new Options();
+  private final List<Runnable> queued = new ArrayList<>();
+  private DiskCache diskCache;
+  private ResourceEncoder<Object> encoder;
+  private WriteBehindEncoder writeBehindEncoder;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    diskCache = mock(DiskCache.class);
+    encoder = mock(ResourceEncoder.class);
+    DecodeJob.DiskCacheProvider diskCacheProvider = mock(DecodeJob.DiskCacheProvider.class);
+    when(diskCacheProvider.getDiskCache()).thenReturn(diskCache);
+    writeBehindEncoder = new WriteBehindEncoder(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        queued.add(command);
+      }
+    }, diskCacheProvider, null /*eventListener*/);
+  }
+
+  @Test
+  public void testEncodeWritesToDiskCacheOnExecutor() {
+    assertThat(encode(mockResource())).isTrue();
+    verify(diskCache, never()).put(any(Key.class), any(DiskCache.Writer.class));
+
+    runQueued();
+
+    verify(diskCache).put(eq(cacheKey), any(DiskCache.Writer.class));
+  }
+
+  @Test
+  public void testEncodeUnlocksResourceAfterWrite() {
+    Resource<Object> resource = mockResource();
+    LockedResource<Object> toEncode = LockedResource.obtain(resource);
+    writeBehindEncoder.encode(loadKey, cacheKey, encoder, toEncode, options, null);
+    toEncode.recycle();
+    verify(resource, never()).recycle();
+
+    runQueued();
+
+    verify(resource).recycle();
+  }
+
+  @Test
+  public void testEncodeDropsAndUnlocksResourceIfKeyIsPending() {
+    encode(mockResource());
+    Resource<Object> duplicate = mockResource();
+    LockedResource<Object> toEncode = LockedResource.obtain(duplicate);
+    toEncode.recycle();
+
+    assertThat(writeBehindEncoder.encode(loadKey, cacheKey, encoder, toEncode, options, null))
+        .isFalse();
+
+    verify(duplicate).recycle();
+    assertThat(queued).hasSize(1);
+    assertThat(writeBehindEncoder.getDedupedCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testEncodeAcceptsKeyAgainAfterWrite() {
+    encode(mockResource());
+    runQueued();
+
+    assertThat(encode(mockResource())).isTrue();
+  }
+
+  @Test
+  public void testEncodeDropsAndUnlocksResourcesIfExecutorRejects() {
+    writeBehindEncoder = new WriteBehindEncoder(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    }, mock(DecodeJob.DiskCacheProvider.class), null /*eventListener*/);
+    Resource<Object> resource = mockResource();
+    LockedResource<Object> toEncode = LockedResource.obtain(resource);
+    Resource<Object> result = mockResource();
+    LockedResource<Object> lockedResult = LockedResource.obtain(result);
+    toEncode.recycle();
+    lockedResult.recycle();
+
+    assertThat(writeBehindEncoder.encode(loadKey, cacheKey, encoder, toEncode, options,
+        lockedResult)).isFalse();
+
+    verify(resource).recycle();
+    verify(result).recycle();
+    assertThat(writeBehindEncoder.getDroppedCount()).isEqualTo(1L);
+  }
+
+  private boolean encode(Resource<Object> resource) {
+    return writeBehindEncoder.encode(loadKey, cacheKey, encoder, LockedResource.obtain(resource),
+        options, null /*lockedResult*/);
+  }
+
+  private void runQueued() {
+    List<Runnable> toRun = new ArrayList<>(queued);
+    queued.clear();
+    for (Runnable runnable : toRun) {
+      runnable.run();
+    }
+  }
+}
@@ -5,6 +5,8 @@ import static android.content.ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
 import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import android.annotation.TargetApi;
@@ -48,6 +50,96 @@ public class LruArrayPoolTest {
     assertTrue(((byte[]) array)[0] == (byte) 0);
   }
 
+  @Test
+  public void testGetReturnsShortestArrayThatFitsRequest() {
+    pool = new LruArrayPool(MAX_SIZE * 100);
+    byte[] longer = new byte[60];
+    byte[] shorter = new byte[40];
+    pool.put(longer, ARRAY_CLASS);
+    pool.put(shorter, ARRAY_CLASS);
+    pool.put(new byte[20], ARRAY_CLASS);
+
+    assertSame(shorter, pool.get(35, ARRAY_CLASS));
+    assertSame(longer, pool.get(35, ARRAY_CLASS));
+  }
+
+  @Test
+  public void testGetDoesNotReturnMuchLongerArrayIfPoolIsMoreThanHalfFull() {
+    pool = new LruArrayPool(MAX_SIZE * 10);
+    byte[] array = new byte[MAX_SIZE * 5];
+    pool.put(array, ARRAY_CLASS);
+    pool.put(new byte[MAX_SIZE], ARRAY_CLASS);
+
+    assertNotSame(array, pool.get(1, ARRAY_CLASS));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyPutArraysFirst() {
+    byte[] first = new byte[MAX_SIZE / 2];
+    byte[] second = new byte[MAX_SIZE / 2];
+    pool.put(first, ARRAY_CLASS);
+    pool.put(second, ARRAY_CLASS);
+    pool.put(new byte[1], ARRAY_CLASS);
+
+    assertEquals(MAX_SIZE / 2 + 1, pool.getCurrentSize());
+    assertSame(second, pool.get(MAX_SIZE / 2, ARRAY_CLASS));
+  }
+
+  @Test
+  public void testGetReturnsArrayKeptByThreadAndRecordsLocalHit() {
+    pool = new LruArrayPool(MAX_SIZE, MAX_SIZE / 2);
+    byte[] array = new byte[4];
+    pool.put(array, ARRAY_CLASS);
+
+    assertEquals(0, pool.getCurrentSize());
+    assertSame(array, pool.get(4, ARRAY_CLASS));
+    PoolStats stats = pool.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getLocalHitCount());
+  }
+
+  @Test
+  public void testThreadMovesLeastRecentlyPutArraysToSharedPoolWhenFull() {
+    pool = new LruArrayPool(MAX_SIZE, 4);
+    byte[] first = new byte[4];
+    byte[] second = new byte[4];
+    pool.put(first, ARRAY_CLASS);
+    pool.put(second, ARRAY_CLASS);
+
+    assertEquals(4, pool.getCurrentSize());
+    assertSame(second, pool.get(4, ARRAY_CLASS));
+    assertSame(first, pool.get(4, ARRAY_CLASS));
+    assertEquals(1, pool.getStats().getLocalHitCount());
+  }
+
+  @Test
+  public void testArraysLargerThanThreadLimitArePutInSharedPool() {
+    pool = new LruArrayPool(MAX_SIZE, 2);
+    pool.put(new byte[4], ARRAY_CLASS);
+
+    assertEquals(4, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testClearMemoryDropsArraysKeptByThreads() {
+    pool = new LruArrayPool(MAX_SIZE, MAX_SIZE / 2);
+    byte[] array = new byte[4];
+    pool.put(array, ARRAY_CLASS);
+    pool.clearMemory();
+
+    assertNotSame(array, pool.get(4, ARRAY_CLASS));
+  }
+
+  @Test
+  public void testTrimMemoryUiHiddenDropsArraysKeptByThreads() {
+    pool = new LruArrayPool(MAX_SIZE, MAX_SIZE / 2);
+    byte[] array = new byte[4];
+    pool.put(array, ARRAY_CLASS);
+    pool.trimMemory(TRIM_MEMORY_UI_HIDDEN);
+
+    assertNotSame(array, pool.get(4, ARRAY_CLASS));
+  }
+
   @Test
   public void testItIsSizeLimited() {
     fillPool(pool, MAX_SIZE / ADAPTER.getElementSizeInBytes() + 1, 1);
@@ -69,6 +161,30 @@ public class LruArrayPoolTest {
     assertEquals(0, pool.getCurrentSize());
   }
 
+  @Test
+  public void testGetStatsRecordsHitsMissesAndRejects() {
+    pool.put(new byte[4], ARRAY_CLASS);
+    pool.get(4, ARRAY_CLASS);
+    pool.get(4, ARRAY_CLASS);
+    pool.put(new byte[MAX_SIZE], ARRAY_CLASS);
+
+    PoolStats stats = pool.getStats();
+    assertEquals(1, stats.getPutCount());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(4, stats.getHitBytes());
+    assertEquals(0.5f, stats.getByteHitRate(), 0f);
+    assertEquals(1, stats.getMissHistogram()[2]);
+    assertEquals(1, stats.getRejectCount(PoolStats.RejectReason.TOO_LARGE));
+  }
+
+  @Test
+  public void testSetSizeMultiplierEvictsArraysOverNewSize() {
+    fillPool(pool, MAX_SIZE / ADAPTER.getElementSizeInBytes(), 1);
+    pool.setSizeMultiplier(0.5f);
+    assertTrue(pool.getCurrentSize() <= MAX_SIZE / 2);
+  }
+
   @Test
   public void testTrimMemoryUiHiddenOrLessRemovesHalfOfArrays() {
     testTrimMemory(MAX_SIZE, TRIM_MEMORY_UI_HIDDEN, MAX_SIZE / 2);
@@ -56,6 +56,25 @@ public class LruBitmapPoolTest {
     assertThat(strategy.bitmaps).isEmpty();
   }
 
+  @Test
+  public void testGetStatsRecordsPutsHitsEvictionsAndRejectReasons() {
+    fillPool(pool, MAX_SIZE + 1);
+    pool.get(100, 100, Bitmap.Config.ARGB_8888);
+    Bitmap immutable = createMutableBitmap();
+    Shadows.shadowOf(immutable).setMutable(false);
+    pool.put(immutable);
+    pool.put(createMutableBitmap(Bitmap.Config.RGB_565));
+
+    PoolStats stats = pool.getStats();
+    assertEquals(MAX_SIZE + 1, stats.getPutCount());
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(100 * 100 * 4, stats.getHitBytes());
+    assertEquals(1, stats.getRejectCount(PoolStats.RejectReason.NOT_MUTABLE));
+    assertEquals(1, stats.getRejectCount(PoolStats.RejectReason.DISALLOWED_CONFIG));
+    assertEquals(MAX_SIZE - 1, stats.getCurrentSize());
+  }
+
   @Test
   public void testItIsSizeLimited() {
     fillPool(pool, MAX_SIZE + 2);
@@ -140,6 +159,18 @@ public class LruBitmapPoolTest {
     assertEquals(expected, result);
   }
 
+  @Test
+  public void testAllocatesMissesWithStrategy() {
+    LruPoolStrategy strategy = mock(LruPoolStrategy.class);
+    LruBitmapPool pool = new LruBitmapPool(100, strategy, ALLOWED_CONFIGS);
+
+    Bitmap expected = createMutableBitmap();
+    when(strategy.createBitmap(100, 100, Bitmap.Config.ARGB_8888)).thenReturn(expected);
+
+    assertEquals(expected, pool.get(100, 100, Bitmap.Config.ARGB_8888));
+    assertEquals(expected, pool.getDirty(100, 100, Bitmap.Config.ARGB_8888));
+  }
+
   private void testTrimMemory(int fillSize, int trimLevel, int expectedSize) {
     MockStrategy strategy = new MockStrategy();
     LruBitmapPool pool = new LruBitmapPool(MAX_SIZE, strategy, ALLOWED_CONFIGS);
@@ -265,5 +296,10 @@ public class LruBitmapPoolTest {
     public int getSize(Bitmap bitmap) {
       return 1;
     }
+
+    @Override
+    public Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+      return Bitmap.createBitmap(width, height, config);
+    }
   }
 }
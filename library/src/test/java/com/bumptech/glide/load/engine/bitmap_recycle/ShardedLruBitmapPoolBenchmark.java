@@ -0,0 +1,117 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.graphics.Bitmap;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the throughput of {@link LruBitmapPool} and {@link ShardedLruBitmapPool} when several
+ * threads get and put back {@link Bitmap}s of a few different sizes, as decode threads and
+ * transformations do.
+ *
+ * <p>Pools are compared both with the strategies and shard search span they use by default on
+ * KitKat and above, where {@link Bitmap}s are re-used if they're up to several times larger than
+ * the request, and with {@link AttributeStrategy}, which only re-uses {@link Bitmap}s of exactly
+ * the requested size.
+ *
+ * <p>Bitmaps are shadowed by Robolectric, so absolute numbers don't reflect a device, only the
+ * relative cost of waiting on the pools' locks. Not run as part of the tests, remove the
+ * {@link Ignore} annotation to run it locally.
+ */
+@Ignore("Benchmark")
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ShardedLruBitmapPoolBenchmark {
+  private static final int[] DIMENSIONS = new int[] { 16, 48, 128, 256 };
+  private static final int MAX_SIZE = 8 * 256 * 256 * 4;
+  private static final int THREADS = 8;
+  private static final int OPERATIONS_PER_THREAD = 20000;
+  private static final int WARM_UP_ROUNDS = 2;
+  private static final int ROUNDS = 5;
+  private static final Set<Bitmap.Config> ALLOWED_CONFIGS =
+      Collections.singleton(Bitmap.Config.ARGB_8888);
+
+  @Test
+  @Config(sdk = 19)
+  public void benchmarkDefaultConfig() throws InterruptedException {
+    // Uses SizeConfigStrategy and searches several shards for each request.
+    benchmark(new LruBitmapPool(MAX_SIZE, ALLOWED_CONFIGS),
+        new ShardedLruBitmapPool(MAX_SIZE, ALLOWED_CONFIGS));
+  }
+
+  @Test
+  public void benchmarkAttributeStrategy() throws InterruptedException {
+    BitmapPool lruPool = new LruBitmapPool(MAX_SIZE, new AttributeStrategy(), ALLOWED_CONFIGS);
+    BitmapPool shardedPool = new ShardedLruBitmapPool(MAX_SIZE,
+        new ShardedLruBitmapPool.StrategyFactory() {
+          @Override
+          public LruPoolStrategy build() {
+            return new AttributeStrategy();
+          }
+        }, ALLOWED_CONFIGS, 0 /*shardSpan*/);
+    benchmark(lruPool, shardedPool);
+  }
+
+  private static void benchmark(BitmapPool lruPool, BitmapPool shardedPool)
+      throws InterruptedException {
+    for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+      run(lruPool);
+      run(shardedPool);
+    }
+    long lruNanos = 0;
+    long shardedNanos = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      lruNanos += run(lruPool);
+      shardedNanos += run(shardedPool);
+    }
+    report("LruBitmapPool", lruNanos);
+    report("ShardedLruBitmapPool", shardedNanos);
+  }
+
+  private static long run(final BitmapPool pool) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(THREADS);
+    for (int t = 0; t < THREADS; t++) {
+      final long seed = t;
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            int dimension = DIMENSIONS[random.nextInt(DIMENSIONS.length)];
+            Bitmap bitmap = pool.getDirty(dimension, dimension, Bitmap.Config.ARGB_8888);
+            Shadows.shadowOf(bitmap).setMutable(true);
+            pool.put(bitmap);
+          }
+          done.countDown();
+        }
+      }).start();
+    }
+    long startNanos = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startNanos;
+    pool.clearMemory();
+    return elapsed;
+  }
+
+  private static void report(String name, long nanos) {
+    long operations = (long) OPERATIONS_PER_THREAD * THREADS * ROUNDS;
+    System.out.println(name + ": " + (operations * TimeUnit.SECONDS.toNanos(1) / nanos)
+        + " ops/s with " + THREADS + " threads");
+  }
+}
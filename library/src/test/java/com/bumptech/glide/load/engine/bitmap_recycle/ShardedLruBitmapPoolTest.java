@@ -0,0 +1,183 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+import static android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ShardedLruBitmapPoolTest {
+  private static final int SMALL = 10;
+  private static final int LARGE = 100;
+  private static final int LARGE_SIZE = LARGE * LARGE * 4;
+  private static final int MAX_SIZE = 3 * LARGE_SIZE;
+  private static final Set<Bitmap.Config> ALLOWED_CONFIGS =
+      Collections.singleton(Bitmap.Config.ARGB_8888);
+  private static final ShardedLruBitmapPool.StrategyFactory FACTORY =
+      new ShardedLruBitmapPool.StrategyFactory() {
+        @Override
+        public LruPoolStrategy build() {
+          return new AttributeStrategy();
+        }
+      };
+
+  private ShardedLruBitmapPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new ShardedLruBitmapPool(MAX_SIZE, FACTORY, ALLOWED_CONFIGS, 0 /*shardSpan*/);
+  }
+
+  @Test
+  public void testICanAddAndGetABitmap() {
+    Bitmap bitmap = createMutableBitmap(LARGE);
+    pool.put(bitmap);
+    assertSame(bitmap, pool.get(LARGE, LARGE, Bitmap.Config.ARGB_8888));
+    assertEquals(0, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testGetOfDifferentSizeReturnsNewBitmap() {
+    Bitmap bitmap = createMutableBitmap(LARGE);
+    pool.put(bitmap);
+    assertNotSame(bitmap, pool.get(SMALL, SMALL, Bitmap.Config.ARGB_8888));
+    assertEquals(LARGE_SIZE, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testImmutableBitmapsAreNotAdded() {
+    Bitmap bitmap = createMutableBitmap(LARGE);
+    Shadows.shadowOf(bitmap).setMutable(false);
+    pool.put(bitmap);
+    assertEquals(0, pool.getCurrentSize());
+    assertTrue(bitmap.isRecycled());
+  }
+
+  @Test
+  public void testBitmapsWithDisallowedConfigsAreNotAdded() {
+    Bitmap bitmap = Bitmap.createBitmap(LARGE, LARGE, Bitmap.Config.RGB_565);
+    pool.put(bitmap);
+    assertEquals(0, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testItIsSizeLimited() {
+    List<Bitmap> bitmaps = fillPool(LARGE, 4);
+    assertEquals(MAX_SIZE, pool.getCurrentSize());
+    int recycled = 0;
+    for (Bitmap bitmap : bitmaps) {
+      recycled += bitmap.isRecycled() ? 1 : 0;
+    }
+    assertEquals(1, recycled);
+  }
+
+  @Test
+  public void testEvictsFromLeastRecentlyUsedShard() {
+    Bitmap large = createMutableBitmap(LARGE);
+    pool.put(large);
+    int smallCount = (MAX_SIZE - LARGE_SIZE) / (SMALL * SMALL * 4);
+    List<Bitmap> small = fillPool(SMALL, smallCount + 1);
+
+    assertTrue(large.isRecycled());
+    for (Bitmap bitmap : small) {
+      assertThat(bitmap.isRecycled()).isFalse();
+    }
+  }
+
+  @Test
+  public void testSetSizeMultiplierEvictsBitmapsOverNewSize() {
+    fillPool(LARGE, 3);
+    pool.setSizeMultiplier(0.5f);
+    assertEquals(LARGE_SIZE, pool.getCurrentSize());
+    assertEquals(Math.round(MAX_SIZE * 0.5f), pool.getMaxSize());
+  }
+
+  @Test
+  public void testClearMemoryRemovesAllBitmaps() {
+    List<Bitmap> bitmaps = fillPool(LARGE, 3);
+    pool.clearMemory();
+    assertEquals(0, pool.getCurrentSize());
+    for (Bitmap bitmap : bitmaps) {
+      assertTrue(bitmap.isRecycled());
+    }
+  }
+
+  @Test
+  public void testTrimMemoryUiHiddenRemovesHalfOfBitmaps() {
+    fillPool(LARGE, 3);
+    pool.trimMemory(TRIM_MEMORY_UI_HIDDEN);
+    assertThat(pool.getCurrentSize()).isAtMost(MAX_SIZE / 2);
+  }
+
+  @Test
+  public void testTrimMemoryBackgroundRemovesAllBitmaps() {
+    fillPool(LARGE, 3);
+    pool.trimMemory(TRIM_MEMORY_BACKGROUND);
+    assertEquals(0, pool.getCurrentSize());
+  }
+
+  @Test
+  public void testSizeIsConsistentAfterConcurrentPutsAndGets() throws InterruptedException {
+    final int threads = 4;
+    final CountDownLatch done = new CountDownLatch(threads);
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    for (int t = 0; t < threads; t++) {
+      final int dimension = t % 2 == 0 ? SMALL : LARGE;
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 200; i++) {
+              Bitmap bitmap = pool.getDirty(dimension, dimension, Bitmap.Config.ARGB_8888);
+              Shadows.shadowOf(bitmap).setMutable(true);
+              pool.put(bitmap);
+            }
+          } catch (Throwable e) {
+            failures.add(e);
+          } finally {
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+    done.await();
+
+    assertThat(failures).isEmpty();
+    assertThat(pool.getCurrentSize()).isAtMost(MAX_SIZE);
+    pool.clearMemory();
+    assertEquals(0, pool.getCurrentSize());
+  }
+
+  private List<Bitmap> fillPool(int dimension, int count) {
+    List<Bitmap> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Bitmap bitmap = createMutableBitmap(dimension);
+      result.add(bitmap);
+      pool.put(bitmap);
+    }
+    return result;
+  }
+
+  private static Bitmap createMutableBitmap(int dimension) {
+    Bitmap bitmap = Bitmap.createBitmap(dimension, dimension, Bitmap.Config.ARGB_8888);
+    Shadows.shadowOf(bitmap).setMutable(true);
+    return bitmap;
+  }
+}
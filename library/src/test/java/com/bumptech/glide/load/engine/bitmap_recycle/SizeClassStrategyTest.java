@@ -0,0 +1,160 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.util.Util;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowBitmap;
+
+// Bitmaps can only be reconfigured on KitKat and above.
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 19)
+public class SizeClassStrategyTest {
+  private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+  private static final int BYTES_PER_PIXEL = 4;
+  private SizeClassStrategy strategy;
+  private int sizeClass;
+  private int previousSizeClass;
+
+  @Before
+  public void setUp() {
+    strategy = new SizeClassStrategy();
+    sizeClass = SizeClassStrategy.getSizeClassBytes(100 * 1000);
+    previousSizeClass = SizeClassStrategy.getFloorSizeClassBytes(sizeClass - 1);
+  }
+
+  @Test
+  public void testGetReturnsBitmapForRequestInItsSizeClass() {
+    Bitmap bitmap = createBitmapOfSize(sizeClass);
+    strategy.put(bitmap);
+
+    assertSame(bitmap, strategy.get(widthForSize(previousSizeClass) + 1, 1, CONFIG));
+  }
+
+  @Test
+  public void testGetReconfiguresBitmapToRequestedDimensions() {
+    strategy.put(createBitmapOfSize(sizeClass));
+    int width = widthForSize(previousSizeClass) + 1;
+
+    Bitmap result = strategy.get(width, 1, CONFIG);
+    assertEquals(width, result.getWidth());
+    assertEquals(1, result.getHeight());
+  }
+
+  @Test
+  public void testGetDoesNotReturnBitmapForRequestInSmallerSizeClass() {
+    strategy.put(createBitmapOfSize(sizeClass));
+
+    assertNull(strategy.get(widthForSize(previousSizeClass), 1, CONFIG));
+  }
+
+  @Test
+  public void testGetDoesNotReturnBitmapForRequestLargerThanBitmap() {
+    strategy.put(createBitmapOfSize(sizeClass));
+
+    assertNull(strategy.get(widthForSize(sizeClass) + 1, 1, CONFIG));
+  }
+
+  @Test
+  public void testPutKeysBitmapByLargestSizeClassItFits() {
+    Bitmap bitmap = createBitmapOfSize(sizeClass + SizeClassStrategy.getSizeClassBytes(1));
+    strategy.put(bitmap);
+
+    assertNull(strategy.get(widthForSize(sizeClass) + 1, 1, CONFIG));
+    assertSame(bitmap, strategy.get(widthForSize(sizeClass), 1, CONFIG));
+  }
+
+  @Test
+  public void testCreateBitmapReturnsBitmapWithRequestedDimensions() {
+    Bitmap result = strategy.createBitmap(100, 99, CONFIG);
+
+    assertEquals(100, result.getWidth());
+    assertEquals(99, result.getHeight());
+    assertEquals(CONFIG, result.getConfig());
+  }
+
+  @Test
+  public void testAllocationHeightRoundsAllocationUpToSizeClass() {
+    for (int height = 1; height < 2000; height += 7) {
+      int width = 123;
+      int rowBytes = width * BYTES_PER_PIXEL;
+      int requestSizeClass =
+          SizeClassStrategy.getSizeClassBytes(Util.getBitmapByteSize(width, height, CONFIG));
+      int allocation = SizeClassStrategy.getAllocationHeight(width, height, CONFIG) * rowBytes;
+      assertThat(allocation).isAtLeast(requestSizeClass);
+      assertThat(allocation).isLessThan(requestSizeClass + rowBytes);
+    }
+  }
+
+  @Test
+  public void testAllocationHeightOfRequestTheSizeOfItsSizeClassIsRequestedHeight() {
+    assertEquals(1, SizeClassStrategy.getAllocationHeight(widthForSize(sizeClass), 1, CONFIG));
+  }
+
+  @Test
+  public void testSizeClassFitsSizeWithBoundedWaste() {
+    for (int size = 1024; size < 64 * 1024 * 1024; size += 997) {
+      int sizeClass = SizeClassStrategy.getSizeClassBytes(size);
+      assertThat(sizeClass).isAtLeast(size);
+      assertThat(sizeClass).isAtMost((int) (size * SizeClassStrategy.SIZE_CLASS_RATIO) + 64);
+    }
+  }
+
+  @Test
+  public void testSizeClassesAreAlignedForAllConfigs() {
+    for (int size = 1; size < 16 * 1024 * 1024; size += 4099) {
+      assertEquals(0, SizeClassStrategy.getSizeClassBytes(size) % 4);
+    }
+  }
+
+  @Test
+  public void testSmallSizesShareTheSmallestSizeClass() {
+    assertEquals(SizeClassStrategy.getSizeClassBytes(1),
+        SizeClassStrategy.getSizeClassBytes(1024));
+  }
+
+  @Test
+  public void testSizeClassOfSizeClassIsItself() {
+    int sizeClass = SizeClassStrategy.getSizeClassBytes(100 * 1000);
+    assertEquals(sizeClass, SizeClassStrategy.getSizeClassBytes(sizeClass));
+    assertEquals(sizeClass, SizeClassStrategy.getFloorSizeClassBytes(sizeClass));
+  }
+
+  @Test
+  public void testFloorSizeClassFitsInAllocation() {
+    for (int size = 1024; size < 64 * 1024 * 1024; size += 997) {
+      int floor = SizeClassStrategy.getFloorSizeClassBytes(size);
+      assertThat(floor).isAtMost(size);
+      assertThat(SizeClassStrategy.getSizeClassBytes(floor + 1)).isGreaterThan(size);
+    }
+  }
+
+  @Test
+  public void testFloorSizeClassOfAllocationSmallerThanSmallestSizeClassIsAllocation() {
+    assertEquals(100, SizeClassStrategy.getFloorSizeClassBytes(100));
+  }
+
+  @Test
+  public void testSizeLargerThanLargestSizeClassHasNoSizeClass() {
+    assertEquals(-1, SizeClassStrategy.getSizeClassBytes(Integer.MAX_VALUE));
+  }
+
+  private static int widthForSize(int size) {
+    return size / BYTES_PER_PIXEL;
+  }
+
+  private static Bitmap createBitmapOfSize(int size) {
+    Bitmap bitmap = ShadowBitmap.createBitmap(widthForSize(size), 1, CONFIG);
+    Shadows.shadowOf(bitmap).setMutable(true);
+    return bitmap;
+  }
+}
@@ -0,0 +1,158 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.os.Handler;
+import android.os.Looper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class AdaptiveMemoryControllerTest {
+  private static final long MAX_BYTES = 1000;
+  private static final float TARGET_HEADROOM = 0.25f;
+
+  private FakeHeapSampler heapSampler;
+  private AdaptiveMemoryController.Callback callback;
+  private AdaptiveMemoryController controller;
+
+  @Before
+  public void setUp() {
+    heapSampler = new FakeHeapSampler();
+    callback = mock(AdaptiveMemoryController.Callback.class);
+    controller = new AdaptiveMemoryController(TARGET_HEADROOM, callback, heapSampler,
+        new Handler(Looper.getMainLooper()));
+  }
+
+  @Test
+  public void testShrinksWhenHeadroomIsBelowTarget() {
+    heapSampler.usedBytes = 900;
+    controller.sample();
+
+    float expected = AdaptiveMemoryController.SHRINK_FACTOR;
+    assertThat(controller.getSizeMultiplier()).isEqualTo(expected);
+    verify(callback).onSizeMultiplierChanged(expected);
+  }
+
+  @Test
+  public void testGrowsWhenHeadroomIsAboveTarget() {
+    heapSampler.usedBytes = 100;
+    controller.sample();
+
+    float expected = 1f + AdaptiveMemoryController.GROW_STEP;
+    assertThat(controller.getSizeMultiplier()).isEqualTo(expected);
+    verify(callback).onSizeMultiplierChanged(expected);
+  }
+
+  @Test
+  public void testDoesNotChangeWhenHeadroomIsNearTarget() {
+    heapSampler.usedBytes = 760;
+    controller.sample();
+    controller.sample();
+
+    assertThat(controller.getSizeMultiplier()).isEqualTo(1f);
+    verify(callback, never()).onSizeMultiplierChanged(anyFloat());
+  }
+
+  @Test
+  public void testShrinksWhenAllocationRateWouldExhaustHeadroom() {
+    heapSampler.usedBytes = 600;
+    controller.sample();
+    float afterFirstSample = controller.getSizeMultiplier();
+
+    heapSampler.usedBytes = 750;
+    controller.sample();
+
+    assertThat(controller.getSizeMultiplier())
+        .isEqualTo(afterFirstSample * AdaptiveMemoryController.SHRINK_FACTOR);
+  }
+
+  @Test
+  public void testShrinksOnLongBlockingGcPauses() {
+    heapSampler.usedBytes = 760;
+    controller.sample();
+
+    heapSampler.blockingGcTimeMs += AdaptiveMemoryController.GC_PAUSE_THRESHOLD_MS + 1;
+    controller.sample();
+
+    assertThat(controller.getSizeMultiplier()).isEqualTo(AdaptiveMemoryController.SHRINK_FACTOR);
+  }
+
+  @Test
+  public void testSizeMultiplierIsBounded() {
+    heapSampler.usedBytes = 990;
+    for (int i = 0; i < 100; i++) {
+      controller.sample();
+    }
+    assertThat(controller.getSizeMultiplier())
+        .isEqualTo(AdaptiveMemoryController.MIN_SIZE_MULTIPLIER);
+
+    heapSampler.usedBytes = 0;
+    for (int i = 0; i < 100; i++) {
+      controller.sample();
+    }
+    assertThat(controller.getSizeMultiplier())
+        .isEqualTo(AdaptiveMemoryController.MAX_SIZE_MULTIPLIER);
+  }
+
+  @Test
+  public void testCombinedSizeMultiplierIsClampedToLargestSingleMultiplier() {
+    float max = AdaptiveMemoryController.MAX_SIZE_MULTIPLIER;
+    assertThat(AdaptiveMemoryController.combineSizeMultipliers(1.5f, max)).isEqualTo(max);
+    assertThat(AdaptiveMemoryController.combineSizeMultipliers(1f, max)).isEqualTo(max);
+    assertThat(AdaptiveMemoryController.combineSizeMultipliers(2f, 1.2f)).isEqualTo(2f);
+  }
+
+  @Test
+  public void testCombinedSizeMultiplierIsProductBelowClamp() {
+    assertThat(AdaptiveMemoryController.combineSizeMultipliers(0.5f, 1.5f)).isEqualTo(0.75f);
+    assertThat(AdaptiveMemoryController.combineSizeMultipliers(1.5f, 0.5f)).isEqualTo(0.75f);
+  }
+
+  @Test
+  public void testSamplesPeriodicallyUntilStopped() {
+    heapSampler.usedBytes = 900;
+    controller.start();
+    Shadows.shadowOf(Looper.getMainLooper()).idle(2000);
+    assertThat(controller.getSizeMultiplier()).isLessThan(1f);
+
+    controller.stop();
+    float stopped = controller.getSizeMultiplier();
+    Shadows.shadowOf(Looper.getMainLooper()).idle(10000);
+    assertThat(controller.getSizeMultiplier()).isEqualTo(stopped);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testThrowsIfTargetHeadroomIsOutOfRange() {
+    new AdaptiveMemoryController(1f, callback, heapSampler, new Handler(Looper.getMainLooper()));
+  }
+
+  private static final class FakeHeapSampler implements AdaptiveMemoryController.HeapSampler {
+    long usedBytes;
+    long blockingGcTimeMs;
+
+    @Override
+    public long getUsedBytes() {
+      return usedBytes;
+    }
+
+    @Override
+    public long getMaxBytes() {
+      return MAX_BYTES;
+    }
+
+    @Override
+    public long getBlockingGcTimeMs() {
+      return blockingGcTimeMs;
+    }
+  }
+}
@@ -2,13 +2,14 @@ package com.bumptech.glide.load.engine.cache;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import com.bumptech.glide.load.Key;
+import com.bumptech.glide.tests.DiskCacheUtil.StringKey;
 import com.bumptech.glide.tests.Util;
 import java.io.File;
 import java.io.IOException;
-import java.security.MessageDigest;
+import java.nio.ByteBuffer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -50,6 +51,33 @@ public class DiskLruCacheWrapperTest {
     assertArrayEquals(data, received);
   }
 
+  @Test
+  public void testCanInsertAndGetMappedBuffer() {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        try {
+          Util.writeFile(file, data);
+        } catch (IOException e) {
+          fail(e.toString());
+        }
+        return true;
+      }
+    });
+
+    ByteBuffer buffer = cache.getBuffer(key);
+
+    assertTrue(buffer.isDirect());
+    byte[] received = new byte[buffer.remaining()];
+    buffer.get(received);
+    assertArrayEquals(data, received);
+  }
+
+  @Test
+  public void testGetBufferReturnsNullForMissingKey() {
+    assertNull(cache.getBuffer(key));
+  }
+
   @Test
   public void testDoesNotCommitIfWriterReturnsFalse() {
     cache.put(key, new DiskCache.Writer() {
@@ -108,17 +136,4 @@ public class DiskLruCacheWrapperTest {
 
     assertArrayEquals(data, received);
   }
-
-  private static class StringKey implements Key {
-    private final String key;
-
-    public StringKey(String key) {
-      this.key = key;
-    }
-
-    @Override
-    public void updateDiskCacheKey(MessageDigest messageDigest) {
-      messageDigest.update(key.getBytes());
-    }
-  }
 }
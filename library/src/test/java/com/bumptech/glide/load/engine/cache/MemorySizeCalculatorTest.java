@@ -8,6 +8,7 @@ import android.app.ActivityManager;
 import android.content.Context;
 import android.os.Build;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculatorTest.LowRamActivityManager;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.bumptech.glide.tests.Util;
 import com.google.common.collect.Range;
 import org.junit.After;
@@ -148,6 +149,22 @@ public class MemorySizeCalculatorTest {
     assertThat(byteArrayPoolSize).isEqualTo(harness.byteArrayPoolSizeBytes / 2);
   }
 
+  @Test
+  public void testMemoryCachePartitionSizesAreFractionsOfMemoryCacheSize() {
+    Shadows.shadowOf(harness.activityManager).setMemoryClass(getLargeEnoughMemoryClass());
+    harness.memoryCachePartitionFraction = 0.25f;
+
+    MemorySizeCalculator calculator = harness.getCalculator();
+
+    assertThat(calculator.getMemoryCachePartitionSizes())
+        .containsExactly(GifDrawable.class, (int) (calculator.getMemoryCacheSize() * 0.25f));
+  }
+
+  @Test
+  public void testMemoryCacheIsNotPartitionedByDefault() {
+    assertThat(harness.getCalculator().getMemoryCachePartitionSizes()).isEmpty();
+  }
+
   private int getLargeEnoughMemoryClass() {
     float totalScreenBytes =
         harness.getScreenSize() * (harness.bitmapPoolScreens + harness.memoryCacheScreens);
@@ -165,6 +182,7 @@ public class MemorySizeCalculatorTest {
     float bitmapPoolScreens = MemorySizeCalculator.Builder.BITMAP_POOL_TARGET_SCREENS;
     float sizeMultiplier = MemorySizeCalculator.Builder.MAX_SIZE_MULTIPLIER;
     int byteArrayPoolSizeBytes = MemorySizeCalculator.Builder.ARRAY_POOL_SIZE_BYTES;
+    float memoryCachePartitionFraction;
     ActivityManager activityManager =
         (ActivityManager) RuntimeEnvironment.application.getSystemService(Context.ACTIVITY_SERVICE);
     MemorySizeCalculator.ScreenDimensions screenDimensions =
@@ -173,14 +191,18 @@ public class MemorySizeCalculatorTest {
     public MemorySizeCalculator getCalculator() {
       when(screenDimensions.getWidthPixels()).thenReturn(pixelSize);
       when(screenDimensions.getHeightPixels()).thenReturn(pixelSize);
-      return new MemorySizeCalculator.Builder(RuntimeEnvironment.application)
+      MemorySizeCalculator.Builder builder =
+          new MemorySizeCalculator.Builder(RuntimeEnvironment.application)
           .setMemoryCacheScreens(memoryCacheScreens)
           .setBitmapPoolScreens(bitmapPoolScreens)
           .setMaxSizeMultiplier(sizeMultiplier)
           .setActivityManager(activityManager)
           .setScreenDimensions(screenDimensions)
-          .setArrayPoolSize(byteArrayPoolSizeBytes)
-          .build();
+          .setArrayPoolSize(byteArrayPoolSizeBytes);
+      if (memoryCachePartitionFraction > 0) {
+        builder.setMemoryCachePartition(GifDrawable.class, memoryCachePartitionFraction);
+      }
+      return builder.build();
     }
 
     public int getScreenSize() {
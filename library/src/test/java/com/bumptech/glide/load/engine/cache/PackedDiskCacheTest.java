@@ -0,0 +1,292 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.tests.DiskCacheUtil.DataWriter;
+import com.bumptech.glide.tests.DiskCacheUtil.StringKey;
+import com.bumptech.glide.util.ByteBufferUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class PackedDiskCacheTest {
+  private static final int MAX_SIZE = 1024;
+  // Fits three records with 64 byte entries.
+  private static final int SEGMENT_SIZE = 512;
+  private static final int MAX_PACKED_ENTRY_SIZE = 64;
+  private File dir;
+  private DiskCache largeEntryCache;
+  private PackedDiskCache cache;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "packed" + Math.random());
+    largeEntryCache = mock(DiskCache.class);
+    cache = newCache();
+  }
+
+  private PackedDiskCache newCache(DiskCache largeEntryCache) {
+    return new PackedDiskCache(dir, MAX_SIZE, SEGMENT_SIZE, MAX_PACKED_ENTRY_SIZE,
+        largeEntryCache, new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            command.run();
+          }
+        });
+  }
+
+  private PackedDiskCache newCache() {
+    return newCache(largeEntryCache);
+  }
+
+  @Test
+  public void testCanInsertAndGetBuffer() {
+    byte[] data = new byte[] { 1, 2, 3, 4, 5, 6 };
+    cache.put(new StringKey("test"), new DataWriter(data));
+
+    assertArrayEquals(data, toBytes(cache.getBuffer(new StringKey("test"))));
+  }
+
+  @Test
+  public void testGetBufferReturnsMappedDataWithoutCopying() {
+    cache.put(new StringKey("test"), new DataWriter(new byte[] { 1, 2, 3 }));
+
+    assertTrue(cache.getBuffer(new StringKey("test")).isDirect());
+    // Verified entries are returned the same way.
+    assertTrue(cache.getBuffer(new StringKey("test")).isDirect());
+  }
+
+  @Test
+  public void testGetBufferReturnsEntriesAddedToSegmentAfterItWasMapped() {
+    byte[] data = new byte[] { 4, 5, 6 };
+    cache.put(new StringKey("first"), new DataWriter(new byte[] { 1, 2, 3 }));
+    assertNotNull(cache.getBuffer(new StringKey("first")));
+    cache.put(new StringKey("second"), new DataWriter(data));
+
+    assertArrayEquals(data, toBytes(cache.getBuffer(new StringKey("second"))));
+  }
+
+  @Test
+  public void testGetBufferReturnsNullForMissingKey() {
+    assertNull(cache.getBuffer(new StringKey("missing")));
+  }
+
+  @Test
+  public void testDoesNotCommitIfWriterReturnsFalse() {
+    cache.put(new StringKey("test"), new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        return false;
+      }
+    });
+
+    assertNull(cache.getBuffer(new StringKey("test")));
+  }
+
+  @Test
+  public void testPutsLargeEntriesInLargeEntryCache() {
+    StringKey key = new StringKey("test");
+    cache.put(key, new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE + 1]));
+
+    verify(largeEntryCache).put(eq(key), any(DiskCache.Writer.class));
+    assertNull(cache.getBuffer(key));
+  }
+
+  @Test
+  public void testDoesNotPutSmallEntriesInLargeEntryCache() {
+    cache.put(new StringKey("test"), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+
+    verify(largeEntryCache, never()).put(any(Key.class), any(DiskCache.Writer.class));
+  }
+
+  @Test
+  public void testGetReturnsFileForPackedEntry() throws IOException {
+    cache = newCache(new DiskLruCacheWrapper(new File(dir, "large"), MAX_SIZE));
+    StringKey key = new StringKey("test");
+    byte[] data = new byte[] { 1, 2, 3, 4, 5, 6 };
+    cache.put(key, new DataWriter(data));
+
+    File file = cache.get(key);
+
+    assertNotNull(file);
+    assertArrayEquals(data, toBytes(ByteBufferUtil.fromFile(file)));
+  }
+
+  @Test
+  public void testGetReturnsNullForMissingKey() {
+    cache = newCache(new DiskLruCacheWrapper(new File(dir, "large"), MAX_SIZE));
+
+    assertNull(cache.get(new StringKey("test")));
+  }
+
+  @Test
+  public void testEntriesAreReadAfterRestart() {
+    byte[] data = new byte[] { 1, 2, 3 };
+    cache.put(new StringKey("first"), new DataWriter(data));
+    cache.put(new StringKey("second"), new DataWriter(new byte[] { 4 }));
+    cache.delete(new StringKey("second"));
+
+    PackedDiskCache restarted = newCache();
+
+    assertArrayEquals(data, toBytes(restarted.getBuffer(new StringKey("first"))));
+    assertNull(restarted.getBuffer(new StringKey("second")));
+  }
+
+  @Test
+  public void testPartiallyWrittenRecordIsIgnoredAfterRestart() throws IOException {
+    byte[] data = new byte[] { 1, 2, 3 };
+    cache.put(new StringKey("first"), new DataWriter(data));
+    cache.put(new StringKey("second"), new DataWriter(new byte[] { 4, 5, 6 }));
+    File segment = new File(dir, "segment-0");
+    RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    file.setLength(file.length() - 1);
+    file.close();
+
+    PackedDiskCache restarted = newCache();
+
+    assertArrayEquals(data, toBytes(restarted.getBuffer(new StringKey("first"))));
+    assertNull(restarted.getBuffer(new StringKey("second")));
+  }
+
+  @Test
+  public void testCorruptEntryIsRemoved() throws IOException {
+    cache.put(new StringKey("test"), new DataWriter(new byte[] { 1, 2, 3 }));
+    File segment = new File(dir, "segment-0");
+    RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    file.seek(file.length() - 1);
+    file.write(4);
+    file.close();
+
+    assertNull(cache.getBuffer(new StringKey("test")));
+    assertEquals(0, cache.getCurrentSize());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedEntriesOverMaxSize() {
+    for (int i = 0; i < MAX_SIZE / MAX_PACKED_ENTRY_SIZE; i++) {
+      cache.put(new StringKey("test" + i), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+    }
+    assertNotNull(cache.getBuffer(new StringKey("test0")));
+
+    cache.put(new StringKey("new"), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+
+    assertEquals(MAX_SIZE, cache.getCurrentSize());
+    assertNotNull(cache.getBuffer(new StringKey("test0")));
+    assertNull(cache.getBuffer(new StringKey("test1")));
+  }
+
+  @Test
+  public void testCompactsMostlyUnusedSegments() {
+    byte[] data = new byte[MAX_PACKED_ENTRY_SIZE];
+    data[0] = 1;
+    cache.put(new StringKey("test0"), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+    cache.put(new StringKey("test1"), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+    cache.put(new StringKey("test2"), new DataWriter(data));
+    cache.put(new StringKey("test3"), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+    File firstSegment = new File(dir, "segment-0");
+    assertTrue(firstSegment.exists());
+
+    cache.delete(new StringKey("test0"));
+    cache.delete(new StringKey("test1"));
+
+    assertFalse(firstSegment.exists());
+    assertArrayEquals(data, toBytes(cache.getBuffer(new StringKey("test2"))));
+    PackedDiskCache restarted = newCache();
+    assertArrayEquals(data, toBytes(restarted.getBuffer(new StringKey("test2"))));
+    assertNull(restarted.getBuffer(new StringKey("test0")));
+    assertNotNull(restarted.getBuffer(new StringKey("test3")));
+  }
+
+  @Test
+  public void testCompactsRepeatedlyOnDefaultExecutor() throws InterruptedException {
+    PackedDiskCache cache = new PackedDiskCache(dir, MAX_SIZE, SEGMENT_SIZE,
+        MAX_PACKED_ENTRY_SIZE, largeEntryCache, null /*compactionExecutor*/);
+    for (int i = 0; i < 30; i++) {
+      cache.put(new StringKey("test" + i), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+      cache.delete(new StringKey("test" + i));
+    }
+
+    long deadline = System.currentTimeMillis() + 1000;
+    while (getSegmentCount() > 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(getSegmentCount() <= 2);
+  }
+
+  @Test
+  public void testRetriesCompactionThatCouldNotBeScheduled() {
+    final AtomicBoolean isRejecting = new AtomicBoolean(true);
+    PackedDiskCache cache = new PackedDiskCache(dir, MAX_SIZE, SEGMENT_SIZE,
+        MAX_PACKED_ENTRY_SIZE, largeEntryCache, new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            if (isRejecting.getAndSet(false)) {
+              throw new RejectedExecutionException();
+            }
+            command.run();
+          }
+        });
+    for (int i = 0; i < 4; i++) {
+      cache.put(new StringKey("test" + i), new DataWriter(new byte[MAX_PACKED_ENTRY_SIZE]));
+    }
+    File firstSegment = new File(dir, "segment-0");
+
+    cache.delete(new StringKey("test0"));
+    cache.delete(new StringKey("test1"));
+    assertTrue(firstSegment.exists());
+
+    cache.delete(new StringKey("test3"));
+    assertFalse(firstSegment.exists());
+    assertNotNull(cache.getBuffer(new StringKey("test2")));
+  }
+
+  @Test
+  public void testClearRemovesAllEntries() {
+    cache.put(new StringKey("test"), new DataWriter(new byte[] { 1 }));
+    cache.clear();
+
+    assertNull(cache.getBuffer(new StringKey("test")));
+    assertNull(newCache().getBuffer(new StringKey("test")));
+    verify(largeEntryCache).clear();
+  }
+
+  private int getSegmentCount() {
+    File[] files = dir.listFiles();
+    int count = 0;
+    for (File file : files) {
+      if (file.getName().startsWith("segment-")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.get(result);
+    return result;
+  }
+}
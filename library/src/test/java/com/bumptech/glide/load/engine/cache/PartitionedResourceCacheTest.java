@@ -0,0 +1,121 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.bumptech.glide.load.engine.cache.MemoryCache.ResourceRemovedListener;
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PartitionedResourceCacheTest {
+  private static final int SIZE = 100;
+  private PartitionedResourceCache cache;
+  private ResourceRemovedListener listener;
+
+  @Before
+  public void setUp() {
+    Map<Class<?>, Integer> partitionSizes = new LinkedHashMap<>();
+    partitionSizes.put(Bitmap.class, 50);
+    cache = new PartitionedResourceCache(SIZE, partitionSizes);
+    listener = mock(ResourceRemovedListener.class);
+    cache.setResourceRemovedListener(listener);
+  }
+
+  @Test
+  public void testResourcesAreAssignedToPartitionsByResourceClass() {
+    cache.put(new MockKey(), getResource(Bitmap.class, 10));
+    cache.put(new MockKey(), getResource(byte[].class, 20));
+
+    assertThat(cache.getCurrentSize(Bitmap.class)).isEqualTo(10);
+    assertThat(cache.getCurrentSize(byte[].class)).isEqualTo(20);
+    assertThat(cache.getCurrentSize()).isEqualTo(30);
+  }
+
+  @Test
+  public void testPartitionCanBorrowUnusedSpace() {
+    for (int i = 0; i < 4; i++) {
+      cache.put(new MockKey(), getResource(byte[].class, 20));
+    }
+
+    assertThat(cache.getCurrentSize(byte[].class)).isEqualTo(80);
+    verify(listener, never()).onResourceRemoved(any(Resource.class));
+  }
+
+  @Test
+  public void testEvictsFromPartitionThatBorrowedSpace() {
+    Resource<?> bitmap = getResource(Bitmap.class, 20);
+    cache.put(new MockKey(), bitmap);
+    Resource<?> firstBytes = getResource(byte[].class, 40);
+    cache.put(new MockKey(), firstBytes);
+    cache.put(new MockKey(), getResource(byte[].class, 30));
+
+    // The bitmap partition is within its budget, so the other partition gives back space.
+    cache.put(new MockKey(), getResource(Bitmap.class, 20));
+
+    verify(listener).onResourceRemoved(firstBytes);
+    verify(listener, never()).onResourceRemoved(bitmap);
+    assertThat(cache.getCurrentSize(Bitmap.class)).isEqualTo(40);
+  }
+
+  @Test
+  public void testRemoveReturnsResourceAndReducesPartitionSize() {
+    MockKey key = new MockKey();
+    Resource<?> resource = getResource(Bitmap.class, 10);
+    cache.put(key, resource);
+
+    assertThat(cache.remove(key)).isEqualTo(resource);
+    assertThat(cache.getCurrentSize(Bitmap.class)).isEqualTo(0);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTrimMemoryBackgroundClearsAllPartitions() {
+    Resource<?> bitmap = getResource(Bitmap.class, 10);
+    Resource<?> bytes = getResource(byte[].class, 10);
+    cache.put(new MockKey(), bitmap);
+    cache.put(new MockKey(), bytes);
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    verify(listener).onResourceRemoved(bitmap);
+    verify(listener).onResourceRemoved(bytes);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testThrowsIfPartitionsExceedSize() {
+    Map<Class<?>, Integer> partitionSizes = new LinkedHashMap<>();
+    partitionSizes.put(Bitmap.class, SIZE + 1);
+    new PartitionedResourceCache(SIZE, partitionSizes);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Resource<?> getResource(Class<?> resourceClass, int size) {
+    Resource<Object> resource = mockResource();
+    when(resource.getSize()).thenReturn(size);
+    when(resource.getResourceClass()).thenReturn((Class<Object>) resourceClass);
+    return resource;
+  }
+
+  private static class MockKey implements Key {
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      messageDigest.update(toString().getBytes(CHARSET));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.tests.DiskCacheUtil.DataWriter;
+import com.bumptech.glide.tests.DiskCacheUtil.StringKey;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ShardedDiskLruCacheWrapperTest {
+  private static final int SHARD_COUNT = 4;
+  private File dir;
+  private ShardedDiskLruCacheWrapper cache;
+  private byte[] data;
+  private StringKey key;
+
+  @Before
+  public void setUp() {
+    dir = new File(RuntimeEnvironment.application.getCacheDir(), "sharded" + Math.random());
+    cache = new ShardedDiskLruCacheWrapper(dir, 10 * 1024 * 1024, SHARD_COUNT);
+    key = new StringKey("test" + Math.random());
+    data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  }
+
+  @Test
+  public void testCanInsertAndGet() throws IOException {
+    cache.put(key, new DataWriter(data));
+
+    byte[] received = Util.readFile(cache.get(key), data.length);
+
+    assertArrayEquals(data, received);
+  }
+
+  @Test
+  public void testDoesNotCommitIfWriterReturnsFalse() {
+    cache.put(key, new DiskCache.Writer() {
+      @Override
+      public boolean write(File file) {
+        return false;
+      }
+    });
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testCanDelete() {
+    cache.put(key, new DataWriter(data));
+    cache.delete(key);
+
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testClearRemovesEntriesFromAllShards() {
+    Set<Key> keys = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      StringKey current = new StringKey("test" + i);
+      keys.add(current);
+      cache.put(current, new DataWriter(data));
+    }
+    cache.clear();
+
+    for (Key current : keys) {
+      assertNull(cache.get(current));
+    }
+  }
+
+  @Test
+  public void testSpreadsEntriesBetweenShardDirectories() {
+    for (int i = 0; i < 20; i++) {
+      cache.put(new StringKey("test" + i), new DataWriter(data));
+    }
+
+    int usedShards = 0;
+    for (int i = 0; i < SHARD_COUNT; i++) {
+      File[] files = new File(dir, String.valueOf(i)).listFiles();
+      // Each shard has a journal, so a used shard has at least one more file.
+      if (files != null && files.length > 1) {
+        usedShards++;
+      }
+    }
+    assertThat(usedShards).isGreaterThan(1);
+  }
+}
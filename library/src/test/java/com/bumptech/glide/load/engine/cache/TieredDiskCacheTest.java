@@ -0,0 +1,231 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.bumptech.glide.tests.DiskCacheUtil.DataWriter;
+import com.bumptech.glide.tests.DiskCacheUtil.StringKey;
+import com.bumptech.glide.tests.Util;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class TieredDiskCacheTest {
+  private static final int MAX_HOT_ENTRY_SIZE = 16;
+  private static final int PROMOTION_FREQUENCY = 2;
+  private final List<Runnable> promotions = new ArrayList<>();
+  private boolean isRejectingPromotions;
+  private DiskCache hotCache;
+  private DiskCache coldCache;
+  private TieredDiskCache cache;
+  private StringKey key;
+  private byte[] data;
+
+  @Before
+  public void setUp() {
+    File dir = new File(RuntimeEnvironment.application.getCacheDir(), "tiered" + Math.random());
+    hotCache = new DiskLruCacheWrapper(new File(dir, "hot"), 1024);
+    coldCache = new DiskLruCacheWrapper(new File(dir, "cold"), 10 * 1024 * 1024);
+    Executor promotionExecutor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        if (isRejectingPromotions) {
+          throw new RejectedExecutionException();
+        }
+        promotions.add(command);
+      }
+    };
+    cache = new TieredDiskCache(hotCache, coldCache, 1024 /*hotMaxSize*/, MAX_HOT_ENTRY_SIZE,
+        PROMOTION_FREQUENCY, promotionExecutor);
+    key = new StringKey("test" + Math.random());
+    data = new byte[] { 1, 2, 3, 4, 5, 6 };
+  }
+
+  @Test
+  public void testCanInsertAndGet() throws IOException {
+    cache.put(key, new DataWriter(data));
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void testWritesNewEntriesToColdTier() {
+    cache.put(key, new DataWriter(data));
+
+    assertNotNull(coldCache.get(key));
+    assertNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testDoesNotPromoteEntryReadOnce() {
+    cache.put(key, new DataWriter(data));
+    cache.get(key);
+
+    assertNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testPromotesFrequentlyReadEntryToHotTier() throws IOException {
+    cache.put(key, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    runPromotions();
+
+    assertArrayEquals(data, Util.readFile(hotCache.get(key), data.length));
+  }
+
+  @Test
+  public void testReadThatTriggersPromotionDoesNotWaitForCopy() throws IOException {
+    cache.put(key, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+    }
+
+    assertNull(hotCache.get(key));
+    runPromotions();
+    assertNotNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testPromotesEntryOnlyOnceWhilePromotionIsPending() {
+    cache.put(key, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY + 2; i++) {
+      cache.get(key);
+    }
+
+    assertEquals(1, promotions.size());
+  }
+
+  @Test
+  public void testRetriesPromotionThatCouldNotBeScheduled() {
+    cache.put(key, new DataWriter(data));
+    isRejectingPromotions = true;
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    isRejectingPromotions = false;
+
+    cache.get(key);
+    runPromotions();
+    assertNotNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testDeleteDuringPromotionRemovesPromotedEntry() {
+    cache.put(key, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    cache.delete(key);
+    // Lets the pending copy succeed, as it would if it had already opened the deleted file.
+    coldCache.put(key, new DataWriter(data));
+
+    runPromotions();
+    assertNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testPromotesRepeatedlyOnDefaultExecutor() throws InterruptedException {
+    TieredDiskCache cache = new TieredDiskCache(hotCache, coldCache, 1024 /*hotMaxSize*/,
+        MAX_HOT_ENTRY_SIZE, PROMOTION_FREQUENCY, null /*promotionExecutor*/);
+    List<StringKey> keys = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      StringKey current = new StringKey("test" + i);
+      keys.add(current);
+      cache.put(current, new DataWriter(data));
+      for (int j = 0; j < PROMOTION_FREQUENCY; j++) {
+        cache.get(current);
+      }
+    }
+
+    long deadline = System.currentTimeMillis() + 1000;
+    while (hotCache.get(keys.get(keys.size() - 1)) == null
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    for (StringKey current : keys) {
+      assertNotNull(hotCache.get(current));
+    }
+  }
+
+  @Test
+  public void testDoesNotPromoteEntryLargerThanMaxHotEntrySize() {
+    cache.put(key, new DataWriter(new byte[MAX_HOT_ENTRY_SIZE + 1]));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    runPromotions();
+
+    assertNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testPromotedEntrySurvivesEvictionFromColdTier() throws IOException {
+    cache.put(key, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    runPromotions();
+    coldCache.delete(key);
+
+    assertArrayEquals(data, Util.readFile(cache.get(key), data.length));
+  }
+
+  @Test
+  public void testCanGetBuffer() {
+    cache.put(key, new DataWriter(data));
+
+    byte[] received = new byte[data.length];
+    cache.getBuffer(key).get(received);
+    assertArrayEquals(data, received);
+  }
+
+  @Test
+  public void testDeleteRemovesEntryFromBothTiers() {
+    cache.put(key, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    runPromotions();
+    cache.delete(key);
+
+    assertNull(cache.get(key));
+    assertNull(hotCache.get(key));
+  }
+
+  @Test
+  public void testClearRemovesEntriesFromBothTiers() {
+    StringKey other = new StringKey("other");
+    cache.put(key, new DataWriter(data));
+    cache.put(other, new DataWriter(data));
+    for (int i = 0; i < PROMOTION_FREQUENCY; i++) {
+      cache.get(key);
+    }
+    runPromotions();
+    cache.clear();
+
+    assertNull(cache.get(key));
+    assertNull(cache.get(other));
+  }
+
+  private void runPromotions() {
+    for (Runnable promotion : promotions) {
+      promotion.run();
+    }
+    promotions.clear();
+  }
+}
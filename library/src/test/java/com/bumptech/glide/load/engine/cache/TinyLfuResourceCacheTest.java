@@ -0,0 +1,120 @@
+package com.bumptech.glide.load.engine.cache;
+
+import static com.bumptech.glide.load.engine.cache.MemoryCache.ResourceRemovedListener;
+import static com.bumptech.glide.tests.Util.mockResource;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.security.MessageDigest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TinyLfuResourceCacheTest {
+  private static final int RESOURCE_SIZE = 100;
+  private TinyLfuResourceCache cache;
+  private ResourceRemovedListener listener;
+
+  @Before
+  public void setUp() {
+    cache = new TinyLfuResourceCache(10 * RESOURCE_SIZE);
+    listener = mock(ResourceRemovedListener.class);
+    cache.setResourceRemovedListener(listener);
+  }
+
+  @Test
+  public void testRemoveReturnsPutResource() {
+    MockKey key = new MockKey();
+    Resource<?> resource = getResource(RESOURCE_SIZE);
+    cache.put(key, resource);
+
+    assertThat(cache.remove(key)).isEqualTo(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCountsHitsAndMisses() {
+    MockKey key = new MockKey();
+    cache.remove(key);
+    cache.put(key, getResource(RESOURCE_SIZE));
+    cache.remove(key);
+
+    assertThat(cache.getHitCount()).isEqualTo(1L);
+    assertThat(cache.getMissCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testFrequentlyUsedResourceSurvivesScanOfResourcesUsedOnce() {
+    MockKey hotKey = new MockKey();
+    Resource<?> hot = getResource(RESOURCE_SIZE);
+    for (int i = 0; i < 3; i++) {
+      cache.remove(hotKey);
+    }
+    cache.put(hotKey, hot);
+
+    for (int i = 0; i < 50; i++) {
+      MockKey coldKey = new MockKey();
+      cache.remove(coldKey);
+      cache.put(coldKey, getResource(RESOURCE_SIZE));
+    }
+
+    verify(listener, never()).onResourceRemoved(hot);
+    assertThat(cache.remove(hotKey)).isEqualTo(hot);
+    assertThat(cache.getAdmissionRejectCount()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void testResourceLargerThanCacheIsRemovedImmediately() {
+    Resource<?> resource = getResource(20 * RESOURCE_SIZE);
+    cache.put(new MockKey(), resource);
+
+    verify(listener).onResourceRemoved(resource);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testTrimMemoryBackgroundClearsCache() {
+    Resource<?> first = getResource(RESOURCE_SIZE);
+    Resource<?> second = getResource(RESOURCE_SIZE);
+    cache.put(new MockKey(), first);
+    cache.put(new MockKey(), second);
+
+    cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    verify(listener).onResourceRemoved(first);
+    verify(listener).onResourceRemoved(second);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSetSizeMultiplierEvictsResources() {
+    for (int i = 0; i < 5; i++) {
+      cache.put(new MockKey(), getResource(RESOURCE_SIZE));
+    }
+
+    cache.setSizeMultiplier(0.2f);
+
+    assertThat(cache.getCurrentSize()).isAtMost(cache.getMaxSize());
+  }
+
+  private static Resource<?> getResource(int size) {
+    Resource<?> resource = mockResource();
+    when(resource.getSize()).thenReturn(size);
+    return resource;
+  }
+
+  private static class MockKey implements Key {
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      messageDigest.update(toString().getBytes(CHARSET));
+    }
+  }
+}
@@ -5,6 +5,8 @@ import static com.google.common.truth.Truth.assertThat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,6 +38,63 @@ public class GlideExecutorTest {
     assertThat(resultPriorities).containsExactly(5, 1, 2, 3, 4).inOrder();
   }
 
+  @Test
+  public void testDiskCacheEncodeExecutorRejectsWhenQueueIsFull() throws InterruptedException {
+    GlideExecutor executor = GlideExecutor.newDiskCacheEncodeExecutor(1 /*maxQueuedEncodes*/,
+        "test", GlideExecutor.UncaughtThrowableStrategy.THROW);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch blocker = new CountDownLatch(1);
+    Runnable blocking = new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          blocker.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    try {
+      executor.execute(blocking);
+      started.await(500, TimeUnit.MILLISECONDS);
+      executor.execute(blocking);
+
+      boolean isRejected = false;
+      try {
+        executor.execute(blocking);
+      } catch (RejectedExecutionException e) {
+        isRejected = true;
+      }
+      assertThat(isRejected).isTrue();
+    } finally {
+      blocker.countDown();
+      executor.shutdown();
+      executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Test
+  public void testDiskBackgroundExecutorRunsPlainRunnablesInOrder() throws InterruptedException {
+    GlideExecutor executor = GlideExecutor.newDiskBackgroundExecutor("test",
+        GlideExecutor.UncaughtThrowableStrategy.THROW);
+    final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+    for (int i = 0; i < 5; i++) {
+      final int index = i;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          results.add(index);
+        }
+      });
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(500, TimeUnit.MILLISECONDS);
+
+    assertThat(results).containsExactly(0, 1, 2, 3, 4).inOrder();
+  }
+
   private static class MockRunnable implements Runnable,
       Comparable<MockRunnable> {
     private final int priority;
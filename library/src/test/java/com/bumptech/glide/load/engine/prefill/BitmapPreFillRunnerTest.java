@@ -211,6 +211,24 @@ public class BitmapPreFillRunnerTest {
     // assertThat(addedBitmaps).containsExactly(bitmap);
   }
 
+  @Test
+  public void testAddsBitmapsToBitmapPoolIfCreatedWithoutMemoryCache() {
+    Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    when(cache.getMaxSize()).thenReturn(Util.getBitmapByteSize(bitmap));
+
+    PreFillType size =
+        new PreFillType.Builder(bitmap.getWidth(), bitmap.getHeight()).setConfig(bitmap.getConfig())
+            .build();
+    Map<PreFillType, Integer> allocationOrder = new HashMap<>();
+    allocationOrder.put(size, 1);
+
+    new BitmapPreFillRunner(pool, null /*memoryCache*/, new PreFillQueue(allocationOrder), clock,
+        mainHandler).run();
+
+    verify(cache, never()).put(any(Key.class), anyResource());
+    verify(pool).put(any(Bitmap.class));
+  }
+
   @Test
   public void testAddsBitmapsToBitmapPoolIfMemoryCacheIsFull() {
     Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
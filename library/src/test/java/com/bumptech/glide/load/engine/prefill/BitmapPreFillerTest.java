@@ -8,6 +8,7 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -18,8 +19,10 @@ import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.tests.Util.CreateBitmap;
 import com.bumptech.glide.util.Util;
 import com.google.common.collect.Range;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,6 +30,7 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 @RunWith(RobolectricTestRunner.class)
@@ -60,6 +64,47 @@ public class BitmapPreFillerTest {
     bitmapPreFiller = new BitmapPreFiller(cache, pool, DecodeFormat.DEFAULT);
   }
 
+  @Test
+  public void testPreFillFromHistogramCanBeStartedRepeatedly() {
+    File file = new File(RuntimeEnvironment.application.getCacheDir(), "decode_sizes");
+    DecodeSizeHistogram histogram = new DecodeSizeHistogram(file, "1", new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    });
+    histogram.record(DEFAULT_BITMAP_WIDTH, DEFAULT_BITMAP_HEIGHT, defaultBitmapConfig);
+    histogram.save();
+    try {
+      // Runs on the real prediction executor, which has to accept every pre-fill.
+      for (int i = 0; i < 3; i++) {
+        bitmapPreFiller.preFill(histogram);
+      }
+
+      verify(pool, timeout(1000).atLeastOnce()).put(any(Bitmap.class));
+    } finally {
+      bitmapPreFiller.cancel();
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testPoolAllocationOrderContainsAtMostWeightOfEachSize() {
+    PreFillQueue allocationOrder = bitmapPreFiller.generatePoolAllocationOrder(
+        new PreFillType(DEFAULT_BITMAP_WIDTH, DEFAULT_BITMAP_HEIGHT, defaultBitmapConfig, 3));
+
+    assertEquals(3, allocationOrder.getSize());
+  }
+
+  @Test
+  public void testPoolAllocationOrderContainsEnoughSizesToFillOnlyPool() {
+    PreFillQueue allocationOrder = bitmapPreFiller.generatePoolAllocationOrder(
+        new PreFillType(DEFAULT_BITMAP_WIDTH, DEFAULT_BITMAP_HEIGHT, defaultBitmapConfig,
+            BITMAPS_IN_POOL + BITMAPS_IN_CACHE));
+
+    assertEquals(poolSize / defaultBitmapSize, allocationOrder.getSize());
+  }
+
   @Test
   public void testAllocationOrderContainsEnoughSizesToFillPoolAndMemoryCache() {
     PreFillQueue allocationOrder = bitmapPreFiller.generateAllocationOrder(new PreFillType[] {
@@ -0,0 +1,158 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class DecodeSizeHistogramTest {
+  private static final String APP_VERSION = "1";
+  private File file;
+  private DecodeSizeHistogram histogram;
+
+  @Before
+  public void setUp() {
+    file = new File(RuntimeEnvironment.application.getCacheDir(), "decode_sizes");
+    histogram = new DecodeSizeHistogram(file, APP_VERSION, new DirectExecutor());
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testLoadReturnsEmptyListIfNothingWasSaved() {
+    assertThat(histogram.load()).isEmpty();
+  }
+
+  @Test
+  public void testLoadReturnsSavedTypesOrderedByCount() {
+    histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+    histogram.record(200, 50, Bitmap.Config.RGB_565);
+    histogram.record(200, 50, Bitmap.Config.RGB_565);
+    histogram.save();
+
+    List<PreFillType> types =
+        new DecodeSizeHistogram(file, APP_VERSION, new DirectExecutor()).load();
+
+    assertThat(types).containsExactly(
+        new PreFillType(200, 50, Bitmap.Config.RGB_565, 2),
+        new PreFillType(100, 100, Bitmap.Config.ARGB_8888, 1)).inOrder();
+  }
+
+  @Test
+  public void testLoadIgnoresHistogramsSavedByOtherVersions() {
+    histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+    histogram.save();
+
+    assertThat(new DecodeSizeHistogram(file, "2", new DirectExecutor()).load()).isEmpty();
+  }
+
+  @Test
+  public void testLoadIgnoresMalformedHistograms() throws Exception {
+    FileWriter writer = new FileWriter(file);
+    writer.write(APP_VERSION + "\n100,fake\n");
+    writer.close();
+
+    assertThat(histogram.load()).isEmpty();
+  }
+
+  @Test
+  public void testSavesAutomaticallyAfterMaxRecordedDecodes() {
+    for (int i = 0; i < DecodeSizeHistogram.MAX_RECORDED_DECODES - 1; i++) {
+      histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+    }
+    assertFalse(file.exists());
+
+    histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+
+    assertTrue(file.exists());
+    assertThat(histogram.load()).containsExactly(new PreFillType(100, 100,
+        Bitmap.Config.ARGB_8888, DecodeSizeHistogram.MAX_RECORDED_DECODES));
+  }
+
+  @Test
+  public void testSavesWhenUiIsHidden() {
+    histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+
+    histogram.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(histogram.load()).containsExactly(
+        new PreFillType(100, 100, Bitmap.Config.ARGB_8888, 1));
+  }
+
+  @Test
+  public void testSavesRepeatedlyOnDiskBackgroundExecutor() throws InterruptedException {
+    GlideExecutor executor = GlideExecutor.newDiskBackgroundExecutor("test",
+        GlideExecutor.UncaughtThrowableStrategy.THROW);
+    DecodeSizeHistogram histogram = new DecodeSizeHistogram(file, APP_VERSION, executor);
+    try {
+      for (int i = 0; i < 3; i++) {
+        histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+        histogram.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(500, TimeUnit.MILLISECONDS));
+    }
+
+    assertThat(histogram.load()).containsExactly(
+        new PreFillType(100, 100, Bitmap.Config.ARGB_8888, 3));
+  }
+
+  @Test
+  public void testDoesNotSaveWhenTrimmedWhileUiIsVisible() {
+    histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+
+    histogram.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void testIgnoresDecodesAfterMaxRecordedDecodes() {
+    for (int i = 0; i < DecodeSizeHistogram.MAX_RECORDED_DECODES; i++) {
+      histogram.record(100, 100, Bitmap.Config.ARGB_8888);
+    }
+    histogram.record(50, 50, Bitmap.Config.ARGB_8888);
+    histogram.save();
+
+    List<PreFillType> types = histogram.load();
+    assertEquals(1, types.size());
+    assertEquals(100, types.get(0).getWidth());
+  }
+
+  @Test
+  public void testIgnoresDecodesWithNullConfigs() {
+    histogram.record(100, 100, null);
+    histogram.save();
+
+    assertThat(histogram.load()).isEmpty();
+  }
+
+  private static final class DirectExecutor implements Executor {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
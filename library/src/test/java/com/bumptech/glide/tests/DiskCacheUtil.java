@@ -0,0 +1,66 @@
+package com.bumptech.glide.tests;
+
+import static org.junit.Assert.fail;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+/**
+ * Keys and writers shared by tests of {@link DiskCache} implementations.
+ */
+public final class DiskCacheUtil {
+
+  private DiskCacheUtil() {
+    // Utility class.
+  }
+
+  /**
+   * A {@link Key} for the given string.
+   */
+  public static final class StringKey implements Key {
+    private final String key;
+
+    public StringKey(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public void updateDiskCacheKey(MessageDigest messageDigest) {
+      messageDigest.update(key.getBytes());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof StringKey && key.equals(((StringKey) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode();
+    }
+  }
+
+  /**
+   * A {@link DiskCache.Writer} that writes the given bytes.
+   */
+  public static final class DataWriter implements DiskCache.Writer {
+    private final byte[] data;
+
+    public DataWriter(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public boolean write(File file) {
+      try {
+        Util.writeFile(file, data);
+      } catch (IOException e) {
+        fail(e.toString());
+      }
+      return true;
+    }
+  }
+}
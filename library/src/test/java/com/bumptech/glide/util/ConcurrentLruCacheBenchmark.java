@@ -0,0 +1,159 @@
+package com.bumptech.glide.util;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares the throughput of an externally synchronized {@link LruCache} and
+ * {@link ConcurrentLruCache} when several threads look up the safe keys of {@link Key}s as
+ * {@link com.bumptech.glide.load.engine.cache.SafeKeyGenerator} does, hashing the key and putting
+ * the result on a miss.
+ *
+ * <p>Most lookups are for a small set of keys, as the disk cache looks up the same resource and
+ * data keys several times for each load of the images on screen. Not run as part of the tests,
+ * remove the {@link Ignore} annotation to run it locally.
+ */
+@Ignore("Benchmark")
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public class ConcurrentLruCacheBenchmark {
+  // Matches the size of SafeKeyGenerator's cache.
+  private static final int CACHE_SIZE = 1000;
+  private static final int KEY_COUNT = 1200;
+  private static final int HOT_KEY_COUNT = 100;
+  private static final int THREADS = 8;
+  private static final int OPERATIONS_PER_THREAD = 200000;
+  private static final int WARM_UP_ROUNDS = 2;
+  private static final int ROUNDS = 5;
+
+  @Test
+  public void benchmark() throws InterruptedException {
+    Key[] keys = new Key[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = new ObjectKey("http://www.example.com/image/" + i);
+    }
+    final LruCache<Key, String> lruCache = new LruCache<>(CACHE_SIZE);
+    final ConcurrentLruCache<Key, String> concurrentLruCache =
+        new ConcurrentLruCache<>(CACHE_SIZE);
+    Cache synchronizedLru = new Cache() {
+      @Override
+      public String get(Key key) {
+        synchronized (lruCache) {
+          return lruCache.get(key);
+        }
+      }
+
+      @Override
+      public void put(Key key, String value) {
+        synchronized (lruCache) {
+          lruCache.put(key, value);
+        }
+      }
+
+      @Override
+      public void clear() {
+        synchronized (lruCache) {
+          lruCache.clearMemory();
+        }
+      }
+    };
+    Cache concurrentLru = new Cache() {
+      @Override
+      public String get(Key key) {
+        return concurrentLruCache.get(key);
+      }
+
+      @Override
+      public void put(Key key, String value) {
+        concurrentLruCache.put(key, value);
+      }
+
+      @Override
+      public void clear() {
+        concurrentLruCache.clearMemory();
+      }
+    };
+
+    for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+      run(synchronizedLru, keys);
+      run(concurrentLru, keys);
+    }
+    long synchronizedNanos = 0;
+    long concurrentNanos = 0;
+    for (int i = 0; i < ROUNDS; i++) {
+      synchronizedNanos += run(synchronizedLru, keys);
+      concurrentNanos += run(concurrentLru, keys);
+    }
+    report("synchronized LruCache", synchronizedNanos);
+    report("ConcurrentLruCache", concurrentNanos);
+  }
+
+  private static long run(final Cache cache, final Key[] keys) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(THREADS);
+    for (int t = 0; t < THREADS; t++) {
+      final long seed = t;
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          MessageDigest messageDigest = newDigest();
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+            Key key = keys[random.nextInt(4) == 0
+                ? random.nextInt(KEY_COUNT) : random.nextInt(HOT_KEY_COUNT)];
+            String safeKey = cache.get(key);
+            if (safeKey == null) {
+              key.updateDiskCacheKey(messageDigest);
+              safeKey = Util.sha256BytesToHex(messageDigest.digest());
+              cache.put(key, safeKey);
+            }
+          }
+          done.countDown();
+        }
+      }).start();
+    }
+    long startNanos = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - startNanos;
+    cache.clear();
+    return elapsed;
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void report(String name, long nanos) {
+    long operations = (long) OPERATIONS_PER_THREAD * THREADS * ROUNDS;
+    System.out.println(name + ": " + (operations * TimeUnit.SECONDS.toNanos(1) / nanos)
+        + " ops/s with " + THREADS + " threads");
+  }
+
+  private interface Cache {
+    String get(Key key);
+
+    void put(Key key, String value);
+
+    void clear();
+  }
+}
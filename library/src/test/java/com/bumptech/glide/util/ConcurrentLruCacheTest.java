@@ -0,0 +1,139 @@
+package com.bumptech.glide.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConcurrentLruCacheTest {
+  private static final int SIZE = 2;
+  private final List<String> evicted = new ArrayList<>();
+  private ConcurrentLruCache<String, Object> cache;
+
+  @Before
+  public void setUp() {
+    cache = new ConcurrentLruCache<String, Object>(SIZE) {
+      @Override
+      protected void onItemEvicted(String key, Object item) {
+        evicted.add(key);
+      }
+    };
+  }
+
+  @Test
+  public void testCanAddAndRetrieveItem() {
+    Object object = new Object();
+    cache.put("key", object);
+
+    assertThat(cache.get("key")).isSameAs(object);
+    assertThat(cache.contains("key")).isTrue();
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedItem() {
+    cache.put("first", new Object());
+    cache.put("second", new Object());
+    cache.get("first");
+    // Replayed when the next put drains the read buffers.
+    cache.put("third", new Object());
+
+    assertThat(evicted).containsExactly("second");
+    assertThat(cache.contains("first")).isTrue();
+    assertThat(cache.contains("third")).isTrue();
+  }
+
+  @Test
+  public void testPutReturnsPreviousValueAndKeepsSize() {
+    Object first = new Object();
+    cache.put("key", first);
+
+    assertThat(cache.put("key", new Object())).isSameAs(first);
+    assertThat(cache.getCurrentSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRemoveReturnsValueAndReducesSize() {
+    Object object = new Object();
+    cache.put("key", object);
+
+    assertThat(cache.remove("key")).isSameAs(object);
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+    assertThat(cache.contains("key")).isFalse();
+  }
+
+  @Test
+  public void testItemLargerThanCacheIsEvictedImmediately() {
+    ConcurrentLruCache<String, Object> cache = new ConcurrentLruCache<String, Object>(SIZE) {
+      @Override
+      protected int getSize(Object item) {
+        return SIZE;
+      }
+
+      @Override
+      protected void onItemEvicted(String key, Object item) {
+        evicted.add(key);
+      }
+    };
+    cache.put("key", new Object());
+
+    assertThat(evicted).containsExactly("key");
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSetSizeMultiplierEvictsItems() {
+    cache.put("first", new Object());
+    cache.put("second", new Object());
+
+    cache.setSizeMultiplier(0.5f);
+
+    assertThat(evicted).containsExactly("first");
+    assertThat(cache.getMaxSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void testClearMemoryEvictsAllItems() {
+    cache.put("first", new Object());
+    cache.put("second", new Object());
+
+    cache.clearMemory();
+
+    assertThat(evicted).containsExactly("first", "second");
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSizeStaysWithinBoundsWithConcurrentAccess() throws InterruptedException {
+    final ConcurrentLruCache<Integer, Object> cache = new ConcurrentLruCache<>(100);
+    final CountDownLatch done = new CountDownLatch(4);
+    for (int t = 0; t < 4; t++) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            Integer key = i % 500;
+            if (cache.get(key) == null) {
+              cache.put(key, new Object());
+            }
+            if (i % 7 == 0) {
+              cache.remove(key);
+            }
+          }
+          done.countDown();
+        }
+      }).start();
+    }
+
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(cache.getCurrentSize()).isAtMost(100);
+    cache.clearMemory();
+    assertThat(cache.getCurrentSize()).isEqualTo(0);
+  }
+}